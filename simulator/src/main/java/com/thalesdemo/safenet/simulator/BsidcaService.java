@@ -0,0 +1,337 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaService class implements the BSIDCA operations used by the
+ * SafeNet RESTful Workflow API against the in-memory Directory: it reads
+ * the parameters of a SoapRequest and writes the SoapResponse the SafeNet
+ * server would return. The token and provisioning task lists are written
+ * as the ADO.NET datasets of the real service, without their inline
+ * schema. The sessions are checked by the caller, so that Connect and
+ * PingConnection are not handled here.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BsidcaService {
+
+    /**
+     * The attributes of the diffgram of a dataset.
+     */
+    private static final String DIFFGRAM_ATTRIBUTES = "xmlns:msdata=\"urn:schemas-microsoft-com:xml-msdata\" "
+            + "xmlns:diffgr=\"urn:schemas-microsoft-com:xml-diffgram-v1\"";
+
+    /**
+     * The fields of a user returned by GetUser, in the order of the User type.
+     */
+    private static final String[] USER_FIELDS = {
+            "StartDate", "EndDate", "StartTime", "EndTime", "PasswordSetDate", "UserName", "FirstName",
+            "Lastname", "Address1", "City", "State", "Country", "Zip", "Email", "Telephone", "Extension",
+            "Mobile", "UnlockAt", "Message", "ContainerName"
+    };
+
+    /**
+     * A 1x1 PNG image standing in for the GrIDsure enrollment pattern.
+     */
+    private static final String ENROLLMENT_IMAGE = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk"
+            + "YPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    /**
+     * The in-memory users, tokens and provisioning tasks.
+     */
+    private final Directory directory;
+
+    /**
+     * Constructor for the BsidcaService class.
+     *
+     * @param directory The in-memory users, tokens and provisioning tasks.
+     */
+    public BsidcaService(Directory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Answers a call.
+     *
+     * @param request The request of the call.
+     * @param baseUrl The base URL of the simulator, for the enrollment URLs.
+     * @return The response of the call.
+     * @throws SimulatorFault if the call must be answered with a SOAP fault.
+     */
+    public SoapResponse handle(SoapRequest request, String baseUrl) {
+        String operation = request.getOperation();
+        switch (operation) {
+            case "GetTokens":
+                return getTokens(request);
+            case "GetTokensByOwner":
+                return getTokensByOwner(request);
+            case "GetUser":
+                return getUser(request);
+            case "AddUser":
+                return addUser(request);
+            case "RemoveUser":
+                return new SoapResponse(operation).element("RemoveUserResult",
+                        directory.removeUser(request.get("Organization"), request.get("UserName"))
+                                ? "Deleted"
+                                : "Failed");
+            case "RevokeToken":
+                return new SoapResponse(operation).element("RevokeTokenResult",
+                        directory.revokeToken(request.get("Organization"), request.get("UserName"),
+                                request.get("Serial")) ? "Success" : "Failed");
+            case "ProvisionUsers":
+                return provisionUsers(request, request.get("TokenClass"));
+            case "ProvisionUsersGrIDsureTokens":
+                return provisionUsers(request, "GrIDsure");
+            case "GetProvisioningTasksForUser":
+                return getProvisioningTasks(request);
+            case "GetEnrollmentURL":
+                return new SoapResponse(operation).element("GetEnrollmentURLResult",
+                        baseUrl + "/selfEnrollment/index.aspx?code=" + findTask(request).getCode());
+            case "ProcessEnrollment":
+                return processEnrollment(request);
+            case "GetMobilePASSProvisioningActivationCode":
+                return getMobilePassActivationCode(request);
+            default:
+                throw new SimulatorFault("Unknown operation: " + operation, true);
+        }
+    }
+
+    /**
+     * Answers a GetTokens call with a page of the tokens of an organization.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse getTokens(SoapRequest request) {
+        List<Directory.Token> tokens = directory.getTokens(request.get("Organization"), request.get("Serial"),
+                Math.max(0, request.getInt("StartRecord", 0)), request.getInt("PageSize", 0));
+
+        SoapResponse response = new SoapResponse(request.getOperation()).open("GetTokensResult");
+        openDataset(response);
+        int row = 0;
+        for (Directory.Token token : tokens) {
+            response.open("Named_Tokens_Table", rowAttributes("Named_Tokens_Table", row++))
+                    .element("serialnumber", token.getSerial())
+                    .element("state", token.getState())
+                    .element("stateSetDate", Directory.formatDate(token.getStateSetAt()))
+                    .element("userid", token.getOwner())
+                    .element("orgName", token.getOrganization())
+                    .element("type", token.getType())
+                    .element("rented", "No")
+                    .element("hardwareInit", false)
+                    .element("assignable", true)
+                    .element("stateInt", token.getOwner() == null ? 0 : 1)
+                    .close("Named_Tokens_Table");
+        }
+        return closeDataset(response).close("GetTokensResult");
+    }
+
+    /**
+     * Answers a GetTokensByOwner call with the serial numbers of the tokens
+     * of a user.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse getTokensByOwner(SoapRequest request) {
+        SoapResponse response = new SoapResponse(request.getOperation()).open("GetTokensByOwnerResult");
+        for (String serial : directory.getTokensByOwner(request.get("Organization"), request.get("UserName"))) {
+            response.element("string", serial);
+        }
+        return response.close("GetTokensByOwnerResult");
+    }
+
+    /**
+     * Answers a GetUser call with the fields of a user.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse getUser(SoapRequest request) {
+        SoapResponse response = new SoapResponse(request.getOperation());
+        Directory.User user = directory.getUser(request.get("Organization"), request.get("UserName"));
+        if (user == null) {
+            return response.nil("GetUserResult");
+        }
+        response.open("GetUserResult");
+        for (String field : USER_FIELDS) {
+            String value = "UserName".equals(field) ? user.getUserName() : user.getField(field);
+            if (value != null) {
+                response.element(field, value);
+            }
+        }
+        return response.element("Locked", false)
+                .element("PasswordAttemptCount", 0)
+                .element("IsAccountDormant", false)
+                .close("GetUserResult");
+    }
+
+    /**
+     * Answers an AddUser call, creating a user with the fields of the
+     * request.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse addUser(SoapRequest request) {
+        Map<String, String> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        request.getValues().forEach((name, values) -> fields.put(name, values.get(0)));
+        fields.remove("Organization");
+        boolean added = directory.addUser(request.get("Organization"), request.get("UserName"), fields);
+        return new SoapResponse(request.getOperation()).element("AddUserResult", added);
+    }
+
+    /**
+     * Answers a ProvisionUsers or ProvisionUsersGrIDsureTokens call, creating
+     * a provisioning task for every user of the request.
+     *
+     * @param request     The request of the call.
+     * @param tokenOption The kind of token to provision.
+     * @return The response of the call.
+     */
+    private SoapResponse provisionUsers(SoapRequest request, String tokenOption) {
+        String resultName = request.getOperation() + "Result";
+        SoapResponse response = new SoapResponse(request.getOperation()).open(resultName);
+        for (String userName : request.getAll("string")) {
+            Directory.Task task = directory.provision(request.get("Organization"), userName, tokenOption,
+                    request.get("Description"));
+            response.element("ProvisioningResult", task == null ? "Failed" : "EmailSent");
+        }
+        return response.close(resultName);
+    }
+
+    /**
+     * Answers a GetProvisioningTasksForUser call with a page of the
+     * provisioning tasks of a user.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse getProvisioningTasks(SoapRequest request) {
+        List<Directory.Task> tasks = directory.getTasks(request.get("Organization"), request.get("User"));
+        int start = Math.min(tasks.size(), Math.max(0, request.getInt("StartRecord", 0)));
+        int count = request.getInt("NumberOfRecords", 0);
+        int end = count > 0 ? Math.min(tasks.size(), start + count) : tasks.size();
+
+        SoapResponse response = new SoapResponse(request.getOperation()).open("GetProvisioningTasksForUserResult");
+        openDataset(response);
+        int row = 0;
+        for (Directory.Task task : tasks.subList(start, end)) {
+            response.open("Provisioning_x0020_Tasks", rowAttributes("Provisioning_x0020_Tasks", row++))
+                    .element("taskid", task.getId())
+                    .element("userid", task.getUserName())
+                    .element("status", task.getStatus())
+                    .element("tokenoption", task.getTokenOption())
+                    .element("description", task.getDescription())
+                    .element("created", Directory.formatDate(task.getCreatedAt()))
+                    .close("Provisioning_x0020_Tasks");
+        }
+        return closeDataset(response).close("GetProvisioningTasksForUserResult");
+    }
+
+    /**
+     * Answers a ProcessEnrollment call. The first call, without an OTP,
+     * returns the enrollment image; the second, with the OTP, completes the
+     * enrollment.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse processEnrollment(SoapRequest request) {
+        SoapResponse response = new SoapResponse(request.getOperation());
+        Directory.Task task = directory.getTaskByCode(request.get("Code"));
+        if (task == null) {
+            return response.element("ProcessEnrollmentResult", "Failed");
+        }
+        if (request.get("OTP").isEmpty()) {
+            return response.element("ProcessEnrollmentResult", "Success")
+                    .open("CustomInfo")
+                    .element("EnrollmentImage", ENROLLMENT_IMAGE)
+                    .close("CustomInfo");
+        }
+        return response.element("ProcessEnrollmentResult", directory.complete(task) == null ? "Failed" : "Success");
+    }
+
+    /**
+     * Answers a GetMobilePASSProvisioningActivationCode call, completing the
+     * enrollment of the provisioning task.
+     *
+     * @param request The request of the call.
+     * @return The response of the call.
+     */
+    private SoapResponse getMobilePassActivationCode(SoapRequest request) {
+        Directory.Task task = findTask(request);
+        String serial = directory.complete(task);
+        if (serial == null) {
+            throw new SimulatorFault("The provisioning task " + task.getId() + " is not active", false);
+        }
+        String activationCode = Base64.getEncoder()
+                .encodeToString(("simulator:" + task.getCode() + ":" + serial).getBytes(StandardCharsets.UTF_8));
+        return new SoapResponse(request.getOperation()).element("GetMobilePASSProvisioningActivationCodeResult",
+                activationCode);
+    }
+
+    /**
+     * Finds the provisioning task named by the TaskID of a request.
+     *
+     * @param request The request of the call.
+     * @return The task.
+     * @throws SimulatorFault if the task does not exist.
+     */
+    private Directory.Task findTask(SoapRequest request) {
+        Directory.Task task = directory.getTask(request.getInt("TaskID", 0));
+        if (task == null) {
+            throw new SimulatorFault("Unknown provisioning task: " + request.get("TaskID"), false);
+        }
+        return task;
+    }
+
+    /**
+     * Opens the diffgram of a dataset.
+     *
+     * @param response The response being written.
+     */
+    private static void openDataset(SoapResponse response) {
+        response.open("diffgr:diffgram", DIFFGRAM_ATTRIBUTES).open("NewDataSet", "xmlns=\"\"");
+    }
+
+    /**
+     * Closes the diffgram of a dataset.
+     *
+     * @param response The response being written.
+     * @return The response.
+     */
+    private static SoapResponse closeDataset(SoapResponse response) {
+        return response.close("NewDataSet").close("diffgr:diffgram");
+    }
+
+    /**
+     * Writes the attributes of a row of a dataset.
+     *
+     * @param table The name of the table.
+     * @param row   The index of the row.
+     * @return The attributes of the row.
+     */
+    private static String rowAttributes(String table, int row) {
+        return "diffgr:id=\"" + table + (row + 1) + "\" msdata:rowOrder=\"" + row + "\"";
+    }
+}
@@ -0,0 +1,423 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaSimulator class is a local stand-in for the SafeNet BSIDCA SOAP
+ * service, to load test the SafeNet RESTful Workflow API on one machine
+ * without touching a real SafeNet server. It serves the operations used by
+ * the API at /BSIDCA/BSIDCA.asmx, and a minimal WSDL at
+ * /BSIDCA/BSIDCA.asmx?wsdl, with the JDK HTTP server.
+ *
+ * Every call is answered after a delay drawn from the latency distribution
+ * of its operation, and may be turned into a fault: a SOAP fault, an HTTP
+ * 503, a dropped connection or a stall. The delays are served by a
+ * scheduler rather than by sleeping threads, so that thousands of slow
+ * calls can be in flight at once. The calls other than Connect must carry
+ * the cookie of an open session, and fail with a session fault once it has
+ * expired.
+ *
+ * The statistics of the simulator are shown at GET /simulator/stats, and
+ * every session can be expired with POST /simulator/sessions/expire.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+
+public class BsidcaSimulator {
+
+    /**
+     * This is the logger instance for the BsidcaSimulator class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaSimulator.class.getName());
+
+    /**
+     * The path of the BSIDCA service.
+     */
+    public static final String SERVICE_PATH = "/BSIDCA/BSIDCA.asmx";
+
+    /**
+     * The path of the statistics and controls of the simulator.
+     */
+    private static final String ADMIN_PATH = "/simulator/";
+
+    /**
+     * The message of the SOAP faults injected into the calls.
+     */
+    private static final String INJECTED_FAULT = "Server was unable to process request. ---> "
+            + "The service is temporarily unavailable, try again later.";
+
+    /**
+     * The message of the SOAP fault of a call made without an open session.
+     */
+    private static final String SESSION_FAULT = "Server was unable to process request. ---> "
+            + "Your session has expired or is not authenticated. Please connect first.";
+
+    /**
+     * The settings of the simulator.
+     */
+    private final SimulatorSettings settings;
+
+    /**
+     * The in-memory users, tokens and provisioning tasks.
+     */
+    private final Directory directory = new Directory();
+
+    /**
+     * The implementation of the BSIDCA operations.
+     */
+    private final BsidcaService service = new BsidcaService(directory);
+
+    /**
+     * The open operator sessions.
+     */
+    private final SessionRegistry sessions;
+
+    /**
+     * The latency, faults and counters of every operation called so far.
+     */
+    private final Map<String, OperationProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * The WSDL template, with the address of the service left out.
+     */
+    private final String wsdl;
+
+    /**
+     * The executor handling the requests and writing the responses.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The scheduler of the delayed responses.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * The HTTP server.
+     */
+    private HttpServer server;
+
+    /**
+     * Constructor for the BsidcaSimulator class.
+     *
+     * @param settings The settings of the simulator.
+     * @throws IOException if the WSDL cannot be read.
+     */
+    public BsidcaSimulator(SimulatorSettings settings) throws IOException {
+        this.settings = settings;
+        this.sessions = new SessionRegistry(settings.getSessionIdleTimeoutMs(), settings.getSessionMaxAgeMs());
+        try (InputStream input = BsidcaSimulator.class.getResourceAsStream("/BSIDCA.wsdl")) {
+            if (input == null) {
+                throw new IOException("The BSIDCA.wsdl resource is missing");
+            }
+            this.wsdl = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Starts the simulator, with a directory holding the users and tokens of
+     * the seed organizations.
+     *
+     * @throws IOException if the port cannot be bound.
+     */
+    public void start() throws IOException {
+        for (String organization : settings.getSeedOrganizations()) {
+            if (!organization.isEmpty()) {
+                directory.seed(organization, settings.getSeedUsers(), settings.getSeedTokensPerUser());
+            }
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(settings.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "simulator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulator-latency");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress(settings.getPort()), 1024);
+        server.createContext(SERVICE_PATH, this::handleService);
+        server.createContext(ADMIN_PATH, this::handleAdmin);
+        server.setExecutor(executor);
+        server.start();
+
+        Log.log(Level.INFO, "BSIDCA simulator listening on http://localhost:{0}{1} with {2} users and {3} tokens",
+                new Object[] { String.valueOf(getPort()), SERVICE_PATH, directory.countUsers(),
+                        directory.countTokens() });
+    }
+
+    /**
+     * Stops the simulator.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            scheduler.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the port the simulator listens on.
+     *
+     * @return The port, which is the one bound when the settings ask for port
+     *         0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handles a request to the BSIDCA service.
+     *
+     * @param exchange The HTTP exchange.
+     */
+    private void handleService(HttpExchange exchange) {
+        try {
+            String method = exchange.getRequestMethod();
+            if ("GET".equals(method)) {
+                String query = exchange.getRequestURI().getQuery();
+                if (query != null && query.equalsIgnoreCase("wsdl")) {
+                    String location = baseUrlOf(exchange) + SERVICE_PATH;
+                    send(exchange, 200, "text/xml; charset=utf-8",
+                            wsdl.replace("${location}", location).getBytes(StandardCharsets.UTF_8), null);
+                } else {
+                    send(exchange, 404, "text/plain", "Use ?wsdl".getBytes(StandardCharsets.UTF_8), null);
+                }
+                return;
+            }
+            if (!"POST".equals(method)) {
+                send(exchange, 405, "text/plain", new byte[0], null);
+                return;
+            }
+
+            SoapRequest request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = SoapRequest.read(body);
+            } catch (XMLStreamException e) {
+                send(exchange, 500, SoapResponse.contentType(false),
+                        SoapResponse.fault(false, true, "Invalid SOAP request: " + e.getMessage()), null);
+                return;
+            } catch (IOException e) {
+                Log.log(Level.FINE, "Could not read a request: {0}", e.getMessage());
+                exchange.close();
+                return;
+            }
+
+            OperationProfile profile = profiles.computeIfAbsent(request.getOperation(),
+                    operation -> new OperationProfile(operation, settings));
+            FaultInjection.Fault fault = profile.drawFault();
+            long delayNanos = profile.drawDelayNanos(fault);
+
+            switch (fault) {
+                case DROP:
+                    later(delayNanos, exchange::close);
+                    break;
+                case HTTP_ERROR:
+                    later(delayNanos, () -> send(exchange, 503, "text/html",
+                            "<html><body>Service Unavailable</body></html>".getBytes(StandardCharsets.UTF_8),
+                            null));
+                    break;
+                case SOAP_FAULT:
+                    later(delayNanos, () -> send(exchange, 500, SoapResponse.contentType(request.isSoap12()),
+                            SoapResponse.fault(request.isSoap12(), false, INJECTED_FAULT), null));
+                    break;
+                default:
+                    answer(exchange, request, delayNanos);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            Log.log(Level.WARNING, "Could not handle a BSIDCA request", e);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers a call of the BSIDCA service after its delay.
+     *
+     * @param exchange   The HTTP exchange.
+     * @param request    The request of the call.
+     * @param delayNanos The time to wait before answering, in nanoseconds.
+     */
+    private void answer(HttpExchange exchange, SoapRequest request, long delayNanos) {
+        boolean soap12 = request.isSoap12();
+        String contentType = SoapResponse.contentType(soap12);
+        String sessionId = SessionRegistry.sessionIdOf(exchange.getRequestHeaders().getFirst("Cookie"));
+        String cookie = null;
+        int status = 200;
+        byte[] body;
+
+        try {
+            switch (request.getOperation()) {
+                case "Connect":
+                    boolean connected = isOperator(request.get("OperatorEmail"), request.get("OTP"));
+                    if (connected) {
+                        cookie = SessionRegistry.COOKIE + "=" + sessions.open() + "; path=/; HttpOnly";
+                    }
+                    body = new SoapResponse("Connect").element("ConnectResult", connected).toBytes(soap12);
+                    break;
+                case "PingConnection":
+                    body = new SoapResponse("PingConnection")
+                            .element("PingConnectionResult", sessions.touch(sessionId)).toBytes(soap12);
+                    break;
+                default:
+                    if (!sessions.touch(sessionId)) {
+                        throw new SimulatorFault(SESSION_FAULT, false);
+                    }
+                    body = service.handle(request, baseUrlOf(exchange)).toBytes(soap12);
+                    break;
+            }
+        } catch (SimulatorFault e) {
+            status = 500;
+            body = SoapResponse.fault(soap12, e.isClient(), e.getMessage());
+        }
+
+        int finalStatus = status;
+        byte[] finalBody = body;
+        String finalCookie = cookie;
+        later(delayNanos, () -> send(exchange, finalStatus, contentType, finalBody, finalCookie));
+    }
+
+    /**
+     * Handles a request for the statistics or the controls of the simulator.
+     *
+     * @param exchange The HTTP exchange.
+     */
+    private void handleAdmin(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        StringBuilder text = new StringBuilder();
+        int status = 200;
+
+        if ("GET".equals(method) && path.equals(ADMIN_PATH + "stats")) {
+            text.append("sessions=").append(sessions.size())
+                    .append(" users=").append(directory.countUsers())
+                    .append(" tokens=").append(directory.countTokens()).append('\n');
+            new TreeMap<>(profiles).values().forEach(profile -> text.append(profile.describe()).append('\n'));
+        } else if ("POST".equals(method) && path.equals(ADMIN_PATH + "sessions/expire")) {
+            text.append("expired=").append(sessions.expireAll()).append('\n');
+        } else {
+            status = 404;
+            text.append("GET ").append(ADMIN_PATH).append("stats or POST ").append(ADMIN_PATH)
+                    .append("sessions/expire\n");
+        }
+        send(exchange, status, "text/plain; charset=utf-8", text.toString().getBytes(StandardCharsets.UTF_8),
+                null);
+    }
+
+    /**
+     * Tells whether the credentials of a Connect call are those of the
+     * operator.
+     *
+     * @param email    The email of the operator.
+     * @param password The password of the operator.
+     * @return true if the credentials match, or if no operator is set.
+     */
+    private boolean isOperator(String email, String password) {
+        String operatorEmail = settings.getOperatorEmail();
+        return operatorEmail.isEmpty()
+                || (operatorEmail.equalsIgnoreCase(email) && settings.getOperatorPassword().equals(password));
+    }
+
+    /**
+     * Runs a task after a delay, or at once if there is none.
+     *
+     * @param delayNanos The delay, in nanoseconds.
+     * @param task       The task.
+     */
+    private void later(long delayNanos, Runnable task) {
+        if (delayNanos <= 0) {
+            task.run();
+        } else {
+            scheduler.schedule(() -> executor.execute(task), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Sends a response and closes the exchange.
+     *
+     * @param exchange    The HTTP exchange.
+     * @param status      The HTTP status.
+     * @param contentType The content type of the body.
+     * @param body        The body.
+     * @param cookie      The Set-Cookie header, or null.
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body, String cookie) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if (cookie != null) {
+                exchange.getResponseHeaders().set("Set-Cookie", cookie);
+            }
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } catch (IOException e) {
+            Log.log(Level.FINE, "Could not send a response: {0}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Gets the base URL the client used to reach the simulator.
+     *
+     * @param exchange The HTTP exchange.
+     * @return The base URL, such as http://localhost:8081.
+     */
+    private String baseUrlOf(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        return "http://" + (host == null ? "localhost:" + getPort() : host);
+    }
+
+    /**
+     * Starts the simulator with the settings of the properties file given as
+     * the first argument, if any.
+     *
+     * @param args The path of the properties file, optionally.
+     * @throws IOException if the settings cannot be read or the port cannot
+     *                     be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        SimulatorSettings settings = SimulatorSettings.load(args.length > 0 ? args[0] : null);
+        BsidcaSimulator simulator = new BsidcaSimulator(settings);
+        simulator.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(simulator::stop));
+    }
+}
@@ -0,0 +1,706 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The Directory class holds the in-memory state of the simulator: the
+ * users and tokens of every organization, and the provisioning tasks that
+ * turn into tokens once their enrollment completes. Every organization
+ * keeps its tokens sorted by serial number, so that GetTokens pages through
+ * them in a stable order, and an index of the tokens of every user, so that
+ * GetTokensByOwner does not scan the inventory. The changes of an
+ * organization are serialized on the organization; the reads are not.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Directory {
+
+    /**
+     * The format of the dates of the BSIDCA datasets.
+     */
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    /**
+     * The state of a token assigned to a user.
+     */
+    public static final String ACTIVE = "Active";
+
+    /**
+     * The status of a provisioning task waiting for its enrollment.
+     */
+    public static final String TASK_ACTIVE = "Active";
+
+    /**
+     * The status of a provisioning task whose enrollment completed.
+     */
+    public static final String TASK_COMPLETED = "Completed";
+
+    /**
+     * The organizations, by lower-case name.
+     */
+    private final Map<String, Organization> organizations = new ConcurrentHashMap<>();
+
+    /**
+     * The provisioning tasks, by identifier.
+     */
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * The provisioning tasks, by enrollment code.
+     */
+    private final Map<String, Task> tasksByCode = new ConcurrentHashMap<>();
+
+    /**
+     * The identifier of the next provisioning task.
+     */
+    private final AtomicInteger nextTaskId = new AtomicInteger(1000);
+
+    /**
+     * The serial number of the next token.
+     */
+    private final AtomicLong nextSerial = new AtomicLong(1000000000L);
+
+    /**
+     * Creates users, each with the given number of active tokens, in an
+     * organization.
+     *
+     * @param organization  The organization.
+     * @param users         The number of users, named user1, user2, and so
+     *                      on.
+     * @param tokensPerUser The number of tokens of every user.
+     */
+    public void seed(String organization, int users, int tokensPerUser) {
+        for (int i = 1; i <= users; i++) {
+            String userName = "user" + i;
+            Map<String, String> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            fields.put("FirstName", "User");
+            fields.put("Lastname", String.valueOf(i));
+            fields.put("Email", userName + "@" + organization.toLowerCase(Locale.ROOT) + ".example");
+            addUser(organization, userName, fields);
+            for (int j = 0; j < tokensPerUser; j++) {
+                assignNewToken(organization, userName, j % 2 == 0 ? "MobilePASS" : "GrIDsure");
+            }
+        }
+    }
+
+    /**
+     * Adds a user to an organization.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @param fields       The fields of the user, by element name.
+     * @return true if the user was added, false if it already exists.
+     */
+    public boolean addUser(String organization, String userName, Map<String, String> fields) {
+        if (userName.isEmpty()) {
+            return false;
+        }
+        return organization(organization).users.putIfAbsent(key(userName), new User(userName, fields)) == null;
+    }
+
+    /**
+     * Gets a user of an organization.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @return The user, or null if it does not exist.
+     */
+    public User getUser(String organization, String userName) {
+        return organization(organization).users.get(key(userName));
+    }
+
+    /**
+     * Removes a user from an organization. The tokens of the user go back to
+     * the inventory, and the provisioning tasks of the user are dropped.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @return true if the user was removed, false if it does not exist.
+     */
+    public boolean removeUser(String organization, String userName) {
+        Organization org = organization(organization);
+        synchronized (org) {
+            if (org.users.remove(key(userName)) == null) {
+                return false;
+            }
+            Set<String> serials = org.owned.remove(key(userName));
+            if (serials != null) {
+                for (String serial : serials) {
+                    org.tokens.get(serial).unassign();
+                }
+            }
+        }
+        tasks.values().removeIf(task -> task.organization.equalsIgnoreCase(organization)
+                && task.userName.equalsIgnoreCase(userName));
+        tasksByCode.values().removeIf(task -> !tasks.containsKey(task.id));
+        return true;
+    }
+
+    /**
+     * Gets a page of the tokens of an organization, sorted by serial number.
+     *
+     * @param organization The organization.
+     * @param serial       The serial number of the only token to return, or an
+     *                     empty string for every token.
+     * @param startRecord  The index of the first token of the page.
+     * @param pageSize     The maximum number of tokens of the page, or 0 or
+     *                     less for every token.
+     * @return The tokens of the page.
+     */
+    public List<Token> getTokens(String organization, String serial, int startRecord, int pageSize) {
+        Organization org = organization(organization);
+        if (!serial.isEmpty()) {
+            Token token = org.tokens.get(serial);
+            return token == null || startRecord > 0 ? Collections.emptyList() : List.of(token);
+        }
+        List<Token> page = new ArrayList<>(pageSize > 0 ? Math.min(pageSize, 1024) : 64);
+        int index = 0;
+        for (Token token : org.tokens.values()) {
+            if (index++ < startRecord) {
+                continue;
+            }
+            if (pageSize > 0 && page.size() >= pageSize) {
+                break;
+            }
+            page.add(token);
+        }
+        return page;
+    }
+
+    /**
+     * Gets the serial numbers of the tokens of a user.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @return The serial numbers, possibly empty.
+     */
+    public List<String> getTokensByOwner(String organization, String userName) {
+        Set<String> serials = organization(organization).owned.get(key(userName));
+        return serials == null ? Collections.emptyList() : new ArrayList<>(serials);
+    }
+
+    /**
+     * Revokes a token from its user, returning it to the inventory.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @param serial       The serial number of the token.
+     * @return true if the token was revoked, false if the user does not own
+     *         it.
+     */
+    public boolean revokeToken(String organization, String userName, String serial) {
+        Organization org = organization(organization);
+        synchronized (org) {
+            Set<String> serials = org.owned.get(key(userName));
+            if (serials == null || !serials.remove(serial)) {
+                return false;
+            }
+            org.tokens.get(serial).unassign();
+            return true;
+        }
+    }
+
+    /**
+     * Creates a provisioning task for a user.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @param tokenOption  The kind of token to provision, such as
+     *                     "MobilePASS".
+     * @param description  The description of the task.
+     * @return The task, or null if the user does not exist.
+     */
+    public Task provision(String organization, String userName, String tokenOption, String description) {
+        if (getUser(organization, userName) == null) {
+            return null;
+        }
+        Task task = new Task(nextTaskId.incrementAndGet(), organization, userName, tokenOption, description);
+        tasks.put(task.id, task);
+        tasksByCode.put(task.code, task);
+        return task;
+    }
+
+    /**
+     * Gets the provisioning tasks of a user, oldest first.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @return The tasks, possibly empty.
+     */
+    public List<Task> getTasks(String organization, String userName) {
+        List<Task> userTasks = new ArrayList<>();
+        for (Task task : tasks.values()) {
+            if (task.organization.equalsIgnoreCase(organization) && task.userName.equalsIgnoreCase(userName)) {
+                userTasks.add(task);
+            }
+        }
+        userTasks.sort((a, b) -> Integer.compare(a.id, b.id));
+        return userTasks;
+    }
+
+    /**
+     * Gets a provisioning task.
+     *
+     * @param taskId The identifier of the task.
+     * @return The task, or null if it does not exist.
+     */
+    public Task getTask(int taskId) {
+        return tasks.get(taskId);
+    }
+
+    /**
+     * Gets the provisioning task of an enrollment code.
+     *
+     * @param code The enrollment code.
+     * @return The task, or null if the code is unknown.
+     */
+    public Task getTaskByCode(String code) {
+        return tasksByCode.get(code);
+    }
+
+    /**
+     * Completes the enrollment of a provisioning task, assigning a new token
+     * to its user.
+     *
+     * @param task The task.
+     * @return The serial number of the new token, or null if the task was
+     *         already completed or its user no longer exists.
+     */
+    public String complete(Task task) {
+        synchronized (task) {
+            if (!TASK_ACTIVE.equals(task.status) || getUser(task.organization, task.userName) == null) {
+                return null;
+            }
+            task.status = TASK_COMPLETED;
+        }
+        return assignNewToken(task.organization, task.userName, task.tokenOption);
+    }
+
+    /**
+     * Counts the users of every organization.
+     *
+     * @return The number of users.
+     */
+    public int countUsers() {
+        return organizations.values().stream().mapToInt(org -> org.users.size()).sum();
+    }
+
+    /**
+     * Counts the tokens of every organization.
+     *
+     * @return The number of tokens.
+     */
+    public int countTokens() {
+        return organizations.values().stream().mapToInt(org -> org.tokens.size()).sum();
+    }
+
+    /**
+     * Creates a token and assigns it to a user.
+     *
+     * @param organization The organization.
+     * @param userName     The name of the user.
+     * @param type         The type of the token.
+     * @return The serial number of the token.
+     */
+    private String assignNewToken(String organization, String userName, String type) {
+        Organization org = organization(organization);
+        String serial = String.valueOf(nextSerial.incrementAndGet());
+        Token token = new Token(serial, organization, type);
+        synchronized (org) {
+            token.assign(userName);
+            org.tokens.put(serial, token);
+            org.owned.computeIfAbsent(key(userName), k -> new ConcurrentSkipListSet<>()).add(serial);
+        }
+        return serial;
+    }
+
+    /**
+     * Gets an organization, creating it if needed.
+     *
+     * @param organization The name of the organization.
+     * @return The organization.
+     */
+    private Organization organization(String organization) {
+        return organizations.computeIfAbsent(key(organization), k -> new Organization());
+    }
+
+    /**
+     * Normalizes a name into a key, ignoring case.
+     *
+     * @param name The name.
+     * @return The key.
+     */
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Formats an instant as a date of the BSIDCA datasets.
+     *
+     * @param epochMs The instant, in epoch milliseconds.
+     * @return The formatted date.
+     */
+    public static String formatDate(long epochMs) {
+        return DATE_FORMAT.format(OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneOffset.UTC));
+    }
+
+    /**
+     * The users and tokens of an organization.
+     */
+    private static final class Organization {
+
+        /**
+         * The users, by lower-case name.
+         */
+        final Map<String, User> users = new ConcurrentHashMap<>();
+
+        /**
+         * The tokens, by serial number.
+         */
+        final NavigableMap<String, Token> tokens = new ConcurrentSkipListMap<>();
+
+        /**
+         * The serial numbers of the tokens of every user, by lower-case name.
+         */
+        final Map<String, Set<String>> owned = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A user of an organization.
+     */
+    public static final class User {
+
+        /**
+         * The name of the user.
+         */
+        private final String userName;
+
+        /**
+         * The fields of the user, by element name ignoring case.
+         */
+        private final Map<String, String> fields;
+
+        /**
+         * Constructor for the User class.
+         *
+         * @param userName The name of the user.
+         * @param fields   The fields of the user, by element name.
+         */
+        User(String userName, Map<String, String> fields) {
+            this.userName = userName;
+            this.fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            this.fields.putAll(fields);
+        }
+
+        /**
+         * Gets the name of the user.
+         *
+         * @return The name of the user.
+         */
+        public String getUserName() {
+            return userName;
+        }
+
+        /**
+         * Gets a field of the user.
+         *
+         * @param name The element name of the field, ignoring case.
+         * @return The value of the field, or null if it is not set.
+         */
+        public String getField(String name) {
+            return fields.get(name);
+        }
+    }
+
+    /**
+     * A token of an organization, assigned to a user or in the inventory.
+     */
+    public static final class Token {
+
+        /**
+         * The serial number of the token.
+         */
+        private final String serial;
+
+        /**
+         * The organization of the token.
+         */
+        private final String organization;
+
+        /**
+         * The type of the token.
+         */
+        private final String type;
+
+        /**
+         * The state of the token.
+         */
+        private volatile String state = "Inventory";
+
+        /**
+         * The user the token is assigned to, or null.
+         */
+        private volatile String owner;
+
+        /**
+         * The time the state of the token last changed, in epoch milliseconds.
+         */
+        private volatile long stateSetAt = System.currentTimeMillis();
+
+        /**
+         * Constructor for the Token class.
+         *
+         * @param serial       The serial number of the token.
+         * @param organization The organization of the token.
+         * @param type         The type of the token.
+         */
+        Token(String serial, String organization, String type) {
+            this.serial = serial;
+            this.organization = organization;
+            this.type = type;
+        }
+
+        /**
+         * Assigns the token to a user.
+         *
+         * @param userName The name of the user.
+         */
+        void assign(String userName) {
+            owner = userName;
+            state = ACTIVE;
+            stateSetAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Returns the token to the inventory.
+         */
+        void unassign() {
+            owner = null;
+            state = "Inventory";
+            stateSetAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Gets the serial number of the token.
+         *
+         * @return The serial number.
+         */
+        public String getSerial() {
+            return serial;
+        }
+
+        /**
+         * Gets the organization of the token.
+         *
+         * @return The organization.
+         */
+        public String getOrganization() {
+            return organization;
+        }
+
+        /**
+         * Gets the type of the token.
+         *
+         * @return The type.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Gets the state of the token.
+         *
+         * @return The state.
+         */
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Gets the user the token is assigned to.
+         *
+         * @return The name of the user, or null if the token is in the
+         *         inventory.
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * Gets the time the state of the token last changed.
+         *
+         * @return The time, in epoch milliseconds.
+         */
+        public long getStateSetAt() {
+            return stateSetAt;
+        }
+    }
+
+    /**
+     * A provisioning task, waiting for the enrollment of a token by a user.
+     */
+    public static final class Task {
+
+        /**
+         * The identifier of the task.
+         */
+        private final int id;
+
+        /**
+         * The organization of the task.
+         */
+        private final String organization;
+
+        /**
+         * The user the token is provisioned for.
+         */
+        private final String userName;
+
+        /**
+         * The kind of token provisioned, such as "MobilePASS".
+         */
+        private final String tokenOption;
+
+        /**
+         * The description of the task.
+         */
+        private final String description;
+
+        /**
+         * The code of the enrollment URL of the task.
+         */
+        private final String code = UUID.randomUUID().toString().replace("-", "");
+
+        /**
+         * The time the task was created, in epoch milliseconds.
+         */
+        private final long createdAt = System.currentTimeMillis();
+
+        /**
+         * The status of the task.
+         */
+        private volatile String status = TASK_ACTIVE;
+
+        /**
+         * Constructor for the Task class.
+         *
+         * @param id           The identifier of the task.
+         * @param organization The organization of the task.
+         * @param userName     The user the token is provisioned for.
+         * @param tokenOption  The kind of token provisioned.
+         * @param description  The description of the task.
+         */
+        Task(int id, String organization, String userName, String tokenOption, String description) {
+            this.id = id;
+            this.organization = organization;
+            this.userName = userName;
+            this.tokenOption = tokenOption;
+            this.description = description;
+        }
+
+        /**
+         * Gets the identifier of the task.
+         *
+         * @return The identifier.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Gets the user the token is provisioned for.
+         *
+         * @return The name of the user.
+         */
+        public String getUserName() {
+            return userName;
+        }
+
+        /**
+         * Gets the organization of the task.
+         *
+         * @return The organization.
+         */
+        public String getOrganization() {
+            return organization;
+        }
+
+        /**
+         * Gets the kind of token provisioned.
+         *
+         * @return The token option, such as "MobilePASS".
+         */
+        public String getTokenOption() {
+            return tokenOption;
+        }
+
+        /**
+         * Gets the description of the task.
+         *
+         * @return The description.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Gets the code of the enrollment URL of the task.
+         *
+         * @return The enrollment code.
+         */
+        public String getCode() {
+            return code;
+        }
+
+        /**
+         * Gets the time the task was created.
+         *
+         * @return The time, in epoch milliseconds.
+         */
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * Gets the status of the task.
+         *
+         * @return "Active" or "Completed".
+         */
+        public String getStatus() {
+            return status;
+        }
+    }
+}
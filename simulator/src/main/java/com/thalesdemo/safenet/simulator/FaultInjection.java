@@ -0,0 +1,131 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The FaultInjection class draws the fault, if any, the simulator injects
+ * into a call of an operation: a SOAP fault reporting a temporary server
+ * error, an HTTP 503 without an envelope, a connection closed without a
+ * response, or a stall longer than the timeouts of the client. Each fault
+ * has its own rate, between 0 and 1.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FaultInjection {
+
+    /**
+     * The faults the simulator can inject into a call.
+     */
+    public enum Fault {
+        /** The call is answered normally. */
+        NONE,
+        /** The call is answered with a SOAP fault. */
+        SOAP_FAULT,
+        /** The call is answered with an HTTP 503. */
+        HTTP_ERROR,
+        /** The connection is closed without a response. */
+        DROP,
+        /** The call is answered after a long stall. */
+        STALL
+    }
+
+    /**
+     * The rate of the SOAP faults.
+     */
+    private final double faultRate;
+
+    /**
+     * The rate of the HTTP 503 responses.
+     */
+    private final double httpErrorRate;
+
+    /**
+     * The rate of the connections closed without a response.
+     */
+    private final double dropRate;
+
+    /**
+     * The rate of the stalled calls.
+     */
+    private final double stallRate;
+
+    /**
+     * The duration of a stall, in milliseconds.
+     */
+    private final long stallMs;
+
+    /**
+     * Constructor for the FaultInjection class.
+     *
+     * @param faultRate     The rate of the SOAP faults.
+     * @param httpErrorRate The rate of the HTTP 503 responses.
+     * @param dropRate      The rate of the connections closed without a
+     *                      response.
+     * @param stallRate     The rate of the stalled calls.
+     * @param stallMs       The duration of a stall, in milliseconds.
+     */
+    public FaultInjection(double faultRate, double httpErrorRate, double dropRate, double stallRate, long stallMs) {
+        this.faultRate = faultRate;
+        this.httpErrorRate = httpErrorRate;
+        this.dropRate = dropRate;
+        this.stallRate = stallRate;
+        this.stallMs = stallMs;
+    }
+
+    /**
+     * Draws the fault to inject into a call.
+     *
+     * @return The fault, or NONE.
+     */
+    public Fault draw() {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        if ((draw -= faultRate) < 0) {
+            return Fault.SOAP_FAULT;
+        }
+        if ((draw -= httpErrorRate) < 0) {
+            return Fault.HTTP_ERROR;
+        }
+        if ((draw -= dropRate) < 0) {
+            return Fault.DROP;
+        }
+        if ((draw -= stallRate) < 0) {
+            return Fault.STALL;
+        }
+        return Fault.NONE;
+    }
+
+    /**
+     * Gets the duration of a stall.
+     *
+     * @return The duration in milliseconds.
+     */
+    public long getStallMs() {
+        return stallMs;
+    }
+
+    /**
+     * Describes the fault rates.
+     *
+     * @return The description of the fault rates.
+     */
+    @Override
+    public String toString() {
+        return String.format("fault=%.3f http_error=%.3f drop=%.3f stall=%.3f/%dms", faultRate, httpErrorRate,
+                dropRate, stallRate, stallMs);
+    }
+}
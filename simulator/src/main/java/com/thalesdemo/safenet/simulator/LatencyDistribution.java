@@ -0,0 +1,196 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The LatencyDistribution class draws the time the simulator waits before
+ * answering a call. A distribution is written as its name and parameters,
+ * in milliseconds, optionally followed by a tail of rare slow calls:
+ *
+ * - fixed:40
+ * - uniform:20,80
+ * - normal:40,10
+ * - lognormal:40,0.5 (median and sigma of the underlying normal)
+ * - exponential:40 (mean)
+ * - lognormal:40,0.5 tail:0.01,2000 (1% of the calls take 2000 ms more)
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class LatencyDistribution {
+
+    /**
+     * The name of the distribution.
+     */
+    private final String kind;
+
+    /**
+     * The first parameter of the distribution.
+     */
+    private final double first;
+
+    /**
+     * The second parameter of the distribution, or 0 if it has none.
+     */
+    private final double second;
+
+    /**
+     * The probability of a call being in the tail.
+     */
+    private final double tailProbability;
+
+    /**
+     * The time added to the calls in the tail, in milliseconds.
+     */
+    private final double tailMs;
+
+    /**
+     * The distribution as it was written.
+     */
+    private final String spec;
+
+    /**
+     * Constructor for the LatencyDistribution class.
+     *
+     * @param kind            The name of the distribution.
+     * @param first           The first parameter of the distribution.
+     * @param second          The second parameter of the distribution.
+     * @param tailProbability The probability of a call being in the tail.
+     * @param tailMs          The time added to the calls in the tail.
+     * @param spec            The distribution as it was written.
+     */
+    private LatencyDistribution(String kind, double first, double second, double tailProbability, double tailMs,
+            String spec) {
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+        this.tailProbability = tailProbability;
+        this.tailMs = tailMs;
+        this.spec = spec;
+    }
+
+    /**
+     * Parses a distribution.
+     *
+     * @param spec The distribution, such as "lognormal:40,0.5 tail:0.01,2000".
+     * @return The distribution.
+     * @throws IllegalArgumentException if the distribution is invalid.
+     */
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split("\\s+");
+        double[] body = parameters(parts[0]);
+        String kind = parts[0].contains(":") ? parts[0].substring(0, parts[0].indexOf(':')) : parts[0];
+        kind = kind.toLowerCase(Locale.ROOT);
+
+        int expected;
+        switch (kind) {
+            case "fixed":
+            case "exponential":
+                expected = 1;
+                break;
+            case "uniform":
+            case "normal":
+            case "lognormal":
+                expected = 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+        if (body.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " parameters in the latency " + spec);
+        }
+
+        double tailProbability = 0;
+        double tailMs = 0;
+        if (parts.length > 1) {
+            double[] tail = parameters(parts[1]);
+            if (!parts[1].startsWith("tail:") || tail.length != 2 || parts.length > 2) {
+                throw new IllegalArgumentException("Expected a tail:probability,ms after the latency " + spec);
+            }
+            tailProbability = tail[0];
+            tailMs = tail[1];
+        }
+        return new LatencyDistribution(kind, body[0], expected > 1 ? body[1] : 0, tailProbability, tailMs,
+                spec.trim());
+    }
+
+    /**
+     * Parses the parameters following the colon of a part of a distribution.
+     *
+     * @param part The part, such as "uniform:20,80".
+     * @return The parameters.
+     * @throws IllegalArgumentException if a parameter is not a number.
+     */
+    private static double[] parameters(String part) {
+        int colon = part.indexOf(':');
+        if (colon < 0) {
+            return new double[0];
+        }
+        String[] values = part.substring(colon + 1).split(",");
+        double[] parameters = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                parameters[i] = Double.parseDouble(values[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid latency parameter in " + part, e);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Draws the latency of a call.
+     *
+     * @return The latency in nanoseconds, at least 0.
+     */
+    public long sampleNanos() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double ms;
+        switch (kind) {
+            case "uniform":
+                ms = first + (second - first) * random.nextDouble();
+                break;
+            case "normal":
+                ms = first + second * random.nextGaussian();
+                break;
+            case "lognormal":
+                ms = first * Math.exp(second * random.nextGaussian());
+                break;
+            case "exponential":
+                ms = -first * Math.log(1 - random.nextDouble());
+                break;
+            default:
+                ms = first;
+                break;
+        }
+        if (tailProbability > 0 && random.nextDouble() < tailProbability) {
+            ms += tailMs;
+        }
+        return (long) (Math.max(0, ms) * 1e6);
+    }
+
+    /**
+     * Returns the distribution as it was written.
+     *
+     * @return The distribution.
+     */
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
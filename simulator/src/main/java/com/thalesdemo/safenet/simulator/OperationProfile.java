@@ -0,0 +1,104 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The OperationProfile class holds the latency and the faults the simulator
+ * applies to the calls of one operation, and counts the calls it answered
+ * and the faults it injected, for the statistics page of the simulator.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationProfile {
+
+    /**
+     * The name of the operation.
+     */
+    private final String operation;
+
+    /**
+     * The latency of the calls of the operation.
+     */
+    private final LatencyDistribution latency;
+
+    /**
+     * The faults injected into the calls of the operation.
+     */
+    private final FaultInjection faults;
+
+    /**
+     * The number of calls, by fault injected.
+     */
+    private final Map<FaultInjection.Fault, LongAdder> calls = new EnumMap<>(FaultInjection.Fault.class);
+
+    /**
+     * Constructor for the OperationProfile class.
+     *
+     * @param operation The name of the operation.
+     * @param settings  The settings holding the latency and the faults of the
+     *                  operation.
+     */
+    public OperationProfile(String operation, SimulatorSettings settings) {
+        this.operation = operation;
+        this.latency = settings.getLatency(operation);
+        this.faults = settings.getFaults(operation);
+        for (FaultInjection.Fault fault : FaultInjection.Fault.values()) {
+            calls.put(fault, new LongAdder());
+        }
+    }
+
+    /**
+     * Draws the fault to inject into a call and counts the call.
+     *
+     * @return The fault, or NONE.
+     */
+    public FaultInjection.Fault drawFault() {
+        FaultInjection.Fault fault = faults.draw();
+        calls.get(fault).increment();
+        return fault;
+    }
+
+    /**
+     * Draws the time to wait before answering a call.
+     *
+     * @param fault The fault injected into the call.
+     * @return The time to wait, in nanoseconds.
+     */
+    public long drawDelayNanos(FaultInjection.Fault fault) {
+        long delayNanos = latency.sampleNanos();
+        if (fault == FaultInjection.Fault.STALL) {
+            delayNanos += faults.getStallMs() * 1000000L;
+        }
+        return delayNanos;
+    }
+
+    /**
+     * Describes the settings and the counters of the operation.
+     *
+     * @return A line of the statistics page.
+     */
+    public String describe() {
+        long total = calls.values().stream().mapToLong(LongAdder::sum).sum();
+        return String.format("%-40s calls=%d soap_faults=%d http_errors=%d drops=%d stalls=%d latency=%s %s",
+                operation, total, calls.get(FaultInjection.Fault.SOAP_FAULT).sum(),
+                calls.get(FaultInjection.Fault.HTTP_ERROR).sum(), calls.get(FaultInjection.Fault.DROP).sum(),
+                calls.get(FaultInjection.Fault.STALL).sum(), latency, faults);
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The SessionRegistry class keeps the operator sessions opened by the
+ * Connect calls. As with the ASP.NET service it stands in for, a session is
+ * carried by the ASP.NET_SessionId cookie. A session expires once it has
+ * made no call for the idle timeout, or once it reaches its maximum age;
+ * every session can also be expired at once to test how the client
+ * recovers.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SessionRegistry {
+
+    /**
+     * The name of the cookie carrying the session.
+     */
+    public static final String COOKIE = "ASP.NET_SessionId";
+
+    /**
+     * The characters of the session identifiers.
+     */
+    private static final char[] ID_CHARACTERS = "abcdefghijklmnopqrstuvwxyz012345".toCharArray();
+
+    /**
+     * The generator of the session identifiers.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The open sessions, by identifier.
+     */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The time after which a session that made no call expires, in
+     * milliseconds, or 0.
+     */
+    private final long idleTimeoutMs;
+
+    /**
+     * The time after which a session expires, in milliseconds, or 0.
+     */
+    private final long maxAgeMs;
+
+    /**
+     * Constructor for the SessionRegistry class.
+     *
+     * @param idleTimeoutMs The time after which a session that made no call
+     *                      expires, in milliseconds, or 0.
+     * @param maxAgeMs      The time after which a session expires, in
+     *                      milliseconds, or 0.
+     */
+    public SessionRegistry(long idleTimeoutMs, long maxAgeMs) {
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Opens a session.
+     *
+     * @return The identifier of the session.
+     */
+    public String open() {
+        sweep();
+        char[] id = new char[24];
+        byte[] bytes = new byte[id.length];
+        random.nextBytes(bytes);
+        for (int i = 0; i < id.length; i++) {
+            id[i] = ID_CHARACTERS[bytes[i] & 31];
+        }
+        String sessionId = new String(id);
+        sessions.put(sessionId, new Session(System.currentTimeMillis()));
+        return sessionId;
+    }
+
+    /**
+     * Records a call made by a session, if it has not expired.
+     *
+     * @param sessionId The identifier of the session, possibly null.
+     * @return true if the session is open, false if it is unknown or has
+     *         expired.
+     */
+    public boolean touch(String sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        Session session = sessions.get(sessionId);
+        long now = System.currentTimeMillis();
+        if (session == null) {
+            return false;
+        }
+        if (isExpired(session, now)) {
+            sessions.remove(sessionId);
+            return false;
+        }
+        session.lastUsedAt = now;
+        return true;
+    }
+
+    /**
+     * Expires every session.
+     *
+     * @return The number of sessions expired.
+     */
+    public int expireAll() {
+        int count = sessions.size();
+        sessions.clear();
+        return count;
+    }
+
+    /**
+     * Counts the open sessions.
+     *
+     * @return The number of sessions.
+     */
+    public int size() {
+        sweep();
+        return sessions.size();
+    }
+
+    /**
+     * Reads the session identifier of a Cookie header.
+     *
+     * @param cookieHeader The Cookie header, possibly null.
+     * @return The session identifier, or null if the header carries none.
+     */
+    public static String sessionIdOf(String cookieHeader) {
+        if (cookieHeader == null) {
+            return null;
+        }
+        for (String cookie : cookieHeader.split(";")) {
+            String trimmed = cookie.trim();
+            if (trimmed.startsWith(COOKIE + "=")) {
+                return trimmed.substring(COOKIE.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the expired sessions.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> isExpired(session, now));
+    }
+
+    /**
+     * Tells whether a session has expired.
+     *
+     * @param session The session.
+     * @param now     The current time, in epoch milliseconds.
+     * @return true if the session has expired.
+     */
+    private boolean isExpired(Session session, long now) {
+        return (idleTimeoutMs > 0 && now - session.lastUsedAt > idleTimeoutMs)
+                || (maxAgeMs > 0 && now - session.openedAt > maxAgeMs);
+    }
+
+    /**
+     * An open session.
+     */
+    private static final class Session {
+
+        /**
+         * The time the session was opened, in epoch milliseconds.
+         */
+        final long openedAt;
+
+        /**
+         * The time the session last made a call, in epoch milliseconds.
+         */
+        volatile long lastUsedAt;
+
+        /**
+         * Constructor for the Session class.
+         *
+         * @param openedAt The time the session was opened.
+         */
+        Session(long openedAt) {
+            this.openedAt = openedAt;
+            this.lastUsedAt = openedAt;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The SimulatorFault exception is thrown by an operation of the simulator
+ * that must be answered with a SOAP fault, such as a call made without an
+ * open session or a call naming an unknown provisioning task.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+public class SimulatorFault extends RuntimeException {
+
+    /**
+     * Whether the fault is caused by the request rather than by the server.
+     */
+    private final boolean client;
+
+    /**
+     * Constructor for the SimulatorFault class.
+     *
+     * @param message The message of the SOAP fault.
+     * @param client  Whether the fault is caused by the request rather than
+     *                by the server.
+     */
+    public SimulatorFault(String message, boolean client) {
+        super(message);
+        this.client = client;
+    }
+
+    /**
+     * Tells whether the fault is caused by the request rather than by the
+     * server.
+     *
+     * @return true for a client fault, false for a server fault.
+     */
+    public boolean isClient() {
+        return client;
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The SimulatorSettings class holds the settings of the BSIDCA simulator,
+ * read from a properties file and overridden by the system properties
+ * starting with "simulator.". Every setting has a default, so that the
+ * simulator can be started without any file. The latency and the faults of
+ * an operation are read from its own keys, such as "latency.GetTokens",
+ * falling back to the "default" keys, such as "latency.default".
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+public class SimulatorSettings {
+
+    /**
+     * The prefix of the system properties overriding the settings.
+     */
+    private static final String SYSTEM_PREFIX = "simulator.";
+
+    /**
+     * The name of the settings falling back to the defaults.
+     */
+    private static final String DEFAULT = "default";
+
+    /**
+     * The settings read from the file and the system properties.
+     */
+    private final Properties properties;
+
+    /**
+     * Constructor for the SimulatorSettings class.
+     *
+     * @param properties The settings.
+     */
+    public SimulatorSettings(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Loads the settings from a properties file, if any, and the system
+     * properties starting with "simulator.".
+     *
+     * @param path The path of the properties file, or null to use the
+     *             defaults.
+     * @return The settings.
+     * @throws IOException if the file cannot be read.
+     */
+    public static SimulatorSettings load(String path) throws IOException {
+        Properties properties = new Properties();
+        if (path != null) {
+            try (InputStream input = Files.newInputStream(Path.of(path))) {
+                properties.load(input);
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PREFIX)) {
+                properties.setProperty(name.substring(SYSTEM_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return new SimulatorSettings(properties);
+    }
+
+    /**
+     * Gets the port the simulator listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return getInt("port", 8081);
+    }
+
+    /**
+     * Gets the number of threads serving the requests.
+     *
+     * @return The number of threads, at least 1.
+     */
+    public int getThreads() {
+        return Math.max(1, getInt("threads", 64));
+    }
+
+    /**
+     * Gets the email of the operator allowed to connect.
+     *
+     * @return The email, or an empty string to allow any operator.
+     */
+    public String getOperatorEmail() {
+        return properties.getProperty("operator.email", "").trim();
+    }
+
+    /**
+     * Gets the password of the operator allowed to connect.
+     *
+     * @return The password, or an empty string to allow any password.
+     */
+    public String getOperatorPassword() {
+        return properties.getProperty("operator.password", "");
+    }
+
+    /**
+     * Gets the time after which a session that made no call expires.
+     *
+     * @return The idle timeout in milliseconds, or 0 if sessions never go
+     *         idle.
+     */
+    public long getSessionIdleTimeoutMs() {
+        return Math.max(0, getLong("session.idle_timeout_ms", 1200000));
+    }
+
+    /**
+     * Gets the time after which a session expires, however busy.
+     *
+     * @return The maximum age in milliseconds, or 0 if sessions live as long
+     *         as they are used.
+     */
+    public long getSessionMaxAgeMs() {
+        return Math.max(0, getLong("session.max_age_ms", 0));
+    }
+
+    /**
+     * Gets the organizations created when the simulator starts.
+     *
+     * @return The names of the organizations.
+     */
+    public String[] getSeedOrganizations() {
+        return properties.getProperty("seed.organizations", "demo").trim().split("\\s*,\\s*");
+    }
+
+    /**
+     * Gets the number of users created in every organization when the
+     * simulator starts.
+     *
+     * @return The number of users, at least 0.
+     */
+    public int getSeedUsers() {
+        return Math.max(0, getInt("seed.users_per_organization", 1000));
+    }
+
+    /**
+     * Gets the number of tokens assigned to every user created when the
+     * simulator starts.
+     *
+     * @return The number of tokens, at least 0.
+     */
+    public int getSeedTokensPerUser() {
+        return Math.max(0, getInt("seed.tokens_per_user", 2));
+    }
+
+    /**
+     * Gets the latency of an operation.
+     *
+     * @param operation The name of the operation.
+     * @return The latency distribution of the operation.
+     * @throws IllegalArgumentException if the distribution is invalid.
+     */
+    public LatencyDistribution getLatency(String operation) {
+        String spec = properties.getProperty("latency." + operation,
+                properties.getProperty("latency." + DEFAULT, "fixed:0"));
+        return LatencyDistribution.parse(spec);
+    }
+
+    /**
+     * Gets the faults injected into the calls of an operation.
+     *
+     * @param operation The name of the operation.
+     * @return The fault injection of the operation.
+     */
+    public FaultInjection getFaults(String operation) {
+        return new FaultInjection(
+                getRate(operation, "fault_rate"),
+                getRate(operation, "http_error_rate"),
+                getRate(operation, "drop_rate"),
+                getRate(operation, "stall_rate"),
+                Math.max(0, getLong(errorKey(operation, "stall_ms"), getLong(errorKey(DEFAULT, "stall_ms"), 60000))));
+    }
+
+    /**
+     * Gets the rate of a fault of an operation, falling back to the default
+     * rate.
+     *
+     * @param operation The name of the operation.
+     * @param name      The name of the rate.
+     * @return The rate, between 0 and 1.
+     */
+    private double getRate(String operation, String name) {
+        double rate = getDouble(errorKey(operation, name), getDouble(errorKey(DEFAULT, name), 0));
+        return Math.min(1, Math.max(0, rate));
+    }
+
+    /**
+     * Builds the key of a fault injection setting.
+     *
+     * @param operation The name of the operation, or "default".
+     * @param name      The name of the setting.
+     * @return The key of the setting.
+     */
+    private static String errorKey(String operation, String name) {
+        return "errors." + operation + "." + name;
+    }
+
+    /**
+     * Gets an integer setting.
+     *
+     * @param key          The key of the setting.
+     * @param defaultValue The value if the setting is missing.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException if the setting is not an integer.
+     */
+    private int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    /**
+     * Gets a long integer setting.
+     *
+     * @param key          The key of the setting.
+     * @param defaultValue The value if the setting is missing.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException if the setting is not an integer.
+     */
+    private long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + key + ": " + value, e);
+        }
+    }
+
+    /**
+     * Gets a decimal setting.
+     *
+     * @param key          The key of the setting.
+     * @param defaultValue The value if the setting is missing.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException if the setting is not a number.
+     */
+    private double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + key + ": " + value, e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The SoapRequest class reads a SOAP 1.1 or SOAP 1.2 request with StAX. It
+ * keeps the name of the operation, the first element of the body, and the
+ * text of every element holding no other element, by local name ignoring
+ * case, so that the parameters of an operation can be read without caring
+ * how deep they are nested, such as the fields of the User of an AddUser
+ * call or the strings of an ArrayOfString.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class SoapRequest {
+
+    /**
+     * The namespace of the SOAP 1.2 envelope.
+     */
+    static final String SOAP12_NAMESPACE = "http://www.w3.org/2003/05/soap-envelope";
+
+    /**
+     * The factory of the request parsers, with DTDs and external entities
+     * disabled.
+     */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /**
+     * The local name of the operation.
+     */
+    private final String operation;
+
+    /**
+     * Whether the request is a SOAP 1.2 envelope.
+     */
+    private final boolean soap12;
+
+    /**
+     * The text of the elements holding no other element, by local name
+     * ignoring case.
+     */
+    private final Map<String, List<String>> values;
+
+    /**
+     * Constructor for the SoapRequest class.
+     *
+     * @param operation The local name of the operation.
+     * @param soap12    Whether the request is a SOAP 1.2 envelope.
+     * @param values    The text of the elements holding no other element.
+     */
+    private SoapRequest(String operation, boolean soap12, Map<String, List<String>> values) {
+        this.operation = operation;
+        this.soap12 = soap12;
+        this.values = values;
+    }
+
+    /**
+     * Reads a request.
+     *
+     * @param body The body of the HTTP request.
+     * @return The request.
+     * @throws XMLStreamException if the body is not a SOAP envelope.
+     */
+    public static SoapRequest read(InputStream body) throws XMLStreamException {
+        XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(body);
+        try {
+            boolean soap12 = false;
+            String operation = null;
+            Map<String, List<String>> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            StringBuilder text = new StringBuilder();
+            String leaf = null;
+            boolean inBody = false;
+
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("Envelope".equals(name) && operation == null && !inBody) {
+                        soap12 = SOAP12_NAMESPACE.equals(xml.getNamespaceURI());
+                    } else if ("Body".equals(name) && operation == null) {
+                        inBody = true;
+                    } else if (inBody && operation == null) {
+                        operation = name;
+                    } else if (operation != null) {
+                        leaf = name;
+                        text.setLength(0);
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (leaf != null) {
+                        text.append(xml.getText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (leaf != null && leaf.equals(xml.getLocalName())) {
+                        values.computeIfAbsent(leaf, key -> new ArrayList<>()).add(text.toString().trim());
+                    }
+                    leaf = null;
+                }
+            }
+            if (operation == null) {
+                throw new XMLStreamException("No operation in the SOAP body");
+            }
+            return new SoapRequest(operation, soap12, values);
+        } finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * Gets the local name of the operation.
+     *
+     * @return The name of the operation, such as "GetTokens".
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Tells whether the request is a SOAP 1.2 envelope.
+     *
+     * @return true for SOAP 1.2, false for SOAP 1.1.
+     */
+    public boolean isSoap12() {
+        return soap12;
+    }
+
+    /**
+     * Gets the first value of a parameter.
+     *
+     * @param name The local name of the parameter, ignoring case.
+     * @return The value, or an empty string if the parameter is missing.
+     */
+    public String get(String name) {
+        List<String> all = values.get(name);
+        return all == null ? "" : all.get(0);
+    }
+
+    /**
+     * Gets the first value of a parameter as an integer.
+     *
+     * @param name         The local name of the parameter, ignoring case.
+     * @param defaultValue The value if the parameter is missing or invalid.
+     * @return The value of the parameter.
+     */
+    public int getInt(String name, int defaultValue) {
+        try {
+            return Integer.parseInt(get(name));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets every value of a parameter, such as the strings of an
+     * ArrayOfString.
+     *
+     * @param name The local name of the parameter, ignoring case.
+     * @return The values, possibly empty.
+     */
+    public List<String> getAll(String name) {
+        List<String> all = values.get(name);
+        return all == null ? Collections.emptyList() : all;
+    }
+
+    /**
+     * Gets the text of every element holding no other element.
+     *
+     * @return The values by local name, ignoring case.
+     */
+    public Map<String, List<String>> getValues() {
+        return values;
+    }
+
+    /**
+     * Creates the factory of the request parsers, with DTDs and external
+     * entities disabled.
+     *
+     * @return The factory.
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
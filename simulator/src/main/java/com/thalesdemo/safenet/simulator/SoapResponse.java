@@ -0,0 +1,233 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The SoapResponse class writes the SOAP envelope of a response of the
+ * simulator, in the version of the request. The body holds the response
+ * element of the operation, in the BSIDCA namespace, whose children are
+ * appended one by one. It also writes the SOAP faults, with the codes an
+ * ASP.NET web service would use.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.simulator;
+
+import java.nio.charset.StandardCharsets;
+
+public class SoapResponse {
+
+    /**
+     * The namespace of the BSIDCA messages.
+     */
+    public static final String NAMESPACE = "http://www.cryptocard.com/blackshield/";
+
+    /**
+     * The namespace of the SOAP 1.1 envelope.
+     */
+    private static final String SOAP11_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+
+    /**
+     * The namespace of the XML schema instance attributes.
+     */
+    private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+
+    /**
+     * The content of the response element.
+     */
+    private final StringBuilder content = new StringBuilder(256);
+
+    /**
+     * The local name of the operation answered.
+     */
+    private final String operation;
+
+    /**
+     * Constructor for the SoapResponse class.
+     *
+     * @param operation The local name of the operation answered.
+     */
+    public SoapResponse(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Appends an element holding text.
+     *
+     * @param name  The local name of the element.
+     * @param value The text of the element, or null for an empty element.
+     * @return This response.
+     */
+    public SoapResponse element(String name, Object value) {
+        if (value == null) {
+            content.append('<').append(name).append("/>");
+        } else {
+            content.append('<').append(name).append('>');
+            escape(String.valueOf(value), content);
+            content.append("</").append(name).append('>');
+        }
+        return this;
+    }
+
+    /**
+     * Appends a nil element.
+     *
+     * @param name The local name of the element.
+     * @return This response.
+     */
+    public SoapResponse nil(String name) {
+        content.append('<').append(name).append(" xsi:nil=\"true\"/>");
+        return this;
+    }
+
+    /**
+     * Opens an element that will hold other elements.
+     *
+     * @param name The local name of the element.
+     * @return This response.
+     */
+    public SoapResponse open(String name) {
+        content.append('<').append(name).append('>');
+        return this;
+    }
+
+    /**
+     * Opens an element with attributes that will hold other elements.
+     *
+     * @param name       The local name of the element.
+     * @param attributes The attributes, written as they are.
+     * @return This response.
+     */
+    public SoapResponse open(String name, String attributes) {
+        content.append('<').append(name).append(' ').append(attributes).append('>');
+        return this;
+    }
+
+    /**
+     * Closes an element opened before.
+     *
+     * @param name The local name of the element.
+     * @return This response.
+     */
+    public SoapResponse close(String name) {
+        content.append("</").append(name).append('>');
+        return this;
+    }
+
+    /**
+     * Writes the envelope of the response.
+     *
+     * @param soap12 Whether to write a SOAP 1.2 envelope.
+     * @return The envelope, encoded in UTF-8.
+     */
+    public byte[] toBytes(boolean soap12) {
+        StringBuilder xml = new StringBuilder(content.length() + 320);
+        openEnvelope(xml, soap12);
+        xml.append('<').append(operation).append("Response xmlns=\"").append(NAMESPACE).append("\">");
+        xml.append(content);
+        xml.append("</").append(operation).append("Response>");
+        closeEnvelope(xml);
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the envelope of a SOAP fault.
+     *
+     * @param soap12  Whether to write a SOAP 1.2 envelope.
+     * @param client  Whether the fault is caused by the request rather than
+     *                by the server.
+     * @param message The message of the fault.
+     * @return The envelope, encoded in UTF-8.
+     */
+    public static byte[] fault(boolean soap12, boolean client, String message) {
+        StringBuilder xml = new StringBuilder(512);
+        openEnvelope(xml, soap12);
+        xml.append("<soap:Fault>");
+        if (soap12) {
+            xml.append("<soap:Code><soap:Value>").append(client ? "soap:Sender" : "soap:Receiver")
+                    .append("</soap:Value></soap:Code><soap:Reason><soap:Text xml:lang=\"en\">");
+            escape(message, xml);
+            xml.append("</soap:Text></soap:Reason>");
+        } else {
+            xml.append("<faultcode>").append(client ? "soap:Client" : "soap:Server").append("</faultcode>")
+                    .append("<faultstring>");
+            escape(message, xml);
+            xml.append("</faultstring><detail/>");
+        }
+        xml.append("</soap:Fault>");
+        closeEnvelope(xml);
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the content type of a response.
+     *
+     * @param soap12 Whether the response is a SOAP 1.2 envelope.
+     * @return The content type.
+     */
+    public static String contentType(boolean soap12) {
+        return soap12 ? "application/soap+xml; charset=utf-8" : "text/xml; charset=utf-8";
+    }
+
+    /**
+     * Opens the envelope and the body of a response.
+     *
+     * @param xml    The response being written.
+     * @param soap12 Whether to write a SOAP 1.2 envelope.
+     */
+    private static void openEnvelope(StringBuilder xml, boolean soap12) {
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?><soap:Envelope xmlns:soap=\"")
+                .append(soap12 ? SoapRequest.SOAP12_NAMESPACE : SOAP11_NAMESPACE)
+                .append("\" xmlns:xsi=\"").append(XSI_NAMESPACE)
+                .append("\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"><soap:Body>");
+    }
+
+    /**
+     * Closes the body and the envelope of a response.
+     *
+     * @param xml The response being written.
+     */
+    private static void closeEnvelope(StringBuilder xml) {
+        xml.append("</soap:Body></soap:Envelope>");
+    }
+
+    /**
+     * Escapes the text of an element.
+     *
+     * @param value The text.
+     * @param xml   The response being written.
+     */
+    private static void escape(String value, StringBuilder xml) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '"':
+                    xml.append("&quot;");
+                    break;
+                default:
+                    xml.append(c);
+                    break;
+            }
+        }
+    }
+}
@@ -14,7 +14,8 @@
  * limitations under the License.
  *
  * This class represents an authentication filter that checks for the presence 
- * and validity of an API key in incoming requests to the API. If a valid API 
+ * and validity of an API key in incoming requests to the API and to the
+ * actuator endpoints, except the health probes. If a valid API 
  * key is found, the authentication is set in the Security Context and the 
  * request is passed on to the next filter in the chain. If no API key is found 
  * or an invalid API key is provided, an HTTP error response is sent back to the 
@@ -57,6 +58,11 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
      */
     private static final String API_KEY_HEADER = "X-API-Key";
 
+    /**
+     * The actuator endpoints probed by the orchestrator without an API key.
+     */
+    static final String[] PROBE_PATHS = { "/actuator/health/liveness", "/actuator/health/readiness" };
+
     /**
      * 
      * The {@code ApiKeyAuthService} object that is responsible for validating API
@@ -101,7 +107,8 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
         // api/** pattern
         AntPathMatcher pathMatcher = new AntPathMatcher();
 
-        if (pathMatcher.match("/api/**", requestUri) || pathMatcher.match("api/**", requestUri)) {
+        if (pathMatcher.match("/api/**", requestUri) || pathMatcher.match("api/**", requestUri)
+                || (pathMatcher.match("/actuator/**", requestUri) && !isProbe(pathMatcher, requestUri))) {
 
             // Get the API key from the header of the HTTP request
             String apiKey = request.getHeader(API_KEY_HEADER);
@@ -128,4 +135,20 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
         // Pass the request on to the next filter in the chain
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Tells whether a request is made to one of the health probes.
+     *
+     * @param pathMatcher The path matcher.
+     * @param requestUri  The URI of the request.
+     * @return true if the URI is one of the health probes.
+     */
+    private static boolean isProbe(AntPathMatcher pathMatcher, String requestUri) {
+        for (String path : PROBE_PATHS) {
+            if (pathMatcher.match(path, requestUri)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
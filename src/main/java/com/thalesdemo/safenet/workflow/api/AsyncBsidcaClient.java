@@ -0,0 +1,371 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The AsyncBsidcaClient class is an asynchronous facade over the SafeNet
+ * (BSIDCA) operations used by the TokenService, UserService and
+ * EnrollmentService. Every method returns a CompletableFuture completed by
+ * a dedicated, bounded executor, so that independent calls can overlap and
+ * request threads are not blocked while the BSIDCA service is working. The
+ * calls still go through WorkflowService.invoke(), and therefore through
+ * the session pool, the bulkhead, the circuit breakers, the retries and
+ * the hedging.
+ *
+ * Every future times out after the configured timeout, or after the timeout
+ * given to submit(). A future that times out or is cancelled interrupts the
+ * thread making the call: a call still waiting for a session or a backoff
+ * delay stops at once, while a call already reading the response stops at
+ * the socket timeout of the HTTP client at the latest. When the executor
+ * and its queue are full, the future fails with a
+ * BsidcaUnavailableException.
+ *
+ * A call runs with the deadline of the request that submitted it, and its
+ * future times out at that deadline at the latest.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.cryptocard.www.blackshield.AddUserDocument;
+import com.cryptocard.www.blackshield.AddUserResponseDocument;
+import com.cryptocard.www.blackshield.GetEnrollmentURLDocument;
+import com.cryptocard.www.blackshield.GetEnrollmentURLResponseDocument;
+import com.cryptocard.www.blackshield.GetMobilePASSProvisioningActivationCodeDocument;
+import com.cryptocard.www.blackshield.GetMobilePASSProvisioningActivationCodeResponseDocument;
+import com.cryptocard.www.blackshield.GetProvisioningTasksForUserDocument;
+import com.cryptocard.www.blackshield.GetProvisioningTasksForUserResponseDocument;
+import com.cryptocard.www.blackshield.GetTokensByOwnerDocument;
+import com.cryptocard.www.blackshield.GetTokensByOwnerResponseDocument;
+import com.cryptocard.www.blackshield.GetTokensDocument;
+import com.cryptocard.www.blackshield.GetTokensResponseDocument;
+import com.cryptocard.www.blackshield.GetUserDocument;
+import com.cryptocard.www.blackshield.GetUserResponseDocument;
+import com.cryptocard.www.blackshield.ProcessEnrollmentDocument;
+import com.cryptocard.www.blackshield.ProcessEnrollmentResponseDocument;
+import com.cryptocard.www.blackshield.ProvisionUsersDocument;
+import com.cryptocard.www.blackshield.ProvisionUsersGrIDsureTokensDocument;
+import com.cryptocard.www.blackshield.ProvisionUsersGrIDsureTokensResponseDocument;
+import com.cryptocard.www.blackshield.ProvisionUsersResponseDocument;
+import com.cryptocard.www.blackshield.RemoveUserDocument;
+import com.cryptocard.www.blackshield.RemoveUserResponseDocument;
+import com.cryptocard.www.blackshield.RevokeTokenDocument;
+import com.cryptocard.www.blackshield.RevokeTokenResponseDocument;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Service;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class AsyncBsidcaClient {
+
+    /**
+     * The WorkflowService making the BSIDCA calls.
+     */
+    private final WorkflowService workflowService;
+
+    /**
+     * The executor running the asynchronous calls.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The default timeout of an asynchronous call, in milliseconds.
+     */
+    private final long defaultTimeoutMs;
+
+    /**
+     * Constructor for the AsyncBsidcaClient class.
+     *
+     * @param workflowService The WorkflowService making the BSIDCA calls.
+     * @param settings        The application settings holding the size of the
+     *                        executor and the default timeout.
+     * @param meterRegistry   The registry the occupancy of the executor is
+     *                        published to.
+     */
+    public AsyncBsidcaClient(WorkflowService workflowService, Settings settings, MeterRegistry meterRegistry) {
+        this.workflowService = workflowService;
+
+        AsyncClientSettings asyncClient = settings.getAsyncClient();
+        this.defaultTimeoutMs = asyncClient.getTimeoutMs();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(asyncClient.getThreads(), asyncClient.getThreads(), 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(asyncClient.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "bsidca-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(this.executor, "bsidca.async", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Submits a BSIDCA call with the default timeout.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param call         The web service call to make with a leased session.
+     * @return A future completed with the response of the call.
+     */
+    public <T> CompletableFuture<T> submit(BsidcaOperation operation, String organization, BsidcaCall<T> call) {
+        return submit(operation, organization, call, defaultTimeoutMs);
+    }
+
+    /**
+     * Submits a BSIDCA call. The returned future fails with a TimeoutException
+     * if the call has not completed within the timeout, or within the time
+     * left before the deadline of the request of the calling thread if that is
+     * shorter. Cancelling the future or letting it time out interrupts the
+     * call.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param call         The web service call to make with a leased session.
+     * @param timeoutMs    The timeout of the call, in milliseconds.
+     * @return A future completed with the response of the call.
+     */
+    public <T> CompletableFuture<T> submit(BsidcaOperation operation, String organization, BsidcaCall<T> call,
+            long timeoutMs) {
+        return supply(operation, () -> workflowService.invoke(operation, organization, call), timeoutMs);
+    }
+
+    /**
+     * Submits a task making BSIDCA calls of its own, such as a read going
+     * through the BsidcaRequestCoalescer, with the same deadline, timeout,
+     * cancellation and rejection as submit().
+     *
+     * @param operation The BSIDCA operation the task makes, for the errors.
+     * @param task      The task.
+     * @param timeoutMs The timeout of the task, in milliseconds.
+     * @return A future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> supply(BsidcaOperation operation, Callable<T> task, long timeoutMs) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long remainingMs = BsidcaDeadline.remainingMs(timeoutMs);
+        if (remainingMs <= 0) {
+            result.completeExceptionally(new BsidcaDeadlineExceededException(operation));
+            return result;
+        }
+
+        Future<?> future;
+        try {
+            future = executor.submit(BsidcaDeadline.propagate(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new BsidcaUnavailableException(
+                    String.format("Too many asynchronous BSIDCA calls queued, %s call rejected", operation), 1));
+            return result;
+        }
+
+        // Interrupt the call when the future times out or is cancelled
+        result.whenComplete((response, e) -> {
+            if (e != null) {
+                future.cancel(true);
+            }
+        });
+        return result.orTimeout(remainingMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the default timeout of an asynchronous call.
+     *
+     * @return The default timeout in milliseconds.
+     */
+    public long getDefaultTimeoutMs() {
+        return defaultTimeoutMs;
+    }
+
+    /**
+     * Retrieves tokens matching a serial number or other criteria.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The GetTokens request.
+     * @return A future completed with the GetTokens response.
+     */
+    public CompletableFuture<GetTokensResponseDocument> getTokens(String organization, GetTokensDocument document) {
+        return submit(BsidcaOperation.GET_TOKENS, organization, session -> session.getStub().getTokens(document));
+    }
+
+    /**
+     * Retrieves the serial numbers of the tokens owned by a user.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The GetTokensByOwner request.
+     * @return A future completed with the GetTokensByOwner response.
+     */
+    public CompletableFuture<GetTokensByOwnerResponseDocument> getTokensByOwner(String organization,
+            GetTokensByOwnerDocument document) {
+        return submit(BsidcaOperation.GET_TOKENS_BY_OWNER, organization,
+                session -> session.getStub().getTokensByOwner(document));
+    }
+
+    /**
+     * Retrieves a user account.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The GetUser request.
+     * @return A future completed with the GetUser response.
+     */
+    public CompletableFuture<GetUserResponseDocument> getUser(String organization, GetUserDocument document) {
+        return submit(BsidcaOperation.GET_USER, organization, session -> session.getStub().getUser(document));
+    }
+
+    /**
+     * Creates a user account.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The AddUser request.
+     * @return A future completed with the AddUser response.
+     */
+    public CompletableFuture<AddUserResponseDocument> addUser(String organization, AddUserDocument document) {
+        return submit(BsidcaOperation.ADD_USER, organization, session -> session.getStub().addUser(document));
+    }
+
+    /**
+     * Removes a user account.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The RemoveUser request.
+     * @return A future completed with the RemoveUser response.
+     */
+    public CompletableFuture<RemoveUserResponseDocument> removeUser(String organization,
+            RemoveUserDocument document) {
+        return submit(BsidcaOperation.REMOVE_USER, organization, session -> session.getStub().removeUser(document));
+    }
+
+    /**
+     * Revokes a token from a user.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The RevokeToken request.
+     * @return A future completed with the RevokeToken response.
+     */
+    public CompletableFuture<RevokeTokenResponseDocument> revokeToken(String organization,
+            RevokeTokenDocument document) {
+        return submit(BsidcaOperation.REVOKE_TOKEN, organization,
+                session -> session.getStub().revokeToken(document));
+    }
+
+    /**
+     * Creates a standard token provisioning task for one or more users.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The ProvisionUsers request.
+     * @return A future completed with the ProvisionUsers response.
+     */
+    public CompletableFuture<ProvisionUsersResponseDocument> provisionUsers(String organization,
+            ProvisionUsersDocument document) {
+        return submit(BsidcaOperation.PROVISION_USERS, organization,
+                session -> session.getStub().provisionUsers(document));
+    }
+
+    /**
+     * Creates a GrIDsure token provisioning task for one or more users.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The ProvisionUsersGrIDsureTokens request.
+     * @return A future completed with the ProvisionUsersGrIDsureTokens response.
+     */
+    public CompletableFuture<ProvisionUsersGrIDsureTokensResponseDocument> provisionUsersGrIDsureTokens(
+            String organization, ProvisionUsersGrIDsureTokensDocument document) {
+        return submit(BsidcaOperation.PROVISION_USERS_GRIDSURE_TOKENS, organization,
+                session -> session.getStub().provisionUsersGrIDsureTokens(document));
+    }
+
+    /**
+     * Retrieves the provisioning tasks of a user.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The GetProvisioningTasksForUser request.
+     * @return A future completed with the GetProvisioningTasksForUser response.
+     */
+    public CompletableFuture<GetProvisioningTasksForUserResponseDocument> getProvisioningTasksForUser(
+            String organization, GetProvisioningTasksForUserDocument document) {
+        return submit(BsidcaOperation.GET_PROVISIONING_TASKS_FOR_USER, organization,
+                session -> session.getStub().getProvisioningTasksForUser(document));
+    }
+
+    /**
+     * Retrieves the enrollment URL of a provisioning task.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The GetEnrollmentURL request.
+     * @return A future completed with the GetEnrollmentURL response.
+     */
+    public CompletableFuture<GetEnrollmentURLResponseDocument> getEnrollmentURL(String organization,
+            GetEnrollmentURLDocument document) {
+        return submit(BsidcaOperation.GET_ENROLLMENT_URL, organization,
+                session -> session.getStub().getEnrollmentURL(document));
+    }
+
+    /**
+     * Processes a step of a token enrollment.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The ProcessEnrollment request.
+     * @return A future completed with the ProcessEnrollment response.
+     */
+    public CompletableFuture<ProcessEnrollmentResponseDocument> processEnrollment(String organization,
+            ProcessEnrollmentDocument document) {
+        return submit(BsidcaOperation.PROCESS_ENROLLMENT, organization,
+                session -> session.getStub().processEnrollment(document));
+    }
+
+    /**
+     * Retrieves the MobilePASS activation code of a provisioning task.
+     *
+     * @param organization The organization the call acts on.
+     * @param document     The GetMobilePASSProvisioningActivationCode request.
+     * @return A future completed with the GetMobilePASSProvisioningActivationCode
+     *         response.
+     */
+    public CompletableFuture<GetMobilePASSProvisioningActivationCodeResponseDocument> getMobilePASSProvisioningActivationCode(
+            String organization, GetMobilePASSProvisioningActivationCodeDocument document) {
+        return submit(BsidcaOperation.GET_MOBILEPASS_PROVISIONING_ACTIVATION_CODE, organization,
+                session -> session.getStub().getMobilePASSProvisioningActivationCode(document));
+    }
+
+    /**
+     * Gets the executor running the asynchronous calls.
+     *
+     * @return The executor of the asynchronous calls.
+     */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stops the threads running the asynchronous calls when the application
+     * context is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The AsyncClientSettings class represents the optional "async_client"
+ * section of the settings.json file. It controls the size of the executor
+ * running the asynchronous BSIDCA calls and their default timeout, and how
+ * many of them a single request, and all the requests together, may fan
+ * out to.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class AsyncClientSettings {
+
+    /**
+     * The number of threads running the asynchronous calls.
+     */
+    @JsonProperty("threads")
+    private int threads = 16;
+
+    /**
+     * The number of asynchronous calls that may wait for a thread.
+     */
+    @JsonProperty("queue_capacity")
+    private int queueCapacity = 256;
+
+    /**
+     * The default timeout of an asynchronous call, in milliseconds.
+     */
+    @JsonProperty("timeout_ms")
+    private long timeoutMs = 30000;
+
+    /**
+     * The number of lookups a single request runs at once when it fans out.
+     */
+    @JsonProperty("fan_out_per_request")
+    private int fanOutPerRequest = 4;
+
+    /**
+     * The number of lookups all the requests fanning out run at once, on top
+     * of the request threads.
+     */
+    @JsonProperty("fan_out_global")
+    private int fanOutGlobal = 16;
+
+    /**
+     * Gets the number of threads running the asynchronous calls.
+     *
+     * @return The number of threads, at least 1.
+     */
+    public int getThreads() {
+        return Math.max(1, threads);
+    }
+
+    /**
+     * Sets the number of threads running the asynchronous calls.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the number of asynchronous calls that may wait for a thread.
+     *
+     * @return The queue capacity, at least 1.
+     */
+    public int getQueueCapacity() {
+        return Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Sets the number of asynchronous calls that may wait for a thread.
+     *
+     * @param queueCapacity The queue capacity.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets the default timeout of an asynchronous call, in milliseconds.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getTimeoutMs() {
+        return Math.max(1, timeoutMs);
+    }
+
+    /**
+     * Sets the default timeout of an asynchronous call, in milliseconds.
+     *
+     * @param timeoutMs The timeout in milliseconds.
+     */
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Gets the number of lookups a single request runs at once when it fans
+     * out.
+     * @return The parallelism of a request, at least 1.
+     */
+    public int getFanOutPerRequest() {
+        return Math.max(1, fanOutPerRequest);
+    }
+
+    /**
+     * Sets the number of lookups a single request runs at once when it fans
+     * out.
+     * @param fanOutPerRequest The parallelism of a request, 1 to make the
+     *                         lookups one after another.
+     */
+    public void setFanOutPerRequest(int fanOutPerRequest) {
+        this.fanOutPerRequest = fanOutPerRequest;
+    }
+
+    /**
+     * Gets the number of lookups all the requests fanning out run at once, on
+     * top of the request threads.
+     * @return The global parallelism, at least 0.
+     */
+    public int getFanOutGlobal() {
+        return Math.max(0, fanOutGlobal);
+    }
+
+    /**
+     * Sets the number of lookups all the requests fanning out run at once, on
+     * top of the request threads.
+     * @param fanOutGlobal The global parallelism.
+     */
+    public void setFanOutGlobal(int fanOutGlobal) {
+        this.fanOutGlobal = fanOutGlobal;
+    }
+}
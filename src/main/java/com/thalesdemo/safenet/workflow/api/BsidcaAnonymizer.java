@@ -0,0 +1,253 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaAnonymizer class replaces the personal data of the SOAP
+ * exchanges recorded by the BSIDCA transport with pseudonyms before they are
+ * written to an exchange log. The values of the elements naming or reaching
+ * a person (user names, names, e-mail addresses, phone numbers, addresses,
+ * custom attributes), the secrets (passwords, OTPs, enrollment codes) and
+ * the organization names are replaced by a keyed hash of the value, so that
+ * a value gets the same pseudonym in every request and response of the log
+ * and the replayed calls stay consistent with each other. The key is drawn
+ * at random for every log and never stored, so the pseudonyms cannot be
+ * reversed by hashing candidate values. Enrollment images and activation
+ * strings are replaced by filler of the same length. A body that cannot be
+ * parsed is dropped rather than recorded as is.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+
+public class BsidcaAnonymizer {
+
+    /**
+     * The elements whose values are replaced by pseudonyms, by lower case
+     * local name.
+     */
+    private static final Set<String> PSEUDONYMIZED = new HashSet<>(Arrays.asList("username", "userid", "user",
+            "firstname", "lastname", "email", "operatoremail", "telephone", "mobile", "extension", "address",
+            "address1", "address2", "city", "zip", "organization", "orgname", "password", "otp", "validationcode",
+            "code"));
+
+    /**
+     * The elements whose values are replaced by filler of the same length, by
+     * lower case local name.
+     */
+    private static final Set<String> BLANKED = new HashSet<>(Arrays.asList("enrollmentimage", "image",
+            "getmobilepassprovisioningactivationcoderesult"));
+
+    /**
+     * The element holding an enrollment URL, whose code parameter is replaced
+     * by its pseudonym.
+     */
+    private static final String ENROLLMENT_URL = "getenrollmenturlresult";
+
+    /**
+     * The code parameter of an enrollment URL.
+     */
+    private static final Pattern CODE_PARAMETER = Pattern.compile("([?&]code=)([^&#]*)");
+
+    /**
+     * The factory of the readers parsing the bodies, without DTDs nor external
+     * entities.
+     */
+    private final XMLInputFactory inputFactory;
+
+    /**
+     * The factory of the writers rewriting the bodies.
+     */
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    /**
+     * The factory of the events replacing the values.
+     */
+    private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+    /**
+     * The keyed hash computing the pseudonyms.
+     */
+    private final Mac mac;
+
+    /**
+     * Constructor for the BsidcaAnonymizer class. Draws the random key of the
+     * pseudonyms.
+     *
+     * @throws IllegalStateException if HMAC-SHA256 is not available.
+     */
+    public BsidcaAnonymizer() {
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        try {
+            this.mac = Mac.getInstance("HmacSHA256");
+            this.mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Replaces the personal data of a SOAP body. Not thread-safe: the
+     * anonymizer is used by the single thread writing the exchange log.
+     *
+     * @param body The SOAP body.
+     * @return The anonymized body, or an empty body if the body cannot be
+     *         parsed.
+     */
+    public byte[] anonymize(byte[] body) {
+        if (body.length == 0) {
+            return body;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        Deque<String> elements = new ArrayDeque<>();
+        try {
+            XMLEventReader reader = inputFactory.createXMLEventReader(new ByteArrayInputStream(body));
+            XMLEventWriter writer = outputFactory.createXMLEventWriter(out, StandardCharsets.UTF_8.name());
+            try {
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        elements.push(event.asStartElement().getName().getLocalPart().toLowerCase(Locale.ROOT));
+                    } else if (event.isEndElement()) {
+                        elements.poll();
+                    } else if (event.isCharacters() && !event.asCharacters().isWhiteSpace()) {
+                        event = eventFactory.createCharacters(replace(elements, event.asCharacters().getData()));
+                    }
+                    writer.add(event);
+                }
+                writer.flush();
+            } finally {
+                reader.close();
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            return new byte[0];
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Replaces the value of an element if it holds personal data.
+     *
+     * @param elements The lower case local names of the element and its
+     *                 ancestors, innermost first.
+     * @param value    The value of the element.
+     * @return The value to record.
+     */
+    private String replace(Deque<String> elements, String value) {
+        String element = elements.peek();
+        if (element == null) {
+            return value;
+        }
+        if (PSEUDONYMIZED.contains(element) || isListedName(elements)) {
+            return pseudonym(value);
+        }
+        if (BLANKED.contains(element)) {
+            char[] filler = new char[value.length()];
+            Arrays.fill(filler, 'A');
+            return new String(filler);
+        }
+        if (ENROLLMENT_URL.equals(element)) {
+            Matcher matcher = CODE_PARAMETER.matcher(value);
+            StringBuffer url = new StringBuffer();
+            while (matcher.find()) {
+                matcher.appendReplacement(url, Matcher.quoteReplacement(matcher.group(1) + pseudonym(matcher.group(2))));
+            }
+            matcher.appendTail(url);
+            return url.toString();
+        }
+        return value;
+    }
+
+    /**
+     * Tells whether the value of an element is replaced by a pseudonym or by
+     * filler.
+     *
+     * @param elements The lower case local names of the element and its
+     *                 ancestors, innermost first.
+     * @return true if the element holds personal data.
+     */
+    static boolean isPersonal(Deque<String> elements) {
+        String element = elements.peek();
+        return element != null
+                && (PSEUDONYMIZED.contains(element) || BLANKED.contains(element) || isListedName(elements));
+    }
+
+    /**
+     * Tells whether an element is an item of a list of user names or of custom
+     * attributes.
+     *
+     * @param elements The lower case local names of the element and its
+     *                 ancestors, innermost first.
+     * @return true if the value of the element is personal data.
+     */
+    private static boolean isListedName(Deque<String> elements) {
+        if (elements.size() < 2) {
+            return false;
+        }
+        String parent = elements.stream().skip(1).findFirst().orElse("");
+        return "usernames".equals(parent) || "customattributes".equals(parent);
+    }
+
+    /**
+     * Computes the pseudonym of a value: the hex keyed hash of the value, of
+     * the length of the value between 8 and 64 characters. An e-mail address
+     * keeps its shape, with the pseudonym of its local part at a reserved
+     * domain.
+     *
+     * @param value The value.
+     * @return The pseudonym.
+     */
+    private String pseudonym(String value) {
+        int at = value.indexOf('@');
+        if (at > 0) {
+            return pseudonym(value.substring(0, at)) + "@example.invalid";
+        }
+        byte[] hash = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.substring(0, Math.min(64, Math.max(8, value.length())));
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCall interface represents a single SafeNet (BSIDCA) web service
+ * call executed against a leased BsidcaSession. Services pass an
+ * implementation of this interface (usually a lambda) to
+ * WorkflowService.invoke(), which takes care of leasing and returning the
+ * session around the call.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.rmi.RemoteException;
+
+@FunctionalInterface
+public interface BsidcaCall<T> {
+
+    /**
+     * Executes the web service call using the given session.
+     *
+     * @param session The leased session whose stub is used to make the call.
+     * @return The response of the web service call.
+     * @throws RemoteException if the BSIDCA web service call fails.
+     */
+    T call(BsidcaSession session) throws RemoteException;
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCallMetrics class records what every BSIDCA call costs and how
+ * it ends, so that a slow enrollment can be traced back to the operation
+ * behind it. For every call made through WorkflowService.invoke() it records
+ * the latency, from the rate limiter to the decoded response and including
+ * the retries and hedges, tagged by operation, organization, outcome and
+ * type of fault. For every HTTP exchange with the BSIDCA service it records
+ * the size of the request and response bodies, measured on the wire by the
+ * interceptors of the shared HTTP client. The OrganizationTagFilter keeps
+ * the organization tags of the organizations named in the settings only.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+
+public class BsidcaCallMetrics {
+
+    /**
+     * The tag of the calls made on behalf of no organization.
+     */
+    static final String NO_ORGANIZATION = "none";
+
+    /**
+     * The registry the call metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for the BsidcaCallMetrics class.
+     *
+     * @param meterRegistry The registry the call metrics are published to.
+     */
+    public BsidcaCallMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the latency and the outcome of a call.
+     *
+     * @param operation     The BSIDCA operation invoked.
+     * @param organization  The organization the call acted on.
+     * @param durationNanos The duration of the call, in nanoseconds.
+     * @param failure       The exception the call failed with, or null if it
+     *                      succeeded.
+     */
+    public void recordCall(BsidcaOperation operation, String organization, long durationNanos, Throwable failure) {
+        Timer.builder("bsidca.client.calls")
+                .description("Latency of the BSIDCA calls, including rate limiting, retries and hedges")
+                .tag("operation", operation.getValue())
+                .tag("organization", organizationTag(organization))
+                .tag("outcome", failure == null ? "success" : "error")
+                .tag("fault", failure == null ? "none" : BsidcaFaults.classify(failure))
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time taken to create a BSIDCA stub.
+     *
+     * @param durationNanos The duration of the creation, in nanoseconds.
+     */
+    public void recordStubCreation(long durationNanos) {
+        Timer.builder("bsidca.client.stub.creation")
+                .description("Time taken to create a BSIDCA stub on the shared configuration context")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the size of the body of a request sent to the BSIDCA service.
+     *
+     * @param operation    The BSIDCA operation invoked.
+     * @param organization The organization the call acted on.
+     * @param bytes        The size of the body, in bytes.
+     */
+    public void recordRequestBytes(BsidcaOperation operation, String organization, long bytes) {
+        recordBytes("bsidca.client.request.bytes", "Size of the bodies of the requests sent to BSIDCA",
+                operation, organization, bytes);
+    }
+
+    /**
+     * Records the size of the body of a response received from the BSIDCA
+     * service.
+     *
+     * @param operation    The BSIDCA operation invoked.
+     * @param organization The organization the call acted on.
+     * @param bytes        The size of the body, in bytes.
+     */
+    public void recordResponseBytes(BsidcaOperation operation, String organization, long bytes) {
+        recordBytes("bsidca.client.response.bytes", "Size of the bodies of the responses received from BSIDCA",
+                operation, organization, bytes);
+    }
+
+    /**
+     * Records the size of a body.
+     *
+     * @param name         The name of the metric.
+     * @param description  The description of the metric.
+     * @param operation    The BSIDCA operation invoked.
+     * @param organization The organization the call acted on.
+     * @param bytes        The size of the body, in bytes.
+     */
+    private void recordBytes(String name, String description, BsidcaOperation operation, String organization,
+            long bytes) {
+        DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("operation", operation.getValue())
+                .tag("organization", organizationTag(organization))
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * Gets the value of the organization tag of a call.
+     *
+     * @param organization The organization the call acted on, possibly null.
+     * @return The organization, or "none" if there is none.
+     */
+    static String organizationTag(String organization) {
+        return organization == null || organization.isEmpty() ? NO_ORGANIZATION : organization;
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCircuitBreaker class is the circuit breaker of one BSIDCA
+ * operation. It records the outcome and the duration of the most recent
+ * calls in a count-based sliding window. When the rate of failed calls or of
+ * slow calls crosses its threshold, the circuit opens and rejects every call
+ * for the configured open duration. It then lets a few probe calls through
+ * (half-open): the circuit closes again if they all succeed in time, and
+ * opens again otherwise.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaCircuitBreaker {
+
+    /**
+     * This is the logger instance for the BsidcaCircuitBreaker class. The logger
+     * is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaCircuitBreaker.class.getName());
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        /**
+         * Calls are let through and their outcome is recorded.
+         */
+        CLOSED,
+
+        /**
+         * Calls are rejected until the open duration has elapsed.
+         */
+        OPEN,
+
+        /**
+         * A limited number of probe calls are let through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The operation protected by this circuit breaker, used for logging.
+     */
+    private final BsidcaOperation operation;
+
+    /**
+     * The resilience settings holding the thresholds of the circuit.
+     */
+    private final ResilienceSettings settings;
+
+    /**
+     * Whether each call of the sliding window failed.
+     */
+    private final boolean[] failures;
+
+    /**
+     * Whether each call of the sliding window was slow.
+     */
+    private final boolean[] slowCalls;
+
+    /**
+     * The number of calls recorded in the sliding window.
+     */
+    private int recordedCalls;
+
+    /**
+     * The position of the next call in the sliding window.
+     */
+    private int nextIndex;
+
+    /**
+     * The number of failed calls in the sliding window.
+     */
+    private int failureCount;
+
+    /**
+     * The number of slow calls in the sliding window.
+     */
+    private int slowCallCount;
+
+    /**
+     * The current state of the circuit.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * The time at which an open circuit starts letting probes through, in epoch
+     * milliseconds.
+     */
+    private long openUntil;
+
+    /**
+     * The number of probe calls let through since the circuit became half-open.
+     */
+    private int probesStarted;
+
+    /**
+     * The number of probe calls that succeeded in time.
+     */
+    private int probesSucceeded;
+
+    /**
+     * Constructor for the BsidcaCircuitBreaker class.
+     *
+     * @param operation The operation protected by this circuit breaker.
+     * @param settings  The resilience settings holding the thresholds.
+     */
+    public BsidcaCircuitBreaker(BsidcaOperation operation, ResilienceSettings settings) {
+        this.operation = operation;
+        this.settings = settings;
+        this.failures = new boolean[settings.getSlidingWindowSize()];
+        this.slowCalls = new boolean[settings.getSlidingWindowSize()];
+    }
+
+    /**
+     * Asks the circuit for the permission to make a call. Every permitted call
+     * must be followed by a call to onResult() or onIgnored().
+     *
+     * @return true if the call may be made, false if it must fail fast.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case OPEN:
+                if (System.currentTimeMillis() < openUntil) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                return tryAcquire();
+            case HALF_OPEN:
+                if (probesStarted >= settings.getHalfOpenCalls()) {
+                    return false;
+                }
+                probesStarted++;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Records the outcome of a permitted call and updates the state of the
+     * circuit.
+     *
+     * @param durationMs The duration of the call, in milliseconds.
+     * @param failed     Whether the call failed because the BSIDCA service could
+     *                   not be reached or did not answer.
+     */
+    public synchronized void onResult(long durationMs, boolean failed) {
+        boolean slow = durationMs >= settings.getSlowCallDurationMs();
+        switch (state) {
+            case HALF_OPEN:
+                if (failed || slow) {
+                    open();
+                } else if (++probesSucceeded >= settings.getHalfOpenCalls()) {
+                    transitionTo(State.CLOSED);
+                }
+                break;
+            case CLOSED:
+                record(failed, slow);
+                if (recordedCalls >= settings.getMinimumCalls()
+                        && (failureCount * 100 >= settings.getFailureRateThreshold() * recordedCalls
+                                || slowCallCount * 100 >= settings.getSlowCallRateThreshold() * recordedCalls)) {
+                    open();
+                }
+                break;
+            default:
+                // A call permitted before the circuit opened: nothing to update
+                break;
+        }
+    }
+
+    /**
+     * Gives back the permission of a permitted call without recording its
+     * outcome, for a call that ended for reasons that say nothing about the
+     * health of the BSIDCA service. A half-open circuit lets another probe
+     * through in its place.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    /**
+     * Adds the outcome of a call to the sliding window, replacing the oldest
+     * call once the window is full.
+     *
+     * @param failed Whether the call failed.
+     * @param slow   Whether the call was slow.
+     */
+    private void record(boolean failed, boolean slow) {
+        if (recordedCalls == failures.length) {
+            failureCount -= failures[nextIndex] ? 1 : 0;
+            slowCallCount -= slowCalls[nextIndex] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failures[nextIndex] = failed;
+        slowCalls[nextIndex] = slow;
+        failureCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        nextIndex = (nextIndex + 1) % failures.length;
+    }
+
+    /**
+     * Opens the circuit for the configured open duration.
+     */
+    private void open() {
+        openUntil = System.currentTimeMillis() + settings.getOpenDurationMs();
+        transitionTo(State.OPEN);
+    }
+
+    /**
+     * Moves the circuit to a new state and resets the counters of that state.
+     *
+     * @param newState The new state of the circuit.
+     */
+    private void transitionTo(State newState) {
+        if (newState == State.CLOSED) {
+            recordedCalls = 0;
+            nextIndex = 0;
+            failureCount = 0;
+            slowCallCount = 0;
+        }
+        probesStarted = 0;
+        probesSucceeded = 0;
+        Log.log(newState == State.OPEN ? Level.WARNING : Level.INFO, "BSIDCA {0} circuit changed from {1} to {2}",
+                new Object[] { operation, state, newState });
+        state = newState;
+    }
+
+    /**
+     * Gets the current state of the circuit.
+     *
+     * @return The state of the circuit.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the time left before an open circuit lets probes through.
+     *
+     * @return The remaining open time in milliseconds, or 0 if the circuit is not
+     *         open.
+     */
+    public synchronized long getRemainingOpenMs() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Enum class representing the ways the SOAP messages of the hot BSIDCA
+ * operations are encoded and decoded: either by the lean StAX codec of
+ * BsidcaSoapCodec, or by the XMLBeans documents of the generated Axis2 stub.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public enum BsidcaCodec {
+    /**
+     * Writes the request envelopes directly and pull-parses the responses.
+     */
+    STAX("stax"),
+
+    /**
+     * Goes through the XMLBeans documents and the Axis2 stub.
+     */
+    XMLBEANS("xmlbeans");
+
+    /**
+     * The name of the codec as used in the settings and the metrics.
+     */
+    private final String value;
+
+    /**
+     * Constructor for the BsidcaCodec enum.
+     *
+     * @param value The name of the codec as used in the settings and the
+     *              metrics.
+     */
+    BsidcaCodec(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the codec with the given name, ignoring case.
+     *
+     * @param value The name of the codec.
+     * @return The matching codec, or STAX if the name is unknown or null.
+     */
+    public static BsidcaCodec fromValue(String value) {
+        for (BsidcaCodec codec : values()) {
+            if (codec.value.equalsIgnoreCase(value)) {
+                return codec;
+            }
+        }
+        return STAX;
+    }
+
+    /**
+     * Returns the name of the codec as used in the settings and the metrics.
+     *
+     * @return The name of the codec.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the name of the codec as used in the settings and the metrics.
+     *
+     * @return The name of the codec.
+     */
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCodecBenchmark class measures the CPU time and the memory
+ * allocated per call by the lean BsidcaSoapCodec and by the XMLBeans path
+ * of the services, without a BSIDCA server. For GetTokens, GetTokensByOwner,
+ * GetUser and RevokeToken, the XMLBeans path builds the request document
+ * with its Factory and serializes it, then parses the canned response of
+ * the BsidcaCodecCheck into its response document and converts it as the
+ * TokenService and the UserService do. The codec path renders the envelope
+ * template and decodes the same response with StAX. HTTP and the SOAP
+ * envelope of the stub are left out of both, so that only the encoding and
+ * decoding are compared.
+ *
+ * The BsidcaCodecCheck runs first, and nothing is measured if the codec
+ * differs from XMLBeans. The number of measured iterations per operation and
+ * codec may be given as the only argument:
+ *
+ * java -cp safenet-workflow-api.jar \
+ * -Dloader.main=com.thalesdemo.safenet.workflow.api.BsidcaCodecBenchmark \
+ * org.springframework.boot.loader.PropertiesLauncher 100000
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.cryptocard.www.blackshield.GetTokensByOwnerDocument;
+import com.cryptocard.www.blackshield.GetTokensByOwnerResponseDocument;
+import com.cryptocard.www.blackshield.GetTokensDocument;
+import com.cryptocard.www.blackshield.GetTokensResponseDocument;
+import com.cryptocard.www.blackshield.GetUserDocument;
+import com.cryptocard.www.blackshield.GetUserResponseDocument;
+import com.cryptocard.www.blackshield.RevokeSelection;
+import com.cryptocard.www.blackshield.RevokeTokenDocument;
+import com.cryptocard.www.blackshield.RevokeTokenResponseDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+public final class BsidcaCodecBenchmark {
+
+    /**
+     * The default number of measured iterations per operation and codec.
+     */
+    private static final int DEFAULT_ITERATIONS = 20_000;
+
+    /**
+     * The thread management bean used to read the CPU time and the memory
+     * allocated by the benchmark thread.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * A call encoded and decoded by one of the codecs.
+     */
+    @FunctionalInterface
+    private interface Call {
+        /**
+         * Encodes the request and decodes the response of the call.
+         *
+         * @return The decoded response, so that it is not optimized away.
+         * @throws Exception if the call cannot be encoded or decoded.
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * Constructor for the BsidcaCodecBenchmark class, not meant to be called.
+     */
+    private BsidcaCodecBenchmark() {
+    }
+
+    /**
+     * Checks the codec against XMLBeans, then measures both for every
+     * operation and prints the results.
+     *
+     * @param args The number of measured iterations, optional.
+     * @throws Exception if a call cannot be encoded or decoded.
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        List<String> mismatches = BsidcaCodecCheck.run();
+        if (!mismatches.isEmpty()) {
+            mismatches.forEach(System.err::println);
+            System.err.println("The StAX codec differs from XMLBeans, nothing was measured");
+            System.exit(1);
+        }
+
+        BsidcaSoapCodec codec = new BsidcaSoapCodec(null, "http://localhost/", null);
+        ObjectMapper objectMapper = new UserConfiguration().objectMapper();
+        String revokeMode = RevokeSelection.RETURNTO_INVENTORY_INITIALIZED.toString();
+        byte[] getTokenResponse = BsidcaCodecCheck.bytes(BsidcaCodecCheck.GET_TOKEN_RESPONSE);
+        byte[] getTokensByOwnerResponse = BsidcaCodecCheck.bytes(BsidcaCodecCheck.GET_TOKENS_BY_OWNER_RESPONSE);
+        byte[] getUserResponse = BsidcaCodecCheck.bytes(BsidcaCodecCheck.GET_USER_RESPONSE);
+        byte[] revokeTokenResponse = BsidcaCodecCheck.bytes(BsidcaCodecCheck.REVOKE_TOKEN_RESPONSE);
+
+        System.out.printf("%-18s %-9s %12s %14s%n", "operation", "codec", "cpu ns/op", "alloc bytes/op");
+
+        compare(iterations, "GetTokens", () -> {
+            GetTokensDocument document = GetTokensDocument.Factory.newInstance();
+            GetTokensDocument.GetTokens data = document.addNewGetTokens();
+            data.setSerial("1000001234");
+            data.setOrganization("Corp");
+            data.setStartRecord(0);
+            data.setPageSize(1);
+            save(document);
+            return TokenSchemaParser.parse(GetTokensResponseDocument.Factory
+                    .parse(BsidcaCodecCheck.body(getTokenResponse)).getGetTokensResponse().toString());
+        }, () -> {
+            codec.encode(BsidcaOperation.GET_TOKENS, "1000001234", "Corp", "0", "1");
+            return BsidcaSoapCodec.decodeToken(new ByteArrayInputStream(getTokenResponse));
+        });
+
+        compare(iterations, "GetTokensByOwner", () -> {
+            GetTokensByOwnerDocument document = GetTokensByOwnerDocument.Factory.newInstance();
+            GetTokensByOwnerDocument.GetTokensByOwner data = document.addNewGetTokensByOwner();
+            data.setUserName("corp@bob");
+            data.setOrganization("Corp");
+            save(document);
+            return XmlUtils.extractTokenSerials(GetTokensByOwnerResponseDocument.Factory
+                    .parse(BsidcaCodecCheck.body(getTokensByOwnerResponse)).getGetTokensByOwnerResponse()
+                    .toString());
+        }, () -> {
+            codec.encode(BsidcaOperation.GET_TOKENS_BY_OWNER, "corp@bob", "Corp");
+            return BsidcaSoapCodec.decodeTokensByOwner(new ByteArrayInputStream(getTokensByOwnerResponse));
+        });
+
+        compare(iterations, "GetUser", () -> {
+            GetUserDocument document = GetUserDocument.Factory.newInstance();
+            GetUserDocument.GetUser data = document.addNewGetUser();
+            data.setUserName("corp@bob");
+            data.setOrganization("Corp");
+            save(document);
+            return objectMapper.convertValue(GetUserResponseDocument.Factory
+                    .parse(BsidcaCodecCheck.body(getUserResponse)).getGetUserResponse().getGetUserResult(),
+                    UserSchema.class);
+        }, () -> {
+            codec.encode(BsidcaOperation.GET_USER, "corp@bob", "Corp");
+            return BsidcaSoapCodec.decodeUser(new ByteArrayInputStream(getUserResponse));
+        });
+
+        compare(iterations, "RevokeToken", () -> {
+            RevokeTokenDocument document = RevokeTokenDocument.Factory.newInstance();
+            RevokeTokenDocument.RevokeToken data = document.addNewRevokeToken();
+            data.setUserName("corp@bob");
+            data.setSerial("1000001234");
+            data.setOrganization("Corp");
+            data.setRevokeMode(RevokeSelection.RETURNTO_INVENTORY_INITIALIZED);
+            data.setRevokeStaticPassword(false);
+            save(document);
+            return RevokeTokenResponseDocument.Factory.parse(BsidcaCodecCheck.body(revokeTokenResponse))
+                    .getRevokeTokenResponse().getRevokeTokenResult().toString();
+        }, () -> {
+            codec.encode(BsidcaOperation.REVOKE_TOKEN, "corp@bob", "1000001234", "Corp", revokeMode, "false");
+            return BsidcaSoapCodec.decodeRevokeResult(new ByteArrayInputStream(revokeTokenResponse));
+        });
+    }
+
+    /**
+     * Measures both codecs for an operation and prints the results, with the
+     * ratio of XMLBeans to the codec.
+     *
+     * @param iterations The number of measured iterations.
+     * @param operation  The name of the operation.
+     * @param xmlBeans   The call through XMLBeans.
+     * @param stax       The call through the codec.
+     * @throws Exception if a call cannot be encoded or decoded.
+     */
+    private static void compare(int iterations, String operation, Call xmlBeans, Call stax) throws Exception {
+        // Both paths are warmed up before either is measured
+        measure(iterations, xmlBeans);
+        measure(iterations, stax);
+        double[] xmlBeansCost = measure(iterations, xmlBeans);
+        double[] staxCost = measure(iterations, stax);
+        print(operation, "xmlbeans", xmlBeansCost);
+        print(operation, "stax", staxCost);
+        System.out.printf("%-18s %-9s %11.1fx %13.1fx%n", operation, "ratio", xmlBeansCost[0] / staxCost[0],
+                xmlBeansCost[1] / staxCost[1]);
+    }
+
+    /**
+     * Runs a call repeatedly on the current thread.
+     *
+     * @param iterations The number of iterations.
+     * @param call       The call.
+     * @return The CPU time in nanoseconds and the bytes allocated per
+     *         iteration, NaN when the JVM cannot measure them.
+     * @throws Exception if the call cannot be encoded or decoded.
+     */
+    private static double[] measure(int iterations, Call call) throws Exception {
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        int results = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (call.run() != null) {
+                results++;
+            }
+        }
+        double cpuPerCall = cpu < 0 ? Double.NaN : (double) (cpuTime() - cpu) / iterations;
+        double allocatedPerCall = allocated < 0 ? Double.NaN : (double) (allocatedBytes() - allocated) / iterations;
+        if (results != iterations) {
+            throw new IllegalStateException("A call returned no result");
+        }
+        return new double[] { cpuPerCall, allocatedPerCall };
+    }
+
+    /**
+     * Prints the results of a codec for an operation.
+     *
+     * @param operation The name of the operation.
+     * @param codec     The name of the codec.
+     * @param cost      The CPU time and the bytes allocated per iteration.
+     */
+    private static void print(String operation, String codec, double[] cost) {
+        System.out.printf("%-18s %-9s %12.0f %14.0f%n", operation, codec, cost[0], cost[1]);
+    }
+
+    /**
+     * Serializes a request document, as the stub does before sending it.
+     *
+     * @param document The request document.
+     * @throws java.io.IOException if the document cannot be serialized.
+     */
+    private static void save(org.apache.xmlbeans.XmlObject document) throws java.io.IOException {
+        document.save(new ByteArrayOutputStream());
+    }
+
+    /**
+     * Gets the CPU time of the current thread.
+     *
+     * @return The CPU time in nanoseconds, or -1 if it cannot be measured.
+     */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+                ? THREADS.getCurrentThreadCpuTime()
+                : -1;
+    }
+
+    /**
+     * Gets the memory allocated by the current thread so far.
+     *
+     * @return The allocated bytes, or -1 if they cannot be measured.
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled()) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
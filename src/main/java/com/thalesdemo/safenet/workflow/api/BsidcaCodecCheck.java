@@ -0,0 +1,553 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCodecCheck class checks that the lean BsidcaSoapCodec gives the
+ * same results as the XMLBeans path it stands in for, without a BSIDCA
+ * server. It runs canned GetTokens, GetTokensByOwner, GetUser and
+ * RevokeToken responses and SOAP 1.1 and 1.2 faults through the codec and
+ * through the XMLBeans documents and parsers used by the services, and
+ * compares what they return. It builds the requests of these operations
+ * from the envelope templates with parameters that need escaping (&, <, >,
+ * carriage returns, non-ASCII characters and unpaired surrogates), reads
+ * them back with the XMLBeans documents, and checks that the length the
+ * templates compute for every parameter is the length they write.
+ *
+ * The check is run by the BsidcaCodecBenchmark before it measures anything,
+ * and on its own from the application jar:
+ *
+ * java -cp safenet-workflow-api.jar \
+ * -Dloader.main=com.thalesdemo.safenet.workflow.api.BsidcaCodecCheck \
+ * org.springframework.boot.loader.PropertiesLauncher
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.cryptocard.www.blackshield.GetTokensByOwnerDocument;
+import com.cryptocard.www.blackshield.GetTokensByOwnerResponseDocument;
+import com.cryptocard.www.blackshield.GetTokensDocument;
+import com.cryptocard.www.blackshield.GetTokensResponseDocument;
+import com.cryptocard.www.blackshield.GetUserDocument;
+import com.cryptocard.www.blackshield.GetUserResponseDocument;
+import com.cryptocard.www.blackshield.RevokeSelection;
+import com.cryptocard.www.blackshield.RevokeTokenDocument;
+import com.cryptocard.www.blackshield.RevokeTokenResponseDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.soap.SOAPFault;
+import org.apache.axis2.AxisFault;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public final class BsidcaCodecCheck {
+
+    /**
+     * The namespace of the BSIDCA service.
+     */
+    private static final String NAMESPACE = "http://www.cryptocard.com/blackshield/";
+
+    /**
+     * The namespace of the SOAP 1.1 envelope.
+     */
+    private static final String SOAP11_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+
+    /**
+     * The namespace of the SOAP 1.2 envelope.
+     */
+    private static final String SOAP12_NAMESPACE = "http://www.w3.org/2003/05/soap-envelope";
+
+    /**
+     * The parameters the requests are built with, most of them needing to be
+     * escaped or encoded on several bytes.
+     */
+    static final String[] PARAMETERS = { "corp@bob", "", "a&b<c>d]]>", "line\r\nbreak\ttab", "Zo\u00EB M\u00FCller",
+            "\u6771\u4EAC \uD83D\uDE00", "x\uD800y", "\uDC00lead", "trail\uD83D" };
+
+    /**
+     * A GetTokens response holding a single token.
+     */
+    static final String GET_TOKEN_RESPONSE = envelope(SOAP11_NAMESPACE, "<GetTokensResponse xmlns=\"" + NAMESPACE
+            + "\"><GetTokensResult>" + dataset(token("1000001234", "Active", "corp@bob &amp; alice",
+                    "Zo\u00EB &lt;Corp&gt;", "MobilePASS", true))
+            + "</GetTokensResult></GetTokensResponse>");
+
+    /**
+     * A GetTokens response holding a page of tokens, one of them missing
+     * most of its fields.
+     */
+    static final String GET_TOKENS_RESPONSE = envelope(SOAP11_NAMESPACE, "<GetTokensResponse xmlns=\"" + NAMESPACE
+            + "\"><GetTokensResult>" + dataset(token("1000001234", "Active", "corp@bob", "Corp", "MobilePASS", true)
+                    + token("1000005678", "Suspended", "\u6771\u4EAC \uD83D\uDE00", "Corp", "GOLD", false)
+                    + "<Named_Tokens_Table diffgr:id=\"Named_Tokens_Table3\" msdata:rowOrder=\"2\">"
+                    + "<serialnumber>1000009012</serialnumber><state>Inventory</state>"
+                    + "<stateInt>0</stateInt></Named_Tokens_Table>")
+            + "</GetTokensResult></GetTokensResponse>");
+
+    /**
+     * A GetTokensByOwner response.
+     */
+    static final String GET_TOKENS_BY_OWNER_RESPONSE = envelope(SOAP11_NAMESPACE, "<GetTokensByOwnerResponse xmlns=\""
+            + NAMESPACE + "\"><GetTokensByOwnerResult><string>1000001234</string><string>1000005678</string>"
+            + "<string>A&amp;B&#13;</string></GetTokensByOwnerResult></GetTokensByOwnerResponse>");
+
+    /**
+     * A GetUser response, with groups and custom attributes.
+     */
+    static final String GET_USER_RESPONSE = envelope(SOAP11_NAMESPACE, "<GetUserResponse xmlns=\"" + NAMESPACE
+            + "\"><GetUserResult><PasswordSetDate>2023-04-18</PasswordSetDate><UserName>corp@bob</UserName>"
+            + "<FirstName>Zo\u00EB</FirstName><Lastname>M\u00FCller &amp; Sons</Lastname><City>\u6771\u4EAC</City>"
+            + "<Email>bob@example.com</Email><Mobile>+1 555 0100</Mobile><Message>line&#13;\nbreak</Message>"
+            + "<Groups><Group><GroupName>Admins</GroupName><Description>&lt;all&gt;</Description></Group>"
+            + "<Group><GroupName>Users</GroupName></Group></Groups>"
+            + "<CustomAttributes><string>badge=42</string><string>desk=B&amp;7</string></CustomAttributes>"
+            + "<Locked>true</Locked><PasswordAttemptCount>2</PasswordAttemptCount></GetUserResult>"
+            + "</GetUserResponse>");
+
+    /**
+     * A RevokeToken response.
+     */
+    static final String REVOKE_TOKEN_RESPONSE = envelope(SOAP11_NAMESPACE, "<RevokeTokenResponse xmlns=\""
+            + NAMESPACE + "\"><RevokeTokenResult>Success</RevokeTokenResult></RevokeTokenResponse>");
+
+    /**
+     * A SOAP 1.1 fault, as sent when the session has expired.
+     */
+    static final String SOAP11_FAULT_RESPONSE = envelope(SOAP11_NAMESPACE, "<soap:Fault>"
+            + "<faultcode>soap:Server</faultcode><faultstring>Server was unable to process request. ---&gt; "
+            + "Your session has expired or is not authenticated. Please connect first.</faultstring><detail/>"
+            + "</soap:Fault>");
+
+    /**
+     * A SOAP 1.2 fault.
+     */
+    static final String SOAP12_FAULT_RESPONSE = envelope(SOAP12_NAMESPACE, "<soap:Fault><soap:Code>"
+            + "<soap:Value>soap:Sender</soap:Value></soap:Code><soap:Reason><soap:Text xml:lang=\"en\">"
+            + "Organization \"Zo\u00EB &amp; Co\" was not found.</soap:Text></soap:Reason><soap:Detail/></soap:Fault>");
+
+    /**
+     * The factory of the readers of the envelopes, without DTDs nor external
+     * entities.
+     */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /**
+     * The ObjectMapper converting the XMLBeans users, as the UserService does,
+     * and comparing the results.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The differences found, one line each.
+     */
+    private final List<String> mismatches = new ArrayList<>();
+
+    /**
+     * Constructor for the BsidcaCodecCheck class.
+     *
+     * @param objectMapper The ObjectMapper converting the XMLBeans users.
+     */
+    private BsidcaCodecCheck(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Runs every check.
+     *
+     * @return The differences found between the codec and XMLBeans, one line
+     *         each, or an empty list if there is none.
+     * @throws XMLStreamException if the codec cannot be created.
+     */
+    public static List<String> run() throws XMLStreamException {
+        BsidcaCodecCheck check = new BsidcaCodecCheck(new UserConfiguration().objectMapper());
+        check.checkEscaping();
+        check.checkRequests(new BsidcaSoapCodec(null, "http://localhost/", null), SOAP11_NAMESPACE);
+        check.checkRequests(new BsidcaSoapCodec(null, "http://localhost/", SOAP12_NAMESPACE), SOAP12_NAMESPACE);
+        check.checkResponses();
+        return check.mismatches;
+    }
+
+    /**
+     * Runs every check and prints the differences found. Exits with status 1
+     * if there is any.
+     *
+     * @param args Ignored.
+     * @throws XMLStreamException if the codec cannot be created.
+     */
+    public static void main(String[] args) throws XMLStreamException {
+        List<String> mismatches = run();
+        for (String mismatch : mismatches) {
+            System.err.println(mismatch);
+        }
+        if (!mismatches.isEmpty()) {
+            System.err.printf("The StAX codec differs from XMLBeans in %d place(s)%n", mismatches.size());
+            System.exit(1);
+        }
+        System.out.println("The StAX codec gives the same results as XMLBeans");
+    }
+
+    /**
+     * Checks that every parameter is escaped and encoded as String.getBytes()
+     * encodes its escaped text, unpaired surrogates becoming '?', and that its
+     * computed length is the length written.
+     */
+    private void checkEscaping() {
+        for (String parameter : PARAMETERS) {
+            byte[] expected = parameter.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                    .replace("\r", "&#13;").getBytes(StandardCharsets.UTF_8);
+            int length = BsidcaEnvelopeTemplate.encodedLength(parameter);
+            if (length != expected.length) {
+                mismatch("encodedLength", parameter, expected.length, length);
+                continue;
+            }
+            byte[] encoded = new byte[length];
+            int end = BsidcaEnvelopeTemplate.encode(parameter, encoded, 0);
+            if (end != length) {
+                mismatch("encoded size", parameter, length, end);
+            } else if (!Arrays.equals(expected, encoded)) {
+                mismatch("encoding", parameter, new String(expected, StandardCharsets.UTF_8),
+                        new String(encoded, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Checks that the requests built from the templates of a codec are read
+     * back by the XMLBeans documents with the parameters they were built
+     * with.
+     *
+     * @param codec             The codec.
+     * @param envelopeNamespace The namespace of the envelope the codec writes.
+     */
+    private void checkRequests(BsidcaSoapCodec codec, String envelopeNamespace) {
+        String revokeMode = RevokeSelection.RETURNTO_INVENTORY_INITIALIZED.toString();
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            String value = PARAMETERS[i];
+            String organization = PARAMETERS[(i + 3) % PARAMETERS.length];
+            String expectedValue = roundTrip(value);
+            String expectedOrganization = roundTrip(organization);
+            String what = String.format("%s request with \"%s\"", envelopeNamespace, escapeJava(value));
+            try {
+                byte[] request = codec.encode(BsidcaOperation.GET_TOKENS, value, organization, "0", "1");
+                compare("GetTokens " + what, envelopeNamespace, envelopeNamespace(request));
+                GetTokensDocument.GetTokens getTokens = GetTokensDocument.Factory.parse(body(request))
+                        .getGetTokens();
+                compare("GetTokens " + what, Arrays.asList(expectedValue, expectedOrganization, "0", "1"),
+                        Arrays.asList(getTokens.getSerial(), getTokens.getOrganization(),
+                                Integer.toString(getTokens.getStartRecord()),
+                                Integer.toString(getTokens.getPageSize())));
+
+                request = codec.encode(BsidcaOperation.GET_TOKENS_BY_OWNER, value, organization);
+                GetTokensByOwnerDocument.GetTokensByOwner getTokensByOwner = GetTokensByOwnerDocument.Factory
+                        .parse(body(request)).getGetTokensByOwner();
+                compare("GetTokensByOwner " + what, Arrays.asList(expectedValue, expectedOrganization),
+                        Arrays.asList(getTokensByOwner.getUserName(), getTokensByOwner.getOrganization()));
+
+                request = codec.encode(BsidcaOperation.GET_USER, value, organization);
+                GetUserDocument.GetUser getUser = GetUserDocument.Factory.parse(body(request)).getGetUser();
+                compare("GetUser " + what, Arrays.asList(expectedValue, expectedOrganization),
+                        Arrays.asList(getUser.getUserName(), getUser.getOrganization()));
+
+                request = codec.encode(BsidcaOperation.REVOKE_TOKEN, value, "1000001234", organization, revokeMode,
+                        "false");
+                RevokeTokenDocument.RevokeToken revokeToken = RevokeTokenDocument.Factory.parse(body(request))
+                        .getRevokeToken();
+                compare("RevokeToken " + what,
+                        Arrays.asList(expectedValue, "1000001234", expectedOrganization, revokeMode, "false"),
+                        Arrays.asList(revokeToken.getUserName(), revokeToken.getSerial(),
+                                revokeToken.getOrganization(), String.valueOf(revokeToken.getRevokeMode()),
+                                Boolean.toString(revokeToken.getRevokeStaticPassword())));
+            } catch (Exception e) {
+                mismatches.add(what + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Checks that the canned responses are decoded by the codec as the
+     * services decode them with XMLBeans.
+     */
+    private void checkResponses() {
+        try {
+            byte[] response = bytes(GET_TOKEN_RESPONSE);
+            compare("GetTokens response with one token",
+                    json(TokenSchemaParser.parse(GetTokensResponseDocument.Factory.parse(body(response))
+                            .getGetTokensResponse().toString())),
+                    json(BsidcaSoapCodec.decodeToken(new ByteArrayInputStream(response))));
+        } catch (Exception e) {
+            mismatches.add("GetTokens response with one token: " + e);
+        }
+
+        try {
+            byte[] response = bytes(GET_TOKENS_RESPONSE);
+            compare("GetTokens response with a page of tokens",
+                    json(TokenSchemaParser.parseAll(GetTokensResponseDocument.Factory.parse(body(response))
+                            .getGetTokensResponse().toString())),
+                    json(BsidcaSoapCodec.decodeTokens(new ByteArrayInputStream(response))));
+        } catch (Exception e) {
+            mismatches.add("GetTokens response with a page of tokens: " + e);
+        }
+
+        try {
+            byte[] response = bytes(GET_TOKENS_BY_OWNER_RESPONSE);
+            compare("GetTokensByOwner response",
+                    XmlUtils.extractTokenSerials(GetTokensByOwnerResponseDocument.Factory.parse(body(response))
+                            .getGetTokensByOwnerResponse().toString()),
+                    BsidcaSoapCodec.decodeTokensByOwner(new ByteArrayInputStream(response)));
+        } catch (Exception e) {
+            mismatches.add("GetTokensByOwner response: " + e);
+        }
+
+        try {
+            byte[] response = bytes(GET_USER_RESPONSE);
+            compare("GetUser response",
+                    json(objectMapper.convertValue(GetUserResponseDocument.Factory.parse(body(response))
+                            .getGetUserResponse().getGetUserResult(), UserSchema.class)),
+                    json(BsidcaSoapCodec.decodeUser(new ByteArrayInputStream(response))));
+        } catch (Exception e) {
+            mismatches.add("GetUser response: " + e);
+        }
+
+        try {
+            byte[] response = bytes(REVOKE_TOKEN_RESPONSE);
+            compare("RevokeToken response",
+                    String.valueOf(RevokeTokenResponseDocument.Factory.parse(body(response))
+                            .getRevokeTokenResponse().getRevokeTokenResult()),
+                    BsidcaSoapCodec.decodeRevokeResult(new ByteArrayInputStream(response)));
+        } catch (Exception e) {
+            mismatches.add("RevokeToken response: " + e);
+        }
+
+        checkFault("SOAP 1.1 fault", SOAP11_FAULT_RESPONSE);
+        checkFault("SOAP 1.2 fault", SOAP12_FAULT_RESPONSE);
+    }
+
+    /**
+     * Checks that a fault is raised by the codec with the code and message of
+     * the AxisFault the stub builds from it.
+     *
+     * @param what     The name of the fault.
+     * @param envelope The envelope of the fault.
+     */
+    private void checkFault(String what, String envelope) {
+        try {
+            SOAPFault fault = OMXMLBuilderFactory
+                    .createSOAPModelBuilder(new ByteArrayInputStream(bytes(envelope)), StandardCharsets.UTF_8.name())
+                    .getSOAPEnvelope().getBody().getFault();
+            AxisFault expected = new AxisFault(fault.getCode(), fault.getReason(), fault.getNode(), fault.getRole(),
+                    fault.getDetail());
+            try {
+                BsidcaSoapCodec.decodeToken(new ByteArrayInputStream(bytes(envelope)));
+                mismatches.add(what + ": no AxisFault raised by the codec");
+            } catch (AxisFault actual) {
+                compare(what, Arrays.asList(expected.getFaultCode(), expected.getMessage()),
+                        Arrays.asList(actual.getFaultCode(), actual.getMessage()));
+            }
+        } catch (Exception e) {
+            mismatches.add(what + ": " + e);
+        }
+    }
+
+    /**
+     * Records a difference if the XMLBeans and codec results are not equal.
+     *
+     * @param what     What is compared.
+     * @param xmlBeans The result of XMLBeans.
+     * @param codec    The result of the codec.
+     */
+    private void compare(String what, Object xmlBeans, Object codec) {
+        if (!Objects.equals(xmlBeans, codec)) {
+            mismatches.add(String.format("%s: XMLBeans gives %s, the codec gives %s", what, xmlBeans, codec));
+        }
+    }
+
+    /**
+     * Records a difference in the escaping of a parameter.
+     *
+     * @param what      What is compared.
+     * @param parameter The parameter.
+     * @param expected  The expected result.
+     * @param actual    The result of the template.
+     */
+    private void mismatch(String what, String parameter, Object expected, Object actual) {
+        mismatches.add(String.format("%s of \"%s\": expected %s, got %s", what, escapeJava(parameter), expected,
+                actual));
+    }
+
+    /**
+     * Serializes a result so that results without equals() can be compared.
+     *
+     * @param value The result.
+     * @return The JSON of the result.
+     * @throws Exception if the result cannot be serialized.
+     */
+    private String json(Object value) throws Exception {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    /**
+     * Gets a parser of an envelope positioned on the first element of its
+     * body, as the stub hands the body to the XMLBeans documents.
+     *
+     * @param envelope The envelope, encoded in UTF-8.
+     * @return The parser, positioned on the start of the first element of the
+     *         body.
+     * @throws XMLStreamException if the envelope cannot be read or has an
+     *                            empty body.
+     */
+    static XMLStreamReader body(byte[] envelope) throws XMLStreamException {
+        XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(envelope));
+        boolean inBody = false;
+        while (xml.hasNext()) {
+            if (xml.next() == XMLStreamConstants.START_ELEMENT) {
+                if (inBody) {
+                    return xml;
+                }
+                inBody = "Body".equals(xml.getLocalName());
+            }
+        }
+        throw new XMLStreamException("No element in the SOAP body");
+    }
+
+    /**
+     * Gets the namespace of the root element of an envelope.
+     *
+     * @param envelope The envelope, encoded in UTF-8.
+     * @return The namespace of the envelope.
+     * @throws XMLStreamException if the envelope cannot be read.
+     */
+    private static String envelopeNamespace(byte[] envelope) throws XMLStreamException {
+        XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(envelope));
+        try {
+            xml.nextTag();
+            return xml.getNamespaceURI();
+        } finally {
+            xml.close();
+        }
+    }
+
+    /**
+     * Gets the value a parameter is read back as: UTF-8 cannot encode an
+     * unpaired surrogate, which becomes '?'.
+     *
+     * @param value The parameter.
+     * @return The value read back.
+     */
+    private static String roundTrip(String value) {
+        return new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escapes the control characters and surrogates of a parameter, so that
+     * it can be printed.
+     *
+     * @param value The parameter.
+     * @return The printable parameter.
+     */
+    private static String escapeJava(String value) {
+        StringBuilder text = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || Character.isSurrogate(c)) {
+                text.append(String.format("\\u%04X", (int) c));
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Encodes a canned response in UTF-8.
+     *
+     * @param envelope The envelope.
+     * @return The encoded envelope.
+     */
+    static byte[] bytes(String envelope) {
+        return envelope.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Wraps the content of a body into an envelope, as sent by the BSIDCA
+     * service.
+     *
+     * @param envelopeNamespace The namespace of the envelope.
+     * @param body              The content of the body.
+     * @return The envelope.
+     */
+    private static String envelope(String envelopeNamespace, String body) {
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?><soap:Envelope xmlns:soap=\"" + envelopeNamespace
+                + "\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+                + "xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"><soap:Body>" + body + "</soap:Body></soap:Envelope>";
+    }
+
+    /**
+     * Wraps rows into the schema and diffgram of a .NET dataset.
+     *
+     * @param rows The rows of the dataset.
+     * @return The dataset.
+     */
+    private static String dataset(String rows) {
+        return "<xs:schema id=\"NewDataSet\" xmlns=\"\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" "
+                + "xmlns:msdata=\"urn:schemas-microsoft-com:xml-msdata\"><xs:element name=\"NewDataSet\" "
+                + "msdata:IsDataSet=\"true\"/></xs:schema><diffgr:diffgram "
+                + "xmlns:msdata=\"urn:schemas-microsoft-com:xml-msdata\" "
+                + "xmlns:diffgr=\"urn:schemas-microsoft-com:xml-diffgram-v1\"><NewDataSet xmlns=\"\">" + rows
+                + "</NewDataSet></diffgr:diffgram>";
+    }
+
+    /**
+     * Writes a row of the tokens table, with every field set.
+     *
+     * @param serial       The serial number of the token, already escaped.
+     * @param state        The state of the token.
+     * @param userId       The owner of the token, already escaped.
+     * @param organization The organization of the token, already escaped.
+     * @param type         The type of the token.
+     * @param assignable   Whether the token is assignable.
+     * @return The row.
+     */
+    private static String token(String serial, String state, String userId, String organization, String type,
+            boolean assignable) {
+        return "<Named_Tokens_Table diffgr:id=\"Named_Tokens_Table1\" msdata:rowOrder=\"0\">"
+                + "<serialnumber>" + serial + "</serialnumber><state>" + state + "</state>"
+                + "<stateSetDate>2023-04-18T09:15:02.123-04:00</stateSetDate><userid>" + userId + "</userid>"
+                + "<orgName>" + organization + "</orgName><type>" + type + "</type><container>Default</container>"
+                + "<rented>No</rented><hardwareInit>false</hardwareInit><assignable>" + assignable
+                + "</assignable><ice>No</ice><stateInt>1</stateInt><tokenAllowed>1</tokenAllowed>"
+                + "</Named_Tokens_Table>";
+    }
+
+    /**
+     * Creates the factory of the readers of the envelopes.
+     *
+     * @return The XML input factory.
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCodecException is thrown by the BsidcaSoapCodec when a response
+ * of the BSIDCA service could not be decoded, as opposed to a SOAP fault or a
+ * transport failure. The services catch it to fall back to the XMLBeans
+ * codec for the call. It is neither a transport failure nor a retryable
+ * fault, so it never counts against the circuit breaker of its operation.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.apache.axis2.AxisFault;
+
+public class BsidcaCodecException extends AxisFault {
+
+    /**
+     * Constructor for the BsidcaCodecException class.
+     *
+     * @param message The reason why the response could not be decoded.
+     * @param cause   The exception raised by the XML parser, or null.
+     */
+    public BsidcaCodecException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
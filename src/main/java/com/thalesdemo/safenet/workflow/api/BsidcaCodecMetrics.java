@@ -0,0 +1,138 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaCodecMetrics class measures the cost of the BSIDCA calls made
+ * with each codec, so that the StAX and XMLBeans codecs can be compared on
+ * live traffic. For every call it records the CPU time and the memory
+ * allocated by the thread making the call, from the encoding of the request
+ * to the decoding of the response, tagged by codec and operation. The time
+ * spent waiting for the network costs no CPU and allocates nothing, so the
+ * difference between the codecs shows through.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+public class BsidcaCodecMetrics {
+
+    /**
+     * The bean reporting the CPU time of the threads.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The registry the codec metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Whether the JVM reports the CPU time of the current thread.
+     */
+    private final boolean cpuTimeSupported;
+
+    /**
+     * Whether the JVM reports the memory allocated by a thread.
+     */
+    private final boolean allocationSupported;
+
+    /**
+     * Constructor for the BsidcaCodecMetrics class.
+     *
+     * @param meterRegistry The registry the codec metrics are published to.
+     */
+    public BsidcaCodecMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.cpuTimeSupported = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+        this.allocationSupported = THREADS instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Wraps a call so that its CPU time and allocated memory are recorded.
+     *
+     * @param codec     The codec used by the call.
+     * @param operation The BSIDCA operation being invoked.
+     * @param call      The web service call to measure.
+     * @return The measured call.
+     */
+    public <T> BsidcaCall<T> measure(BsidcaCodec codec, BsidcaOperation operation, BsidcaCall<T> call) {
+        return session -> {
+            long cpuStart = cpuTime();
+            long allocatedStart = allocatedBytes();
+            try {
+                return call.call(session);
+            } finally {
+                record(codec, operation, cpuTime() - cpuStart, allocatedBytes() - allocatedStart);
+            }
+        };
+    }
+
+    /**
+     * Records the cost of a call.
+     *
+     * @param codec          The codec used by the call.
+     * @param operation      The BSIDCA operation invoked.
+     * @param cpuNanos       The CPU time of the call, in nanoseconds.
+     * @param allocatedBytes The memory allocated by the call, in bytes.
+     */
+    private void record(BsidcaCodec codec, BsidcaOperation operation, long cpuNanos, long allocatedBytes) {
+        if (cpuTimeSupported) {
+            Timer.builder("bsidca.codec.cpu")
+                    .description("CPU time spent by the calling thread on a BSIDCA call")
+                    .tag("codec", codec.getValue())
+                    .tag("operation", operation.getValue())
+                    .register(meterRegistry)
+                    .record(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+        if (allocationSupported) {
+            DistributionSummary.builder("bsidca.codec.allocated")
+                    .description("Memory allocated by the calling thread on a BSIDCA call")
+                    .baseUnit("bytes")
+                    .tag("codec", codec.getValue())
+                    .tag("operation", operation.getValue())
+                    .register(meterRegistry)
+                    .record(allocatedBytes);
+        }
+    }
+
+    /**
+     * Gets the CPU time of the current thread.
+     *
+     * @return The CPU time in nanoseconds, or 0 if it is not reported.
+     */
+    private long cpuTime() {
+        return cpuTimeSupported ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Gets the memory allocated by the current thread since it started.
+     *
+     * @return The allocated memory in bytes, or 0 if it is not reported.
+     */
+    private long allocatedBytes() {
+        return allocationSupported
+                ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaConnectionManager class is the pool of HTTP connections shared by
+ * every BSIDCA session. On top of the standard pooling connection manager, it
+ * records how long each request waits for a connection on every route, and
+ * resizes itself between the bounds set in the "http_pool" section of the
+ * settings.json file: it grows when requests are waiting for a connection and
+ * shrinks back when most of its connections are idle. The bounds can also be
+ * changed at runtime.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.pool.PoolStats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaConnectionManager extends PoolingHttpClientConnectionManager {
+
+    /**
+     * This is the logger instance for the BsidcaConnectionManager class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaConnectionManager.class.getName());
+
+    /**
+     * The time spent waiting for a connection, per route.
+     */
+    private final Map<HttpRoute, WaitStats> waitStats = new ConcurrentHashMap<>();
+
+    /**
+     * The number of connections added or removed by one resize.
+     */
+    private final int resizeStep;
+
+    /**
+     * The number of connections the pool never shrinks below.
+     */
+    private volatile int minConnections;
+
+    /**
+     * The number of connections the pool never grows beyond.
+     */
+    private volatile int maxConnections;
+
+    /**
+     * The thread resizing the pool, or null if resizing is disabled.
+     */
+    private ScheduledExecutorService resizer;
+
+    /**
+     * Constructor for the BsidcaConnectionManager class. The pool starts with
+     * the minimum number of connections and every route may use all of them,
+     * since the BSIDCA service is reached through a single route.
+     *
+     * @param settings The settings of the HTTP connection pool.
+     */
+    public BsidcaConnectionManager(HttpPoolSettings settings) {
+        this.resizeStep = settings.getResizeStep();
+        this.minConnections = settings.getMinConnections();
+        this.maxConnections = settings.getMaxConnections();
+        setMaxTotal(minConnections);
+        setDefaultMaxPerRoute(minConnections);
+        setValidateAfterInactivity(settings.getValidateAfterInactivityMs());
+    }
+
+    /**
+     * Starts resizing the pool at a fixed interval.
+     *
+     * @param intervalMs The interval between two resizes, in milliseconds. 0
+     *                   disables resizing.
+     */
+    public synchronized void startResizing(long intervalMs) {
+        if (intervalMs <= 0 || resizer != null) {
+            return;
+        }
+        resizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bsidca-connection-resizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        resizer.scheduleWithFixedDelay(this::resize, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Requests a connection for a route, recording how long the caller waits
+     * for it.
+     *
+     * @param route The route of the connection.
+     * @param state The expected state of the connection, or null.
+     * @return The request for the connection.
+     */
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+        WaitStats stats = waitStats.computeIfAbsent(route, r -> new WaitStats());
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, timeUnit);
+                } finally {
+                    stats.record(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * Grows the pool by one step when requests are waiting for a connection, or
+     * shrinks it by one step when less than half of its connections are leased.
+     * The size always stays between the minimum and the maximum.
+     */
+    void resize() {
+        try {
+            PoolStats totals = getTotalStats();
+            int current = getMaxTotal();
+            int target = current;
+            if (totals.getPending() > 0) {
+                target = Math.min(maxConnections, current + Math.max(resizeStep, totals.getPending()));
+            } else if (totals.getLeased() < current / 2) {
+                target = Math.max(minConnections, current - resizeStep);
+            }
+            target = Math.min(maxConnections, Math.max(minConnections, target));
+            if (target != current) {
+                applySize(target);
+                Log.log(Level.INFO, "BSIDCA connection pool resized from {0} to {1} ({2} leased, {3} pending)",
+                        new Object[] { current, target, totals.getLeased(), totals.getPending() });
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled resizes
+            Log.log(Level.WARNING, "Could not resize the BSIDCA connection pool", e);
+        }
+    }
+
+    /**
+     * Changes the bounds between which the pool is resized. The current size is
+     * moved within the new bounds immediately.
+     *
+     * @param min The number of connections the pool never shrinks below.
+     * @param max The number of connections the pool never grows beyond.
+     * @throws IllegalArgumentException if min is lower than 1 or greater than
+     *                                  max.
+     */
+    public synchronized void setBounds(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid connection pool bounds: min=%d, max=%d", min, max));
+        }
+        this.minConnections = min;
+        this.maxConnections = max;
+        int current = getMaxTotal();
+        int target = Math.min(max, Math.max(min, current));
+        if (target != current) {
+            applySize(target);
+        }
+        Log.log(Level.INFO, "BSIDCA connection pool bounds set to [{0}, {1}]", new Object[] { min, max });
+    }
+
+    /**
+     * Sets the total size of the pool and the size of every route to the same
+     * value.
+     *
+     * @param size The new size of the pool.
+     */
+    private void applySize(int size) {
+        setMaxTotal(size);
+        setDefaultMaxPerRoute(size);
+        for (HttpRoute route : getRoutes()) {
+            setMaxPerRoute(route, size);
+        }
+    }
+
+    /**
+     * Builds a snapshot of the pool, with the totals and the figures of every
+     * route.
+     *
+     * @return The snapshot of the pool.
+     */
+    public ConnectionPoolStats getSnapshot() {
+        PoolStats totals = getTotalStats();
+        List<ConnectionPoolStats.RouteStats> routes = new ArrayList<>();
+        for (HttpRoute route : getRoutes()) {
+            PoolStats stats = getStats(route);
+            WaitStats waits = waitStats.getOrDefault(route, new WaitStats());
+            routes.add(new ConnectionPoolStats.RouteStats(route.getTargetHost().toURI(), stats.getLeased(),
+                    stats.getPending(), stats.getAvailable(), stats.getMax(), waits.getCount(),
+                    waits.getAverageMs(), waits.getMaxMs()));
+        }
+        return new ConnectionPoolStats(totals.getLeased(), totals.getPending(), totals.getAvailable(),
+                totals.getMax(), minConnections, maxConnections, routes);
+    }
+
+    /**
+     * Gets the number of connections the pool never shrinks below.
+     *
+     * @return The minimum number of connections.
+     */
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    /**
+     * Gets the number of connections the pool never grows beyond.
+     *
+     * @return The maximum number of connections.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Stops resizing the pool and closes its connections.
+     */
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            if (resizer != null) {
+                resizer.shutdownNow();
+            }
+        }
+        super.shutdown();
+    }
+
+    /**
+     * The time spent waiting for a connection on one route.
+     */
+    private static class WaitStats {
+
+        /**
+         * The number of connections obtained or given up on.
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * The total time spent waiting, in nanoseconds.
+         */
+        private final LongAdder totalNanos = new LongAdder();
+
+        /**
+         * The longest time spent waiting, in nanoseconds.
+         */
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Records one wait.
+         *
+         * @param nanos The time spent waiting, in nanoseconds.
+         */
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        /**
+         * Gets the number of waits recorded.
+         *
+         * @return The number of waits.
+         */
+        long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Gets the average time spent waiting.
+         *
+         * @return The average wait in milliseconds, or 0 if nothing was recorded.
+         */
+        double getAverageMs() {
+            long waits = count.sum();
+            return waits == 0 ? 0 : totalNanos.sum() / (waits * 1_000_000.0);
+        }
+
+        /**
+         * Gets the longest time spent waiting.
+         *
+         * @return The longest wait in milliseconds.
+         */
+        double getMaxMs() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaDeadline class is the deadline of an API request, before which
+ * all of its SafeNet (BSIDCA) calls must complete. The deadline is bound to
+ * the request thread by the BsidcaDeadlineInterceptor, and carried to the
+ * threads making calls on behalf of the request (the asynchronous client, the
+ * hedging threads) by propagate(). Every call is given the time left before
+ * the deadline at most, and every wait on the way (rate limit, bulkhead,
+ * session lease, retry backoff) is bounded by it. A request that stopped
+ * early and returns partial results is marked incomplete.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class BsidcaDeadline {
+
+    /**
+     * The deadline of the request being served by the current thread.
+     */
+    private static final ThreadLocal<BsidcaDeadline> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The time the request was given, in milliseconds.
+     */
+    private final long timeoutMs;
+
+    /**
+     * The time the deadline expires at, as given by System.nanoTime().
+     */
+    private final long expiresAtNanos;
+
+    /**
+     * Whether the request stopped before gathering all of its results.
+     */
+    private final AtomicBoolean incomplete = new AtomicBoolean();
+
+    /**
+     * Constructor for the BsidcaDeadline class.
+     *
+     * @param timeoutMs The time the request is given, in milliseconds.
+     */
+    private BsidcaDeadline(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Creates a deadline expiring after the given time.
+     *
+     * @param timeoutMs The time the request is given, in milliseconds.
+     * @return The deadline.
+     */
+    public static BsidcaDeadline after(long timeoutMs) {
+        return new BsidcaDeadline(timeoutMs);
+    }
+
+    /**
+     * Returns the deadline bound to the current thread, if any.
+     *
+     * @return The deadline of the request served by this thread, or null.
+     */
+    public static BsidcaDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a deadline to the current thread.
+     *
+     * @param deadline The deadline to bind, or null to unbind the current one.
+     * @return The deadline bound to the thread before, to be passed to
+     *         restore().
+     */
+    public static BsidcaDeadline bind(BsidcaDeadline deadline) {
+        BsidcaDeadline previous = CURRENT.get();
+        restore(deadline);
+        return previous;
+    }
+
+    /**
+     * Binds back the deadline returned by bind().
+     *
+     * @param previous The deadline bound to the thread before, or null.
+     */
+    public static void restore(BsidcaDeadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Bounds a time by the time left before the deadline of the current
+     * thread.
+     *
+     * @param limitMs The time to bound, in milliseconds.
+     * @return The smaller of the time and the time left, which is 0 or less if
+     *         the deadline has expired, or the time itself if no deadline is
+     *         bound to the thread.
+     */
+    public static long remainingMs(long limitMs) {
+        BsidcaDeadline deadline = CURRENT.get();
+        return deadline == null ? limitMs : Math.min(limitMs, deadline.getRemainingMs());
+    }
+
+    /**
+     * Tells whether the deadline of the current thread has expired.
+     *
+     * @return true if a deadline is bound to the thread and has expired.
+     */
+    public static boolean isCurrentExpired() {
+        BsidcaDeadline deadline = CURRENT.get();
+        return deadline != null && deadline.isExpired();
+    }
+
+    /**
+     * Checks that a call can still be made before the deadline of the current
+     * thread.
+     *
+     * @param operation The BSIDCA operation about to be invoked.
+     * @throws BsidcaDeadlineExceededException if the deadline has expired.
+     */
+    public static void check(BsidcaOperation operation) {
+        if (isCurrentExpired()) {
+            throw new BsidcaDeadlineExceededException(operation);
+        }
+    }
+
+    /**
+     * Marks the request of the current thread as incomplete, if it has a
+     * deadline.
+     */
+    public static void markCurrentIncomplete() {
+        BsidcaDeadline deadline = CURRENT.get();
+        if (deadline != null) {
+            deadline.markIncomplete();
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs with the deadline of the current thread.
+     *
+     * @param task The task to run on another thread.
+     * @return The wrapped task.
+     */
+    public static Runnable propagate(Runnable task) {
+        BsidcaDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            BsidcaDeadline previous = bind(deadline);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that it runs with the deadline of the current thread.
+     *
+     * @param task The task to run on another thread.
+     * @return The wrapped task.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        BsidcaDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            BsidcaDeadline previous = bind(deadline);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Gets the time left before the deadline, in milliseconds.
+     *
+     * @return The time left, 0 or less once the deadline has expired.
+     */
+    public long getRemainingMs() {
+        return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+    }
+
+    /**
+     * Tells whether the deadline has expired.
+     *
+     * @return true if no time is left.
+     */
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Gets the time the request was given, in milliseconds.
+     *
+     * @return The timeout of the request.
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Marks the request as having stopped before gathering all of its results.
+     */
+    public void markIncomplete() {
+        incomplete.set(true);
+    }
+
+    /**
+     * Tells whether the request stopped before gathering all of its results.
+     *
+     * @return true if the results of the request are partial.
+     */
+    public boolean isIncomplete() {
+        return incomplete.get();
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaDeadlineExceededException is thrown when the deadline of a
+ * request expires before one of its SafeNet (BSIDCA) calls could be made or
+ * completed. It is a BsidcaUnavailableException, so that it goes through the
+ * catch blocks of the services untouched, and the BsidcaExceptionHandler
+ * turns it into a 504 Gateway Timeout response. The fan-out endpoints catch
+ * it to return the results gathered so far instead.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public class BsidcaDeadlineExceededException extends BsidcaUnavailableException {
+
+    /**
+     * Constructor for the BsidcaDeadlineExceededException class.
+     *
+     * @param operation The BSIDCA operation that could not complete in time.
+     */
+    public BsidcaDeadlineExceededException(BsidcaOperation operation) {
+        super(String.format("The deadline of the request expired before the BSIDCA %s call could complete",
+                operation), 0);
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaDeadlineInterceptor class gives every API request a deadline
+ * before which its SafeNet (BSIDCA) calls must complete. The deadline is taken
+ * from the X-Request-Timeout header of the request, in milliseconds, capped by
+ * the longest deadline allowed by the settings; without the header, it is the
+ * default of the endpoint, or else the default of every request. The
+ * deadline is bound to the request thread for the duration of the request,
+ * or until the request continues on another thread, as a streamed one does.
+ *
+ * The class is also a ResponseBodyAdvice: when the request stopped early and
+ * returns partial results, it adds the X-Result-Incomplete header to the
+ * response before its body is written.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+@ControllerAdvice
+public class BsidcaDeadlineInterceptor implements AsyncHandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    /**
+     * This is the logger instance for the BsidcaDeadlineInterceptor class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaDeadlineInterceptor.class.getName());
+
+    /**
+     * The header a client sets to give its request a deadline, in
+     * milliseconds.
+     */
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * The header set on a response whose results are partial.
+     */
+    public static final String RESULT_INCOMPLETE_HEADER = "X-Result-Incomplete";
+
+    /**
+     * The settings of the deadlines of the requests.
+     */
+    private final TimeoutSettings timeouts;
+
+    /**
+     * The matcher of the endpoint patterns of the settings.
+     */
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * Constructor for the BsidcaDeadlineInterceptor class.
+     *
+     * @param settings The application settings holding the deadlines.
+     */
+    public BsidcaDeadlineInterceptor(Settings settings) {
+        this.timeouts = settings.getTimeouts();
+    }
+
+    /**
+     * Binds the deadline of the request to the request thread.
+     *
+     * @param request  The HTTP request.
+     * @param response The HTTP response.
+     * @param handler  The handler of the request.
+     * @return true, so that the request is always handled.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        BsidcaDeadline.bind(BsidcaDeadline.after(getTimeoutMs(request)));
+        return true;
+    }
+
+    /**
+     * Unbinds the deadline of the request from the request thread.
+     *
+     * @param request  The HTTP request.
+     * @param response The HTTP response.
+     * @param handler  The handler of the request.
+     * @param e        The exception raised by the handler, if any.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception e) {
+        BsidcaDeadline.restore(null);
+    }
+
+    /**
+     * Unbinds the deadline of the request from the request thread when the
+     * response is produced on another thread, such as a streamed response;
+     * afterCompletion() is then only called once that thread is done.
+     *
+     * @param request  The HTTP request.
+     * @param response The HTTP response.
+     * @param handler  The handler of the request.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        BsidcaDeadline.restore(null);
+    }
+
+    /**
+     * Computes the time a request is given: the value of its X-Request-Timeout
+     * header if it has a valid one, capped by the longest deadline allowed,
+     * otherwise the default of the first matching endpoint pattern, otherwise
+     * the default of every request.
+     *
+     * @param request The HTTP request.
+     * @return The time the request is given, in milliseconds.
+     */
+    private long getTimeoutMs(HttpServletRequest request) {
+        String header = request.getHeader(REQUEST_TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                return Math.min(timeouts.getMaxRequestMs(), Math.max(1, Long.parseLong(header.trim())));
+            } catch (NumberFormatException e) {
+                Log.log(Level.FINE, "Ignoring the invalid {0} header: {1}",
+                        new Object[] { REQUEST_TIMEOUT_HEADER, header });
+            }
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Map.Entry<String, Long> endpoint : timeouts.getEndpoints().entrySet()) {
+            if (endpoint.getValue() != null && matches(endpoint.getKey(), request.getMethod(), path)) {
+                return Math.min(timeouts.getMaxRequestMs(), Math.max(1, endpoint.getValue()));
+            }
+        }
+        return timeouts.getRequestMs();
+    }
+
+    /**
+     * Tells whether a request matches an endpoint pattern of the settings.
+     *
+     * @param endpoint The endpoint pattern, an Ant path pattern optionally
+     *                 preceded by an HTTP method and a space.
+     * @param method   The HTTP method of the request.
+     * @param path     The path of the request.
+     * @return true if the request matches the pattern.
+     */
+    private boolean matches(String endpoint, String method, String path) {
+        String pattern = endpoint.trim();
+        int space = pattern.indexOf(' ');
+        if (space > 0) {
+            if (!pattern.substring(0, space).equalsIgnoreCase(method)) {
+                return false;
+            }
+            pattern = pattern.substring(space + 1).trim();
+        }
+        return pathMatcher.match(pattern, path);
+    }
+
+    /**
+     * Applies to every response body.
+     *
+     * @param returnType    The return type of the handler.
+     * @param converterType The converter writing the body.
+     * @return true.
+     */
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    /**
+     * Adds the X-Result-Incomplete header to the response if the request
+     * stopped before gathering all of its results.
+     *
+     * @param body                  The body of the response.
+     * @param returnType            The return type of the handler.
+     * @param selectedContentType   The content type of the body.
+     * @param selectedConverterType The converter writing the body.
+     * @param request               The HTTP request.
+     * @param response              The HTTP response.
+     * @return The body, unchanged.
+     */
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        BsidcaDeadline deadline = BsidcaDeadline.current();
+        if (deadline != null && deadline.isIncomplete()) {
+            response.getHeaders().set(RESULT_INCOMPLETE_HEADER, "true");
+        }
+        return body;
+    }
+}
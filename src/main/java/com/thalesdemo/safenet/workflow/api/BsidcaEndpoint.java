@@ -0,0 +1,285 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaEndpoint class represents one of the SafeNet BSIDCA front ends
+ * the calls are balanced across. It owns the pool of sessions authenticated
+ * against the front end, the BsidcaHealthMonitor and the
+ * BsidcaSessionMetrics of the pool, and keeps
+ * the figures the BsidcaRouter bases its decisions on: the number of calls
+ * in progress, a time-decayed moving average of the latency of the calls,
+ * the number of consecutive transport failures, and whether the endpoint is
+ * currently ejected from the routing.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BsidcaEndpoint {
+
+    /**
+     * The name of the endpoint as used in the logs and the metrics.
+     */
+    private final String name;
+
+    /**
+     * The pool of sessions authenticated against the endpoint.
+     */
+    private final BsidcaSessionPool sessionPool;
+
+    /**
+     * The metrics of the sessions of the pool.
+     */
+    private final BsidcaSessionMetrics sessionMetrics;
+
+    /**
+     * The background monitor reconnecting and checking the sessions of the pool.
+     */
+    private final BsidcaHealthMonitor healthMonitor;
+
+    /**
+     * The time after which the weight of a latency sample has decayed to 1/e,
+     * in nanoseconds.
+     */
+    private final double decayNanos;
+
+    /**
+     * The number of calls in progress on the endpoint.
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * The number of consecutive calls that failed at the transport level.
+     */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * The moving average of the latency of the calls, in milliseconds.
+     */
+    private double latencyEwmaMs;
+
+    /**
+     * The System.nanoTime() of the last latency sample, or 0 if there was none.
+     */
+    private long lastSampleNanos;
+
+    /**
+     * The System.currentTimeMillis() at which the endpoint was ejected, or 0 if
+     * it is admitted.
+     */
+    private volatile long ejectedAt;
+
+    /**
+     * Constructor for the BsidcaEndpoint class.
+     *
+     * @param sessionPool   The pool of sessions authenticated against the
+     *                      endpoint.
+     * @param routing       The routing settings holding the decay time of the
+     *                      latency average.
+     * @param meterRegistry The registry the session metrics are published to.
+     */
+    public BsidcaEndpoint(BsidcaSessionPool sessionPool, RoutingSettings routing, MeterRegistry meterRegistry) {
+        this.name = nameOf(sessionPool.getBaseUrl());
+        this.sessionPool = sessionPool;
+        this.sessionMetrics = new BsidcaSessionMetrics(this.name, sessionPool, meterRegistry);
+        this.healthMonitor = new BsidcaHealthMonitor(sessionPool, this.sessionMetrics);
+        this.decayNanos = routing.getEwmaDecayMs() * 1e6;
+    }
+
+    /**
+     * Derives the name of an endpoint from its base URL.
+     *
+     * @param baseUrl The base URL of the endpoint.
+     * @return The host and port of the endpoint, or the base URL itself if it
+     *         cannot be parsed.
+     */
+    private static String nameOf(String baseUrl) {
+        try {
+            URI uri = URI.create(baseUrl);
+            if (uri.getHost() != null) {
+                return uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+            }
+        } catch (IllegalArgumentException e) {
+            // Fall back to the raw base URL
+        }
+        return String.valueOf(baseUrl);
+    }
+
+    /**
+     * Starts the health monitor of the pool.
+     */
+    public void start() {
+        healthMonitor.start();
+    }
+
+    /**
+     * Stops the health monitor and releases the stubs of the pool.
+     */
+    public void shutdown() {
+        healthMonitor.stop();
+        sessionPool.shutdown();
+    }
+
+    /**
+     * Records the start of a call on the endpoint.
+     */
+    public void onCallStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a call on the endpoint, and folds its duration into
+     * the moving average of the latency. The weight of the previous average
+     * decays with the time elapsed since the previous sample, so that a burst
+     * of calls does not drown the average and an endpoint recovers quickly from
+     * a slow spell once it is fast again.
+     *
+     * @param durationMs       The duration of the call, in milliseconds.
+     * @param transportFailure Whether the call failed at the transport level.
+     * @return The number of consecutive transport failures, including this
+     *         call.
+     */
+    public int onCallCompleted(long durationMs, boolean transportFailure) {
+        outstanding.decrementAndGet();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (lastSampleNanos == 0) {
+                latencyEwmaMs = durationMs;
+            } else {
+                double weight = Math.exp(-Math.max(0, now - lastSampleNanos) / decayNanos);
+                latencyEwmaMs = latencyEwmaMs * weight + durationMs * (1 - weight);
+            }
+            lastSampleNanos = now;
+        }
+        if (transportFailure) {
+            return consecutiveFailures.incrementAndGet();
+        }
+        consecutiveFailures.set(0);
+        return 0;
+    }
+
+    /**
+     * Gets the cost of sending one more call to the endpoint, as the product of
+     * its average latency and its number of calls in progress. The lower the
+     * cost, the sooner the call is expected to complete.
+     *
+     * @return The cost of the endpoint.
+     */
+    public double getCost() {
+        return (getLatencyEwmaMs() + 1) * (outstanding.get() + 1);
+    }
+
+    /**
+     * Tells whether calls may be routed to the endpoint: it is not ejected and
+     * has at least one authenticated session.
+     *
+     * @return true if the endpoint may receive calls.
+     */
+    public boolean isRoutable() {
+        return !isEjected() && sessionPool.getAuthenticated() > 0;
+    }
+
+    /**
+     * Ejects the endpoint from the routing.
+     */
+    public void eject() {
+        ejectedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Admits the endpoint to the routing again.
+     */
+    public void readmit() {
+        consecutiveFailures.set(0);
+        ejectedAt = 0;
+    }
+
+    /**
+     * Tells whether the endpoint is ejected from the routing.
+     *
+     * @return true if the endpoint is ejected.
+     */
+    public boolean isEjected() {
+        return ejectedAt != 0;
+    }
+
+    /**
+     * Gets the time at which the endpoint was ejected.
+     *
+     * @return The System.currentTimeMillis() of the ejection, or 0 if the
+     *         endpoint is admitted.
+     */
+    public long getEjectedAt() {
+        return ejectedAt;
+    }
+
+    /**
+     * Gets the name of the endpoint as used in the logs and the metrics.
+     *
+     * @return The host and port of the endpoint.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the pool of sessions authenticated against the endpoint.
+     *
+     * @return The session pool of the endpoint.
+     */
+    public BsidcaSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * Gets the metrics of the sessions of the endpoint.
+     *
+     * @return The session metrics of the endpoint.
+     */
+    public BsidcaSessionMetrics getSessionMetrics() {
+        return sessionMetrics;
+    }
+
+    /**
+     * Gets the number of calls in progress on the endpoint.
+     *
+     * @return The number of outstanding calls.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Gets the number of consecutive calls that failed at the transport level.
+     *
+     * @return The number of consecutive transport failures.
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * Gets the moving average of the latency of the calls.
+     *
+     * @return The average latency in milliseconds, or 0 before the first call.
+     */
+    public synchronized double getLatencyEwmaMs() {
+        return latencyEwmaMs;
+    }
+}
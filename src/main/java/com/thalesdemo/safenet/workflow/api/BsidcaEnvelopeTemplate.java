@@ -0,0 +1,259 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaEnvelopeTemplate class keeps the SOAP envelope of one BSIDCA
+ * request as pre-encoded UTF-8 byte segments, with a gap for the value of
+ * every parameter. A request is built by copying the segments and the
+ * XML-escaped parameters, encoded in UTF-8 on the fly, into a single byte
+ * array of the exact size, without any DOM, XMLBeans object, XML writer or
+ * intermediate String.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import java.nio.charset.StandardCharsets;
+
+public class BsidcaEnvelopeTemplate {
+
+    /**
+     * The UTF-8 encoded text around the parameters, one more segment than
+     * there are parameters.
+     */
+    private final byte[][] segments;
+
+    /**
+     * The position of the value of every gap among the values passed to
+     * render().
+     */
+    private final int[] valueIndexes;
+
+    /**
+     * The total length of the segments, in bytes.
+     */
+    private final int fixedLength;
+
+    /**
+     * Constructor for the BsidcaEnvelopeTemplate class.
+     *
+     * @param envelopeNamespace The namespace of the SOAP envelope.
+     * @param wrapper           The name of the element wrapping the parameters.
+     * @param children          The names of the parameter elements, in the
+     *                          order of the schema.
+     * @param valueIndexes      The position of the value of every parameter
+     *                          element among the values passed to render().
+     */
+    public BsidcaEnvelopeTemplate(String envelopeNamespace, QName wrapper, QName[] children, int[] valueIndexes) {
+        this.valueIndexes = valueIndexes.clone();
+        this.segments = new byte[children.length + 1][];
+
+        StringBuilder text = new StringBuilder(256);
+        text.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<soap:Envelope xmlns:soap=\"").append(escapeAttribute(envelopeNamespace)).append("\">")
+                .append("<soap:Body>")
+                .append("<blac:").append(wrapper.getLocalPart())
+                .append(" xmlns:blac=\"").append(escapeAttribute(wrapper.getNamespaceURI())).append("\">");
+        for (int i = 0; i < children.length; i++) {
+            appendStartTag(text, wrapper, children[i]);
+            segments[i] = text.toString().getBytes(StandardCharsets.UTF_8);
+            text.setLength(0);
+            appendEndTag(text, wrapper, children[i]);
+        }
+        text.append("</blac:").append(wrapper.getLocalPart()).append(">")
+                .append("</soap:Body>")
+                .append("</soap:Envelope>");
+        segments[children.length] = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.fixedLength = length;
+    }
+
+    /**
+     * Builds a request by filling the gaps of the template with the given
+     * values.
+     *
+     * @param values The values of the parameters; a null value leaves its
+     *               element empty.
+     * @return The envelope of the request, encoded in UTF-8.
+     */
+    public byte[] render(String... values) {
+        int length = fixedLength;
+        for (int index : valueIndexes) {
+            length += encodedLength(values[index]);
+        }
+
+        byte[] envelope = new byte[length];
+        int position = 0;
+        for (int i = 0; i < valueIndexes.length; i++) {
+            System.arraycopy(segments[i], 0, envelope, position, segments[i].length);
+            position += segments[i].length;
+            position = encode(values[valueIndexes[i]], envelope, position);
+        }
+        byte[] last = segments[valueIndexes.length];
+        System.arraycopy(last, 0, envelope, position, last.length);
+        return envelope;
+    }
+
+    /**
+     * Computes the length of a value once XML-escaped and encoded in UTF-8.
+     *
+     * @param value The value, possibly null.
+     * @return The encoded length, in bytes.
+     */
+    static int encodedLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '&') {
+                length += 5;
+            } else if (c == '<' || c == '>') {
+                length += 4;
+            } else if (c == '\r') {
+                length += 5;
+            } else if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes a value, XML-escaped and encoded in UTF-8, into a byte array.
+     * Unpaired surrogates, which UTF-8 cannot encode, are replaced with '?'.
+     *
+     * @param value    The value, possibly null.
+     * @param target   The byte array to write into, large enough for the value.
+     * @param position The position to write at.
+     * @return The position after the value.
+     */
+    static int encode(String value, byte[] target, int position) {
+        if (value == null) {
+            return position;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '&') {
+                position = put(target, position, '&', 'a', 'm', 'p', ';');
+            } else if (c == '<') {
+                position = put(target, position, '&', 'l', 't', ';');
+            } else if (c == '>') {
+                position = put(target, position, '&', 'g', 't', ';');
+            } else if (c == '\r') {
+                // Escaped so that the parser of the server does not normalize it away
+                position = put(target, position, '&', '#', '1', '3', ';');
+            } else if (c < 0x80) {
+                target[position++] = (byte) c;
+            } else if (c < 0x800) {
+                target[position++] = (byte) (0xC0 | (c >> 6));
+                target[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                target[position++] = (byte) (0xF0 | (codePoint >> 18));
+                target[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                target[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                target[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                target[position++] = '?';
+            } else {
+                target[position++] = (byte) (0xE0 | (c >> 12));
+                target[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                target[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Writes ASCII characters into a byte array.
+     *
+     * @param target     The byte array to write into.
+     * @param position   The position to write at.
+     * @param characters The characters to write.
+     * @return The position after the characters.
+     */
+    private static int put(byte[] target, int position, char... characters) {
+        for (char c : characters) {
+            target[position++] = (byte) c;
+        }
+        return position;
+    }
+
+    /**
+     * Appends the start tag of a parameter element.
+     *
+     * @param text    The text of the template being built.
+     * @param wrapper The name of the element wrapping the parameters.
+     * @param child   The name of the parameter element.
+     */
+    private static void appendStartTag(StringBuilder text, QName wrapper, QName child) {
+        String namespace = child.getNamespaceURI();
+        if (XMLConstants.NULL_NS_URI.equals(namespace)) {
+            text.append('<').append(child.getLocalPart()).append('>');
+        } else if (namespace.equals(wrapper.getNamespaceURI())) {
+            text.append("<blac:").append(child.getLocalPart()).append('>');
+        } else {
+            text.append("<p:").append(child.getLocalPart())
+                    .append(" xmlns:p=\"").append(escapeAttribute(namespace)).append("\">");
+        }
+    }
+
+    /**
+     * Appends the end tag of a parameter element.
+     *
+     * @param text    The text of the template being built.
+     * @param wrapper The name of the element wrapping the parameters.
+     * @param child   The name of the parameter element.
+     */
+    private static void appendEndTag(StringBuilder text, QName wrapper, QName child) {
+        String namespace = child.getNamespaceURI();
+        if (XMLConstants.NULL_NS_URI.equals(namespace)) {
+            text.append("</").append(child.getLocalPart()).append('>');
+        } else if (namespace.equals(wrapper.getNamespaceURI())) {
+            text.append("</blac:").append(child.getLocalPart()).append('>');
+        } else {
+            text.append("</p:").append(child.getLocalPart()).append('>');
+        }
+    }
+
+    /**
+     * Escapes the value of an attribute of the template.
+     *
+     * @param value The value of the attribute.
+     * @return The escaped value.
+     */
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaExceptionHandler class turns the exceptions raised when the
+ * SafeNet (BSIDCA) web service cannot be called into HTTP responses, for
+ * every controller of the API: a call rejected to protect the service gets
+ * a 503 Service Unavailable, a call rejected because its organization is
+ * over its rate limit gets a 429 Too Many Requests, and a call that could
+ * not complete before the deadline of its request gets a 504 Gateway
+ * Timeout.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class BsidcaExceptionHandler {
+
+    /**
+     * This is the logger instance for the BsidcaExceptionHandler class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaExceptionHandler.class.getName());
+
+    /**
+     * Answers a request whose BSIDCA call was rejected with a 503 Service
+     * Unavailable response and a Retry-After header.
+     *
+     * @param e The exception raised when the call was rejected.
+     * @return The 503 response.
+     */
+    @ExceptionHandler(BsidcaUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleUnavailable(BsidcaUnavailableException e) {
+        Log.log(Level.FINE, "BSIDCA call rejected: {0}", e.getMessage());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase());
+        body.put("message", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     * Answers a request whose BSIDCA call was rejected by the rate limiter of
+     * its organization with a 429 Too Many Requests response and a Retry-After
+     * header.
+     *
+     * @param e The exception raised when the call was rejected.
+     * @return The 429 response.
+     */
+    @ExceptionHandler(BsidcaRateLimitException.class)
+    public ResponseEntity<Map<String, Object>> handleRateLimited(BsidcaRateLimitException e) {
+        Log.log(Level.FINE, "BSIDCA call rate limited: {0}", e.getMessage());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase());
+        body.put("message", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(body);
+    }
+
+    /**
+     * Answers a request whose BSIDCA call could not complete before the
+     * deadline of the request with a 504 Gateway Timeout response.
+     *
+     * @param e The exception raised when the deadline expired.
+     * @return The 504 response.
+     */
+    @ExceptionHandler(BsidcaDeadlineExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleDeadlineExceeded(BsidcaDeadlineExceededException e) {
+        Log.log(Level.FINE, "BSIDCA call out of time: {0}", e.getMessage());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", HttpStatus.GATEWAY_TIMEOUT.value());
+        body.put("error", HttpStatus.GATEWAY_TIMEOUT.getReasonPhrase());
+        body.put("message", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(body);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaExchange class holds one SOAP exchange with the SafeNet (BSIDCA)
+ * web service as recorded in an exchange log: the operation and fingerprint
+ * of the request, the request and response bodies, the status and content
+ * type of the response, and the time the server took to answer.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public class BsidcaExchange {
+
+    /**
+     * The fingerprint of the request.
+     */
+    private final BsidcaRequestFingerprint fingerprint;
+
+    /**
+     * The HTTP status of the response.
+     */
+    private final int status;
+
+    /**
+     * The content type of the response, or an empty string.
+     */
+    private final String contentType;
+
+    /**
+     * The time from the request being sent to the response being read, in
+     * microseconds.
+     */
+    private final long latencyMicros;
+
+    /**
+     * The body of the request.
+     */
+    private final byte[] requestBody;
+
+    /**
+     * The body of the response.
+     */
+    private final byte[] responseBody;
+
+    /**
+     * Constructor for the BsidcaExchange class.
+     *
+     * @param fingerprint   The fingerprint of the request.
+     * @param status        The HTTP status of the response.
+     * @param contentType   The content type of the response, or null.
+     * @param latencyMicros The time the server took to answer, in
+     *                      microseconds.
+     * @param requestBody   The body of the request.
+     * @param responseBody  The body of the response.
+     */
+    public BsidcaExchange(BsidcaRequestFingerprint fingerprint, int status, String contentType, long latencyMicros,
+            byte[] requestBody, byte[] responseBody) {
+        this.fingerprint = fingerprint;
+        this.status = status;
+        this.contentType = contentType == null ? "" : contentType;
+        this.latencyMicros = latencyMicros;
+        this.requestBody = requestBody;
+        this.responseBody = responseBody;
+    }
+
+    /**
+     * Gets the fingerprint of the request.
+     *
+     * @return The fingerprint of the request.
+     */
+    public BsidcaRequestFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the HTTP status of the response.
+     *
+     * @return The HTTP status.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the content type of the response.
+     *
+     * @return The content type, or an empty string if the response had none.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gets the time the server took to answer.
+     *
+     * @return The latency in microseconds.
+     */
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /**
+     * Gets the body of the request.
+     *
+     * @return The request body.
+     */
+    public byte[] getRequestBody() {
+        return requestBody;
+    }
+
+    /**
+     * Gets the body of the response.
+     *
+     * @return The response body.
+     */
+    public byte[] getResponseBody() {
+        return responseBody;
+    }
+}
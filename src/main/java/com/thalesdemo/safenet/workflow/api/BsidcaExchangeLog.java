@@ -0,0 +1,183 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaExchangeLog class reads and writes the exchange logs of the
+ * BSIDCA transport. An exchange log is a GZIP stream starting with a magic
+ * number and a version, followed by one record per exchange: the operation
+ * and fingerprint hash of the request, the status, content type and latency
+ * of the response, and the request and response bodies. The writer flushes
+ * the GZIP stream after every batch of records, so that a log cut short by
+ * the end of the process can still be read up to its last complete record.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public final class BsidcaExchangeLog implements Closeable {
+
+    /**
+     * This is the logger instance for the BsidcaExchangeLog class. The logger
+     * is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaExchangeLog.class.getName());
+
+    /**
+     * The magic number starting every exchange log ("BSXL").
+     */
+    private static final int MAGIC = 0x4253584c;
+
+    /**
+     * The version of the format of the records.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The stream the records are written to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Creates an exchange log, replacing the file if it exists.
+     *
+     * @param file The path of the exchange log.
+     * @throws IOException if the file cannot be created.
+     */
+    public BsidcaExchangeLog(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024, true), 64 * 1024));
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.flush();
+    }
+
+    /**
+     * Appends an exchange to the log.
+     *
+     * @param exchange The exchange.
+     * @throws IOException if the record cannot be written.
+     */
+    public void append(BsidcaExchange exchange) throws IOException {
+        out.writeUTF(exchange.getFingerprint().getOperation());
+        out.writeLong(exchange.getFingerprint().getHash());
+        out.writeShort(exchange.getStatus());
+        out.writeUTF(exchange.getContentType());
+        out.writeLong(exchange.getLatencyMicros());
+        out.writeInt(exchange.getRequestBody().length);
+        out.write(exchange.getRequestBody());
+        out.writeInt(exchange.getResponseBody().length);
+        out.write(exchange.getResponseBody());
+    }
+
+    /**
+     * Flushes the records appended so far to the file.
+     *
+     * @throws IOException if the records cannot be written.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Completes the GZIP stream and closes the file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Reads every exchange of an exchange log. A log cut short is read up to
+     * its last complete record.
+     *
+     * @param file The path of the exchange log.
+     * @return The exchanges, in the order they were recorded.
+     * @throws IOException if the file cannot be read or is not an exchange log.
+     */
+    public static List<BsidcaExchange> read(Path file) throws IOException {
+        List<BsidcaExchange> exchanges = new ArrayList<>();
+        try (InputStream fileIn = Files.newInputStream(file);
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new GZIPInputStream(fileIn, 64 * 1024), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a BSIDCA exchange log");
+            }
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of the BSIDCA exchange log " + file);
+            }
+            while (true) {
+                String operation;
+                try {
+                    operation = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                long hash = in.readLong();
+                int status = in.readUnsignedShort();
+                String contentType = in.readUTF();
+                long latencyMicros = in.readLong();
+                byte[] requestBody = readBody(in);
+                byte[] responseBody = readBody(in);
+                exchanges.add(new BsidcaExchange(new BsidcaRequestFingerprint(operation, hash), status,
+                        contentType, latencyMicros, requestBody, responseBody));
+            }
+        } catch (EOFException e) {
+            Log.log(Level.WARNING, "The BSIDCA exchange log {0} ends with an incomplete record, "
+                    + "read {1} exchanges", new Object[] { file, exchanges.size() });
+        }
+        return exchanges;
+    }
+
+    /**
+     * Reads a body prefixed with its length.
+     *
+     * @param in The stream to read from.
+     * @return The body.
+     * @throws IOException if the body cannot be read.
+     */
+    private static byte[] readBody(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted BSIDCA exchange log (body of " + length + " bytes)");
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return body;
+    }
+}
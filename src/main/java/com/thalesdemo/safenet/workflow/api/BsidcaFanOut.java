@@ -0,0 +1,216 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaFanOut class runs the lookups a request makes for a list of
+ * items, such as the token of every serial of a user, several at a time on
+ * the executor of the AsyncBsidcaClient. A request runs no more than its
+ * share of lookups at once, and all the requests together run no more than
+ * the global share on the executor. A lookup that finds no room runs on the
+ * request thread itself, so that a request always makes progress and falls
+ * back to one lookup at a time when the service is busy; so does a lookup
+ * rejected by the executor. A lookup holds its share of the executor until
+ * it has actually finished, even if its request stopped waiting for it
+ * earlier, so that slow responses cannot push more lookups than the global
+ * share onto the BSIDCA service. The results come
+ * back in the order of the items, and a failed lookup is turned into a
+ * result of its own instead of failing the whole list.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+@Service
+public class BsidcaFanOut {
+
+    /**
+     * The state of a lookup waiting in the queue of the executor.
+     */
+    private static final int QUEUED = 0;
+
+    /**
+     * The state of a lookup running on the executor.
+     */
+    private static final int RUNNING = 1;
+
+    /**
+     * The state of a lookup that ran on the executor.
+     */
+    private static final int DONE = 2;
+
+    /**
+     * The state of a lookup given up, or rejected, before it started.
+     */
+    private static final int SKIPPED = 3;
+
+    /**
+     * The client running the lookups on its executor.
+     */
+    private final AsyncBsidcaClient asyncClient;
+
+    /**
+     * The number of lookups a single request runs at once.
+     */
+    private final int perRequest;
+
+    /**
+     * The number of lookups all the requests run at once on the executor.
+     */
+    private final int globalLimit;
+
+    /**
+     * The permits of the lookups running on the executor, shared by all the
+     * requests.
+     */
+    private final Semaphore globalPermits;
+
+    /**
+     * Constructor for the BsidcaFanOut class.
+     *
+     * @param asyncClient   The client running the lookups on its executor.
+     * @param settings      The application settings holding the limits of the
+     *                      fan-out.
+     * @param meterRegistry The registry the number of lookups in progress is
+     *                      published to.
+     */
+    public BsidcaFanOut(AsyncBsidcaClient asyncClient, Settings settings, MeterRegistry meterRegistry) {
+        this.asyncClient = asyncClient;
+        this.perRequest = settings.getAsyncClient().getFanOutPerRequest();
+        this.globalLimit = settings.getAsyncClient().getFanOutGlobal();
+        this.globalPermits = new Semaphore(this.globalLimit);
+        Gauge.builder("bsidca.fanout.active", this, BsidcaFanOut::getActive)
+                .description("Number of lookups of fanned out requests running on the asynchronous executor")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Looks every item up, several at a time, and returns the results in the
+     * order of the items.
+     *
+     * @param operation The BSIDCA operation the lookups make, for the errors.
+     * @param items     The items to look up.
+     * @param lookup    The lookup of one item.
+     * @param onFailure The result of an item whose lookup failed, from the item
+     *                  and the exception.
+     * @return The results, one per item, in the order of the items.
+     */
+    public <T, R> List<R> map(BsidcaOperation operation, List<T> items, Function<T, R> lookup,
+            BiFunction<T, Throwable, R> onFailure) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        AtomicInteger offloaded = new AtomicInteger();
+        for (T item : items) {
+            CompletableFuture<R> future = null;
+            // The request thread counts as one of the lookups of the request
+            if (offloaded.get() < perRequest - 1 && globalPermits.tryAcquire()) {
+                future = offload(operation, item, lookup, offloaded);
+            }
+            futures.add(future != null ? future : CompletableFuture.completedFuture(lookUp(item, lookup, onFailure)));
+        }
+
+        List<R> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                results.add(onFailure.apply(items.get(i), e.getCause() == null ? e : e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Looks an item up on the executor, with a global permit already taken.
+     * The permit is given back when the lookup has finished, or when it is
+     * given up before it started.
+     *
+     * @param operation The BSIDCA operation the lookup makes, for the errors.
+     * @param item      The item to look up.
+     * @param lookup    The lookup of the item.
+     * @param offloaded The number of lookups of the request on the executor.
+     * @return The future result of the lookup, or null if the executor
+     *         rejected it and it must run on the request thread.
+     */
+    private <T, R> CompletableFuture<R> offload(BsidcaOperation operation, T item, Function<T, R> lookup,
+            AtomicInteger offloaded) {
+        offloaded.incrementAndGet();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        CompletableFuture<R> future = asyncClient.supply(operation, () -> {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                throw new CancellationException("The lookup was given up before it started");
+            }
+            try {
+                return lookup.apply(item);
+            } finally {
+                state.set(DONE);
+                release(offloaded);
+            }
+        }, asyncClient.getDefaultTimeoutMs());
+        future.whenComplete((result, e) -> {
+            if (state.compareAndSet(QUEUED, SKIPPED)) {
+                release(offloaded);
+            }
+        });
+        // A lookup failing before it was even queued was rejected by the executor
+        return future.isDone() && state.get() == SKIPPED ? null : future;
+    }
+
+    /**
+     * Gives back the global permit of a lookup that ran on the executor.
+     *
+     * @param offloaded The number of lookups of the request on the executor.
+     */
+    private void release(AtomicInteger offloaded) {
+        offloaded.decrementAndGet();
+        globalPermits.release();
+    }
+
+    /**
+     * Looks an item up on the request thread.
+     *
+     * @param item      The item to look up.
+     * @param lookup    The lookup of the item.
+     * @param onFailure The result of the item if its lookup fails.
+     * @return The result of the lookup.
+     */
+    private static <T, R> R lookUp(T item, Function<T, R> lookup, BiFunction<T, Throwable, R> onFailure) {
+        try {
+            return lookup.apply(item);
+        } catch (RuntimeException e) {
+            return onFailure.apply(item, e);
+        }
+    }
+
+    /**
+     * Gets the number of lookups running on the executor.
+     *
+     * @return The number of lookups in progress.
+     */
+    public int getActive() {
+        return globalLimit - globalPermits.availablePermits();
+    }
+}
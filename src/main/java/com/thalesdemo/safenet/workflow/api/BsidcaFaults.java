@@ -0,0 +1,258 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaFaults class is a utility class that classifies the exceptions
+ * raised by the SafeNet (BSIDCA) web service calls: expired sessions, I/O
+ * failures, and the transient faults that are worth retrying. It also names
+ * the type of fault of a failed call for the metrics.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.apache.axis2.AxisFault;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.rmi.RemoteException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.namespace.QName;
+
+public class BsidcaFaults {
+
+    /**
+     * The SOAP fault messages returned by the BSIDCA service when the operator
+     * session has expired or was never authenticated, in lower case and
+     * without the prefix added by the server or the final period.
+     */
+    private static final String[] SESSION_EXPIRED_MESSAGES = {
+            "your session has expired or is not authenticated. please connect first",
+            "not connected", "not authenticated", "please connect first", "session expired"
+    };
+
+    /**
+     * The prefix the BSIDCA server adds to the message of the SOAP faults
+     * raised by its operations.
+     */
+    private static final String SERVER_FAULT_PREFIX = "server was unable to process request. --->";
+
+    /**
+     * Fragments of the SOAP fault messages returned by the BSIDCA service when a
+     * server-side error is temporary.
+     */
+    private static final String[] TRANSIENT_MESSAGES = {
+            "timeout", "timed out", "temporarily", "unavailable", "deadlock", "try again"
+    };
+
+    /**
+     * The message of the AxisFault raised by Axis2, and by the codec, when the
+     * BSIDCA service answers with an HTTP status other than 200 or 500, and
+     * therefore without a SOAP envelope.
+     */
+    private static final Pattern HTTP_STATUS_FAULT = Pattern.compile("^Transport error: (\\d{3})\\b");
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private BsidcaFaults() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns whether the given exception shows that the operator session used
+     * for the call has expired, in which case the call can be made again once
+     * the session has been authenticated with a new Connect call. Only a SOAP
+     * fault returned by the service itself is looked at, and its message must
+     * be one of the known BSIDCA messages: the call is made again on another
+     * session, so anything less certain, such as a transport error mentioning
+     * a TLS session, must not be mistaken for it.
+     *
+     * @param e the exception raised by the web service call
+     * @return true if the exception reports an expired session, false otherwise
+     */
+    public static boolean isSessionExpired(Throwable e) {
+        if (!(e instanceof AxisFault) || ((AxisFault) e).getFaultCode() == null || isTransportFailure(e)) {
+            return false;
+        }
+        String message = e.getMessage();
+        if (message == null) {
+            return false;
+        }
+        message = message.trim().toLowerCase(Locale.ROOT);
+        if (message.startsWith(SERVER_FAULT_PREFIX)) {
+            message = message.substring(SERVER_FAULT_PREFIX.length()).trim();
+        }
+        if (message.endsWith(".")) {
+            message = message.substring(0, message.length() - 1);
+        }
+        for (String expiredMessage : SESSION_EXPIRED_MESSAGES) {
+            if (message.equals(expiredMessage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the given exception is worth retrying: either the BSIDCA
+     * service could not be reached or did not answer (socket timeouts, refused
+     * connections, dropped responses), or it returned a server fault reporting
+     * a temporary error. Client faults, such as invalid arguments or unknown
+     * users, are never retried. Neither are expired sessions, which are handled
+     * by reconnecting the session.
+     *
+     * @param e the exception raised by the web service call
+     * @return true if the call may succeed when made again, false otherwise
+     */
+    public static boolean isRetryable(Throwable e) {
+        if (isTransportFailure(e)) {
+            return true;
+        }
+        if (isSessionExpired(e)) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof AxisFault && isServerFault((AxisFault) cause)
+                    && containsAny(cause.getMessage(), TRANSIENT_MESSAGES)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a SOAP fault was caused by the server rather than by the
+     * request (soap:Server in SOAP 1.1, soap:Receiver in SOAP 1.2).
+     *
+     * @param fault the SOAP fault
+     * @return true if the fault code is a server fault code, false otherwise
+     */
+    private static boolean isServerFault(AxisFault fault) {
+        QName faultCode = fault.getFaultCode();
+        if (faultCode == null) {
+            return false;
+        }
+        String localPart = faultCode.getLocalPart();
+        return "Server".equalsIgnoreCase(localPart) || "Receiver".equalsIgnoreCase(localPart);
+    }
+
+    /**
+     * Returns whether a message contains any of the given fragments, ignoring
+     * case.
+     *
+     * @param message   the message, possibly null
+     * @param fragments the lower-case fragments to look for
+     * @return true if one of the fragments was found, false otherwise
+     */
+    private static boolean containsAny(String message, String[] fragments) {
+        if (message == null) {
+            return false;
+        }
+        String lowerCaseMessage = message.toLowerCase(Locale.ROOT);
+        for (String fragment : fragments) {
+            if (lowerCaseMessage.contains(fragment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the given exception shows that the BSIDCA service could
+     * not be reached or did not answer in time, as opposed to a fault returned
+     * by the service itself. Such failures count against the circuit breaker of
+     * the operation. AxisFault is itself an IOException (through
+     * RemoteException), so only the I/O errors it wraps are looked at, and
+     * the HTTP 502, 503 and 504 errors of an overloaded BSIDCA front end or of
+     * a gateway in front of it.
+     *
+     * @param e the exception raised by the web service call
+     * @return true if the exception was caused by an I/O error or a gateway
+     *         error, false otherwise
+     */
+    public static boolean isTransportFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException && !(cause instanceof RemoteException)) {
+                return true;
+            }
+            if (cause instanceof AxisFault && isGatewayError((AxisFault) cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether an AxisFault reports an HTTP 502, 503 or 504 response
+     * rather than a SOAP fault.
+     *
+     * @param fault the AxisFault
+     * @return true if the response had a gateway error status, false otherwise
+     */
+    private static boolean isGatewayError(AxisFault fault) {
+        if (fault.getMessage() == null) {
+            return false;
+        }
+        Matcher matcher = HTTP_STATUS_FAULT.matcher(fault.getMessage());
+        if (!matcher.find()) {
+            return false;
+        }
+        int status = Integer.parseInt(matcher.group(1));
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Names the type of fault of a failed call, for the metrics: "deadline",
+     * "rate_limited" or "rejected" for a call that was not made or not
+     * completed by the application, "timeout" or "transport" for a call that
+     * could not reach the BSIDCA service, "session_expired", "codec", "server"
+     * or "client" for a fault returned by the service, and "other" for
+     * anything else.
+     *
+     * @param e the exception raised by the web service call
+     * @return the type of fault
+     */
+    public static String classify(Throwable e) {
+        if (e instanceof BsidcaDeadlineExceededException) {
+            return "deadline";
+        }
+        if (e instanceof BsidcaRateLimitException) {
+            return "rate_limited";
+        }
+        if (e instanceof BsidcaUnavailableException) {
+            return "rejected";
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException) {
+                return "timeout";
+            }
+        }
+        if (isTransportFailure(e)) {
+            return "transport";
+        }
+        if (isSessionExpired(e)) {
+            return "session_expired";
+        }
+        if (e instanceof BsidcaCodecException) {
+            return "codec";
+        }
+        if (e instanceof AxisFault) {
+            return isServerFault((AxisFault) e) ? "server" : "client";
+        }
+        return "other";
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaHealthIndicator class reports whether the application can serve
+ * calls to the SafeNet (BSIDCA) service, as the "bsidca" component of the
+ * actuator health endpoint. It is part of the readiness group, so that a
+ * new instance only receives traffic once at least one of its sessions is
+ * authenticated, while the liveness group stays up during the startup. The
+ * details show the progress of the startup, the error that made it fail if
+ * any, and the authenticated sessions and admission of every endpoint.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component("bsidcaHealthIndicator")
+public class BsidcaHealthIndicator implements HealthIndicator {
+
+    /**
+     * The service holding the session pools of the BSIDCA endpoints.
+     */
+    private final WorkflowService workflowService;
+
+    /**
+     * Constructor for the BsidcaHealthIndicator class.
+     *
+     * @param workflowService The service holding the session pools of the
+     *                        BSIDCA endpoints.
+     */
+    public BsidcaHealthIndicator(WorkflowService workflowService) {
+        this.workflowService = workflowService;
+    }
+
+    /**
+     * Reports the health of the connection to the BSIDCA service: out of
+     * service while the startup is in progress, down if the startup failed or
+     * no session is authenticated, and up otherwise.
+     *
+     * @return The health of the connection to the BSIDCA service.
+     */
+    @Override
+    public Health health() {
+        Throwable startupFailure = workflowService.getStartupFailure();
+        if (startupFailure != null) {
+            return Health.down().withDetail("state", "failed")
+                    .withDetail("error", String.valueOf(startupFailure.getMessage())).build();
+        }
+
+        BsidcaRouter router = workflowService.getRouter();
+        if (router == null) {
+            return Health.outOfService().withDetail("state", "starting").build();
+        }
+
+        int authenticated = 0;
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (BsidcaEndpoint endpoint : router.getEndpoints()) {
+            BsidcaSessionPool sessionPool = endpoint.getSessionPool();
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("authenticated", sessionPool.getAuthenticated());
+            details.put("sessions", sessionPool.getSize());
+            details.put("admitted", !endpoint.isEjected());
+            endpoints.put(endpoint.getName(), details);
+            authenticated += sessionPool.getAuthenticated();
+        }
+
+        Health.Builder builder = authenticated > 0 ? Health.up() : Health.down();
+        return builder.withDetail("state", authenticated > 0 ? "connected" : "disconnected")
+                .withDetail("endpoints", endpoints).build();
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaHealthMonitor class checks the sessions of a BsidcaSessionPool
+ * in the background, so that the request path no longer has to ping the
+ * BSIDCA service before every call. A single scheduled thread reconnects the
+ * sessions parked in the RECONNECTING state and pings the idle sessions in
+ * the DEGRADED state at a fixed interval. It also refreshes the sessions that
+ * have been idle for a while with a PingConnection call, ahead of the idle
+ * timeout of the server, and authenticates again the sessions that reached
+ * their maximum age, after swapping a spare session in for them so that the
+ * number of sessions available never drops. The sessions added when the pool
+ * grows are created and authenticated on a thread of their own, so that a
+ * slow Connect call never holds up the health checks.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaHealthMonitor {
+
+    /**
+     * This is the logger instance for the BsidcaHealthMonitor class. The logger
+     * is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaHealthMonitor.class.getName());
+
+    /**
+     * The pool whose sessions are monitored.
+     */
+    private final BsidcaSessionPool sessionPool;
+
+    /**
+     * The interval between two health checks, in milliseconds.
+     */
+    private final long intervalMs;
+
+    /**
+     * The time after which an idle session is refreshed, in milliseconds, or 0.
+     */
+    private final long keepAliveIdleMs;
+
+    /**
+     * The age after which a session is authenticated again, in milliseconds, or
+     * 0.
+     */
+    private final long maxAgeMs;
+
+    /**
+     * The metrics of the sessions of the pool.
+     */
+    private final BsidcaSessionMetrics sessionMetrics;
+
+    /**
+     * The single thread running the health checks.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * The single thread creating and authenticating the sessions added when
+     * the pool grows.
+     */
+    private final ExecutorService growthExecutor;
+
+    /**
+     * Constructor for the BsidcaHealthMonitor class.
+     *
+     * @param sessionPool    The pool whose sessions are monitored.
+     * @param sessionMetrics The metrics of the sessions of the pool.
+     */
+    public BsidcaHealthMonitor(BsidcaSessionPool sessionPool, BsidcaSessionMetrics sessionMetrics) {
+        this.sessionPool = sessionPool;
+        this.sessionMetrics = sessionMetrics;
+        SessionPoolSettings poolSettings = sessionPool.getSettings().getSessionPool();
+        this.intervalMs = poolSettings.getHealthCheckIntervalMs();
+        this.keepAliveIdleMs = poolSettings.getKeepAliveIdleMs();
+        this.maxAgeMs = poolSettings.getMaxAgeMs();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bsidca-health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.growthExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bsidca-session-growth");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sessionPool.setGrowthExecutor(this.growthExecutor);
+    }
+
+    /**
+     * Starts the health checks. A new check is only scheduled once the previous
+     * one has completed, so slow checks never pile up.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::checkSessions, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        Log.log(Level.INFO, "BSIDCA health monitor started with a {0} ms interval", intervalMs);
+    }
+
+    /**
+     * Stops the health checks and the growth of the pool.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        growthExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs one round of health checks over every session of the pool. Leased
+     * sessions are skipped: their state is updated by the call in progress.
+     */
+    void checkSessions() {
+        try {
+            for (BsidcaSession session : sessionPool.getSessions()) {
+                long now = System.currentTimeMillis();
+                if (sessionPool.acquireParked(session)) {
+                    reconnect(session);
+                } else if (session.getState() == BsidcaSessionState.DEGRADED && sessionPool.acquireIdle(session)) {
+                    check(session);
+                } else if (isTooOld(session, now) && sessionPool.acquireIdle(session)) {
+                    rotate(session, true);
+                } else if (isTooOld(session, now) && sessionPool.acquireSpare(session)) {
+                    rotate(session, false);
+                } else if (isIdle(session, now)
+                        && (sessionPool.acquireIdle(session) || sessionPool.acquireSpare(session))) {
+                    refresh(session);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled checks
+            Log.log(Level.WARNING, "BSIDCA health check failed", e);
+        }
+    }
+
+    /**
+     * Makes a new Connect call with a parked session and returns it to the
+     * pool, which parks it again if the call failed.
+     *
+     * @param session The parked session, held by the monitor.
+     */
+    private void reconnect(BsidcaSession session) {
+        try {
+            String infoMessage = String.format("Trying to re-connect BSIDCA session #%d (attempt# %d)",
+                    session.getId(), session.getReconnectAttempts() + 1);
+            Log.info(infoMessage);
+            session.connect(sessionPool.getSettings());
+        } finally {
+            sessionPool.release(session);
+        }
+    }
+
+    /**
+     * Tells whether an authenticated session has reached its maximum age.
+     *
+     * @param session The session to check.
+     * @param now     The current time, in epoch milliseconds.
+     * @return true if the session must be authenticated again.
+     */
+    private boolean isTooOld(BsidcaSession session, long now) {
+        return maxAgeMs > 0 && session.isAuthenticated() && now - session.getConnectedAt() >= maxAgeMs;
+    }
+
+    /**
+     * Tells whether an authenticated session has been idle long enough to be
+     * refreshed.
+     *
+     * @param session The session to check.
+     * @param now     The current time, in epoch milliseconds.
+     * @return true if the session must be refreshed.
+     */
+    private boolean isIdle(BsidcaSession session, long now) {
+        return keepAliveIdleMs > 0 && session.getState() == BsidcaSessionState.CONNECTED
+                && now - Math.max(session.getLastUsedAt(), session.getConnectedAt()) >= keepAliveIdleMs;
+    }
+
+    /**
+     * Authenticates again a session that reached its maximum age, and returns
+     * it to the pool. An idle session is only rotated once a spare session has
+     * taken its place among the sessions available; without a spare it keeps
+     * serving until the next round. The rotated session then becomes a spare
+     * itself.
+     *
+     * @param session The session to rotate, held by the monitor.
+     * @param idle    Whether the session was taken from the idle sessions
+     *                rather than from the spares.
+     */
+    private void rotate(BsidcaSession session, boolean idle) {
+        try {
+            if (idle && !sessionPool.promoteSpare()) {
+                return;
+            }
+            String infoMessage = String.format("Rotating BSIDCA session #%d after %d ms", session.getId(),
+                    System.currentTimeMillis() - session.getConnectedAt());
+            Log.info(infoMessage);
+            sessionMetrics.recordRotation(session.connect(sessionPool.getSettings()));
+        } finally {
+            sessionPool.release(session);
+        }
+    }
+
+    /**
+     * Refreshes an idle session with a PingConnection call, so that the server
+     * does not expire it, and returns it to the pool, which parks it if its
+     * operator session had already expired.
+     *
+     * @param session The idle or spare session, held by the monitor.
+     */
+    private void refresh(BsidcaSession session) {
+        try {
+            boolean active = session.ping();
+            String outcome;
+            if (active) {
+                outcome = "success";
+            } else if (session.getState() == BsidcaSessionState.RECONNECTING) {
+                outcome = "expired";
+            } else {
+                outcome = "failed";
+            }
+            Log.log(Level.FINE, "Refreshed idle BSIDCA session #{0}: {1}", new Object[] { session.getId(), outcome });
+            sessionMetrics.recordRefresh(outcome);
+        } finally {
+            sessionPool.release(session);
+        }
+    }
+
+    /**
+     * Pings an idle DEGRADED session and returns it to the pool, which parks it
+     * if its operator session has expired.
+     *
+     * @param session The idle session, held by the monitor.
+     */
+    private void check(BsidcaSession session) {
+        try {
+            session.ping();
+        } finally {
+            sessionPool.release(session);
+        }
+    }
+}
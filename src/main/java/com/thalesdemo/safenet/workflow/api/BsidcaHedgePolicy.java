@@ -0,0 +1,463 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaHedgePolicy class hedges the idempotent BSIDCA calls to cut
+ * their tail latency. A call is made on the calling thread; if it has not
+ * returned after a configurable percentile of the recent latency of its
+ * operation, a duplicate is sent on a dedicated, bounded executor, which
+ * leases another session of the pool, and the first successful response
+ * wins. When the duplicate wins, the HTTP request of the original call is
+ * aborted so that the calling thread returns at once; the aborted call is
+ * not held against the session, the endpoint or the circuit breaker. The
+ * number of hedges is capped to a percentage of the calls with a small
+ * budget, so that hedging cannot double the load on a slow service. The
+ * number of hedges sent and won per operation is exported as metrics.
+ *
+ * The executor of the hedges is used for nothing else, so that they never
+ * compete with other asynchronous work for threads. When it is saturated,
+ * calls are made without a hedge. Both copies of a call run with the
+ * deadline of the request that made it.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.axis2.AxisFault;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import java.rmi.RemoteException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaHedgePolicy {
+
+    /**
+     * This is the logger instance for the BsidcaHedgePolicy class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaHedgePolicy.class.getName());
+
+    /**
+     * The number of most recent durations kept per operation.
+     */
+    private static final int LATENCY_SAMPLES = 200;
+
+    /**
+     * The number of budget units making up one hedge.
+     */
+    private static final long UNITS_PER_HEDGE = 1000;
+
+    /**
+     * The maximum number of hedges the budget can hold.
+     */
+    private static final long MAX_BALANCE_UNITS = 10 * UNITS_PER_HEDGE;
+
+    /**
+     * The hedgeable call being made on the current thread, if any.
+     */
+    private static final ThreadLocal<PrimaryCall> PRIMARY = new ThreadLocal<>();
+
+    /**
+     * The resilience settings holding the hedging configuration.
+     */
+    private final ResilienceSettings settings;
+
+    /**
+     * The registry the hedging metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The recent latency of every idempotent operation.
+     */
+    private final Map<BsidcaOperation, LatencyTracker> latencies = new EnumMap<>(BsidcaOperation.class);
+
+    /**
+     * The executor running the hedges, or null if hedging is disabled.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The timer sending the hedges once their delay has elapsed, or null if
+     * hedging is disabled.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * The number of budget units deposited by every hedgeable call.
+     */
+    private final long depositUnits;
+
+    /**
+     * The current balance of the hedge budget, in units.
+     */
+    private long balanceUnits;
+
+    /**
+     * Constructor for the BsidcaHedgePolicy class.
+     *
+     * @param settings      The resilience settings holding the hedging
+     *                      configuration.
+     * @param meterRegistry The registry the hedging metrics are published to.
+     */
+    public BsidcaHedgePolicy(ResilienceSettings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.depositUnits = settings.getHedgeMaxRatePercent() * UNITS_PER_HEDGE / 100;
+        for (BsidcaOperation operation : BsidcaOperation.values()) {
+            if (operation.isIdempotent()) {
+                latencies.put(operation, new LatencyTracker(LATENCY_SAMPLES));
+            }
+        }
+
+        if (settings.isHedgeEnabled()) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(0, settings.getHedgeThreads(), 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "bsidca-hedge-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            new ExecutorServiceMetrics(this.executor, "bsidca.hedge", Tags.empty()).bindTo(meterRegistry);
+            this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bsidca-hedge-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+            this.timer = null;
+        }
+    }
+
+    /**
+     * Makes a call, hedging it if the operation is idempotent, hedging is
+     * enabled and enough recent durations are known for the operation.
+     *
+     * @param operation The BSIDCA operation being invoked.
+     * @param attempt   The call to make, which may be made twice.
+     * @return The first successful response.
+     * @throws RemoteException if every copy of the call failed.
+     */
+    public <T> T execute(BsidcaOperation operation, BsidcaRetryPolicy.Attempt<T> attempt) throws RemoteException {
+        LatencyTracker latency = latencies.get(operation);
+        if (latency == null) {
+            return attempt.run();
+        }
+
+        long hedgeDelayMs = latency.getPercentile(settings.getHedgePercentile(), settings.getHedgeMinSamples());
+        if (executor == null || hedgeDelayMs < 0) {
+            return timed(latency, attempt).run();
+        }
+        deposit();
+
+        PrimaryCall primaryCall = new PrimaryCall();
+        Callable<T> hedgeTask = BsidcaDeadline.propagate(() -> {
+            T result = timed(latency, attempt).run();
+            primaryCall.abandon();
+            return result;
+        });
+        ScheduledFuture<?> trigger = timer.schedule(() -> sendHedge(operation, hedgeTask, primaryCall, hedgeDelayMs),
+                Math.max(settings.getHedgeMinDelayMs(), hedgeDelayMs), TimeUnit.MILLISECONDS);
+        PrimaryCall previous = PRIMARY.get();
+        PRIMARY.set(primaryCall);
+        Future<T> hedge = null;
+        try {
+            RuntimeException primaryError = null;
+            RemoteException primaryFailure = null;
+            try {
+                T result = timed(latency, attempt).run();
+                hedge = primaryCall.finish();
+                return result;
+            } catch (RemoteException e) {
+                primaryFailure = e;
+            } catch (RuntimeException e) {
+                primaryError = e;
+            }
+
+            // The call failed, or was aborted because its hedge answered first
+            hedge = primaryCall.finish();
+            if (hedge == null || (primaryError != null && !primaryCall.isAbandoned())) {
+                if (primaryError != null) {
+                    throw primaryError;
+                }
+                throw primaryFailure;
+            }
+            try {
+                T result = hedge.get();
+                countHedge("bsidca.client.hedges.won", "Number of hedged BSIDCA calls answered first", operation);
+                return result;
+            } catch (ExecutionException e) {
+                if (primaryFailure != null) {
+                    throw primaryFailure;
+                }
+                throw unwrap(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AxisFault("Interrupted while waiting for a BSIDCA response", e);
+            }
+        } finally {
+            trigger.cancel(false);
+            if (previous == null) {
+                PRIMARY.remove();
+            } else {
+                PRIMARY.set(previous);
+            }
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Sends the hedge of a call that has not returned after the hedge delay,
+     * unless the call has returned in the meantime, the hedge budget is spent
+     * or every hedging thread is busy. When the hedge answers first, the
+     * original call is abandoned.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param hedgeTask    The call to make again, abandoning the original
+     *                     call once it has answered.
+     * @param primaryCall  The original call.
+     * @param hedgeDelayMs The hedge delay, in milliseconds.
+     */
+    private <T> void sendHedge(BsidcaOperation operation, Callable<T> hedgeTask, PrimaryCall primaryCall,
+            long hedgeDelayMs) {
+
+        synchronized (primaryCall) {
+            if (primaryCall.finished || !withdraw()) {
+                return;
+            }
+            try {
+                primaryCall.hedge = executor.submit(hedgeTask);
+            } catch (RejectedExecutionException e) {
+                Log.log(Level.FINE, "No thread available to hedge the BSIDCA {0} call", operation);
+                return;
+            }
+        }
+        countHedge("bsidca.client.hedges.sent", "Number of hedged BSIDCA calls sent", operation);
+        Log.log(Level.FINE, "BSIDCA {0} call slower than {1} ms, hedge sent", new Object[] { operation, hedgeDelayMs });
+    }
+
+    /**
+     * Records the HTTP request being sent on the current thread, so that it
+     * can be aborted if the call it belongs to is hedged and its hedge answers
+     * first. Called by the HTTP client of the BSIDCA stubs before every
+     * request.
+     *
+     * @param request The HTTP request being sent.
+     */
+    static void track(HttpRequest request) {
+        PrimaryCall primaryCall = PRIMARY.get();
+        if (primaryCall != null) {
+            primaryCall.track(request);
+        }
+    }
+
+    /**
+     * Returns whether the call being made on the current thread was abandoned
+     * because its hedge answered first, in which case its failure says nothing
+     * about the health of the BSIDCA service.
+     *
+     * @return true if the current call was abandoned, false otherwise.
+     */
+    public static boolean isCurrentAbandoned() {
+        PrimaryCall primaryCall = PRIMARY.get();
+        return primaryCall != null && primaryCall.isAbandoned();
+    }
+
+    /**
+     * Wraps a call so that the duration of its successful completions is
+     * recorded.
+     *
+     * @param latency The recent latency of the operation.
+     * @param attempt The call to wrap.
+     * @return The wrapped call.
+     */
+    private static <T> BsidcaRetryPolicy.Attempt<T> timed(LatencyTracker latency,
+            BsidcaRetryPolicy.Attempt<T> attempt) {
+        return () -> {
+            long start = System.nanoTime();
+            T result = attempt.run();
+            latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        };
+    }
+
+    /**
+     * Rethrows the cause of a failed copy of a call.
+     *
+     * @param e The exception wrapping the cause.
+     * @return Never returns normally.
+     * @throws RemoteException if the cause is a RemoteException or a checked
+     *                         exception.
+     */
+    private static RemoteException unwrap(ExecutionException e) throws RemoteException {
+        Throwable cause = e.getCause();
+        if (cause instanceof RemoteException) {
+            throw (RemoteException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new AxisFault("BSIDCA call failed", cause);
+    }
+
+    /**
+     * Deposits the share of a hedgeable call into the hedge budget.
+     */
+    private synchronized void deposit() {
+        balanceUnits = Math.min(MAX_BALANCE_UNITS, balanceUnits + depositUnits);
+    }
+
+    /**
+     * Withdraws one hedge from the hedge budget.
+     *
+     * @return true if a hedge may be sent, false if the cap is reached.
+     */
+    private synchronized boolean withdraw() {
+        if (balanceUnits < UNITS_PER_HEDGE) {
+            return false;
+        }
+        balanceUnits -= UNITS_PER_HEDGE;
+        return true;
+    }
+
+    /**
+     * Counts a hedging event of an operation.
+     *
+     * @param name        The name of the counter.
+     * @param description The description of the counter.
+     * @param operation   The BSIDCA operation hedged.
+     */
+    private void countHedge(String name, String description, BsidcaOperation operation) {
+        Counter.builder(name)
+                .description(description)
+                .tag("operation", operation.getValue())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Stops the threads running the hedges.
+     */
+    public void shutdown() {
+        if (executor != null) {
+            timer.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A hedgeable call made on the calling thread, with its hedge if one was
+     * sent and the HTTP request it is sending.
+     */
+    private static final class PrimaryCall {
+
+        /**
+         * Whether the call has returned.
+         */
+        private boolean finished;
+
+        /**
+         * Whether the call was abandoned because its hedge answered first.
+         */
+        private boolean abandoned;
+
+        /**
+         * The hedge of the call, or null if none was sent.
+         */
+        private Future<?> hedge;
+
+        /**
+         * The HTTP request the call is sending, or null.
+         */
+        private HttpUriRequest request;
+
+        /**
+         * Marks the call as returned, so that no hedge is sent afterwards.
+         *
+         * @return The hedge of the call, or null if none was sent.
+         */
+        @SuppressWarnings("unchecked")
+        synchronized <T> Future<T> finish() {
+            finished = true;
+            return (Future<T>) hedge;
+        }
+
+        /**
+         * Abandons the call, aborting the HTTP request it is sending, unless it
+         * has already returned.
+         */
+        synchronized void abandon() {
+            if (finished) {
+                return;
+            }
+            abandoned = true;
+            if (request != null) {
+                request.abort();
+            }
+        }
+
+        /**
+         * Returns whether the call was abandoned.
+         *
+         * @return true if the call was abandoned, false otherwise.
+         */
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        /**
+         * Records the HTTP request the call is sending, aborting it at once if
+         * the call was already abandoned.
+         *
+         * @param httpRequest The HTTP request, possibly wrapped by the client.
+         */
+        synchronized void track(HttpRequest httpRequest) {
+            HttpRequest original = httpRequest instanceof HttpRequestWrapper
+                    ? ((HttpRequestWrapper) httpRequest).getOriginal()
+                    : httpRequest;
+            if (original instanceof HttpUriRequest) {
+                request = (HttpUriRequest) original;
+                if (abandoned) {
+                    request.abort();
+                }
+            }
+        }
+    }
+}
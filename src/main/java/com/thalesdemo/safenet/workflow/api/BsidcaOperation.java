@@ -0,0 +1,165 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Enum class representing the SafeNet (BSIDCA) SOAP operations invoked by
+ * this application. Each constant carries the operation name as it appears
+ * in the BSIDCA WSDL, which is used when logging and tracking calls made
+ * through the WorkflowService, whether the operation is an idempotent read
+ * that may safely be retried, and the timeout profile of its calls.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public enum BsidcaOperation {
+    /**
+     * Authenticates the operator and opens a BSIDCA session.
+     */
+    CONNECT("Connect", false, BsidcaTimeoutProfile.READ),
+
+    /**
+     * Verifies that a BSIDCA session is still active.
+     */
+    PING_CONNECTION("PingConnection", false, BsidcaTimeoutProfile.READ),
+
+    /**
+     * Retrieves tokens matching a serial number or other criteria.
+     */
+    GET_TOKENS("GetTokens", true, BsidcaTimeoutProfile.READ),
+
+    /**
+     * Retrieves the serial numbers of the tokens owned by a user.
+     */
+    GET_TOKENS_BY_OWNER("GetTokensByOwner", true, BsidcaTimeoutProfile.READ),
+
+    /**
+     * Retrieves a user account.
+     */
+    GET_USER("GetUser", true, BsidcaTimeoutProfile.READ),
+
+    /**
+     * Creates a user account.
+     */
+    ADD_USER("AddUser", false, BsidcaTimeoutProfile.MUTATION),
+
+    /**
+     * Removes a user account.
+     */
+    REMOVE_USER("RemoveUser", false, BsidcaTimeoutProfile.MUTATION),
+
+    /**
+     * Revokes a token from a user.
+     */
+    REVOKE_TOKEN("RevokeToken", false, BsidcaTimeoutProfile.MUTATION),
+
+    /**
+     * Creates a standard token provisioning task for one or more users.
+     */
+    PROVISION_USERS("ProvisionUsers", false, BsidcaTimeoutProfile.ENROLLMENT),
+
+    /**
+     * Creates a GrIDsure token provisioning task for one or more users.
+     */
+    PROVISION_USERS_GRIDSURE_TOKENS("ProvisionUsersGrIDsureTokens", false, BsidcaTimeoutProfile.ENROLLMENT),
+
+    /**
+     * Retrieves the provisioning tasks of a user.
+     */
+    GET_PROVISIONING_TASKS_FOR_USER("GetProvisioningTasksForUser", true, BsidcaTimeoutProfile.READ),
+
+    /**
+     * Retrieves the enrollment URL of a provisioning task.
+     */
+    GET_ENROLLMENT_URL("GetEnrollmentURL", false, BsidcaTimeoutProfile.ENROLLMENT),
+
+    /**
+     * Processes a step of a token enrollment.
+     */
+    PROCESS_ENROLLMENT("ProcessEnrollment", false, BsidcaTimeoutProfile.ENROLLMENT),
+
+    /**
+     * Retrieves the MobilePASS activation code of a provisioning task.
+     */
+    GET_MOBILEPASS_PROVISIONING_ACTIVATION_CODE("GetMobilePASSProvisioningActivationCode", false, BsidcaTimeoutProfile.ENROLLMENT);
+
+    /**
+     * The name of the operation as defined in the BSIDCA WSDL.
+     */
+    private final String value;
+
+    /**
+     * Whether the operation only reads data and may be retried.
+     */
+    private final boolean idempotent;
+
+    /**
+     * The timeout profile of the calls of the operation.
+     */
+    private final BsidcaTimeoutProfile timeoutProfile;
+
+    /**
+     * Constructor for the BsidcaOperation enum.
+     *
+     * @param value          The name of the operation as defined in the BSIDCA
+     *                       WSDL.
+     * @param idempotent     Whether the operation only reads data and may be
+     *                       retried.
+     * @param timeoutProfile The timeout profile of the calls of the operation.
+     */
+    BsidcaOperation(String value, boolean idempotent, BsidcaTimeoutProfile timeoutProfile) {
+        this.value = value;
+        this.idempotent = idempotent;
+        this.timeoutProfile = timeoutProfile;
+    }
+
+    /**
+     * Returns whether the operation only reads data, so that a failed call can
+     * be made again without side effects.
+     *
+     * @return true if the operation may be retried, false otherwise.
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Returns the timeout profile of the calls of the operation.
+     *
+     * @return The timeout profile.
+     */
+    public BsidcaTimeoutProfile getTimeoutProfile() {
+        return timeoutProfile;
+    }
+
+    /**
+     * Returns the name of the operation as defined in the BSIDCA WSDL.
+     *
+     * @return The name of the operation.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the name of the operation as defined in the BSIDCA WSDL.
+     *
+     * @return The name of the operation.
+     */
+    @Override
+    public String toString() {
+        return value;
+    }
+}
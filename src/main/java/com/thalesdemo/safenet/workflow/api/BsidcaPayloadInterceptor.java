@@ -0,0 +1,221 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaPayloadInterceptor class measures the size of the bodies of the
+ * requests and responses exchanged with the BSIDCA service by the shared
+ * HTTP client. The bodies are counted as they are written and read, so that
+ * chunked requests and responses without a Content-Length are measured too.
+ * The size of a response is recorded once its body has been read to the end
+ * or closed. Only the exchanges made within BsidcaSession.execute() for a
+ * known operation are measured, and they are tagged with the operation and
+ * organization of the call.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+public class BsidcaPayloadInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    /**
+     * The metrics the sizes are recorded to.
+     */
+    private final BsidcaCallMetrics callMetrics;
+
+    /**
+     * Constructor for the BsidcaPayloadInterceptor class.
+     *
+     * @param callMetrics The metrics the sizes are recorded to.
+     */
+    public BsidcaPayloadInterceptor(BsidcaCallMetrics callMetrics) {
+        this.callMetrics = callMetrics;
+    }
+
+    /**
+     * Wraps the body of a request so that its size is recorded once written.
+     *
+     * @param request The HTTP request.
+     * @param context The HTTP context of the exchange.
+     */
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        BsidcaSession session = BsidcaSession.current();
+        if (session == null || session.getCallOperation() == null
+                || !(request instanceof HttpEntityEnclosingRequest)) {
+            return;
+        }
+        HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+        if (enclosingRequest.getEntity() == null) {
+            return;
+        }
+        BsidcaOperation operation = session.getCallOperation();
+        String organization = session.getCallOrganization();
+        enclosingRequest.setEntity(new CountingEntity(enclosingRequest.getEntity(),
+                bytes -> callMetrics.recordRequestBytes(operation, organization, bytes)));
+    }
+
+    /**
+     * Wraps the body of a response so that its size is recorded once read.
+     *
+     * @param response The HTTP response.
+     * @param context  The HTTP context of the exchange.
+     */
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        BsidcaSession session = BsidcaSession.current();
+        if (session == null || session.getCallOperation() == null || response.getEntity() == null) {
+            return;
+        }
+        BsidcaOperation operation = session.getCallOperation();
+        String organization = session.getCallOrganization();
+        response.setEntity(new CountingEntity(response.getEntity(),
+                bytes -> callMetrics.recordResponseBytes(operation, organization, bytes)));
+    }
+
+    /**
+     * An entity counting the bytes of its body as they are written or read,
+     * and reporting the total once.
+     */
+    private static final class CountingEntity extends HttpEntityWrapper {
+
+        /**
+         * The receiver of the size of the body.
+         */
+        private final LongConsumer recorder;
+
+        /**
+         * Whether the size has been reported.
+         */
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        /**
+         * Constructor for the CountingEntity class.
+         *
+         * @param entity   The entity to count the body of.
+         * @param recorder The receiver of the size of the body.
+         */
+        CountingEntity(HttpEntity entity, LongConsumer recorder) {
+            super(entity);
+            this.recorder = recorder;
+        }
+
+        /**
+         * Reports the size of the body, the first time only.
+         *
+         * @param bytes The size of the body, in bytes.
+         */
+        private void record(long bytes) {
+            if (recorded.compareAndSet(false, true)) {
+                recorder.accept(bytes);
+            }
+        }
+
+        /**
+         * Writes the body, counting its bytes.
+         *
+         * @param outStream The stream to write the body to.
+         * @throws IOException if the body cannot be written.
+         */
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            long[] count = new long[1];
+            super.writeTo(new FilterOutputStream(outStream) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    count[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    count[0] += len;
+                }
+            });
+            record(count[0]);
+        }
+
+        /**
+         * Gets the body, counting its bytes as they are read.
+         *
+         * @return The stream of the body.
+         * @throws IOException if the body cannot be read.
+         */
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+
+                /**
+                 * The number of bytes read so far.
+                 */
+                private long count;
+
+                @Override
+                public int read() throws IOException {
+                    int b = in.read();
+                    if (b < 0) {
+                        record(count);
+                    } else {
+                        count++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = in.read(b, off, len);
+                    if (n < 0) {
+                        record(count);
+                    } else {
+                        count += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = in.skip(n);
+                    count += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        in.close();
+                    } finally {
+                        record(count);
+                    }
+                }
+            };
+        }
+    }
+}
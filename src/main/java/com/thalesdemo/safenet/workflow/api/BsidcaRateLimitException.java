@@ -0,0 +1,56 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRateLimitException is thrown when a call to the SafeNet (BSIDCA)
+ * web service is rejected without being made, because its organization has
+ * used up its token bucket and the queue of calls waiting for a token is
+ * full or too long to wait for. It extends BsidcaUnavailableException so
+ * that it goes through the catch blocks of the services untouched, and the
+ * BsidcaExceptionHandler turns it into a 429 Too Many Requests response.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public class BsidcaRateLimitException extends BsidcaUnavailableException {
+
+    /**
+     * The organization whose call was rejected.
+     */
+    private final String organization;
+
+    /**
+     * Constructor for the BsidcaRateLimitException class.
+     *
+     * @param message           The reason why the call was rejected.
+     * @param organization      The organization whose call was rejected.
+     * @param retryAfterSeconds The number of seconds after which the client may
+     *                          try again.
+     */
+    public BsidcaRateLimitException(String message, String organization, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+        this.organization = organization;
+    }
+
+    /**
+     * Gets the organization whose call was rejected.
+     *
+     * @return The organization.
+     */
+    public String getOrganization() {
+        return organization;
+    }
+}
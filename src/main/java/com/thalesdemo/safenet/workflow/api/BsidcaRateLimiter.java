@@ -0,0 +1,437 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRateLimiter class keeps a token bucket per organization and
+ * admits the calls every organization makes to the SafeNet (BSIDCA) web
+ * service at the rate of its bucket, so that a script run by one tenant
+ * cannot saturate the session and connection pools for the others. A call
+ * finding the bucket empty reserves the next token and waits for it in a
+ * bounded queue; it is rejected with a BsidcaRateLimitException instead if
+ * the queue is full or the token would come after the maximum wait. The
+ * Retry-After of the rejection is the time the bucket needs to serve the
+ * calls already queued. The limits of every organization can be changed at
+ * runtime.
+ *
+ * Only the organizations with a limit of their own keep their bucket and
+ * their metrics for the life of the application. The other organizations,
+ * named by the clients, get a bucket with the default limit that is dropped
+ * once it is full again, since a full bucket admits the same calls as a new
+ * one, and their metrics are tagged with the "other" organization.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BsidcaRateLimiter {
+
+    /**
+     * The rate limit settings.
+     */
+    private final RateLimitSettings rateLimit;
+
+    /**
+     * The limits set at runtime or in the settings, by organization.
+     */
+    private final Map<String, OrganizationRateLimit> limits = new ConcurrentHashMap<>();
+
+    /**
+     * The tag of the metrics of the organizations without a limit of their own.
+     */
+    static final String OTHER_ORGANIZATION = "other";
+
+    /**
+     * The minimum time between two sweeps of the buckets of the organizations
+     * without a limit of their own, in nanoseconds.
+     */
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * The token bucket of every organization with a limit of its own.
+     */
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * The token bucket of every organization without a limit of its own that
+     * made a call recently.
+     */
+    private final Map<String, Bucket> defaultBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * The System.nanoTime() of the last sweep of the default buckets.
+     */
+    private final AtomicLong sweptAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * The registry the rate limiting metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for the BsidcaRateLimiter class.
+     *
+     * @param rateLimit     The rate limit settings.
+     * @param meterRegistry The registry the rate limiting metrics are published
+     *                      to.
+     */
+    public BsidcaRateLimiter(RateLimitSettings rateLimit, MeterRegistry meterRegistry) {
+        this.rateLimit = rateLimit;
+        this.meterRegistry = meterRegistry;
+        this.limits.putAll(rateLimit.getOrganizations());
+        Gauge.builder("bsidca.client.ratelimit.queued", defaultBuckets, BsidcaRateLimiter::getQueued)
+                .description("Number of BSIDCA calls of an organization waiting for a token")
+                .tag("organization", OTHER_ORGANIZATION)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits a call of an organization, waiting for a token of its bucket if
+     * the bucket is empty. The call waits no longer than the maximum wait, nor
+     * past the deadline of its request.
+     *
+     * @param organization The organization making the call.
+     * @throws BsidcaRateLimitException   if the call cannot be admitted within
+     *                                    the limits of the queue.
+     * @throws BsidcaUnavailableException if the calling thread is interrupted
+     *                                    while waiting for a token.
+     */
+    public void acquire(String organization) {
+        if (!rateLimit.isEnabled()) {
+            return;
+        }
+
+        String key = keyOf(organization);
+        long maxWaitMs = Math.max(0, BsidcaDeadline.remainingMs(rateLimit.getMaxWaitMs()));
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        Bucket bucket;
+        long waitNanos;
+        do {
+            bucket = bucketOf(key);
+            waitNanos = bucket.reserve(key, rateLimit.getMaxQueue(), maxWaitNanos);
+        } while (waitNanos < 0);
+        if (waitNanos == 0) {
+            count(key, "admitted");
+            return;
+        }
+
+        count(key, "queued");
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            bucket.refund();
+            throw new BsidcaUnavailableException("Interrupted while waiting for the BSIDCA rate limit", 1);
+        } finally {
+            bucket.dequeue();
+        }
+    }
+
+    /**
+     * Changes the limit of an organization. The tokens its bucket holds are
+     * kept, within the new burst.
+     *
+     * @param organization  The organization.
+     * @param ratePerSecond The number of calls per second the bucket refills
+     *                      at.
+     * @param burst         The number of calls the bucket holds for bursts.
+     * @return The snapshot of the bucket of the organization after the change.
+     * @throws IllegalArgumentException if the limit is invalid.
+     */
+    public RateLimitStats setLimit(String organization, double ratePerSecond, int burst) {
+        if (!(ratePerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("rate_per_second must be positive and burst at least 1");
+        }
+        String key = keyOf(organization);
+        OrganizationRateLimit limit = new OrganizationRateLimit(ratePerSecond, burst);
+        limits.put(key, limit);
+        Bucket bucket = buckets.computeIfAbsent(key, this::createBucket);
+        bucket.setLimit(limit);
+        Bucket previous = defaultBuckets.remove(key);
+        if (previous != null) {
+            previous.retire();
+        }
+        return bucket.snapshot(key);
+    }
+
+    /**
+     * Gets a snapshot of the bucket of every organization that has a limit of
+     * its own or made a call recently.
+     *
+     * @return The snapshots, sorted by organization.
+     */
+    public List<RateLimitStats> getSnapshot() {
+        List<RateLimitStats> snapshot = new ArrayList<>();
+        for (String key : limits.keySet()) {
+            buckets.computeIfAbsent(key, this::createBucket);
+        }
+        buckets.forEach((key, bucket) -> snapshot.add(bucket.snapshot(key)));
+        defaultBuckets.forEach((key, bucket) -> snapshot.add(bucket.snapshot(key)));
+        snapshot.sort(Comparator.comparing(RateLimitStats::getOrganization));
+        return snapshot;
+    }
+
+    /**
+     * Gets the bucket of an organization: its own bucket if it has a limit of
+     * its own, or else a bucket with the default limit, created on the first
+     * call and dropped once full. The default buckets are swept at most once
+     * every sweep interval.
+     *
+     * @param key The organization.
+     * @return The bucket of the organization.
+     */
+    private Bucket bucketOf(String key) {
+        if (limits.containsKey(key)) {
+            return buckets.computeIfAbsent(key, this::createBucket);
+        }
+
+        long now = System.nanoTime();
+        long last = sweptAt.get();
+        if (now - last >= SWEEP_INTERVAL_NANOS && sweptAt.compareAndSet(last, now)) {
+            defaultBuckets.forEach((organization, bucket) -> {
+                if (bucket.retireIfFull()) {
+                    defaultBuckets.remove(organization, bucket);
+                }
+            });
+        }
+        return defaultBuckets.computeIfAbsent(key, k -> new Bucket(rateLimit.getDefaultLimit()));
+    }
+
+    /**
+     * Creates the bucket of an organization with a limit of its own, full, and
+     * registers the gauge of its queue.
+     *
+     * @param key The organization.
+     * @return The new bucket.
+     */
+    private Bucket createBucket(String key) {
+        Bucket bucket = new Bucket(limits.getOrDefault(key, rateLimit.getDefaultLimit()));
+        Gauge.builder("bsidca.client.ratelimit.queued", bucket, Bucket::getQueued)
+                .description("Number of BSIDCA calls of an organization waiting for a token")
+                .tag("organization", key)
+                .register(meterRegistry);
+        return bucket;
+    }
+
+    /**
+     * Counts a call admitted, queued or rejected.
+     *
+     * @param key     The organization making the call.
+     * @param outcome "admitted", "queued" or "rejected".
+     */
+    private void count(String key, String outcome) {
+        Counter.builder("bsidca.client.ratelimit.requests")
+                .description("Number of BSIDCA calls admitted at once, queued or rejected by the rate limiter")
+                .tag("organization", limits.containsKey(key) ? key : OTHER_ORGANIZATION)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Sums the calls waiting in the default buckets.
+     *
+     * @param defaultBuckets The default buckets, by organization.
+     * @return The number of queued calls.
+     */
+    private static double getQueued(Map<String, Bucket> defaultBuckets) {
+        int queued = 0;
+        for (Bucket bucket : defaultBuckets.values()) {
+            queued += bucket.getQueued();
+        }
+        return queued;
+    }
+
+    /**
+     * Normalizes the name of an organization into the key of its bucket.
+     *
+     * @param organization The organization, possibly null.
+     * @return The key of the bucket of the organization.
+     */
+    private static String keyOf(String organization) {
+        return organization == null ? "" : organization;
+    }
+
+    /**
+     * The token bucket of one organization. The number of tokens goes below
+     * zero when calls have reserved tokens that are not refilled yet, so that
+     * the calls waiting in the queue are served in order.
+     */
+    private final class Bucket {
+
+        /**
+         * The number of calls per second the bucket refills at.
+         */
+        private double ratePerSecond;
+
+        /**
+         * The number of calls the bucket holds for bursts.
+         */
+        private int burst;
+
+        /**
+         * The number of tokens in the bucket, negative when tokens are reserved.
+         */
+        private double tokens;
+
+        /**
+         * The System.nanoTime() of the last refill.
+         */
+        private long refilledAt = System.nanoTime();
+
+        /**
+         * The number of calls waiting for their token.
+         */
+        private int queued;
+
+        /**
+         * Whether the bucket was dropped, so that calls must look up the bucket
+         * of their organization again.
+         */
+        private boolean retired;
+
+        /**
+         * Constructor for the Bucket class. The bucket starts full.
+         *
+         * @param limit The limit of the bucket.
+         */
+        Bucket(OrganizationRateLimit limit) {
+            this.ratePerSecond = limit.getRatePerSecond();
+            this.burst = limit.getBurst();
+            this.tokens = this.burst;
+        }
+
+        /**
+         * Takes a token, or reserves the next one and returns the time to wait
+         * for it.
+         *
+         * @param key          The organization the bucket belongs to.
+         * @param maxQueue     The maximum number of calls waiting for a token.
+         * @param maxWaitNanos The maximum time to wait for a token, in
+         *                     nanoseconds.
+         * @return 0 if a token was taken, the time to wait for the reserved
+         *         token, in nanoseconds, or -1 if the bucket was dropped.
+         * @throws BsidcaRateLimitException if the queue is full or the token
+         *                                  would come too late.
+         */
+        synchronized long reserve(String key, int maxQueue, long maxWaitNanos) {
+            if (retired) {
+                return -1;
+            }
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+
+            long waitNanos = (long) Math.ceil((1 - tokens) / ratePerSecond * 1e9);
+            if (queued >= maxQueue || waitNanos > maxWaitNanos) {
+                count(key, "rejected");
+                long retryAfterSeconds = Math.max(1, (long) Math.ceil((queued + 1) / ratePerSecond));
+                throw new BsidcaRateLimitException(String.format(
+                        "Too many BSIDCA calls for organization %s (%d waiting at %.2f calls per second)", key,
+                        queued, ratePerSecond), key, retryAfterSeconds);
+            }
+            tokens -= 1;
+            queued++;
+            return waitNanos;
+        }
+
+        /**
+         * Records that a queued call stopped waiting.
+         */
+        synchronized void dequeue() {
+            queued--;
+        }
+
+        /**
+         * Gives back the token reserved by a call that stopped waiting early.
+         */
+        synchronized void refund() {
+            tokens = Math.min(burst, tokens + 1);
+        }
+
+        /**
+         * Changes the limit of the bucket.
+         *
+         * @param limit The new limit.
+         */
+        synchronized void setLimit(OrganizationRateLimit limit) {
+            refill();
+            ratePerSecond = limit.getRatePerSecond();
+            burst = limit.getBurst();
+            tokens = Math.min(burst, tokens);
+        }
+
+        /**
+         * Drops the bucket.
+         */
+        synchronized void retire() {
+            retired = true;
+        }
+
+        /**
+         * Drops the bucket if it is full and no call is waiting for a token.
+         *
+         * @return true if the bucket was dropped.
+         */
+        synchronized boolean retireIfFull() {
+            refill();
+            if (queued == 0 && tokens >= burst) {
+                retired = true;
+            }
+            return retired;
+        }
+
+        /**
+         * Adds the tokens refilled since the last refill, up to the burst.
+         */
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * ratePerSecond);
+            refilledAt = now;
+        }
+
+        /**
+         * Gets the number of calls waiting for their token.
+         *
+         * @return The number of queued calls.
+         */
+        synchronized int getQueued() {
+            return queued;
+        }
+
+        /**
+         * Takes a snapshot of the bucket.
+         *
+         * @param key The organization the bucket belongs to.
+         * @return The snapshot of the bucket.
+         */
+        synchronized RateLimitStats snapshot(String key) {
+            refill();
+            return new RateLimitStats(key, ratePerSecond, burst, tokens, queued);
+        }
+    }
+}
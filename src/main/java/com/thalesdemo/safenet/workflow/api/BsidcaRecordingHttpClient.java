@@ -0,0 +1,373 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRecordingHttpClient class wraps the HTTP client of the BSIDCA
+ * transport to capture the SOAP exchanges to an exchange log. The request
+ * body is copied as it is written, and the response body is read in full
+ * into memory before it is handed back to the caller, so that the recorded
+ * latency covers the whole response. The exchanges are queued for a single
+ * writer thread which anonymizes and appends them to the log, so that the
+ * calls never wait for the disk; the exchanges that do not fit in the queue
+ * or exceed the maximum body size are counted and left out of the log. The
+ * cookies and other headers are not recorded.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaRecordingHttpClient extends CloseableHttpClient {
+
+    /**
+     * This is the logger instance for the BsidcaRecordingHttpClient class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaRecordingHttpClient.class.getName());
+
+    /**
+     * The HTTP client making the calls.
+     */
+    private final CloseableHttpClient delegate;
+
+    /**
+     * The path of the exchange log.
+     */
+    private final Path file;
+
+    /**
+     * The exchange log the writer thread appends to.
+     */
+    private final BsidcaExchangeLog exchangeLog;
+
+    /**
+     * The anonymizer of the exchanges, or null to record them as is.
+     */
+    private final BsidcaAnonymizer anonymizer;
+
+    /**
+     * The largest body recorded, in bytes.
+     */
+    private final int maxBodyBytes;
+
+    /**
+     * The exchanges waiting to be written.
+     */
+    private final BlockingQueue<CapturedExchange> queue;
+
+    /**
+     * The thread writing the exchanges to the log.
+     */
+    private final Thread writer;
+
+    /**
+     * The number of exchanges written to the log.
+     */
+    private final AtomicLong recorded = new AtomicLong();
+
+    /**
+     * The number of exchanges left out of the log.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Whether the client is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor for the BsidcaRecordingHttpClient class. Creates the
+     * exchange log and starts the writer thread.
+     *
+     * @param delegate  The HTTP client making the calls.
+     * @param recording The recording settings.
+     * @throws IOException if the exchange log cannot be created.
+     */
+    public BsidcaRecordingHttpClient(CloseableHttpClient delegate, RecordingSettings recording) throws IOException {
+        this.delegate = delegate;
+        this.file = Path.of(recording.getFile());
+        this.exchangeLog = new BsidcaExchangeLog(this.file);
+        this.anonymizer = recording.isAnonymize() ? new BsidcaAnonymizer() : null;
+        this.maxBodyBytes = recording.getMaxBodyBytes();
+        this.queue = new ArrayBlockingQueue<>(recording.getQueueCapacity());
+        this.writer = new Thread(this::writeExchanges, "bsidca-recorder");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Log.log(Level.INFO, "Recording the BSIDCA exchanges to {0} ({1})",
+                new Object[] { this.file.toAbsolutePath(), anonymizer == null ? "as is" : "anonymized" });
+    }
+
+    /**
+     * Executes a request with the wrapped client and queues the exchange for
+     * the log.
+     *
+     * @param target  The target host.
+     * @param request The HTTP request.
+     * @param context The HTTP context of the exchange.
+     * @return The response, with its body read into memory.
+     * @throws IOException if the call fails.
+     */
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException, ClientProtocolException {
+        ByteArrayOutputStream requestCopy = new ByteArrayOutputStream();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+            if (enclosingRequest.getEntity() != null) {
+                enclosingRequest.setEntity(new CopyingEntity(enclosingRequest.getEntity(), requestCopy));
+            }
+        }
+
+        long start = System.nanoTime();
+        CloseableHttpResponse response = delegate.execute(target, request, context);
+        byte[] responseBody;
+        String contentType = null;
+        try {
+            HttpEntity entity = response.getEntity();
+            responseBody = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+            if (entity != null) {
+                Header contentTypeHeader = entity.getContentType();
+                contentType = contentTypeHeader == null ? null : contentTypeHeader.getValue();
+                ByteArrayEntity buffered = new ByteArrayEntity(responseBody);
+                buffered.setContentType(contentTypeHeader);
+                buffered.setContentEncoding(entity.getContentEncoding());
+                response.setEntity(buffered);
+            }
+        } catch (IOException e) {
+            response.close();
+            throw e;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+        if (closed || requestCopy.size() > maxBodyBytes || responseBody.length > maxBodyBytes
+                || !queue.offer(new CapturedExchange(requestCopy.toByteArray(), response.getStatusLine()
+                        .getStatusCode(), contentType, latencyMicros, responseBody))) {
+            dropped.incrementAndGet();
+        }
+        return response;
+    }
+
+    /**
+     * Writes the queued exchanges to the log until the client is closed and
+     * the queue is empty. The log is flushed whenever the queue runs empty.
+     */
+    private void writeExchanges() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                CapturedExchange captured = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (captured == null) {
+                    continue;
+                }
+                write(captured);
+                if (queue.isEmpty()) {
+                    exchangeLog.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                dropped.incrementAndGet();
+                Log.log(Level.WARNING, "Could not record a BSIDCA exchange to " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Anonymizes an exchange and appends it to the log.
+     *
+     * @param captured The exchange as captured.
+     * @throws IOException if the exchange cannot be written.
+     */
+    private void write(CapturedExchange captured) throws IOException {
+        byte[] requestBody = captured.requestBody;
+        byte[] responseBody = captured.responseBody;
+        if (anonymizer != null) {
+            requestBody = anonymizer.anonymize(requestBody);
+            responseBody = anonymizer.anonymize(responseBody);
+        }
+        exchangeLog.append(new BsidcaExchange(BsidcaRequestFingerprint.of(requestBody), captured.status,
+                captured.contentType, captured.latencyMicros, requestBody, responseBody));
+        recorded.incrementAndGet();
+    }
+
+    /**
+     * Closes the wrapped client, writes the exchanges still queued and
+     * completes the log.
+     *
+     * @throws IOException if the wrapped client cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            delegate.close();
+        } finally {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchangeLog.close();
+            Log.log(Level.INFO, "Recorded {0} BSIDCA exchanges to {1} ({2} left out)",
+                    new Object[] { recorded.get(), file.toAbsolutePath(), dropped.get() });
+        }
+    }
+
+    /**
+     * Gets the parameters of the wrapped client.
+     *
+     * @return The parameters of the wrapped client.
+     * @deprecated Use the RequestConfig of the wrapped client.
+     */
+    @Deprecated
+    @Override
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    /**
+     * Gets the connection manager of the wrapped client.
+     *
+     * @return The connection manager of the wrapped client.
+     * @deprecated Use the BsidcaConnectionManager of the transport.
+     */
+    @Deprecated
+    @Override
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+
+    /**
+     * An exchange as captured, before it is anonymized.
+     */
+    private static final class CapturedExchange {
+
+        /**
+         * The body of the request.
+         */
+        final byte[] requestBody;
+
+        /**
+         * The HTTP status of the response.
+         */
+        final int status;
+
+        /**
+         * The content type of the response, or null.
+         */
+        final String contentType;
+
+        /**
+         * The time the server took to answer, in microseconds.
+         */
+        final long latencyMicros;
+
+        /**
+         * The body of the response.
+         */
+        final byte[] responseBody;
+
+        /**
+         * Constructor for the CapturedExchange class.
+         *
+         * @param requestBody   The body of the request.
+         * @param status        The HTTP status of the response.
+         * @param contentType   The content type of the response, or null.
+         * @param latencyMicros The time the server took to answer, in
+         *                      microseconds.
+         * @param responseBody  The body of the response.
+         */
+        CapturedExchange(byte[] requestBody, int status, String contentType, long latencyMicros,
+                byte[] responseBody) {
+            this.requestBody = requestBody;
+            this.status = status;
+            this.contentType = contentType;
+            this.latencyMicros = latencyMicros;
+            this.responseBody = responseBody;
+        }
+    }
+
+    /**
+     * A request body copying what it writes.
+     */
+    private static final class CopyingEntity extends HttpEntityWrapper {
+
+        /**
+         * The copy of the body.
+         */
+        private final ByteArrayOutputStream copy;
+
+        /**
+         * Constructor for the CopyingEntity class.
+         *
+         * @param entity The request body.
+         * @param copy   The copy of the body.
+         */
+        CopyingEntity(HttpEntity entity, ByteArrayOutputStream copy) {
+            super(entity);
+            this.copy = copy;
+        }
+
+        /**
+         * Writes the body and copies it. A body written again, by a retry,
+         * replaces the copy.
+         *
+         * @param out The stream the body is written to.
+         * @throws IOException if the body cannot be written.
+         */
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            copy.reset();
+            wrappedEntity.writeTo(new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    copy.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    copy.write(b, off, len);
+                }
+            });
+        }
+    }
+}
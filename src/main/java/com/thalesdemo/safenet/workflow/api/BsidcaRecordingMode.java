@@ -0,0 +1,79 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRecordingMode enum lists what the BSIDCA transport does with
+ * the SOAP exchanges: nothing, capture them to an exchange log while
+ * calling the SafeNet server, or replay an exchange log instead of calling
+ * the server.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public enum BsidcaRecordingMode {
+    /**
+     * Calls the SafeNet server without recording anything.
+     */
+    OFF("off"),
+
+    /**
+     * Calls the SafeNet server and records every exchange.
+     */
+    CAPTURE("capture"),
+
+    /**
+     * Answers every call from the recorded exchanges.
+     */
+    REPLAY("replay");
+
+    /**
+     * The name of the mode as used in the settings.
+     */
+    private final String value;
+
+    /**
+     * Constructor for the BsidcaRecordingMode enum.
+     *
+     * @param value The name of the mode as used in the settings.
+     */
+    BsidcaRecordingMode(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the mode with the given name, ignoring case.
+     *
+     * @param value The name of the mode.
+     * @return The matching mode, or OFF if the name is unknown or null.
+     */
+    public static BsidcaRecordingMode fromValue(String value) {
+        for (BsidcaRecordingMode mode : values()) {
+            if (mode.value.equalsIgnoreCase(value)) {
+                return mode;
+            }
+        }
+        return OFF;
+    }
+
+    /**
+     * Returns the name of the mode as used in the settings.
+     *
+     * @return The name of the mode.
+     */
+    public String getValue() {
+        return value;
+    }
+}
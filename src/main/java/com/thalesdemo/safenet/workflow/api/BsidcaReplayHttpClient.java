@@ -0,0 +1,283 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaReplayHttpClient class stands in for the HTTP client of the
+ * BSIDCA transport and answers the SOAP calls from an exchange log instead
+ * of the SafeNet server, so that a benchmark can be run again and again on
+ * the same production-shaped payloads and timing. A request is answered
+ * with a recorded exchange of the same fingerprint, or else of the same
+ * shape, the fingerprint without the values of the personal elements, or
+ * else of the same operation, taking the recorded exchanges in turn; it is
+ * answered after the recorded latency divided by the replay speed. A request
+ * whose operation was never recorded gets a SOAP fault. Since the recorded
+ * values are pseudonyms, a request made with the user names and serials
+ * found in the log matches its exchange exactly, and a request made with
+ * real user names matches the exchanges recorded for the same call shape.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaReplayHttpClient extends CloseableHttpClient {
+
+    /**
+     * This is the logger instance for the BsidcaReplayHttpClient class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaReplayHttpClient.class.getName());
+
+    /**
+     * The recorded exchanges, by fingerprint of their request.
+     */
+    private final Map<BsidcaRequestFingerprint, Replays> byFingerprint = new HashMap<>();
+
+    /**
+     * The recorded exchanges, by shape of their request.
+     */
+    private final Map<BsidcaRequestFingerprint, Replays> byShape = new HashMap<>();
+
+    /**
+     * The recorded exchanges, by operation.
+     */
+    private final Map<String, Replays> byOperation = new HashMap<>();
+
+    /**
+     * The speed of the replay relative to the recorded timing, or 0 to replay
+     * without waiting.
+     */
+    private final double speed;
+
+    /**
+     * Constructor for the BsidcaReplayHttpClient class. Reads the exchange log.
+     *
+     * @param recording The recording settings.
+     * @throws IOException if the exchange log cannot be read.
+     */
+    public BsidcaReplayHttpClient(RecordingSettings recording) throws IOException {
+        Path file = Path.of(recording.getFile());
+        List<BsidcaExchange> exchanges = BsidcaExchangeLog.read(file);
+        for (BsidcaExchange exchange : exchanges) {
+            BsidcaRequestFingerprint fingerprint = exchange.getFingerprint();
+            byFingerprint.computeIfAbsent(fingerprint, key -> new Replays()).add(exchange);
+            byShape.computeIfAbsent(BsidcaRequestFingerprint.shapeOf(exchange.getRequestBody()),
+                    key -> new Replays()).add(exchange);
+            byOperation.computeIfAbsent(fingerprint.getOperation().toLowerCase(Locale.ROOT), key -> new Replays())
+                    .add(exchange);
+        }
+        this.speed = recording.getSpeed();
+        Log.log(Level.INFO, "Replaying {0} BSIDCA exchanges of {1} operations from {2} at speed {3}",
+                new Object[] { exchanges.size(), byOperation.size(), file.toAbsolutePath(), speed });
+    }
+
+    /**
+     * Answers a request with a recorded exchange.
+     *
+     * @param target  The target host, ignored.
+     * @param request The HTTP request.
+     * @param context The HTTP context of the exchange, ignored.
+     * @return The recorded response, or a SOAP fault if the operation was
+     *         never recorded.
+     * @throws IOException if the request body cannot be read, or the thread is
+     *                     interrupted while waiting.
+     */
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+            throws IOException, ClientProtocolException {
+        ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                entity.writeTo(requestBody);
+            }
+        }
+
+        BsidcaRequestFingerprint fingerprint = BsidcaRequestFingerprint.of(requestBody.toByteArray());
+        Replays replays = byFingerprint.get(fingerprint);
+        if (replays == null) {
+            replays = byShape.get(BsidcaRequestFingerprint.shapeOf(requestBody.toByteArray()));
+        }
+        if (replays == null) {
+            replays = byOperation.get(fingerprint.getOperation().toLowerCase(Locale.ROOT));
+        }
+        if (replays == null) {
+            Log.log(Level.FINE, "No recorded BSIDCA exchange for {0}", fingerprint);
+            return response(500, "text/xml; charset=utf-8", fault(fingerprint.getOperation()));
+        }
+
+        BsidcaExchange exchange = replays.next();
+        if (speed > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep((long) (exchange.getLatencyMicros() / speed));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while replaying a BSIDCA exchange");
+            }
+        }
+        return response(exchange.getStatus(), exchange.getContentType(), exchange.getResponseBody());
+    }
+
+    /**
+     * Creates the response to a request.
+     *
+     * @param status      The HTTP status.
+     * @param contentType The content type, or an empty string.
+     * @param body        The body.
+     * @return The response.
+     */
+    private static CloseableHttpResponse response(int status, String contentType, byte[] body) {
+        ReplayResponse response = new ReplayResponse(status);
+        ByteArrayEntity entity = new ByteArrayEntity(body);
+        if (!contentType.isEmpty()) {
+            entity.setContentType(contentType);
+            response.setHeader("Content-Type", contentType);
+        }
+        response.setEntity(entity);
+        return response;
+    }
+
+    /**
+     * Builds the SOAP fault answering an operation that was never recorded.
+     *
+     * @param operation The operation of the request.
+     * @return The body of the fault.
+     */
+    private static byte[] fault(String operation) {
+        return ("<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                + "<soap:Fault><faultcode>soap:Server</faultcode><faultstring>No recorded BSIDCA exchange for "
+                + operation + "</faultstring></soap:Fault></soap:Body></soap:Envelope>")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Does nothing, since the client holds no connections.
+     */
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    /**
+     * Gets empty parameters, since the client makes no connections.
+     *
+     * @return Empty parameters.
+     * @deprecated Kept for the HttpClient interface.
+     */
+    @Deprecated
+    @Override
+    public HttpParams getParams() {
+        return new BasicHttpParams();
+    }
+
+    /**
+     * Gets no connection manager, since the client makes no connections.
+     *
+     * @return null.
+     * @deprecated Kept for the HttpClient interface.
+     */
+    @Deprecated
+    @Override
+    public ClientConnectionManager getConnectionManager() {
+        return null;
+    }
+
+    /**
+     * The recorded exchanges of a fingerprint or an operation, taken in turn.
+     */
+    private static final class Replays {
+
+        /**
+         * The exchanges, in the order they were recorded.
+         */
+        private final List<BsidcaExchange> exchanges = new ArrayList<>();
+
+        /**
+         * The number of exchanges taken so far.
+         */
+        private final AtomicInteger taken = new AtomicInteger();
+
+        /**
+         * Adds an exchange.
+         *
+         * @param exchange The exchange.
+         */
+        void add(BsidcaExchange exchange) {
+            exchanges.add(exchange);
+        }
+
+        /**
+         * Takes the next exchange, starting over after the last one.
+         *
+         * @return The exchange.
+         */
+        BsidcaExchange next() {
+            return exchanges.get(Math.floorMod(taken.getAndIncrement(), exchanges.size()));
+        }
+    }
+
+    /**
+     * A replayed response, with nothing to release when closed.
+     */
+    private static final class ReplayResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        /**
+         * Constructor for the ReplayResponse class.
+         *
+         * @param status The HTTP status.
+         */
+        ReplayResponse(int status) {
+            super(HttpVersion.HTTP_1_1, status, EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ROOT));
+        }
+
+        /**
+         * Does nothing, since the body is in memory.
+         */
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
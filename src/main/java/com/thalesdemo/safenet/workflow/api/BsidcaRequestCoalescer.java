@@ -0,0 +1,255 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRequestCoalescer class lets identical concurrent reads share a
+ * single SafeNet (BSIDCA) call. The first caller of a read, keyed by its
+ * operation, organization and arguments, makes the call; the callers asking
+ * for the same read while it is in flight wait for it and receive the same
+ * result, or the same exception. A failure that belongs to the request of
+ * the first caller, an expired deadline or an exhausted rate limit, is not
+ * shared: the callers that waited for it make the read again themselves,
+ * the first of them as the new leader. The key is forgotten as soon as the call
+ * completes, so nothing is cached: a read starting after the call has
+ * returned makes a new one. It sits between the TokenService and
+ * UserService and WorkflowService.invoke(), so a coalesced read still goes
+ * through the retries, the hedging and the circuit breakers once.
+ *
+ * The results are shared between the callers and must not be modified. A
+ * caller waiting for a read in flight stops waiting when the deadline of its
+ * own request expires, while the read goes on for the other callers.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Component
+public class BsidcaRequestCoalescer {
+
+    /**
+     * The result handed to the callers of a read whose leader failed for a
+     * reason of its own, telling them to make the read again.
+     */
+    private static final Object RETRY = new Object();
+
+    /**
+     * The reads in flight, by key.
+     */
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the reads are coalesced at all.
+     */
+    private final boolean enabled;
+
+    /**
+     * The registry the coalescing metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for the BsidcaRequestCoalescer class.
+     *
+     * @param settings      The application settings holding the resilience
+     *                      settings.
+     * @param meterRegistry The registry the coalescing metrics are published
+     *                      to.
+     */
+    public BsidcaRequestCoalescer(Settings settings, MeterRegistry meterRegistry) {
+        this.enabled = settings.getResilience().isCoalesceReads();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("bsidca.client.coalescer.inflight", inFlight, Map::size)
+                .description("Number of distinct BSIDCA reads in flight that identical reads may join")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Makes a read, or joins the identical read already in flight.
+     *
+     * @param operation    The BSIDCA operation of the read.
+     * @param organization The organization the read acts on.
+     * @param read         The read to make if none is in flight.
+     * @param arguments    The other arguments identifying the read.
+     * @return The result of the read, shared with the other callers.
+     * @throws BsidcaUnavailableException if the read was rejected, or the
+     *                                    calling thread was interrupted while
+     *                                    waiting for it.
+     */
+    public <T> T execute(BsidcaOperation operation, String organization, Supplier<T> read, Object... arguments) {
+        if (!enabled) {
+            return read.get();
+        }
+
+        Key key = new Key(operation, organization, Arrays.asList(arguments));
+        while (true) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                count(operation, "follower");
+                Object result = join(operation, existing);
+                if (result != RETRY) {
+                    @SuppressWarnings("unchecked")
+                    T sharedResult = (T) result;
+                    return sharedResult;
+                }
+                continue;
+            }
+
+            count(operation, "leader");
+            try {
+                T result = read.get();
+                flight.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+    }
+
+    /**
+     * Waits for a read in flight and returns its result, no longer than the
+     * deadline of the request of the calling thread. If the read failed
+     * because of the deadline or the rate limit of the request that made it,
+     * RETRY is returned instead of the failure.
+     *
+     * @param operation The BSIDCA operation of the read.
+     * @param flight    The read in flight.
+     * @return The result of the read, or RETRY.
+     * @throws BsidcaUnavailableException if the calling thread was interrupted.
+     * @throws BsidcaDeadlineExceededException if the deadline of the request
+     *                                         expires first.
+     */
+    private static Object join(BsidcaOperation operation, CompletableFuture<Object> flight) {
+        try {
+            BsidcaDeadline deadline = BsidcaDeadline.current();
+            if (deadline == null) {
+                return flight.get();
+            }
+            return flight.get(Math.max(0, deadline.getRemainingMs()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BsidcaDeadlineExceededException(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BsidcaUnavailableException("Interrupted while waiting for an identical BSIDCA call", 1);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BsidcaDeadlineExceededException || cause instanceof BsidcaRateLimitException) {
+                // The failure belongs to the request of the leader, not to this one
+                return RETRY;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * Counts a read that made the call or joined one.
+     *
+     * @param operation The BSIDCA operation of the read.
+     * @param role      "leader" if the read made the call, "follower" if it
+     *                  joined one.
+     */
+    private void count(BsidcaOperation operation, String role) {
+        Counter.builder("bsidca.client.coalescer.requests")
+                .description("Number of BSIDCA reads that made a call (leader) or joined one in flight (follower)")
+                .tag("operation", operation.getValue())
+                .tag("role", role)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * The key identifying identical reads.
+     */
+    private static final class Key {
+
+        /**
+         * The BSIDCA operation of the read.
+         */
+        private final BsidcaOperation operation;
+
+        /**
+         * The organization the read acts on.
+         */
+        private final String organization;
+
+        /**
+         * The other arguments identifying the read.
+         */
+        private final List<Object> arguments;
+
+        /**
+         * Constructor for the Key class.
+         *
+         * @param operation    The BSIDCA operation of the read.
+         * @param organization The organization the read acts on.
+         * @param arguments    The other arguments identifying the read.
+         */
+        Key(BsidcaOperation operation, String organization, List<Object> arguments) {
+            this.operation = operation;
+            this.organization = organization;
+            this.arguments = arguments;
+        }
+
+        /**
+         * Compares this key with another object.
+         *
+         * @param other The object to compare with.
+         * @return true if the other object is a key of the same read.
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return operation == key.operation && Objects.equals(organization, key.organization)
+                    && arguments.equals(key.arguments);
+        }
+
+        /**
+         * Computes the hash code of this key.
+         *
+         * @return The hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, organization, arguments);
+        }
+    }
+}
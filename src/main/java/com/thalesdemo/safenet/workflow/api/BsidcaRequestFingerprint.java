@@ -0,0 +1,242 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRequestFingerprint class identifies a SOAP request to the
+ * SafeNet (BSIDCA) web service by its operation, the name of the first
+ * element of the SOAP body, and a hash of the names and values of the
+ * elements of the body. The hash ignores namespace prefixes, whitespace
+ * between elements and the way the envelope is written, so that the same
+ * call made through the Axis2 stubs or the lean codec has the same
+ * fingerprint. The shape of a request is its fingerprint without the values
+ * of the elements the BsidcaAnonymizer replaces, so that a request made with
+ * real user names matches the anonymized request recorded for the same call
+ * shape.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Objects;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public final class BsidcaRequestFingerprint {
+
+    /**
+     * The operation of requests that could not be parsed.
+     */
+    public static final String UNKNOWN_OPERATION = "unknown";
+
+    /**
+     * The factory of the readers parsing the requests, without DTDs nor
+     * external entities.
+     */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /**
+     * The name of the first element of the SOAP body.
+     */
+    private final String operation;
+
+    /**
+     * The hash of the names and values of the elements of the body.
+     */
+    private final long hash;
+
+    /**
+     * Constructor for the BsidcaRequestFingerprint class.
+     *
+     * @param operation The name of the first element of the SOAP body.
+     * @param hash      The hash of the names and values of the elements of the
+     *                  body.
+     */
+    public BsidcaRequestFingerprint(String operation, long hash) {
+        this.operation = operation;
+        this.hash = hash;
+    }
+
+    /**
+     * Computes the fingerprint of a SOAP request.
+     *
+     * @param body The body of the request.
+     * @return The fingerprint, with the UNKNOWN_OPERATION if the body is not a
+     *         SOAP envelope.
+     */
+    public static BsidcaRequestFingerprint of(byte[] body) {
+        return compute(body, false);
+    }
+
+    /**
+     * Computes the shape of a SOAP request: its fingerprint with the values of
+     * the elements holding personal data left out, so that the request and
+     * its anonymized copy have the same shape.
+     *
+     * @param body The body of the request, anonymized or not.
+     * @return The shape, with the UNKNOWN_OPERATION if the body is not a SOAP
+     *         envelope.
+     */
+    public static BsidcaRequestFingerprint shapeOf(byte[] body) {
+        return compute(body, true);
+    }
+
+    /**
+     * Computes the fingerprint or the shape of a SOAP request.
+     *
+     * @param body         The body of the request.
+     * @param skipPersonal Whether the values of the elements holding personal
+     *                     data are left out.
+     * @return The fingerprint, with the UNKNOWN_OPERATION if the body is not a
+     *         SOAP envelope.
+     */
+    private static BsidcaRequestFingerprint compute(byte[] body, boolean skipPersonal) {
+        String operation = null;
+        Deque<String> elements = new ArrayDeque<>();
+        long hash = 0xcbf29ce484222325L;
+        boolean inBody = false;
+        StringBuilder text = new StringBuilder();
+        try {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(body));
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (!inBody) {
+                            inBody = "Body".equals(name);
+                            continue;
+                        }
+                        if (operation == null) {
+                            operation = name;
+                        }
+                        hash = mix(hash, text.toString().trim());
+                        text.setLength(0);
+                        hash = mix(hash, "<" + name);
+                        elements.push(name.toLowerCase(Locale.ROOT));
+                    } else if (event == XMLStreamConstants.END_ELEMENT && inBody) {
+                        boolean personal = skipPersonal && BsidcaAnonymizer.isPersonal(elements);
+                        hash = mix(hash, personal ? "" : text.toString().trim());
+                        text.setLength(0);
+                        hash = mix(hash, ">");
+                        elements.poll();
+                    } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                            && inBody) {
+                        text.append(reader.getText());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            return new BsidcaRequestFingerprint(UNKNOWN_OPERATION, 0);
+        }
+        return new BsidcaRequestFingerprint(operation == null ? UNKNOWN_OPERATION : operation, hash);
+    }
+
+    /**
+     * Mixes a string into a 64-bit FNV-1a hash.
+     *
+     * @param hash  The hash so far.
+     * @param value The string to mix in.
+     * @return The new hash.
+     */
+    private static long mix(long hash, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        // Separate the values so that "ab" + "c" and "a" + "bc" differ
+        hash ^= 0xff;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+
+    /**
+     * Creates the factory of the readers parsing the requests.
+     *
+     * @return The XML input factory.
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Gets the operation of the request.
+     *
+     * @return The name of the first element of the SOAP body.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the hash of the names and values of the elements of the body.
+     *
+     * @return The hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Compares this fingerprint with another object.
+     *
+     * @param other The object to compare with.
+     * @return true if the other object is the fingerprint of the same request.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BsidcaRequestFingerprint)) {
+            return false;
+        }
+        BsidcaRequestFingerprint that = (BsidcaRequestFingerprint) other;
+        return hash == that.hash && operation.equals(that.operation);
+    }
+
+    /**
+     * Computes the hash code of this fingerprint.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, hash);
+    }
+
+    /**
+     * Describes this fingerprint for the logs.
+     *
+     * @return The operation and the hash of the request.
+     */
+    @Override
+    public String toString() {
+        return operation + "#" + Long.toHexString(hash);
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRetryPolicy class retries the idempotent BSIDCA operations that
+ * failed with a retryable fault (see BsidcaFaults.isRetryable()). The delay
+ * before each retry grows exponentially and is drawn at random below that
+ * bound ("full jitter"), so that the retries of concurrent requests do not
+ * hit the service at the same time. Every retry is paid for with a token
+ * of a global retry budget: each first attempt deposits a fraction of a
+ * token and a small number of tokens is added every second, so retries
+ * stay a bounded fraction of the traffic and cannot amplify an outage.
+ * The number of retries per operation is exported as metrics.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.rmi.RemoteException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaRetryPolicy {
+
+    /**
+     * This is the logger instance for the BsidcaRetryPolicy class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaRetryPolicy.class.getName());
+
+    /**
+     * The number of budget units making up one retry token. The budget is kept
+     * in units so that fractions of a token can be deposited.
+     */
+    private static final long UNITS_PER_TOKEN = 1000;
+
+    /**
+     * One attempt of a BSIDCA call.
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+
+        /**
+         * Makes one attempt of the call.
+         *
+         * @return The response of the web service call.
+         * @throws RemoteException if the BSIDCA web service call fails.
+         */
+        T run() throws RemoteException;
+    }
+
+    /**
+     * The resilience settings holding the retry configuration.
+     */
+    private final ResilienceSettings settings;
+
+    /**
+     * The registry the retry metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The number of budget units deposited by every first attempt.
+     */
+    private final long depositUnits;
+
+    /**
+     * The maximum number of budget units the budget can hold.
+     */
+    private final long maxBalanceUnits;
+
+    /**
+     * The current balance of the retry budget, in units.
+     */
+    private long balanceUnits;
+
+    /**
+     * The last time the per-second allowance was added to the budget, in
+     * nanoseconds.
+     */
+    private long lastRefillNanos = System.nanoTime();
+
+    /**
+     * Constructor for the BsidcaRetryPolicy class.
+     *
+     * @param settings      The resilience settings holding the retry
+     *                      configuration.
+     * @param meterRegistry The registry the retry metrics are published to.
+     */
+    public BsidcaRetryPolicy(ResilienceSettings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.depositUnits = settings.getRetryBudgetPercent() * UNITS_PER_TOKEN / 100;
+        this.maxBalanceUnits = Math.max(1, settings.getRetryBudgetMinPerSecond()) * 10 * UNITS_PER_TOKEN;
+        this.balanceUnits = this.maxBalanceUnits;
+
+        Gauge.builder("bsidca.client.retry.budget", this, BsidcaRetryPolicy::getAvailableTokens)
+                .description("Number of retries the BSIDCA retry budget currently allows")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Makes a call, retrying it while it fails with a retryable fault, the
+     * operation is idempotent, the maximum number of attempts is not reached,
+     * the retry budget allows it and the deadline of the request leaves time
+     * for another attempt after the backoff.
+     *
+     * @param operation The BSIDCA operation being invoked.
+     * @param attempt   One attempt of the call.
+     * @return The response of the web service call.
+     * @throws RemoteException if the last attempt fails.
+     */
+    public <T> T execute(BsidcaOperation operation, Attempt<T> attempt) throws RemoteException {
+        if (!operation.isIdempotent()) {
+            return attempt.run();
+        }
+
+        deposit();
+        int maxAttempts = settings.getRetryMaxAttempts();
+        for (int attemptNumber = 1;; attemptNumber++) {
+            try {
+                return attempt.run();
+            } catch (RemoteException e) {
+                if (attemptNumber >= maxAttempts || !BsidcaFaults.isRetryable(e)) {
+                    throw e;
+                }
+                if (!withdraw()) {
+                    countRejectedRetry(operation);
+                    Log.log(Level.FINE, "BSIDCA retry budget exhausted, not retrying {0}", operation);
+                    throw e;
+                }
+                long backoffMs = computeBackoffMs(attemptNumber);
+                if (BsidcaDeadline.remainingMs(Long.MAX_VALUE) <= backoffMs) {
+                    Log.log(Level.FINE, "Not retrying {0}, the deadline of the request would expire first",
+                            operation);
+                    throw e;
+                }
+                Log.log(Level.FINE, String.format("Retrying BSIDCA %s call in %d ms (attempt# %d/%d)", operation,
+                        backoffMs, attemptNumber + 1, maxAttempts), e);
+                countRetry(operation);
+                if (!sleep(backoffMs)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the delay before a retry, drawn at random between 0 and an
+     * exponentially growing bound capped by the maximum backoff.
+     *
+     * @param attemptNumber The number of the attempt that just failed.
+     * @return The delay before the next attempt, in milliseconds.
+     */
+    private long computeBackoffMs(int attemptNumber) {
+        long bound = settings.getRetryInitialBackoffMs() << Math.min(20, attemptNumber - 1);
+        bound = Math.min(settings.getRetryMaxBackoffMs(), bound);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Waits before a retry.
+     *
+     * @param backoffMs The delay to wait, in milliseconds.
+     * @return true if the delay elapsed, false if the thread was interrupted.
+     */
+    private static boolean sleep(long backoffMs) {
+        try {
+            Thread.sleep(backoffMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Deposits the share of a first attempt into the retry budget.
+     */
+    private synchronized void deposit() {
+        refill();
+        balanceUnits = Math.min(maxBalanceUnits, balanceUnits + depositUnits);
+    }
+
+    /**
+     * Withdraws one retry token from the retry budget.
+     *
+     * @return true if a token was available, false if the budget is exhausted.
+     */
+    private synchronized boolean withdraw() {
+        refill();
+        if (balanceUnits < UNITS_PER_TOKEN) {
+            return false;
+        }
+        balanceUnits -= UNITS_PER_TOKEN;
+        return true;
+    }
+
+    /**
+     * Adds the per-second allowance of retries for the time elapsed since the
+     * last refill.
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsedNanos = now - lastRefillNanos;
+        long units = elapsedNanos * settings.getRetryBudgetMinPerSecond() * UNITS_PER_TOKEN / 1_000_000_000L;
+        if (units > 0) {
+            balanceUnits = Math.min(maxBalanceUnits, balanceUnits + units);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Gets the number of retries the budget currently allows.
+     *
+     * @return The number of available retry tokens.
+     */
+    public synchronized double getAvailableTokens() {
+        refill();
+        return (double) balanceUnits / UNITS_PER_TOKEN;
+    }
+
+    /**
+     * Counts a retry of an operation.
+     *
+     * @param operation The BSIDCA operation retried.
+     */
+    private void countRetry(BsidcaOperation operation) {
+        Counter.builder("bsidca.client.retries")
+                .description("Number of BSIDCA calls retried")
+                .tag("operation", operation.getValue())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts a retry of an operation denied by the retry budget.
+     *
+     * @param operation The BSIDCA operation not retried.
+     */
+    private void countRejectedRetry(BsidcaOperation operation) {
+        Counter.builder("bsidca.client.retries.rejected")
+                .description("Number of BSIDCA retries denied by the retry budget")
+                .tag("operation", operation.getValue())
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaRouter class balances the BSIDCA calls across the endpoints
+ * listed in the settings. Every call goes to the admitted endpoint with the
+ * lowest cost, the product of its moving average latency and its number of
+ * calls in progress, so that a slow or busy front end receives fewer calls
+ * without being starved. An endpoint whose calls fail at the transport level
+ * several times in a row is ejected from the routing; once the ejection time
+ * has elapsed, a background prober pings it and admits it again if the ping
+ * succeeds. When every endpoint is ejected or unauthenticated, the calls are
+ * spread over all of them rather than refused. The decisions of the router
+ * are published as metrics tagged by endpoint.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.axis2.AxisFault;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaRouter {
+
+    /**
+     * This is the logger instance for the BsidcaRouter class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaRouter.class.getName());
+
+    /**
+     * The endpoints the calls are balanced across.
+     */
+    private final List<BsidcaEndpoint> endpoints;
+
+    /**
+     * The routing settings.
+     */
+    private final RoutingSettings routing;
+
+    /**
+     * The registry the routing metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The single thread probing the ejected endpoints.
+     */
+    private final ScheduledExecutorService prober;
+
+    /**
+     * Constructor for the BsidcaRouter class. Registers the gauges of every
+     * endpoint.
+     *
+     * @param endpoints     The endpoints the calls are balanced across.
+     * @param routing       The routing settings.
+     * @param meterRegistry The registry the routing metrics are published to.
+     */
+    public BsidcaRouter(List<BsidcaEndpoint> endpoints, RoutingSettings routing, MeterRegistry meterRegistry) {
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.routing = routing;
+        this.meterRegistry = meterRegistry;
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bsidca-router-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (BsidcaEndpoint endpoint : this.endpoints) {
+            Gauge.builder("bsidca.router.outstanding", endpoint, BsidcaEndpoint::getOutstanding)
+                    .description("Number of BSIDCA calls in progress on an endpoint")
+                    .tag("endpoint", endpoint.getName())
+                    .register(meterRegistry);
+            Gauge.builder("bsidca.router.latency.ewma", endpoint, BsidcaEndpoint::getLatencyEwmaMs)
+                    .description("Moving average of the latency of the BSIDCA calls made on an endpoint")
+                    .baseUnit("milliseconds")
+                    .tag("endpoint", endpoint.getName())
+                    .register(meterRegistry);
+            Gauge.builder("bsidca.router.endpoint.admitted", endpoint, e -> e.isEjected() ? 0 : 1)
+                    .description("Whether an endpoint receives BSIDCA calls (1) or is ejected (0)")
+                    .tag("endpoint", endpoint.getName())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Starts the health monitors of the endpoints and the prober of the
+     * ejected endpoints.
+     */
+    public void start() {
+        for (BsidcaEndpoint endpoint : endpoints) {
+            endpoint.start();
+        }
+        long intervalMs = routing.getProbeIntervalMs();
+        prober.scheduleWithFixedDelay(this::probeEjected, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        Log.log(Level.INFO, "BSIDCA router started with {0} endpoint(s)", endpoints.size());
+    }
+
+    /**
+     * Stops the prober and the health monitors, and releases the stubs of every
+     * endpoint.
+     */
+    public void shutdown() {
+        prober.shutdownNow();
+        for (BsidcaEndpoint endpoint : endpoints) {
+            endpoint.shutdown();
+        }
+    }
+
+    /**
+     * Selects the endpoint the next call is sent to: the admitted endpoint with
+     * an authenticated session and the lowest cost. The scan starts at a random
+     * endpoint so that ties are broken evenly. If no endpoint is admitted, the
+     * call goes to the cheapest endpoint of all.
+     *
+     * @return The selected endpoint.
+     * @throws AxisFault if no endpoint is configured.
+     */
+    public BsidcaEndpoint select() throws AxisFault {
+        int size = endpoints.size();
+        if (size == 0) {
+            throw new AxisFault("No BSIDCA endpoint is configured");
+        }
+
+        BsidcaEndpoint selected = cheapest(true);
+        if (selected == null) {
+            // Every endpoint is ejected or down: spread the calls rather than refuse them
+            selected = cheapest(false);
+        }
+
+        Counter.builder("bsidca.router.requests")
+                .description("Number of BSIDCA calls routed to an endpoint")
+                .tag("endpoint", selected.getName())
+                .register(meterRegistry)
+                .increment();
+        return selected;
+    }
+
+    /**
+     * Finds the endpoint with the lowest cost.
+     *
+     * @param routableOnly Whether to skip the endpoints that are ejected or have
+     *                     no authenticated session.
+     * @return The cheapest endpoint, or null if none qualifies.
+     */
+    private BsidcaEndpoint cheapest(boolean routableOnly) {
+        int size = endpoints.size();
+        int start = size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size);
+        BsidcaEndpoint cheapest = null;
+        double lowestCost = Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            BsidcaEndpoint endpoint = endpoints.get((start + i) % size);
+            if (routableOnly && !endpoint.isRoutable()) {
+                continue;
+            }
+            double cost = endpoint.getCost();
+            if (cheapest == null || cost < lowestCost) {
+                cheapest = endpoint;
+                lowestCost = cost;
+            }
+        }
+        return cheapest;
+    }
+
+    /**
+     * Records the outcome of a call made on an endpoint, and ejects the
+     * endpoint if too many calls in a row failed at the transport level. The
+     * SOAP faults returned by the server do not count as failures.
+     *
+     * @param endpoint         The endpoint the call was made on.
+     * @param durationMs       The duration of the call, in milliseconds.
+     * @param transportFailure Whether the call failed at the transport level.
+     */
+    public void onResult(BsidcaEndpoint endpoint, long durationMs, boolean transportFailure) {
+        int failures = endpoint.onCallCompleted(durationMs, transportFailure);
+        if (failures < routing.getEjectAfterFailures() || endpoint.isEjected()) {
+            return;
+        }
+
+        synchronized (endpoint) {
+            if (endpoint.isEjected()) {
+                return;
+            }
+            endpoint.eject();
+        }
+        String warningMessage = String.format(
+                "BSIDCA endpoint %s ejected after %d consecutive transport failures, probing it again in %d ms",
+                endpoint.getName(), failures, routing.getEjectionMs());
+        Log.warning(warningMessage);
+        Counter.builder("bsidca.router.ejections")
+                .description("Number of times an endpoint was ejected from the routing")
+                .tag("endpoint", endpoint.getName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Probes every endpoint whose ejection time has elapsed.
+     */
+    void probeEjected() {
+        try {
+            long now = System.currentTimeMillis();
+            for (BsidcaEndpoint endpoint : endpoints) {
+                if (endpoint.isEjected() && now - endpoint.getEjectedAt() >= routing.getEjectionMs()) {
+                    probe(endpoint);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled probes
+            Log.log(Level.WARNING, "BSIDCA endpoint probe failed", e);
+        }
+    }
+
+    /**
+     * Pings an idle session of an ejected endpoint. The endpoint is admitted
+     * again if the ping succeeds, and stays ejected for another ejection time
+     * otherwise. The sessions of an endpoint that is down are parked, so an
+     * endpoint without an idle session fails the probe until its health
+     * monitor has reconnected one.
+     *
+     * @param endpoint The ejected endpoint.
+     */
+    private void probe(BsidcaEndpoint endpoint) {
+        BsidcaSessionPool sessionPool = endpoint.getSessionPool();
+        boolean healthy = false;
+        for (BsidcaSession session : sessionPool.getSessions()) {
+            if (sessionPool.acquireIdle(session)) {
+                try {
+                    healthy = session.ping();
+                } finally {
+                    sessionPool.release(session);
+                }
+                break;
+            }
+        }
+
+        if (!healthy) {
+            Log.log(Level.FINE, "BSIDCA endpoint {0} failed its probe and stays ejected", endpoint.getName());
+            endpoint.eject();
+            return;
+        }
+
+        endpoint.readmit();
+        Log.log(Level.INFO, "BSIDCA endpoint {0} passed its probe and is admitted again", endpoint.getName());
+        Counter.builder("bsidca.router.readmissions")
+                .description("Number of times an ejected endpoint was admitted again after a probe")
+                .tag("endpoint", endpoint.getName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Gets the endpoints the calls are balanced across.
+     *
+     * @return An unmodifiable list of the endpoints.
+     */
+    public List<BsidcaEndpoint> getEndpoints() {
+        return endpoints;
+    }
+}
@@ -0,0 +1,514 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaSession class represents one independently authenticated operator
+ * session against the SafeNet (BSIDCA) web service. Each session owns its own
+ * BSIDCAStub and its own cookie store, while the Axis2 ConfigurationContext
+ * and the HTTP client are shared by every session of the BsidcaSessionPool.
+ * A session is used by a single thread at a time: it is leased from the pool,
+ * used for one call and returned afterwards. Its BsidcaSessionState is
+ * updated after every call, health check and Connect call. Every call is made
+ * with its own socket timeout, which both the stub and the lean codec apply.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.cryptocard.www.blackshield.ConnectDocument;
+import com.cryptocard.www.blackshield.ConnectResponseDocument;
+import com.cryptocard.www.blackshield.PingConnectionDocument;
+import com.thalesdemo.soap.bsidca.BSIDCAStub;
+import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.context.OperationContext;
+import org.apache.axis2.kernel.http.HTTPConstants;
+import org.apache.axis2.transport.http.CommonsTransportHeaders;
+import org.apache.axis2.wsdl.WSDLConstants;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.BasicCookieStore;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaSession {
+
+    /**
+     * This is the logger instance for the BsidcaSession class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaSession.class.getName());
+
+    /**
+     * The session bound to the current thread while one of its calls is in
+     * progress. The shared HTTP client reads it to pick the cookie store of the
+     * session, so that the sessions never see each other's cookies.
+     */
+    private static final ThreadLocal<BsidcaSession> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The identifier of the session within its pool, used for logging.
+     */
+    private final int id;
+
+    /**
+     * The SafeNet BSIDCA web service stub owned by this session.
+     */
+    private final BSIDCAStub stub;
+
+    /**
+     * The lean codec of the endpoint of this session, or null to make every
+     * call with the stub.
+     */
+    private final BsidcaSoapCodec soapCodec;
+
+    /**
+     * The socket timeout of the calls made without a timeout of their own, in
+     * milliseconds.
+     */
+    private final int defaultTimeoutMs;
+
+    /**
+     * The longest time a call waits for a connection to be established, in
+     * milliseconds.
+     */
+    private final int connectTimeoutMs;
+
+    /**
+     * The timeouts of the call in progress, read by the lean codec.
+     */
+    private volatile RequestConfig requestConfig;
+
+    /**
+     * The BSIDCA operation of the call in progress, or null if unknown.
+     */
+    private volatile BsidcaOperation callOperation;
+
+    /**
+     * The organization the call in progress acts on, or null.
+     */
+    private volatile String callOrganization;
+
+    /**
+     * The cookies (including the BSIDCA session cookie) of this session.
+     */
+    private final CookieStore cookieStore = new BasicCookieStore();
+
+    /**
+     * The current state of this session. A session is not authenticated until
+     * its first Connect call succeeds.
+     */
+    private final AtomicReference<BsidcaSessionState> state = new AtomicReference<>(
+            BsidcaSessionState.RECONNECTING);
+
+    /**
+     * The number of failed Connect calls made since this session was last
+     * authenticated.
+     */
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+
+    /**
+     * The number of consecutive failed calls made with this session.
+     */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * The total number of times this session has been leased.
+     */
+    private final AtomicLong leaseCount = new AtomicLong();
+
+    /**
+     * The time of the last successful Connect call, in epoch milliseconds.
+     */
+    private volatile long connectedAt;
+
+    /**
+     * The time of the last call made with this session, in epoch milliseconds.
+     */
+    private volatile long lastUsedAt;
+
+    /**
+     * Constructor for the BsidcaSession class.
+     *
+     * @param id        The identifier of the session within its pool.
+     * @param stub      The BSIDCA web service stub owned by this session.
+     * @param soapCodec The lean codec of the endpoint of this session, or null
+     *                  to make every call with the stub.
+     * @param httpPool  The settings holding the default timeouts of the calls.
+     */
+    public BsidcaSession(int id, BSIDCAStub stub, BsidcaSoapCodec soapCodec, HttpPoolSettings httpPool) {
+        this.id = id;
+        this.stub = stub;
+        this.soapCodec = soapCodec;
+        this.defaultTimeoutMs = httpPool.getSocketTimeoutMs();
+        this.connectTimeoutMs = httpPool.getConnectTimeoutMs();
+    }
+
+    /**
+     * Returns the session bound to the current thread, if any.
+     *
+     * @return The session whose call is in progress on this thread, or null.
+     */
+    public static BsidcaSession current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Executes a web service call with this session bound to the current
+     * thread, with the default socket timeout.
+     *
+     * @param call The web service call to execute.
+     * @return The response of the web service call.
+     * @throws RemoteException if the BSIDCA web service call fails.
+     */
+    public <T> T execute(BsidcaCall<T> call) throws RemoteException {
+        return execute(null, null, call, defaultTimeoutMs);
+    }
+
+    /**
+     * Executes a web service call with this session bound to the current
+     * thread, with the given socket timeout. The connect timeout is the
+     * configured one, or the socket timeout if that is shorter. The operation
+     * and organization of the call tag the sizes of its request and response.
+     *
+     * @param operation    The BSIDCA operation of the call, or null if unknown.
+     * @param organization The organization the call acts on, or null.
+     * @param call         The web service call to execute.
+     * @param timeoutMs    The socket timeout of the call, in milliseconds.
+     * @return The response of the web service call.
+     * @throws RemoteException if the BSIDCA web service call fails.
+     */
+    public <T> T execute(BsidcaOperation operation, String organization, BsidcaCall<T> call, int timeoutMs)
+            throws RemoteException {
+        int callConnectTimeoutMs = Math.min(timeoutMs, connectTimeoutMs);
+        // Axis2 sets its own timeouts on every request, so pass the ones of this call
+        stub._getServiceClient().getOptions().setProperty(HTTPConstants.SO_TIMEOUT, timeoutMs);
+        stub._getServiceClient().getOptions().setProperty(HTTPConstants.CONNECTION_TIMEOUT, callConnectTimeoutMs);
+        requestConfig = RequestConfig.custom()
+                .setSocketTimeout(timeoutMs)
+                .setConnectTimeout(callConnectTimeoutMs)
+                .setConnectionRequestTimeout(timeoutMs)
+                .build();
+        callOperation = operation;
+        callOrganization = organization;
+
+        BsidcaSession previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            lastUsedAt = System.currentTimeMillis();
+            return call.call(this);
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Authenticates this session with the BSIDCA service using the operator
+     * email and password from the settings.
+     *
+     * @param settings The application settings holding the operator credentials.
+     * @return true if the operator was authenticated, false otherwise.
+     */
+    public boolean connect(Settings settings) {
+        // Clear any cookie left over from a previous, expired session
+        cookieStore.clear();
+
+        ConnectDocument connectDocument = ConnectDocument.Factory.newInstance();
+
+        // Use the ConnectDocument instance to set the properties
+        ConnectDocument.Connect data = connectDocument.addNewConnect();
+        data.setOperatorEmail(settings.getUsername());
+        data.setOTP(settings.getPassword());
+        data.setValidationCode(null);
+
+        try {
+            // call the web service
+            ConnectResponseDocument crd = execute(BsidcaOperation.CONNECT, null,
+                    session -> session.getStub().connect(connectDocument), defaultTimeoutMs);
+            logResponseHeaders();
+
+            boolean result = crd.getConnectResponse().getConnectResult();
+            Log.log(Level.INFO, "Authentication result of BSIDCA session #{0}: {1}", new Object[] { id, result });
+
+            if (result) {
+                connectedAt = System.currentTimeMillis();
+                consecutiveFailures.set(0);
+                reconnectAttempts.set(0);
+                state.set(BsidcaSessionState.CONNECTED);
+            } else {
+                reconnectAttempts.incrementAndGet();
+                state.set(BsidcaSessionState.RECONNECTING);
+            }
+            return result;
+        } catch (Exception e) {
+            Log.log(Level.SEVERE, String.format("Failed to connect BSIDCA session #%d! ", id), e);
+            reconnectAttempts.incrementAndGet();
+            state.set(BsidcaSessionState.RECONNECTING);
+            return false;
+        }
+    }
+
+    /**
+     * Pings this session to check if it is still active, and updates its state
+     * accordingly: a positive answer moves the session to CONNECTED, a negative
+     * answer means the operator session has expired and moves it to
+     * RECONNECTING, and a failed call moves an authenticated session to
+     * DEGRADED.
+     *
+     * @return true if the session is still active, false otherwise.
+     */
+    public boolean ping() {
+        try {
+            boolean pingResult = execute(BsidcaOperation.PING_CONNECTION, null,
+                    session -> session.callPingConnection(), defaultTimeoutMs);
+            Log.log(Level.FINE, "BSIDCA session #{0} connection status: {1}", new Object[] { id, pingResult });
+            if (pingResult) {
+                consecutiveFailures.set(0);
+                state.set(BsidcaSessionState.CONNECTED);
+            } else {
+                state.set(BsidcaSessionState.RECONNECTING);
+            }
+            return pingResult;
+        } catch (RemoteException e) {
+            Log.log(Level.FINE, String.format("BSIDCA session #%d could not be pinged", id), e);
+            recordResult(false);
+            return false;
+        }
+    }
+
+    /**
+     * Makes a PingConnection call with the lean codec, falling back to the stub
+     * if the codec is not used or could not decode the response.
+     *
+     * @return The result of the PingConnection call.
+     * @throws RemoteException if the call fails.
+     */
+    private boolean callPingConnection() throws RemoteException {
+        if (soapCodec != null) {
+            try {
+                return soapCodec.pingConnection();
+            } catch (BsidcaCodecException e) {
+                Log.log(Level.WARNING, "Could not decode the PingConnection response, falling back to XMLBeans", e);
+            }
+        }
+        PingConnectionDocument pingDocument = PingConnectionDocument.Factory.newInstance();
+        return stub.pingConnection(pingDocument).getPingConnectionResponse().getPingConnectionResult();
+    }
+
+    /**
+     * Prints the HTTP headers of the last response received by this session's
+     * stub - DEBUG PURPOSES ONLY. The operation context is read from this
+     * session's own stub, which is not shared with any other thread.
+     */
+    private void logResponseHeaders() {
+        if (!Log.isLoggable(Level.FINEST)) {
+            return;
+        }
+        OperationContext operationContext = stub._getServiceClient().getLastOperationContext();
+        if (operationContext == null) {
+            return;
+        }
+        try {
+            MessageContext msgCtx = operationContext.getMessageContext(WSDLConstants.MESSAGE_LABEL_IN_VALUE);
+            CommonsTransportHeaders cth = (CommonsTransportHeaders) msgCtx
+                    .getProperty(MessageContext.TRANSPORT_HEADERS);
+            for (Map.Entry<String, String> entry : cth.entrySet()) {
+                Log.finest(entry.getKey() + ": " + entry.getValue());
+            }
+        } catch (Exception e) {
+            Log.log(Level.FINEST, "Could not read the BSIDCA response headers", e);
+        }
+    }
+
+    /**
+     * Records the outcome of a call made with this session. A successful call
+     * moves an authenticated session to CONNECTED and a failed call moves it to
+     * DEGRADED. A session waiting for a new Connect call stays RECONNECTING.
+     *
+     * @param success Whether the call succeeded.
+     */
+    public void recordResult(boolean success) {
+        if (success) {
+            consecutiveFailures.set(0);
+            state.compareAndSet(BsidcaSessionState.DEGRADED, BsidcaSessionState.CONNECTED);
+        } else {
+            consecutiveFailures.incrementAndGet();
+            state.compareAndSet(BsidcaSessionState.CONNECTED, BsidcaSessionState.DEGRADED);
+        }
+    }
+
+    /**
+     * Marks this session as requiring a new Connect call before its next use.
+     */
+    public void invalidate() {
+        state.set(BsidcaSessionState.RECONNECTING);
+    }
+
+    /**
+     * Records that this session has been leased.
+     */
+    void onLease() {
+        leaseCount.incrementAndGet();
+    }
+
+    /**
+     * Releases the resources held by this session's stub.
+     */
+    void close() {
+        try {
+            stub._getServiceClient().cleanup();
+        } catch (Exception e) {
+            Log.log(Level.FINE, "Could not clean up the service client of BSIDCA session #" + id, e);
+        }
+    }
+
+    /**
+     * Gets the identifier of the session within its pool.
+     *
+     * @return The identifier of the session.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the BSIDCA web service stub owned by this session.
+     *
+     * @return The BSIDCA web service stub.
+     */
+    public BSIDCAStub getStub() {
+        return stub;
+    }
+
+    /**
+     * Gets the lean codec of the endpoint of this session, which posts to the
+     * same address as the stub.
+     *
+     * @return The codec, or null if every call is made with the stub.
+     */
+    public BsidcaSoapCodec getSoapCodec() {
+        return soapCodec;
+    }
+
+    /**
+     * Gets the timeouts of the call in progress, for the requests the lean
+     * codec makes on behalf of this session.
+     *
+     * @return The timeouts of the call in progress.
+     */
+    public RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * Gets the BSIDCA operation of the call in progress.
+     *
+     * @return The operation, or null if unknown.
+     */
+    public BsidcaOperation getCallOperation() {
+        return callOperation;
+    }
+
+    /**
+     * Gets the organization the call in progress acts on.
+     *
+     * @return The organization, or null.
+     */
+    public String getCallOrganization() {
+        return callOrganization;
+    }
+
+    /**
+     * Gets the cookie store of this session.
+     *
+     * @return The cookie store of this session.
+     */
+    public CookieStore getCookieStore() {
+        return cookieStore;
+    }
+
+    /**
+     * Gets the current state of this session.
+     *
+     * @return The state of this session.
+     */
+    public BsidcaSessionState getState() {
+        return state.get();
+    }
+
+    /**
+     * Returns whether this session is authenticated.
+     *
+     * @return true if the last Connect call succeeded and the session has not
+     *         been invalidated since.
+     */
+    public boolean isAuthenticated() {
+        return state.get() != BsidcaSessionState.RECONNECTING;
+    }
+
+    /**
+     * Gets the number of failed Connect calls made since this session was last
+     * authenticated.
+     *
+     * @return The number of reconnect attempts.
+     */
+    public int getReconnectAttempts() {
+        return reconnectAttempts.get();
+    }
+
+    /**
+     * Gets the number of consecutive failed calls made with this session.
+     *
+     * @return The number of consecutive failures.
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * Gets the total number of times this session has been leased.
+     *
+     * @return The number of leases.
+     */
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    /**
+     * Gets the time of the last successful Connect call.
+     *
+     * @return The time in epoch milliseconds, or 0 if never connected.
+     */
+    public long getConnectedAt() {
+        return connectedAt;
+    }
+
+    /**
+     * Gets the time of the last call made with this session.
+     *
+     * @return The time in epoch milliseconds, or 0 if never used.
+     */
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaSessionMetrics class publishes the lifecycle of the sessions of
+ * one BSIDCA endpoint: the age and idle time of every session, the number
+ * of spare sessions, and counters of the keep-alive refreshes, the swaps of
+ * a spare session for an expired one, and the rotations of old sessions.
+ * Every meter is tagged with the name of the endpoint.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.function.ToDoubleFunction;
+
+public class BsidcaSessionMetrics {
+
+    /**
+     * The name of the endpoint the sessions belong to.
+     */
+    private final String endpoint;
+
+    /**
+     * The registry the session metrics are published to.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructor for the BsidcaSessionMetrics class. Registers the gauges of
+     * every session of the pool, and of the sessions added as it grows.
+     *
+     * @param endpoint      The name of the endpoint the sessions belong to.
+     * @param sessionPool   The pool of sessions of the endpoint.
+     * @param meterRegistry The registry the session metrics are published to.
+     */
+    public BsidcaSessionMetrics(String endpoint, BsidcaSessionPool sessionPool, MeterRegistry meterRegistry) {
+        this.endpoint = endpoint;
+        this.meterRegistry = meterRegistry;
+
+        for (BsidcaSession session : sessionPool.getSessions()) {
+            registerSession(session);
+        }
+        sessionPool.setSessionListener(this::registerSession);
+        Gauge.builder("bsidca.session.spares", sessionPool, BsidcaSessionPool::getSpare)
+                .description("Number of authenticated spare BSIDCA sessions kept aside")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        registerOccupancy(sessionPool, "available", BsidcaSessionPool::getAvailable);
+        registerOccupancy(sessionPool, "leased", BsidcaSessionPool::getLeased);
+        registerOccupancy(sessionPool, "parked", BsidcaSessionPool::getParked);
+    }
+
+    /**
+     * Registers the gauges of the age and idle time of a session.
+     *
+     * @param session The session.
+     */
+    private void registerSession(BsidcaSession session) {
+        String id = String.valueOf(session.getId());
+        Gauge.builder("bsidca.session.age", session, s -> elapsedSeconds(s.getConnectedAt()))
+                .description("Time since a BSIDCA session was last authenticated")
+                .baseUnit("seconds")
+                .tag("endpoint", endpoint)
+                .tag("session", id)
+                .register(meterRegistry);
+        Gauge.builder("bsidca.session.idle", session, s -> elapsedSeconds(s.getLastUsedAt()))
+                .description("Time since a BSIDCA session last made a call")
+                .baseUnit("seconds")
+                .tag("endpoint", endpoint)
+                .tag("session", id)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the gauge of the number of sessions of the pool in one state.
+     *
+     * @param sessionPool The pool of sessions of the endpoint.
+     * @param state       The state of the sessions: "available", "leased" or
+     *                    "parked".
+     * @param count       The function counting the sessions in the state.
+     */
+    private void registerOccupancy(BsidcaSessionPool sessionPool, String state,
+            ToDoubleFunction<BsidcaSessionPool> count) {
+        Gauge.builder("bsidca.session.pool", sessionPool, count)
+                .description("Number of BSIDCA sessions of the pool available, leased or parked")
+                .tag("endpoint", endpoint)
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Computes the time elapsed since an instant.
+     *
+     * @param since The instant, in epoch milliseconds, or 0 if it never
+     *              happened.
+     * @return The elapsed time in seconds, or 0 if the instant never happened.
+     */
+    private static double elapsedSeconds(long since) {
+        return since == 0 ? 0 : (System.currentTimeMillis() - since) / 1000.0;
+    }
+
+    /**
+     * Counts a keep-alive refresh of an idle session.
+     *
+     * @param outcome The outcome of the refresh: "success", "expired" or
+     *                "failed".
+     */
+    public void recordRefresh(String outcome) {
+        Counter.builder("bsidca.session.refreshes")
+                .description("Number of idle BSIDCA sessions refreshed ahead of their expiry")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts a swap of a spare session for a session that expired during a
+     * call.
+     */
+    public void recordSwap() {
+        Counter.builder("bsidca.session.swaps")
+                .description("Number of expired BSIDCA sessions replaced with a spare session during a call")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts a rotation of a session that reached its maximum age.
+     *
+     * @param success Whether the session was authenticated again.
+     */
+    public void recordRotation(boolean success) {
+        Counter.builder("bsidca.session.rotations")
+                .description("Number of BSIDCA sessions authenticated again after reaching their maximum age")
+                .tag("endpoint", endpoint)
+                .tag("outcome", success ? "success" : "failed")
+                .register(meterRegistry)
+                .increment();
+    }
+}
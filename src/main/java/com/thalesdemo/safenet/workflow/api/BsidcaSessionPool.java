@@ -0,0 +1,589 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaSessionPool class keeps a fixed number of independently
+ * authenticated BsidcaSession objects. Callers lease a session for the
+ * duration of a single web service call and return it afterwards, so that
+ * concurrent requests no longer share one BSIDCAStub. Every pool talks to a
+ * single BSIDCA endpoint, and the stubs of all the pools share the Axis2
+ * ConfigurationContext and the pooled HTTP client of a BsidcaTransport,
+ * which keeps the memory footprint flat as the pools grow. Sessions
+ * in the RECONNECTING state are parked outside of the pool until the
+ * BsidcaHealthMonitor has authenticated them again. On top of its size, the
+ * pool keeps a few authenticated spare sessions aside, which are swapped in
+ * for a session that expires during a call, so that the call is made again
+ * at once instead of waiting for a Connect call. Unless the XMLBeans
+ * codec is selected in the settings, the pool also holds the BsidcaSoapCodec
+ * that makes the hot calls over the shared HTTP client. When every session
+ * is in use, a caller asks for the pool to grow by one session, up to the
+ * maximum size of the settings, and waits for a session as usual: the new
+ * session is created and authenticated on the thread of the
+ * BsidcaHealthMonitor, which costs a Connect call but no WSDL fetch, and
+ * only joins the sessions that may be leased once authenticated. No caller
+ * ever waits on a Connect call.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.thalesdemo.soap.bsidca.BSIDCAStub;
+import org.apache.axis2.AxisFault;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaSessionPool {
+
+    /**
+     * This is the logger instance for the BsidcaSessionPool class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaSessionPool.class.getName());
+
+    /**
+     * The application settings holding the BSIDCA URL and operator credentials.
+     */
+    private final Settings settings;
+
+    /**
+     * The base URL of the BSIDCA endpoint the sessions talk to.
+     */
+    private final String baseUrl;
+
+    /**
+     * The configuration context and HTTP client shared with the other pools.
+     */
+    private final BsidcaTransport transport;
+
+    /**
+     * The lean codec of the hot BSIDCA operations, or null if the XMLBeans
+     * codec is used for every call.
+     */
+    private final BsidcaSoapCodec soapCodec;
+
+    /**
+     * All the sessions of the pool, leased or not.
+     */
+    private final List<BsidcaSession> sessions;
+
+    /**
+     * The number of sessions the pool may grow to, spare sessions included.
+     */
+    private final int maxSessions;
+
+    /**
+     * The listener told of every session added when the pool grows.
+     */
+    private volatile Consumer<BsidcaSession> sessionListener = session -> {
+    };
+
+    /**
+     * The executor creating and authenticating the sessions added when the
+     * pool grows, or null if the pool does not grow.
+     */
+    private volatile Executor growthExecutor;
+
+    /**
+     * Whether a session is being added to the pool.
+     */
+    private final AtomicBoolean growing = new AtomicBoolean();
+
+    /**
+     * The sessions that are currently available to be leased.
+     */
+    private final BlockingQueue<BsidcaSession> idleSessions;
+
+    /**
+     * The authenticated sessions kept aside to replace the sessions that
+     * expire.
+     */
+    private final BlockingQueue<BsidcaSession> spareSessions;
+
+    /**
+     * The number of spare sessions the pool tries to keep.
+     */
+    private final int spareTarget;
+
+    /**
+     * The sessions that need a new Connect call and must not be leased.
+     */
+    private final Set<BsidcaSession> parkedSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The maximum time to wait for a free session, in milliseconds.
+     */
+    private final long leaseTimeoutMs;
+
+    /**
+     * Constructor for the BsidcaSessionPool class. Creates one stub per session,
+     * spare sessions included, on top of the shared transport. The sessions
+     * are parked until connectAll() or the BsidcaHealthMonitor has
+     * authenticated them.
+     *
+     * @param settings  The application settings used to connect to the BSIDCA
+     *                  web service.
+     * @param baseUrl   The base URL of the BSIDCA endpoint the sessions talk to.
+     * @param transport The configuration context and HTTP client shared with
+     *                  the other pools.
+     * @throws AxisFault if a stub cannot be created.
+     */
+    public BsidcaSessionPool(Settings settings, String baseUrl, BsidcaTransport transport) throws AxisFault {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.transport = transport;
+        this.leaseTimeoutMs = settings.getSessionPool().getLeaseTimeoutMs();
+        HttpPoolSettings httpPool = transport.getHttpPool();
+
+        this.spareTarget = settings.getSessionPool().getSpareSessions();
+        int size = settings.getSessionPool().getSize() + this.spareTarget;
+        List<BsidcaSession> created = new ArrayList<>(size);
+        BsidcaSoapCodec codec = null;
+        for (int i = 1; i <= size; i++) {
+            BSIDCAStub stub = transport.createStub(settings.getBsidcaEndpointUrl(baseUrl));
+            if (i == 1) {
+                codec = createSoapCodec(stub);
+            }
+            created.add(new BsidcaSession(i, stub, codec, httpPool));
+        }
+        this.soapCodec = codec;
+        this.sessions = new CopyOnWriteArrayList<>(created);
+        this.maxSessions = settings.getSessionPool().getMaxSize() + this.spareTarget;
+        this.idleSessions = new LinkedBlockingQueue<>();
+        this.spareSessions = new LinkedBlockingQueue<>();
+        this.parkedSessions.addAll(created);
+
+        Log.log(Level.INFO, "BSIDCA session pool created with {0} session(s), up to {1}, and {2} spare(s) for {3}",
+                new Object[] { size - this.spareTarget, this.maxSessions - this.spareTarget, this.spareTarget,
+                        baseUrl });
+    }
+
+    /**
+     * Creates the lean codec of the hot BSIDCA operations, speaking the same
+     * SOAP version as the stubs of the pool.
+     *
+     * @param stub A stub of the pool.
+     * @return The codec, or null if the XMLBeans codec is selected or the lean
+     *         codec could not be created.
+     */
+    private BsidcaSoapCodec createSoapCodec(BSIDCAStub stub) {
+        if (settings.getSoapCodec() != BsidcaCodec.STAX) {
+            Log.info("The BSIDCA calls use the XMLBeans codec");
+            return null;
+        }
+        try {
+            return new BsidcaSoapCodec(transport.getHttpClient(), settings.getBsidcaEndpointUrl(baseUrl),
+                    stub._getServiceClient().getOptions().getSoapVersionURI());
+        } catch (Exception e) {
+            Log.log(Level.WARNING, "Could not create the StAX codec, the BSIDCA calls use the XMLBeans codec", e);
+            return null;
+        }
+    }
+
+    /**
+     * Authenticates every parked session of the pool and makes the sessions that
+     * were authenticated available to be leased. Called once, on the startup
+     * thread, before the pool serves any call.
+     *
+     * @return The number of sessions successfully authenticated.
+     */
+    public int connectAll() {
+        for (BsidcaSession session : sessions) {
+            if (acquireParked(session)) {
+                session.connect(settings);
+                release(session);
+            }
+        }
+        int connected = getAuthenticated();
+        Log.log(Level.INFO, "{0}/{1} BSIDCA session(s) authenticated", new Object[] { connected, sessions.size() });
+        return connected;
+    }
+
+    /**
+     * Leases a session from the pool, waiting up to the configured lease timeout
+     * for one to become available. The session must be returned with release()
+     * once the call is complete.
+     *
+     * @return The leased session.
+     * @throws AxisFault if no session becomes available before the lease timeout
+     *                   or the calling thread is interrupted.
+     */
+    public BsidcaSession lease() throws AxisFault {
+        return lease(leaseTimeoutMs);
+    }
+
+    /**
+     * Leases a session from the pool, waiting up to the given time for one to
+     * become available. Only authenticated sessions are leased; when none is
+     * idle, the pool is asked to grow in the background. The session must be
+     * returned with release() once the call is complete.
+     *
+     * @param leaseTimeoutMs The longest time to wait for a session, in
+     *                       milliseconds.
+     * @return The leased session.
+     * @throws AxisFault if no session becomes available in time or the calling
+     *                   thread is interrupted.
+     */
+    public BsidcaSession lease(long leaseTimeoutMs) throws AxisFault {
+        try {
+            BsidcaSession session = pollAuthenticated();
+            if (session == null) {
+                requestGrowth();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMs);
+                do {
+                    session = idleSessions.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } while (session != null && !isLeasable(session) && deadline - System.nanoTime() > 0);
+                if (session != null && !isLeasable(session)) {
+                    session = null;
+                }
+            }
+            if (session == null) {
+                throw new AxisFault(String.format("Timed out after %d ms waiting for a BSIDCA session (%d in use)",
+                        leaseTimeoutMs, sessions.size()));
+            }
+            session.onLease();
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AxisFault("Interrupted while waiting for a BSIDCA session", e);
+        }
+    }
+
+    /**
+     * Takes an idle session that is authenticated, parking the idle sessions
+     * found to need a new Connect call on the way.
+     *
+     * @return The idle session, held by the caller, or null if none is idle.
+     */
+    private BsidcaSession pollAuthenticated() {
+        BsidcaSession session;
+        do {
+            session = idleSessions.poll();
+        } while (session != null && !isLeasable(session));
+        return session;
+    }
+
+    /**
+     * Tells whether a session taken from the idle sessions may be leased, and
+     * parks it otherwise.
+     *
+     * @param session The session, held by the caller.
+     * @return true if the session is authenticated, false if it was parked.
+     */
+    private boolean isLeasable(BsidcaSession session) {
+        if (session.isAuthenticated()) {
+            return true;
+        }
+        parkedSessions.add(session);
+        return false;
+    }
+
+    /**
+     * Asks for a session to be added to the pool in the background, unless the
+     * pool is at its maximum size or is already growing.
+     */
+    private void requestGrowth() {
+        Executor executor = growthExecutor;
+        if (executor == null || sessions.size() >= maxSessions || !growing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    grow();
+                } finally {
+                    growing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            growing.set(false);
+        }
+    }
+
+    /**
+     * Adds a session to the pool and authenticates it, if the pool is below its
+     * maximum size. The session is made available to be leased once
+     * authenticated; a session that fails to authenticate is parked until the
+     * BsidcaHealthMonitor reconnects it. Runs on the growth executor, never on
+     * the thread of a caller.
+     */
+    private void grow() {
+        BsidcaSession session;
+        synchronized (sessions) {
+            if (sessions.size() >= maxSessions) {
+                return;
+            }
+            try {
+                BSIDCAStub stub = transport.createStub(settings.getBsidcaEndpointUrl(baseUrl));
+                session = new BsidcaSession(sessions.size() + 1, stub, soapCodec, transport.getHttpPool());
+            } catch (AxisFault e) {
+                Log.log(Level.WARNING, "Could not create a BSIDCA session to grow the pool of " + baseUrl, e);
+                return;
+            }
+            sessions.add(session);
+        }
+        sessionListener.accept(session);
+        Log.log(Level.INFO, "BSIDCA session pool of {0} grown to {1} session(s)",
+                new Object[] { baseUrl, sessions.size() });
+
+        parkedSessions.add(session);
+        if (acquireParked(session)) {
+            session.connect(settings);
+            release(session);
+        }
+    }
+
+    /**
+     * Sets the executor creating and authenticating the sessions added when
+     * the pool grows. Until it is set, the pool keeps its initial size.
+     *
+     * @param growthExecutor The executor, which must not run user calls.
+     */
+    public void setGrowthExecutor(Executor growthExecutor) {
+        this.growthExecutor = growthExecutor;
+    }
+
+    /**
+     * Sets the listener told of every session added when the pool grows.
+     *
+     * @param sessionListener The listener.
+     */
+    public void setSessionListener(Consumer<BsidcaSession> sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
+    /**
+     * Returns a leased session to the pool. A session that needs a new Connect
+     * call is parked instead of being made available to other callers, a
+     * DEGRADED session is made available again, where the health monitor
+     * checks it, and a CONNECTED session replaces a missing spare before it is
+     * made available again.
+     *
+     * @param session The session to return.
+     */
+    public void release(BsidcaSession session) {
+        if (session == null) {
+            return;
+        }
+        if (session.getState() == BsidcaSessionState.RECONNECTING) {
+            parkedSessions.add(session);
+            return;
+        }
+        if (session.getState() == BsidcaSessionState.DEGRADED) {
+            // Only a checked session may become a spare: the health monitor pings the idle ones
+            idleSessions.offer(session);
+            return;
+        }
+        synchronized (spareSessions) {
+            if (spareSessions.size() < spareTarget) {
+                spareSessions.offer(session);
+                return;
+            }
+        }
+        idleSessions.offer(session);
+    }
+
+    /**
+     * Swaps a spare session in for a leased session whose operator session has
+     * expired. The expired session is parked until the BsidcaHealthMonitor has
+     * authenticated it again, and the spare is leased to the caller in its
+     * place. Only a CONNECTED spare is swapped in; the others are handed over to
+     * the monitor on the way.
+     *
+     * @param expired The leased session that has expired.
+     * @return The spare session, which must be returned with release() once
+     *         the call is complete, or null if no spare is available, in which
+     *         case the expired session is still held by the caller.
+     */
+    public BsidcaSession swap(BsidcaSession expired) {
+        BsidcaSession spare;
+        while ((spare = spareSessions.poll()) != null && spare.getState() != BsidcaSessionState.CONNECTED) {
+            // A spare that is no longer usable is checked or reconnected by the health monitor
+            if (spare.isAuthenticated()) {
+                idleSessions.offer(spare);
+            } else {
+                parkedSessions.add(spare);
+            }
+        }
+        if (spare == null) {
+            return null;
+        }
+        spare.onLease();
+        expired.invalidate();
+        parkedSessions.add(expired);
+        return spare;
+    }
+
+    /**
+     * Makes a spare session available to be leased, so that an idle session
+     * held by the caller can be authenticated again without reducing the
+     * number of sessions available.
+     *
+     * @return true if a spare session was made available.
+     */
+    public boolean promoteSpare() {
+        BsidcaSession spare = spareSessions.poll();
+        if (spare == null) {
+            return false;
+        }
+        idleSessions.offer(spare);
+        return true;
+    }
+
+    /**
+     * Takes a parked session out of the pool so that it can be reconnected. The
+     * session must be returned with release() afterwards.
+     *
+     * @param session The session to take.
+     * @return true if the session was parked and is now held by the caller.
+     */
+    public boolean acquireParked(BsidcaSession session) {
+        return parkedSessions.remove(session);
+    }
+
+    /**
+     * Takes an idle session out of the pool so that it can be checked without a
+     * caller leasing it at the same time. The session must be returned with
+     * release() afterwards.
+     *
+     * @param session The session to take.
+     * @return true if the session was idle and is now held by the caller.
+     */
+    public boolean acquireIdle(BsidcaSession session) {
+        return idleSessions.remove(session);
+    }
+
+    /**
+     * Takes a spare session out of the pool so that it can be checked. The
+     * session must be returned with release() afterwards.
+     *
+     * @param session The session to take.
+     * @return true if the session was a spare and is now held by the caller.
+     */
+    public boolean acquireSpare(BsidcaSession session) {
+        return spareSessions.remove(session);
+    }
+
+    /**
+     * Releases the stubs of the pool. The shared transport is left open.
+     */
+    public void shutdown() {
+        for (BsidcaSession session : sessions) {
+            session.close();
+        }
+    }
+
+    /**
+     * Gets the application settings used by the pool.
+     *
+     * @return The application settings.
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Gets the lean codec of the hot BSIDCA operations.
+     *
+     * @return The codec, or null if the XMLBeans codec is used for every call.
+     */
+    public BsidcaSoapCodec getSoapCodec() {
+        return soapCodec;
+    }
+
+    /**
+     * Gets all the sessions of the pool, leased or not.
+     *
+     * @return An unmodifiable list of the sessions.
+     */
+    public List<BsidcaSession> getSessions() {
+        return Collections.unmodifiableList(sessions);
+    }
+
+    /**
+     * Gets the base URL of the BSIDCA endpoint the sessions talk to.
+     *
+     * @return The base URL of the endpoint.
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Gets the number of sessions of the pool, spare sessions included.
+     *
+     * @return The pool size.
+     */
+    public int getSize() {
+        return sessions.size();
+    }
+
+    /**
+     * Gets the number of sessions currently available to be leased.
+     *
+     * @return The number of idle sessions.
+     */
+    public int getAvailable() {
+        return idleSessions.size();
+    }
+
+    /**
+     * Gets the number of sessions currently leased.
+     *
+     * @return The number of leased sessions.
+     */
+    public int getLeased() {
+        return sessions.size() - idleSessions.size() - parkedSessions.size() - spareSessions.size();
+    }
+
+    /**
+     * Gets the number of authenticated spare sessions kept aside.
+     *
+     * @return The number of spare sessions.
+     */
+    public int getSpare() {
+        return spareSessions.size();
+    }
+
+    /**
+     * Gets the number of sessions currently parked until they are reconnected.
+     *
+     * @return The number of parked sessions.
+     */
+    public int getParked() {
+        return parkedSessions.size();
+    }
+
+    /**
+     * Gets the number of sessions currently authenticated.
+     *
+     * @return The number of authenticated sessions.
+     */
+    public int getAuthenticated() {
+        return (int) sessions.stream().filter(BsidcaSession::isAuthenticated).count();
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Enum class representing the states of a BsidcaSession.
+ *
+ * A session starts in the RECONNECTING state until its first Connect call
+ * succeeds. It moves to DEGRADED when a call fails for a reason other than an
+ * expired session, and back to CONNECTED on the next successful call or
+ * health check. A session whose operator session has expired moves to
+ * RECONNECTING and is kept out of the pool until the BsidcaHealthMonitor has
+ * authenticated it again.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public enum BsidcaSessionState {
+    /**
+     * The session is authenticated and its last call succeeded.
+     */
+    CONNECTED,
+
+    /**
+     * The session is authenticated but its last call or health check failed.
+     */
+    DEGRADED,
+
+    /**
+     * The session is not authenticated and needs a new Connect call.
+     */
+    RECONNECTING
+}
@@ -0,0 +1,1015 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaSoapCodec class is a lean alternative to the XMLBeans documents
+ * of the generated Axis2 stub for the highest-volume BSIDCA operations:
+ * GetTokens, GetTokensByOwner, GetUser, RevokeToken and PingConnection. It
+ * builds the request envelope from a BsidcaEnvelopeTemplate by copying the
+ * call parameters into its pre-encoded bytes, posts it with the HTTP client
+ * shared by the session pool, and pull-parses the response with StAX
+ * directly into the TokenSchema and UserSchema returned by the API, without
+ * building an object tree or printing and parsing the response a second
+ * time.
+ *
+ * The names and namespaces of the request elements are taken once, when the
+ * codec is created, from documents built with the XMLBeans classes, so that
+ * the templates always hold what the stub would write. The response
+ * elements are matched by their local name, ignoring case. SOAP faults are turned into
+ * AxisFault exceptions carrying the same fault code and message as those of
+ * the stub, and responses that cannot be decoded raise a
+ * BsidcaCodecException so that the caller can fall back to XMLBeans.
+ *
+ * The methods of the codec must be called within BsidcaSession.execute(), so
+ * that the request carries the cookies and the timeouts of the leased
+ * session.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.cryptocard.www.blackshield.GetTokensByOwnerDocument;
+import com.cryptocard.www.blackshield.GetTokensDocument;
+import com.cryptocard.www.blackshield.GetUserDocument;
+import com.cryptocard.www.blackshield.PingConnectionDocument;
+import com.cryptocard.www.blackshield.RevokeSelection;
+import com.cryptocard.www.blackshield.RevokeTokenDocument;
+import org.apache.axis2.AxisFault;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.xmlbeans.XmlObject;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.rmi.RemoteException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+public class BsidcaSoapCodec {
+
+    /**
+     * The namespace of the SOAP 1.1 envelope.
+     */
+    private static final String SOAP11_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+
+    /**
+     * The namespace of the SOAP 1.2 envelope.
+     */
+    private static final String SOAP12_NAMESPACE = "http://www.w3.org/2003/05/soap-envelope";
+
+    /**
+     * The namespace of the XML schema instance attributes.
+     */
+    private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+
+    /**
+     * The factory of the response parsers, with DTDs and external entities
+     * disabled.
+     */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    /**
+     * The setters of the TokenSchema fields, by element name ignoring case.
+     */
+    private static final Map<String, BiConsumer<TokenSchema, String>> TOKEN_FIELDS = createTokenFields();
+
+    /**
+     * The setters of the UserSchema fields, by element name ignoring case.
+     */
+    private static final Map<String, BiConsumer<UserSchema, String>> USER_FIELDS = createUserFields();
+
+    /**
+     * The HTTP client shared by the sessions of the pool.
+     */
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * The address the requests are posted to.
+     */
+    private final String endpointUrl;
+
+    /**
+     * Whether the stub speaks SOAP 1.2 rather than SOAP 1.1.
+     */
+    private final boolean soap12;
+
+    /**
+     * The elements of the GetTokens request.
+     */
+    private final RequestElements getTokens;
+
+    /**
+     * The elements of the GetTokensByOwner request.
+     */
+    private final RequestElements getTokensByOwner;
+
+    /**
+     * The elements of the GetUser request.
+     */
+    private final RequestElements getUser;
+
+    /**
+     * The elements of the RevokeToken request.
+     */
+    private final RequestElements revokeToken;
+
+    /**
+     * The elements of the PingConnection request.
+     */
+    private final RequestElements pingConnection;
+
+    /**
+     * Constructor for the BsidcaSoapCodec class. Learns the names of the
+     * request elements from documents built with the XMLBeans classes.
+     *
+     * @param httpClient      The HTTP client shared by the sessions of the pool.
+     * @param endpointUrl     The address the requests are posted to.
+     * @param soapVersionUri  The namespace of the SOAP envelope used by the
+     *                        stub, or null for SOAP 1.1.
+     * @throws XMLStreamException if a document built with the XMLBeans classes
+     *                            cannot be read.
+     */
+    public BsidcaSoapCodec(CloseableHttpClient httpClient, String endpointUrl, String soapVersionUri)
+            throws XMLStreamException {
+        this.httpClient = httpClient;
+        this.endpointUrl = endpointUrl;
+        this.soap12 = SOAP12_NAMESPACE.equals(soapVersionUri);
+        String envelopeNamespace = soap12 ? SOAP12_NAMESPACE : SOAP11_NAMESPACE;
+
+        GetTokensDocument getTokensDocument = GetTokensDocument.Factory.newInstance();
+        GetTokensDocument.GetTokens getTokensData = getTokensDocument.addNewGetTokens();
+        getTokensData.setSerial("");
+        getTokensData.setOrganization("");
+        getTokensData.setStartRecord(0);
+        getTokensData.setPageSize(0);
+        this.getTokens = RequestElements.learn(envelopeNamespace, getTokensDocument, "Serial", "Organization",
+                "StartRecord", "PageSize");
+
+        GetTokensByOwnerDocument getTokensByOwnerDocument = GetTokensByOwnerDocument.Factory.newInstance();
+        GetTokensByOwnerDocument.GetTokensByOwner getTokensByOwnerData = getTokensByOwnerDocument
+                .addNewGetTokensByOwner();
+        getTokensByOwnerData.setUserName("");
+        getTokensByOwnerData.setOrganization("");
+        this.getTokensByOwner = RequestElements.learn(envelopeNamespace, getTokensByOwnerDocument, "UserName",
+                "Organization");
+
+        GetUserDocument getUserDocument = GetUserDocument.Factory.newInstance();
+        GetUserDocument.GetUser getUserData = getUserDocument.addNewGetUser();
+        getUserData.setUserName("");
+        getUserData.setOrganization("");
+        this.getUser = RequestElements.learn(envelopeNamespace, getUserDocument, "UserName", "Organization");
+
+        RevokeTokenDocument revokeTokenDocument = RevokeTokenDocument.Factory.newInstance();
+        RevokeTokenDocument.RevokeToken revokeTokenData = revokeTokenDocument.addNewRevokeToken();
+        revokeTokenData.setUserName("");
+        revokeTokenData.setSerial("");
+        revokeTokenData.setOrganization("");
+        revokeTokenData.setRevokeMode(RevokeSelection.RETURNTO_INVENTORY_INITIALIZED);
+        revokeTokenData.setRevokeStaticPassword(false);
+        this.revokeToken = RequestElements.learn(envelopeNamespace, revokeTokenDocument, "UserName", "Serial",
+                "Organization", "RevokeMode", "RevokeStaticPassword");
+
+        PingConnectionDocument pingConnectionDocument = PingConnectionDocument.Factory.newInstance();
+        pingConnectionDocument.addNewPingConnection();
+        this.pingConnection = RequestElements.learn(envelopeNamespace, pingConnectionDocument);
+    }
+
+    /**
+     * Retrieves the token with the given serial number with a GetTokens call.
+     *
+     * @param serial       The serial number of the token.
+     * @param organization The organization where the token resides.
+     * @return The token, or null if the response holds no token.
+     * @throws RemoteException if the call fails or its response cannot be
+     *                         decoded.
+     */
+    public TokenSchema getToken(String serial, String organization) throws RemoteException {
+        return call(BsidcaOperation.GET_TOKENS, getTokens, BsidcaSoapCodec::readToken,
+                serial, organization, "0", "1");
+    }
+
+    /**
+     * Retrieves a page of the tokens of an organization with a GetTokens call.
+     *
+     * @param organization The organization where the tokens reside.
+     * @param startRecord  The index of the first token of the page.
+     * @param pageSize     The maximum number of tokens of the page.
+     * @return The tokens of the page, possibly empty.
+     * @throws RemoteException if the call fails or its response cannot be
+     *                         decoded.
+     */
+    public List<TokenSchema> getTokens(String organization, int startRecord, int pageSize)
+            throws RemoteException {
+        return call(BsidcaOperation.GET_TOKENS, getTokens, BsidcaSoapCodec::readTokens,
+                "", organization, Integer.toString(startRecord), Integer.toString(pageSize));
+    }
+
+    /**
+     * Retrieves the serial numbers of the tokens owned by a user with a
+     * GetTokensByOwner call.
+     *
+     * @param username     The user owning the tokens.
+     * @param organization The organization where the tokens reside.
+     * @return The serial numbers of the tokens, possibly empty.
+     * @throws RemoteException if the call fails or its response cannot be
+     *                         decoded.
+     */
+    public List<String> getTokensByOwner(String username, String organization) throws RemoteException {
+        return call(BsidcaOperation.GET_TOKENS_BY_OWNER, getTokensByOwner, BsidcaSoapCodec::readStrings,
+                username, organization);
+    }
+
+    /**
+     * Retrieves a user account with a GetUser call.
+     *
+     * @param username     The name of the user.
+     * @param organization The organization the user belongs to.
+     * @return The user, or null if the response holds no user.
+     * @throws RemoteException if the call fails or its response cannot be
+     *                         decoded.
+     */
+    public UserSchema getUser(String username, String organization) throws RemoteException {
+        return call(BsidcaOperation.GET_USER, getUser, BsidcaSoapCodec::readUser, username, organization);
+    }
+
+    /**
+     * Revokes a token from a user with a RevokeToken call.
+     *
+     * @param username     The user owning the token.
+     * @param serial       The serial number of the token.
+     * @param organization The organization where the token resides.
+     * @param revokeMode   The RevokeSelection value, as sent on the wire.
+     * @return The RevokeResult value, as received on the wire, or null if the
+     *         response holds none.
+     * @throws RemoteException if the call fails or its response cannot be
+     *                         decoded.
+     */
+    public String revokeToken(String username, String serial, String organization, String revokeMode)
+            throws RemoteException {
+        return call(BsidcaOperation.REVOKE_TOKEN, revokeToken, BsidcaSoapCodec::readRevokeResult,
+                username, serial, organization, revokeMode, "false");
+    }
+
+    /**
+     * Checks whether the session bound to the calling thread is still active
+     * with a PingConnection call.
+     *
+     * @return true if the session is still active, false otherwise.
+     * @throws RemoteException if the call fails or its response cannot be
+     *                         decoded.
+     */
+    public boolean pingConnection() throws RemoteException {
+        return call(BsidcaOperation.PING_CONNECTION, pingConnection, xml -> {
+            if (!nextElementNamed(xml, "PingConnectionResult")) {
+                throw new XMLStreamException("No PingConnectionResult element in the response");
+            }
+            return Boolean.parseBoolean(readText(xml));
+        });
+    }
+
+    /**
+     * Builds the envelope of a request without posting it, as call() would,
+     * so that the BsidcaCodecCheck and the BsidcaCodecBenchmark can compare it
+     * with the XMLBeans documents.
+     *
+     * @param operation The BSIDCA operation: GetTokens, GetTokensByOwner,
+     *                  GetUser, RevokeToken or PingConnection.
+     * @param values    The values of the request elements, in the order the
+     *                  public methods pass them.
+     * @return The envelope of the request, encoded in UTF-8.
+     * @throws IllegalArgumentException if the codec does not handle the
+     *                                  operation.
+     */
+    byte[] encode(BsidcaOperation operation, String... values) {
+        switch (operation) {
+            case GET_TOKENS:
+                return getTokens.template.render(values);
+            case GET_TOKENS_BY_OWNER:
+                return getTokensByOwner.template.render(values);
+            case GET_USER:
+                return getUser.template.render(values);
+            case REVOKE_TOKEN:
+                return revokeToken.template.render(values);
+            case PING_CONNECTION:
+                return pingConnection.template.render(values);
+            default:
+                throw new IllegalArgumentException("The StAX codec does not handle " + operation);
+        }
+    }
+
+    /**
+     * Decodes the response to a GetTokens call for a single token.
+     *
+     * @param content The body of the HTTP response.
+     * @return The token, or null if the response holds no token.
+     * @throws RemoteException if the response is a SOAP fault or cannot be
+     *                         decoded.
+     */
+    static TokenSchema decodeToken(InputStream content) throws RemoteException {
+        return decode(BsidcaOperation.GET_TOKENS, content, BsidcaSoapCodec::readToken);
+    }
+
+    /**
+     * Decodes the response to a GetTokens call for a page of tokens.
+     *
+     * @param content The body of the HTTP response.
+     * @return The tokens of the page, possibly empty.
+     * @throws RemoteException if the response is a SOAP fault or cannot be
+     *                         decoded.
+     */
+    static List<TokenSchema> decodeTokens(InputStream content) throws RemoteException {
+        return decode(BsidcaOperation.GET_TOKENS, content, BsidcaSoapCodec::readTokens);
+    }
+
+    /**
+     * Decodes the response to a GetTokensByOwner call.
+     *
+     * @param content The body of the HTTP response.
+     * @return The serial numbers of the tokens, possibly empty.
+     * @throws RemoteException if the response is a SOAP fault or cannot be
+     *                         decoded.
+     */
+    static List<String> decodeTokensByOwner(InputStream content) throws RemoteException {
+        return decode(BsidcaOperation.GET_TOKENS_BY_OWNER, content, BsidcaSoapCodec::readStrings);
+    }
+
+    /**
+     * Decodes the response to a GetUser call.
+     *
+     * @param content The body of the HTTP response.
+     * @return The user, or null if the response holds no user.
+     * @throws RemoteException if the response is a SOAP fault or cannot be
+     *                         decoded.
+     */
+    static UserSchema decodeUser(InputStream content) throws RemoteException {
+        return decode(BsidcaOperation.GET_USER, content, BsidcaSoapCodec::readUser);
+    }
+
+    /**
+     * Decodes the response to a RevokeToken call.
+     *
+     * @param content The body of the HTTP response.
+     * @return The RevokeResult value, as received on the wire, or null if the
+     *         response holds none.
+     * @throws RemoteException if the response is a SOAP fault or cannot be
+     *                         decoded.
+     */
+    static String decodeRevokeResult(InputStream content) throws RemoteException {
+        return decode(BsidcaOperation.REVOKE_TOKEN, content, BsidcaSoapCodec::readRevokeResult);
+    }
+
+    /**
+     * Posts a request to the BSIDCA service and decodes its response.
+     *
+     * @param operation The BSIDCA operation being invoked.
+     * @param request   The elements of the request.
+     * @param reader    The reader of the response body.
+     * @param values    The values of the request elements, in the order they
+     *                  were learned.
+     * @return The decoded response.
+     * @throws RemoteException if the service cannot be reached, returns a SOAP
+     *                         fault, or its response cannot be decoded.
+     */
+    private <T> T call(BsidcaOperation operation, RequestElements request, ResponseReader<T> reader,
+            String... values) throws RemoteException {
+
+        HttpPost post = new HttpPost(endpointUrl);
+        String action = request.wrapper.getNamespaceURI() + operation.getValue();
+        if (soap12) {
+            post.setHeader(HttpHeaders.CONTENT_TYPE,
+                    "application/soap+xml; charset=UTF-8; action=\"" + action + "\"");
+        } else {
+            post.setHeader(HttpHeaders.CONTENT_TYPE, "text/xml; charset=UTF-8");
+            post.setHeader("SOAPAction", "\"" + action + "\"");
+        }
+        post.setEntity(new ByteArrayEntity(request.template.render(values)));
+        // Apply the timeouts of the call, which may be cut short by the deadline of its request
+        BsidcaSession session = BsidcaSession.current();
+        if (session != null && session.getRequestConfig() != null) {
+            post.setConfig(session.getRequestConfig());
+        }
+
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            int status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            // A SOAP fault comes with a 500, anything else but a 200 has no envelope
+            if (entity == null || (status != 200 && status != 500)) {
+                EntityUtils.consumeQuietly(entity);
+                throw new AxisFault(String.format("Transport error: %d Error: %s", status,
+                        response.getStatusLine().getReasonPhrase()));
+            }
+            try (InputStream content = entity.getContent()) {
+                return decode(operation, content, reader);
+            }
+        } catch (AxisFault e) {
+            throw e;
+        } catch (IOException e) {
+            throw new AxisFault(String.format("BSIDCA %s call failed: %s", operation, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Decodes the SOAP envelope of a response.
+     *
+     * @param operation The BSIDCA operation being invoked.
+     * @param content   The body of the HTTP response.
+     * @param reader    The reader of the response body.
+     * @return The decoded response.
+     * @throws RemoteException if the response is a SOAP fault, cannot be read
+     *                         or cannot be decoded.
+     */
+    private static <T> T decode(BsidcaOperation operation, InputStream content, ResponseReader<T> reader)
+            throws RemoteException {
+
+        XMLStreamReader xml = null;
+        try {
+            xml = INPUT_FACTORY.createXMLStreamReader(content);
+            if (!nextElementNamed(xml, "Body") || !nextChildElement(xml)) {
+                throw new XMLStreamException("No SOAP body in the response");
+            }
+            if ("Fault".equals(xml.getLocalName())
+                    && (SOAP11_NAMESPACE.equals(xml.getNamespaceURI())
+                            || SOAP12_NAMESPACE.equals(xml.getNamespaceURI()))) {
+                throw readFault(xml);
+            }
+            return reader.read(xml);
+        } catch (XMLStreamException e) {
+            // The response is read as it arrives, so a dropped connection shows up here
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw new AxisFault(String.format("BSIDCA %s call failed: %s", operation, cause.getMessage()),
+                            cause);
+                }
+            }
+            throw new BsidcaCodecException(String.format("Could not decode the BSIDCA %s response", operation), e);
+        } catch (IllegalArgumentException e) {
+            throw new BsidcaCodecException(String.format("Could not decode the BSIDCA %s response", operation), e);
+        } finally {
+            closeQuietly(xml);
+        }
+    }
+
+    /**
+     * Reads the first token of a GetTokens response.
+     *
+     * @param xml The parser, positioned on the response element.
+     * @return The token, or null if the response holds no token.
+     * @throws XMLStreamException if the response cannot be read.
+     */
+    private static TokenSchema readToken(XMLStreamReader xml) throws XMLStreamException {
+        if (!nextElementNamed(xml, "Named_Tokens_Table")) {
+            return null;
+        }
+        return readTokenFields(xml);
+    }
+
+    /**
+     * Reads all the tokens of a GetTokens response.
+     *
+     * @param xml The parser, positioned on the response element.
+     * @return The tokens, possibly empty.
+     * @throws XMLStreamException if the response cannot be read.
+     */
+    private static List<TokenSchema> readTokens(XMLStreamReader xml) throws XMLStreamException {
+        List<TokenSchema> tokens = new ArrayList<>();
+        while (nextElementNamed(xml, "Named_Tokens_Table")) {
+            tokens.add(readTokenFields(xml));
+        }
+        return tokens;
+    }
+
+    /**
+     * Reads the fields of a token. As with the TokenSchemaParser, the text
+     * fields missing from the response are empty and the flags false.
+     *
+     * @param xml The parser, positioned on a Named_Tokens_Table element.
+     * @return The token.
+     * @throws XMLStreamException if the token cannot be read.
+     */
+    private static TokenSchema readTokenFields(XMLStreamReader xml) throws XMLStreamException {
+        TokenSchema token = new TokenSchema();
+        token.setSerialNumber("");
+        token.setState("");
+        token.setUserId("");
+        token.setOrgName("");
+        token.setType("");
+        token.setContainer("");
+        token.setRented("");
+        token.setIce("");
+        token.setHardwareInit(false);
+        token.setAssignable(false);
+        while (nextChildElement(xml)) {
+            BiConsumer<TokenSchema, String> field = TOKEN_FIELDS.get(xml.getLocalName());
+            if (field == null) {
+                skipElement(xml);
+            } else {
+                field.accept(token, readText(xml));
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Reads the result of a RevokeToken response.
+     *
+     * @param xml The parser, positioned on the response element.
+     * @return The RevokeResult value, or null if the response holds none.
+     * @throws XMLStreamException if the response cannot be read.
+     */
+    private static String readRevokeResult(XMLStreamReader xml) throws XMLStreamException {
+        return nextElementNamed(xml, "RevokeTokenResult") ? readText(xml) : null;
+    }
+
+    /**
+     * Reads all the strings of a response, such as the serial numbers of a
+     * GetTokensByOwner response.
+     *
+     * @param xml The parser, positioned on the response element.
+     * @return The strings, possibly empty.
+     * @throws XMLStreamException if the response cannot be read.
+     */
+    private static List<String> readStrings(XMLStreamReader xml) throws XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        while (nextElementNamed(xml, "string")) {
+            strings.add(readText(xml));
+        }
+        return strings;
+    }
+
+    /**
+     * Reads the user of a GetUser response. As with the XMLBeans getters, the
+     * flags and counters missing from the response are false and 0.
+     *
+     * @param xml The parser, positioned on the response element.
+     * @return The user, or null if the response holds no user.
+     * @throws XMLStreamException if the response cannot be read.
+     */
+    private static UserSchema readUser(XMLStreamReader xml) throws XMLStreamException {
+        if (!nextElementNamed(xml, "GetUserResult") || isNil(xml)) {
+            return null;
+        }
+        UserSchema user = new UserSchema();
+        user.setLocked(false);
+        user.setTempPasswordEnabled(false);
+        user.setTempPasswordChangeReq(false);
+        user.setUseExternalCredentials(false);
+        user.setAccountDormant(false);
+        user.setPasswordAttemptCount(0);
+
+        while (nextChildElement(xml)) {
+            String name = xml.getLocalName();
+            if ("Groups".equalsIgnoreCase(name)) {
+                user.setGroups(readGroups(xml));
+            } else if ("CustomAttributes".equalsIgnoreCase(name)) {
+                List<String> customAttributes = new ArrayList<>();
+                while (nextChildElement(xml)) {
+                    customAttributes.add(readText(xml));
+                }
+                user.setCustomAttributes(customAttributes);
+            } else {
+                BiConsumer<UserSchema, String> field = USER_FIELDS.get(name);
+                if (field == null) {
+                    skipElement(xml);
+                } else {
+                    field.accept(user, readText(xml));
+                }
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Reads the groups of a user.
+     *
+     * @param xml The parser, positioned on the Groups element.
+     * @return The groups, or null if the user belongs to none.
+     * @throws XMLStreamException if the response cannot be read.
+     */
+    private static List<GroupSchema> readGroups(XMLStreamReader xml) throws XMLStreamException {
+        List<GroupSchema> groups = new ArrayList<>();
+        while (nextChildElement(xml)) {
+            GroupSchema group = new GroupSchema();
+            while (nextChildElement(xml)) {
+                String name = xml.getLocalName();
+                if ("GroupName".equalsIgnoreCase(name)) {
+                    group.setGroupName(readText(xml));
+                } else if ("Description".equalsIgnoreCase(name)) {
+                    group.setDescription(readText(xml));
+                } else {
+                    skipElement(xml);
+                }
+            }
+            groups.add(group);
+        }
+        return groups.isEmpty() ? null : groups;
+    }
+
+    /**
+     * Reads a SOAP 1.1 or SOAP 1.2 fault.
+     *
+     * @param xml The parser, positioned on the Fault element.
+     * @return The fault, with its code and message.
+     * @throws XMLStreamException if the fault cannot be read.
+     */
+    private static AxisFault readFault(XMLStreamReader xml) throws XMLStreamException {
+        QName faultCode = null;
+        String reason = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if (faultCode == null && ("faultcode".equals(name) || "Value".equals(name))) {
+                    faultCode = toQName(xml, readText(xml));
+                } else if (reason == null && ("faultstring".equals(name) || "Text".equals(name))) {
+                    reason = readText(xml);
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                break;
+            }
+        }
+        return new AxisFault(reason == null ? "Unknown BSIDCA fault" : reason, faultCode);
+    }
+
+    /**
+     * Resolves a prefixed name, such as the code of a SOAP fault, against the
+     * namespaces in scope.
+     *
+     * @param xml   The parser, positioned within the element holding the name.
+     * @param value The prefixed name.
+     * @return The resolved name, or null if the value is null.
+     */
+    private static QName toQName(XMLStreamReader xml, String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            return new QName(trimmed);
+        }
+        String namespace = xml.getNamespaceContext().getNamespaceURI(trimmed.substring(0, colon));
+        return new QName(namespace == null ? XMLConstants.NULL_NS_URI : namespace, trimmed.substring(colon + 1));
+    }
+
+    /**
+     * Moves the parser forward to the next element with the given local name,
+     * ignoring case, wherever it is in the document.
+     *
+     * @param xml       The parser.
+     * @param localName The local name of the element.
+     * @return true if the parser is on the element, false if the document ended.
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    private static boolean nextElementNamed(XMLStreamReader xml, String localName) throws XMLStreamException {
+        while (xml.hasNext()) {
+            if (xml.next() == XMLStreamConstants.START_ELEMENT && localName.equalsIgnoreCase(xml.getLocalName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the parser forward to the next child element of the current
+     * element. The parser must be on the start of the parent element, or on the
+     * end of its previous child.
+     *
+     * @param xml The parser.
+     * @return true if the parser is on a child element, false if it is on the end
+     *         of the parent element.
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    private static boolean nextChildElement(XMLStreamReader xml) throws XMLStreamException {
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the parser to the end of the current element, skipping its
+     * content.
+     *
+     * @param xml The parser, positioned on the start of the element.
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    private static void skipElement(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the text of the current element and moves the parser to its end.
+     * The text of nested elements is ignored.
+     *
+     * @param xml The parser, positioned on the start of the element.
+     * @return The text of the element, empty if it has none, or null if the
+     *         element is nil.
+     * @throws XMLStreamException if the document cannot be read.
+     */
+    private static String readText(XMLStreamReader xml) throws XMLStreamException {
+        boolean nil = isNil(xml);
+        String text = null;
+        StringBuilder builder = null;
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.CDATA)) {
+                // Most values arrive in one piece, so only join the pieces when needed
+                if (text == null) {
+                    text = xml.getText();
+                } else {
+                    if (builder == null) {
+                        builder = new StringBuilder(text);
+                    }
+                    builder.append(xml.getText());
+                }
+            }
+        }
+        if (nil) {
+            return null;
+        }
+        if (builder != null) {
+            return builder.toString();
+        }
+        return text == null ? "" : text;
+    }
+
+    /**
+     * Returns whether the current element is marked as nil.
+     *
+     * @param xml The parser, positioned on the start of the element.
+     * @return true if the element has an xsi:nil="true" attribute.
+     */
+    private static boolean isNil(XMLStreamReader xml) {
+        return "true".equals(xml.getAttributeValue(XSI_NAMESPACE, "nil"));
+    }
+
+    /**
+     * Closes a parser, ignoring any error.
+     *
+     * @param xml The parser, possibly null.
+     */
+    private static void closeQuietly(XMLStreamReader xml) {
+        if (xml == null) {
+            return;
+        }
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            // Nothing left to read
+        }
+    }
+
+    /**
+     * Creates the factory of the response parsers, with DTDs and external
+     * entities disabled.
+     *
+     * @return The factory of the response parsers.
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * Creates the setters of the TokenSchema fields, with the same conversions
+     * as the TokenSchemaParser.
+     *
+     * @return The setters by element name, ignoring case.
+     */
+    private static Map<String, BiConsumer<TokenSchema, String>> createTokenFields() {
+        Map<String, BiConsumer<TokenSchema, String>> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        fields.put("serialnumber", TokenSchema::setSerialNumber);
+        fields.put("state", TokenSchema::setState);
+        fields.put("stateSetDate", (token, value) -> token.setStateSetDate(toDateString(value)));
+        fields.put("userid", TokenSchema::setUserId);
+        fields.put("orgName", TokenSchema::setOrgName);
+        fields.put("type", TokenSchema::setType);
+        fields.put("container", TokenSchema::setContainer);
+        fields.put("rented", TokenSchema::setRented);
+        fields.put("hardwareInit", (token, value) -> token.setHardwareInit(Boolean.parseBoolean(value)));
+        fields.put("assignable", (token, value) -> token.setAssignable(Boolean.parseBoolean(value)));
+        fields.put("ice", TokenSchema::setIce);
+        fields.put("stateInt", (token, value) -> token.setStateInt(toInteger(value)));
+        fields.put("tokenAllowed", (token, value) -> token.setTokenAllowed(toInteger(value)));
+        return fields;
+    }
+
+    /**
+     * Creates the setters of the UserSchema fields, with the same mapping as
+     * the UserSerializer. The groups and custom attributes are read apart.
+     *
+     * @return The setters by element name, ignoring case.
+     */
+    private static Map<String, BiConsumer<UserSchema, String>> createUserFields() {
+        Map<String, BiConsumer<UserSchema, String>> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        fields.put("StartDate", UserSchema::setStartDate);
+        fields.put("EndDate", UserSchema::setEndDate);
+        fields.put("StartTime", UserSchema::setStartTime);
+        fields.put("EndTime", UserSchema::setEndTime);
+        fields.put("PasswordSetDate", UserSchema::setPasswordSetDate);
+        fields.put("PasswordAttemptCount", (user, value) -> user.setPasswordAttemptCount(toInteger(value)));
+        fields.put("UserName", UserSchema::setUserName);
+        fields.put("FirstName", UserSchema::setFirstName);
+        fields.put("Lastname", UserSchema::setLastName);
+        fields.put("Address1", UserSchema::setAddress);
+        fields.put("City", UserSchema::setCity);
+        fields.put("State", UserSchema::setState);
+        fields.put("Country", UserSchema::setCountry);
+        fields.put("Zip", UserSchema::setZip);
+        fields.put("Email", UserSchema::setEmail);
+        fields.put("Telephone", UserSchema::setTelephone);
+        fields.put("Extension", UserSchema::setExtension);
+        fields.put("Mobile", UserSchema::setMobile);
+        fields.put("Locked", (user, value) -> user.setLocked(Boolean.parseBoolean(value)));
+        fields.put("UnlockAt", UserSchema::setUnlockAt);
+        fields.put("Message", UserSchema::setMessage);
+        fields.put("TempPasswordEnabled", (user, value) -> user.setTempPasswordEnabled(Boolean.parseBoolean(value)));
+        fields.put("TempPasswordChangeReq",
+                (user, value) -> user.setTempPasswordChangeReq(Boolean.parseBoolean(value)));
+        fields.put("ContainerName", UserSchema::setContainerName);
+        fields.put("UseExternalCredentials",
+                (user, value) -> user.setUseExternalCredentials(Boolean.parseBoolean(value)));
+        fields.put("IsAccountDormant", (user, value) -> user.setAccountDormant(Boolean.parseBoolean(value)));
+        return fields;
+    }
+
+    /**
+     * Converts a date of the BSIDCA service to the format returned by the API.
+     *
+     * @param value The date as sent by the BSIDCA service, possibly null.
+     * @return The converted date, or null if the value is null or empty.
+     * @throws IllegalArgumentException if the date cannot be parsed.
+     */
+    private static String toDateString(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return TokenSchemaParser.toDateString(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value, e);
+        }
+    }
+
+    /**
+     * Converts a number of the BSIDCA service.
+     *
+     * @param value The number as sent by the BSIDCA service, possibly null.
+     * @return The number, or null if the value is null or empty.
+     * @throws NumberFormatException if the value is not a number.
+     */
+    private static Integer toInteger(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return Integer.valueOf(value.trim());
+    }
+
+    /**
+     * The ResponseReader interface decodes the body of a response, from the
+     * response element onwards.
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+
+        /**
+         * Decodes the body of a response.
+         *
+         * @param xml The parser, positioned on the response element.
+         * @return The decoded response.
+         * @throws XMLStreamException if the response cannot be read.
+         */
+        T read(XMLStreamReader xml) throws XMLStreamException;
+    }
+
+    /**
+     * The RequestElements class holds the name of the element wrapping the
+     * parameters of a request and the template of its envelope, as learned
+     * from the XMLBeans classes.
+     */
+    private static final class RequestElements {
+
+        /**
+         * The name of the element wrapping the parameters of the request.
+         */
+        private final QName wrapper;
+
+        /**
+         * The template of the envelope of the request.
+         */
+        private final BsidcaEnvelopeTemplate template;
+
+        /**
+         * Constructor for the RequestElements class.
+         *
+         * @param wrapper  The name of the element wrapping the parameters.
+         * @param template The template of the envelope of the request.
+         */
+        private RequestElements(QName wrapper, BsidcaEnvelopeTemplate template) {
+            this.wrapper = wrapper;
+            this.template = template;
+        }
+
+        /**
+         * Learns the elements of a request from a document built with the
+         * XMLBeans classes, in which every parameter has been set, and compiles
+         * the template of its envelope.
+         *
+         * @param envelopeNamespace The namespace of the SOAP envelope.
+         * @param prototype         The XMLBeans document of the request.
+         * @param parameters        The names of the parameters, ignoring case,
+         *                          in the order their values are passed to the
+         *                          codec.
+         * @return The elements of the request.
+         * @throws XMLStreamException if the document cannot be read or lacks a
+         *                            parameter.
+         */
+        private static RequestElements learn(String envelopeNamespace, XmlObject prototype, String... parameters)
+                throws XMLStreamException {
+
+            XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(new StringReader(prototype.xmlText()));
+            try {
+                if (!nextChildElement(xml)) {
+                    throw new XMLStreamException("Empty request document");
+                }
+                QName wrapper = xml.getName();
+                List<QName> children = new ArrayList<>();
+                List<Integer> valueIndexes = new ArrayList<>();
+                while (nextChildElement(xml)) {
+                    QName child = xml.getName();
+                    for (int i = 0; i < parameters.length; i++) {
+                        if (parameters[i].equalsIgnoreCase(child.getLocalPart())) {
+                            children.add(child);
+                            valueIndexes.add(i);
+                        }
+                    }
+                    skipElement(xml);
+                }
+                if (children.size() != parameters.length) {
+                    throw new XMLStreamException(String.format("Expected the parameters %s in the %s request",
+                            String.join(", ", parameters), wrapper.getLocalPart()));
+                }
+                return new RequestElements(wrapper, new BsidcaEnvelopeTemplate(envelopeNamespace, wrapper,
+                        children.toArray(new QName[0]), valueIndexes.stream().mapToInt(Integer::intValue).toArray()));
+            } finally {
+                closeQuietly(xml);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Enum class representing the timeout profiles of the SafeNet (BSIDCA)
+ * operations. Every BsidcaOperation belongs to one profile, and every call is
+ * given the timeout of its profile from the "timeouts" section of the
+ * settings, or the time left before the deadline of its request if that is
+ * shorter.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public enum BsidcaTimeoutProfile {
+    /**
+     * Calls that only read data, such as token and user lookups.
+     */
+    READ,
+
+    /**
+     * Calls that change users or tokens, such as creating a user or revoking a
+     * token.
+     */
+    MUTATION,
+
+    /**
+     * Calls that provision or enroll tokens, which the BSIDCA service may take
+     * longer to answer.
+     */
+    ENROLLMENT
+}
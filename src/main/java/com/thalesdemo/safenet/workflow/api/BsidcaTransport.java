@@ -0,0 +1,240 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaTransport class holds the Axis2 ConfigurationContext and the
+ * pooled HTTP client shared by the stubs of every session of every BSIDCA
+ * endpoint. The connections are pooled per route, so that every endpoint
+ * shows up as its own route in the snapshots of the BsidcaConnectionManager
+ * while the total number of connections stays bounded. The sizes of the
+ * request and response bodies are measured by a BsidcaPayloadInterceptor.
+ * Depending on the recording settings, the HTTP client records the SOAP
+ * exchanges to an exchange log, or is replaced by a client replaying them.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.thalesdemo.soap.bsidca.BSIDCAStub;
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.kernel.http.HTTPConstants;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BsidcaTransport {
+
+    /**
+     * This is the logger instance for the BsidcaTransport class. The logger is
+     * initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BsidcaTransport.class.getName());
+
+    /**
+     * The settings of the pool of HTTP connections.
+     */
+    private final HttpPoolSettings httpPool;
+
+    /**
+     * The Axis2 configuration context shared by every stub.
+     */
+    private final ConfigurationContext configurationContext;
+
+    /**
+     * The pool of HTTP connections of the shared HTTP client.
+     */
+    private final BsidcaConnectionManager connectionManager;
+
+    /**
+     * The HTTP client shared by every stub.
+     */
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * The recording mode of the HTTP client.
+     */
+    private final BsidcaRecordingMode recordingMode;
+
+    /**
+     * The metrics the creation time of the stubs is recorded to.
+     */
+    private final BsidcaCallMetrics callMetrics;
+
+    /**
+     * Constructor for the BsidcaTransport class. Creates the shared
+     * configuration context, the pool of HTTP connections and the HTTP client,
+     * and starts resizing the pool. In capture mode the HTTP client records the
+     * exchanges to the exchange log; in replay mode it answers them from the
+     * exchange log and the pool stays unused.
+     *
+     * @param httpPool    The settings of the pool of HTTP connections.
+     * @param recording   The settings of the capture and replay of the
+     *                    exchanges.
+     * @param callMetrics The metrics the sizes of the bodies are recorded to.
+     * @throws AxisFault if the configuration context cannot be created, or the
+     *                   exchange log cannot be opened.
+     */
+    public BsidcaTransport(HttpPoolSettings httpPool, RecordingSettings recording, BsidcaCallMetrics callMetrics)
+            throws AxisFault {
+        this.httpPool = httpPool;
+        this.recordingMode = recording.getMode();
+        this.callMetrics = callMetrics;
+        this.configurationContext = ConfigurationContextFactory.createConfigurationContextFromFileSystem(null, null);
+        this.connectionManager = new BsidcaConnectionManager(httpPool);
+        this.connectionManager.startResizing(httpPool.getResizeIntervalMs());
+        CloseableHttpClient pooledClient = createHttpClient(this.connectionManager, httpPool,
+                new BsidcaPayloadInterceptor(callMetrics));
+        try {
+            switch (recordingMode) {
+                case CAPTURE:
+                    this.httpClient = new BsidcaRecordingHttpClient(pooledClient, recording);
+                    break;
+                case REPLAY:
+                    this.httpClient = new BsidcaReplayHttpClient(recording);
+                    break;
+                default:
+                    this.httpClient = pooledClient;
+                    break;
+            }
+        } catch (IOException e) {
+            this.connectionManager.shutdown();
+            throw new AxisFault("Could not open the BSIDCA exchange log " + recording.getFile(), e);
+        }
+        this.configurationContext.setProperty(HTTPConstants.CACHED_HTTP_CLIENT, this.httpClient);
+    }
+
+    /**
+     * Creates the HTTP client shared by all the sessions, on top of the given
+     * connection pool. Every request made by the client uses the cookie store of
+     * the session bound to the calling thread, so that the sessions stay
+     * independent even though they share the client.
+     *
+     * @param connectionManager  The pool of HTTP connections of the client.
+     * @param httpPool           The settings holding the connection timeouts.
+     * @param payloadInterceptor The interceptor measuring the sizes of the
+     *                           bodies.
+     * @return The shared HTTP client.
+     */
+    private static CloseableHttpClient createHttpClient(BsidcaConnectionManager connectionManager,
+            HttpPoolSettings httpPool, BsidcaPayloadInterceptor payloadInterceptor) {
+
+        // Route the cookies of each request to the session making the call
+        HttpRequestInterceptor sessionCookies = (request, context) -> {
+            BsidcaSession session = BsidcaSession.current();
+            if (session != null) {
+                context.setAttribute(HttpClientContext.COOKIE_STORE, session.getCookieStore());
+            }
+        };
+
+        return HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .addInterceptorFirst(sessionCookies)
+                // Let a hedged call abort its request once the hedge has answered
+                .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> BsidcaHedgePolicy.track(request))
+                .addInterceptorLast((HttpRequestInterceptor) payloadInterceptor)
+                .addInterceptorFirst((HttpResponseInterceptor) payloadInterceptor)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setSocketTimeout(httpPool.getSocketTimeoutMs())
+                        .setConnectTimeout(httpPool.getConnectTimeoutMs())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Creates a stub on the shared configuration context, posting to the
+     * given endpoint. The service description of the stub is generated from
+     * the BSIDCA WSDL at build time, so that creating a stub makes no remote
+     * call and is cheap enough to do whenever a session pool grows.
+     *
+     * @param endpointUrl The address the SOAP requests are posted to, without
+     *                    the WSDL query string.
+     * @return The new stub.
+     * @throws AxisFault if the stub cannot be created.
+     */
+    public BSIDCAStub createStub(String endpointUrl) throws AxisFault {
+        long start = System.nanoTime();
+        BSIDCAStub stub = new BSIDCAStub(configurationContext, endpointUrl);
+        // Disable validation of DOCTYPE declaration
+        stub._getServiceClient().getOptions().setProperty("disableDTD", true);
+        callMetrics.recordStubCreation(System.nanoTime() - start);
+        return stub;
+    }
+
+    /**
+     * Closes the HTTP client and its connections, completing the exchange log
+     * in capture mode.
+     */
+    public void shutdown() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            Log.log(Level.FINE, "Could not close the BSIDCA HTTP client", e);
+        }
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Gets the recording mode of the HTTP client.
+     *
+     * @return The recording mode.
+     */
+    public BsidcaRecordingMode getRecordingMode() {
+        return recordingMode;
+    }
+
+    /**
+     * Gets the settings of the pool of HTTP connections.
+     *
+     * @return The settings of the pool of HTTP connections.
+     */
+    public HttpPoolSettings getHttpPool() {
+        return httpPool;
+    }
+
+    /**
+     * Gets the Axis2 configuration context shared by every stub.
+     *
+     * @return The shared configuration context.
+     */
+    public ConfigurationContext getConfigurationContext() {
+        return configurationContext;
+    }
+
+    /**
+     * Gets the pool of HTTP connections of the shared HTTP client.
+     *
+     * @return The HTTP connection pool.
+     */
+    public BsidcaConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Gets the HTTP client shared by every stub.
+     *
+     * @return The shared HTTP client.
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BsidcaUnavailableException is thrown when a call to the SafeNet
+ * (BSIDCA) web service is rejected without being made, because the circuit
+ * of its operation is open or because too many calls are already in
+ * progress. It is unchecked so that it goes through the catch blocks of the
+ * services untouched and reaches the BsidcaExceptionHandler, which turns it
+ * into a 503 Service Unavailable response.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+public class BsidcaUnavailableException extends RuntimeException {
+
+    /**
+     * The number of seconds after which the client may try again.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor for the BsidcaUnavailableException class.
+     *
+     * @param message           The reason why the call was rejected.
+     * @param retryAfterSeconds The number of seconds after which the client may
+     *                          try again.
+     */
+    public BsidcaUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Gets the number of seconds after which the client may try again.
+     *
+     * @return The retry delay in seconds.
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BulkRevocationItem class represents a line of a bulk revocation
+ * request: either the serial number of a token to revoke, or a user whose
+ * tokens are revoked, optionally only those of a type and in a state.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonFormat(with = JsonFormat.Feature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)
+public class BulkRevocationItem {
+
+    /**
+     * The serial number of the token to revoke.
+     */
+    @JsonProperty("serial_number")
+    private String serialNumber;
+
+    /**
+     * The realm ID of the user whose tokens are revoked.
+     */
+    @JsonProperty("realm_id")
+    private String realmId;
+
+    /**
+     * The username of the user whose tokens are revoked.
+     */
+    @JsonProperty("username")
+    private String username;
+
+    /**
+     * The type of the tokens of the user to revoke, or null for every type.
+     */
+    @JsonProperty("token_type")
+    private TokenType tokenType;
+
+    /**
+     * The state of the tokens of the user to revoke, or null for every state.
+     */
+    private TokenState tokenState;
+
+    /**
+     * Gets the serial number of the token to revoke.
+     *
+     * @return The serial number, or null if the tokens of a user are revoked.
+     */
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * Sets the serial number of the token to revoke.
+     *
+     * @param serialNumber The serial number.
+     */
+    public void setSerialNumber(String serialNumber) {
+        this.serialNumber = serialNumber;
+    }
+
+    /**
+     * Gets the realm ID of the user whose tokens are revoked.
+     *
+     * @return The realm ID, possibly null.
+     */
+    public String getRealmId() {
+        return realmId;
+    }
+
+    /**
+     * Sets the realm ID of the user whose tokens are revoked.
+     *
+     * @param realmId The realm ID.
+     */
+    public void setRealmId(String realmId) {
+        this.realmId = realmId;
+    }
+
+    /**
+     * Gets the username of the user whose tokens are revoked.
+     *
+     * @return The username, or null if a single token is revoked.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Sets the username of the user whose tokens are revoked.
+     *
+     * @param username The username.
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Gets the type of the tokens of the user to revoke.
+     *
+     * @return The token type, or null for every type.
+     */
+    public TokenType getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * Sets the type of the tokens of the user to revoke.
+     *
+     * @param tokenType The token type.
+     */
+    public void setTokenType(TokenType tokenType) {
+        this.tokenType = tokenType;
+    }
+
+    /**
+     * Gets the state of the tokens of the user to revoke.
+     *
+     * @return The token state, or null for every state.
+     */
+    public TokenState getTokenState() {
+        return tokenState;
+    }
+
+    /**
+     * Sets the state of the tokens of the user to revoke. Unlike the lenient
+     * JSON creator of TokenState, an unknown state is rejected, so that a typo
+     * never widens the revocation to every state.
+     *
+     * @param tokenState The name of the token state.
+     * @throws IllegalArgumentException if the state is unknown.
+     */
+    @JsonProperty("token_state")
+    public void setTokenState(String tokenState) {
+        this.tokenState = tokenState == null ? null : new TokenState.TokenStateConverter().convert(tokenState);
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BulkRevocationOutcome class represents a line of the response to a
+ * bulk revocation request: the outcome of one of its items, identified by
+ * the index of the item among the lines of the request, since the outcomes
+ * are sent in the order the items complete. An item given up because it did
+ * not complete in time may be followed by a late line with its actual
+ * outcome.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkRevocationOutcome {
+
+    /**
+     * The index of the item among the lines of the request, from 0.
+     */
+    @JsonProperty("index")
+    private int index;
+
+    /**
+     * The serial number of the token of the item, if it names one.
+     */
+    @JsonProperty("serial_number")
+    private String serialNumber;
+
+    /**
+     * The unique username of the user of the item, if it names one.
+     */
+    @JsonProperty("username")
+    private String username;
+
+    /**
+     * Whether the token of the item was revoked, if it names one.
+     */
+    @JsonProperty("revoked")
+    private Boolean revoked;
+
+    /**
+     * Whether every token of the user of the item was revoked, by serial
+     * number, if it names a user; null for a token whose revocation did not
+     * complete in time and whose outcome is unknown.
+     */
+    @JsonProperty("results")
+    private Map<String, Boolean> results;
+
+    /**
+     * The reason why the item could not be handled, if it could not.
+     */
+    @JsonProperty("error")
+    private String error;
+
+    /**
+     * Whether the outcome comes after the item was reported as given up.
+     */
+    @JsonProperty("late")
+    private Boolean late;
+
+    /**
+     * Constructor for the BulkRevocationOutcome class.
+     *
+     * @param index The index of the item among the lines of the request.
+     */
+    public BulkRevocationOutcome(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Gets the index of the item among the lines of the request.
+     *
+     * @return The index, from 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the serial number of the token of the item.
+     *
+     * @return The serial number, or null if the item names a user.
+     */
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    /**
+     * Sets the serial number of the token of the item.
+     *
+     * @param serialNumber The serial number.
+     */
+    public void setSerialNumber(String serialNumber) {
+        this.serialNumber = serialNumber;
+    }
+
+    /**
+     * Gets the unique username of the user of the item.
+     *
+     * @return The unique username, or null if the item names a token.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Sets the unique username of the user of the item.
+     *
+     * @param username The unique username.
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Tells whether the token of the item was revoked.
+     *
+     * @return true if it was, false if it was not, or null if the item names
+     *         a user.
+     */
+    public Boolean getRevoked() {
+        return revoked;
+    }
+
+    /**
+     * Sets whether the token of the item was revoked.
+     *
+     * @param revoked true if it was.
+     */
+    public void setRevoked(Boolean revoked) {
+        this.revoked = revoked;
+    }
+
+    /**
+     * Gets whether every token of the user of the item was revoked.
+     *
+     * @return The revocation results by serial number, or null if the item
+     *         names a token.
+     */
+    public Map<String, Boolean> getResults() {
+        return results;
+    }
+
+    /**
+     * Sets whether every token of the user of the item was revoked.
+     *
+     * @param results The revocation results by serial number.
+     */
+    public void setResults(Map<String, Boolean> results) {
+        this.results = results;
+    }
+
+    /**
+     * Gets the reason why the item could not be handled.
+     *
+     * @return The reason, or null if it was handled.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Sets the reason why the item could not be handled.
+     *
+     * @param error The reason.
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Tells whether the outcome comes after the item was reported as given up.
+     *
+     * @return true if it does, or null if the item was not given up.
+     */
+    public Boolean getLate() {
+        return late;
+    }
+
+    /**
+     * Sets whether the outcome comes after the item was reported as given up.
+     *
+     * @param late true if it does.
+     */
+    public void setLate(Boolean late) {
+        this.late = late;
+    }
+}
@@ -0,0 +1,554 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BulkRevocationService class revokes the tokens named by a bulk
+ * request, such as the ones of the users leaving in an offboarding wave. The
+ * request is read as newline-delimited JSON, one item per line, naming either
+ * a serial number or a user whose tokens are revoked, and the outcome of
+ * every item is written back as a line of its own as soon as the item
+ * completes. Up to a few items of a request are revoked at once, on threads
+ * shared by all the bulk requests, each through the session pool like any
+ * other call; the request is not read further while that many items are in
+ * progress, so that a request of any size takes a bounded amount of memory.
+ * The items waiting for a thread are bounded too: an item finding the queue
+ * full is revoked on the thread of the request. Every item runs with a
+ * deadline of its own, and an item that has not reported its outcome shortly
+ * after its deadline is written back as timed out, with an unknown outcome,
+ * so that the response always completes. Every call still goes through the rate limit of its organization, and an
+ * item rejected by it is tried again once the Retry-After has elapsed rather
+ * than failed. The tokens of a single user can be revoked the same way: the
+ * result of every token is written back as a line as soon as its revocation
+ * completes, and a last line sums them up.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+@Service
+public class BulkRevocationService {
+
+    /**
+     * This is the logger instance for the BulkRevocationService class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(BulkRevocationService.class.getName());
+
+    /**
+     * The time an item is waited for after its deadline, for its last call to
+     * return, in milliseconds.
+     */
+    private static final long ITEM_GRACE_MS = 5000;
+
+    /**
+     * The TokenService revoking the tokens.
+     */
+    private final TokenService tokenService;
+
+    /**
+     * The ObjectMapper reading the items and writing the outcomes.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The delimiter between the realm ID and the username of a user.
+     */
+    private final String delimiter;
+
+    /**
+     * The number of items a bulk request revokes at once.
+     */
+    private final int parallelism;
+
+    /**
+     * The number of times an item rejected by a rate limit is tried again.
+     */
+    private final int rateLimitRetries;
+
+    /**
+     * The time an item is given to complete, in milliseconds.
+     */
+    private final long itemTimeoutMs;
+
+    /**
+     * The executor revoking the items of all the bulk requests.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor for the BulkRevocationService class.
+     *
+     * @param tokenService  The TokenService revoking the tokens.
+     * @param objectMapper  The ObjectMapper reading the items and writing the
+     *                      outcomes.
+     * @param settings      The application settings holding the bulk
+     *                      revocation settings.
+     * @param meterRegistry The registry the occupancy of the executor is
+     *                      published to.
+     * @param delimiter     The delimiter between the realm ID and the username
+     *                      of a user.
+     */
+    public BulkRevocationService(TokenService tokenService, ObjectMapper objectMapper, Settings settings,
+            MeterRegistry meterRegistry, @Value("${api.user.delimiter}") String delimiter) {
+        this.tokenService = tokenService;
+        this.objectMapper = objectMapper;
+        this.delimiter = delimiter;
+
+        BulkRevocationSettings bulkRevocation = settings.getBulkRevocation();
+        this.parallelism = bulkRevocation.getParallelism();
+        this.rateLimitRetries = bulkRevocation.getRateLimitRetries();
+        this.itemTimeoutMs = bulkRevocation.getItemTimeoutMs();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(bulkRevocation.getThreads(), bulkRevocation.getThreads(), 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(bulkRevocation.getQueueSize()), runnable -> {
+                    Thread thread = new Thread(runnable, "bsidca-bulk-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(this.executor, "bsidca.bulk", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Creates the body revoking the items of a bulk request as they are read
+     * and writing their outcomes back as they complete.
+     *
+     * @param organization The organization where the tokens reside.
+     * @param items        The body of the request, one item per line.
+     * @return The body of the response, one outcome per line.
+     */
+    public StreamingResponseBody revoke(String organization, InputStream items) {
+        return out -> revoke(organization, items, out);
+    }
+
+    /**
+     * Revokes the items of a bulk request as they are read, and writes their
+     * outcomes back as they complete.
+     *
+     * @param organization The organization where the tokens reside.
+     * @param items        The body of the request, one item per line.
+     * @param out          The body of the response, one outcome per line.
+     * @throws IOException if the request cannot be read or the client has gone.
+     */
+    private void revoke(String organization, InputStream items, OutputStream out) throws IOException {
+        BlockingQueue<BulkRevocationOutcome> completed = new LinkedBlockingQueue<>();
+        // The items in progress, by index, in the order they were started, and those given up among them
+        Map<Integer, Long> deadlines = new LinkedHashMap<>();
+        Set<Integer> overdue = new HashSet<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(items, StandardCharsets.UTF_8));
+        int index = 0;
+
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                int itemIndex = index++;
+                BulkRevocationItem item;
+                try {
+                    item = this.objectMapper.readValue(line, BulkRevocationItem.class);
+                } catch (JsonProcessingException e) {
+                    BulkRevocationOutcome outcome = new BulkRevocationOutcome(itemIndex);
+                    outcome.setError("Invalid item: " + e.getOriginalMessage());
+                    write(out, outcome);
+                    continue;
+                }
+
+                // Wait for an item to complete before starting one more; an item given up
+                // still holds its place until its task returns
+                while (deadlines.size() >= this.parallelism) {
+                    write(out, next(completed, deadlines, overdue));
+                }
+                deadlines.put(itemIndex, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.itemTimeoutMs));
+                Runnable task = () -> revokeItem(organization, itemIndex, item, abandoned, completed);
+                try {
+                    this.executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // Every thread is busy and the queue is full: revoke the item here
+                    task.run();
+                }
+
+                // Send the outcomes of the items completed in the meantime
+                for (BulkRevocationOutcome outcome; (outcome = poll(completed, deadlines, overdue)) != null;) {
+                    write(out, outcome);
+                }
+                out.flush();
+            }
+
+            // The items given up are not waited for once every other item has completed
+            while (deadlines.size() > overdue.size()) {
+                write(out, next(completed, deadlines, overdue));
+                if (completed.isEmpty()) {
+                    out.flush();
+                }
+            }
+            for (BulkRevocationOutcome outcome; (outcome = poll(completed, deadlines, overdue)) != null;) {
+                write(out, outcome);
+            }
+            out.flush();
+            Log.log(Level.INFO, "Handled the {0} items of a bulk revocation in {1}",
+                    new Object[] { index, organization });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk revocation interrupted", e);
+        } finally {
+            // The items not started yet are skipped if the client has gone
+            abandoned.set(true);
+        }
+    }
+
+    /**
+     * Waits for the next outcome of an item in progress. An item that has not
+     * reported its outcome shortly after its deadline is given up, and its
+     * outcome is reported as unknown; it stays in progress until its task
+     * returns, and the outcome it reports then is sent late. When every item
+     * in progress has been given up, this waits for one of them to return.
+     *
+     * @param completed The outcomes reported by the items.
+     * @param deadlines The deadlines of the items in progress, by index, in the
+     *                  order the items were started.
+     * @param overdue   The items in progress that were given up.
+     * @return The outcome of an item, completed or given up.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private static BulkRevocationOutcome next(BlockingQueue<BulkRevocationOutcome> completed,
+            Map<Integer, Long> deadlines, Set<Integer> overdue) throws InterruptedException {
+        Map.Entry<Integer, Long> oldest = null;
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            if (!overdue.contains(entry.getKey())) {
+                oldest = entry;
+                break;
+            }
+        }
+        if (oldest == null) {
+            return settle(completed.take(), deadlines, overdue);
+        }
+
+        long waitNanos = oldest.getValue() + TimeUnit.MILLISECONDS.toNanos(ITEM_GRACE_MS) - System.nanoTime();
+        BulkRevocationOutcome outcome = completed.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+        if (outcome == null) {
+            overdue.add(oldest.getKey());
+            return timedOutOutcome(oldest.getKey());
+        }
+        return settle(outcome, deadlines, overdue);
+    }
+
+    /**
+     * Takes the outcome of an item that has already completed, if any.
+     *
+     * @param completed The outcomes reported by the items.
+     * @param deadlines The deadlines of the items in progress, by index.
+     * @param overdue   The items in progress that were given up.
+     * @return The outcome of an item, which is no longer in progress, or null.
+     */
+    private static BulkRevocationOutcome poll(BlockingQueue<BulkRevocationOutcome> completed,
+            Map<Integer, Long> deadlines, Set<Integer> overdue) {
+        BulkRevocationOutcome outcome = completed.poll();
+        return outcome == null ? null : settle(outcome, deadlines, overdue);
+    }
+
+    /**
+     * Takes an item out of the items in progress once its task has reported
+     * its outcome.
+     *
+     * @param outcome   The outcome reported by the item.
+     * @param deadlines The deadlines of the items in progress, by index.
+     * @param overdue   The items in progress that were given up.
+     * @return The outcome, marked late if the item was given up.
+     */
+    private static BulkRevocationOutcome settle(BulkRevocationOutcome outcome, Map<Integer, Long> deadlines,
+            Set<Integer> overdue) {
+        deadlines.remove(outcome.getIndex());
+        if (overdue.remove(outcome.getIndex())) {
+            outcome.setLate(Boolean.TRUE);
+        }
+        return outcome;
+    }
+
+    /**
+     * Revokes an item with a deadline of its own and reports its outcome.
+     * The outcome is always reported, even if the item failed unexpectedly.
+     *
+     * @param organization The organization where the tokens reside.
+     * @param index        The index of the item.
+     * @param item         The item.
+     * @param abandoned    Whether the client has gone, in which case the item
+     *                     is skipped.
+     * @param completed    The outcomes reported by the items.
+     */
+    private void revokeItem(String organization, int index, BulkRevocationItem item, AtomicBoolean abandoned,
+            BlockingQueue<BulkRevocationOutcome> completed) {
+        BulkRevocationOutcome outcome = null;
+        BsidcaDeadline previous = BsidcaDeadline.bind(BsidcaDeadline.after(this.itemTimeoutMs));
+        try {
+            outcome = abandoned.get() ? abandonedOutcome(index) : revoke(organization, index, item);
+        } finally {
+            BsidcaDeadline.restore(previous);
+            if (outcome == null) {
+                outcome = new BulkRevocationOutcome(index);
+                outcome.setError("The item failed unexpectedly");
+            }
+            completed.add(outcome);
+        }
+    }
+
+    /**
+     * Creates the body revoking the tokens of a user and writing the result of
+     * every token back as soon as its revocation completes. The body runs with
+     * the deadline of the request.
+     *
+     * @param organization   The organization where the tokens reside.
+     * @param uniqueUsername The unique username of the user.
+     * @param tokenType      The type of the tokens to revoke, or null for all.
+     * @param tokenState     The state of the tokens to revoke, or null for all.
+     * @return The body of the response, one result per line.
+     */
+    public StreamingResponseBody revokeUser(String organization, String uniqueUsername, TokenType tokenType,
+            TokenState tokenState) {
+        BsidcaDeadline deadline = BsidcaDeadline.current();
+        return out -> {
+            BsidcaDeadline previous = BsidcaDeadline.bind(deadline);
+            try {
+                revokeUser(organization, uniqueUsername, tokenType, tokenState, out);
+            } finally {
+                BsidcaDeadline.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Revokes the tokens of a user, writing the result of every token back as
+     * a line as soon as its revocation completes, then a line summing them up
+     * or telling why the revocation failed.
+     *
+     * @param organization   The organization where the tokens reside.
+     * @param uniqueUsername The unique username of the user.
+     * @param tokenType      The type of the tokens to revoke, or null for all.
+     * @param tokenState     The state of the tokens to revoke, or null for all.
+     * @param out            The body of the response.
+     * @throws IOException if the client has gone.
+     */
+    private void revokeUser(String organization, String uniqueUsername, TokenType tokenType, TokenState tokenState,
+            OutputStream out) throws IOException {
+        AtomicBoolean gone = new AtomicBoolean();
+        Map<String, Object> last = new LinkedHashMap<>();
+        last.put("username", uniqueUsername);
+        try {
+            Map<String, Boolean> results = this.tokenService.revokeTokenByUsername(uniqueUsername, organization,
+                    tokenType, tokenState, (serial, revoked) -> {
+                        Map<String, Object> line = new LinkedHashMap<>();
+                        line.put("serial_number", serial);
+                        line.put("revoked", revoked);
+                        if (revoked == null) {
+                            line.put("error", "The revocation did not complete in time, its outcome is unknown");
+                        }
+                        writeLine(out, line, gone);
+                    });
+            last.put("results", results);
+            BsidcaDeadline deadline = BsidcaDeadline.current();
+            last.put("incomplete", deadline != null && deadline.isIncomplete());
+        } catch (RuntimeException e) {
+            Log.log(Level.WARNING, "Could not revoke the tokens of {0} in {1}: {2}",
+                    new Object[] { uniqueUsername, organization, e.getMessage() });
+            last.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        writeLine(out, last, gone);
+        if (gone.get()) {
+            throw new IOException("The client has gone");
+        }
+    }
+
+    /**
+     * Writes a line of the response and sends it at once, unless the client
+     * has gone. The revocations completing on several threads at once, the
+     * lines are written one at a time.
+     *
+     * @param out  The body of the response.
+     * @param line The line.
+     * @param gone Whether the client has gone, set if the line cannot be sent.
+     */
+    private void writeLine(OutputStream out, Map<String, Object> line, AtomicBoolean gone) {
+        synchronized (out) {
+            if (gone.get()) {
+                return;
+            }
+            try {
+                out.write(this.objectMapper.writeValueAsBytes(line));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                gone.set(true);
+            }
+        }
+    }
+
+    /**
+     * Revokes the token or the tokens of the user named by an item.
+     *
+     * @param organization The organization where the tokens reside.
+     * @param index        The index of the item.
+     * @param item         The item.
+     * @return The outcome of the item.
+     */
+    private BulkRevocationOutcome revoke(String organization, int index, BulkRevocationItem item) {
+        BulkRevocationOutcome outcome = new BulkRevocationOutcome(index);
+        try {
+            if (item.getSerialNumber() != null) {
+                outcome.setSerialNumber(item.getSerialNumber());
+                outcome.setRevoked(withRateLimitRetries(() -> revokeSerial(organization, item.getSerialNumber())));
+            } else if (item.getUsername() != null) {
+                String uniqueUsername = item.getRealmId() == null ? item.getUsername()
+                        : UserUtils.getUniqueUsername(item.getRealmId(), this.delimiter, item.getUsername());
+                outcome.setUsername(uniqueUsername);
+                Map<String, Boolean> results = withRateLimitRetries(() -> this.tokenService
+                        .revokeTokenByUsername(uniqueUsername, organization, item.getTokenType(), item.getTokenState()));
+                outcome.setResults(results);
+            } else {
+                outcome.setError("The item names neither a serial_number nor a username");
+            }
+        } catch (RuntimeException e) {
+            Log.log(Level.WARNING, "Could not handle the item {0} of a bulk revocation in {1}: {2}",
+                    new Object[] { index, organization, e.getMessage() });
+            outcome.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        return outcome;
+    }
+
+    /**
+     * Revokes a token from the user it is assigned to.
+     *
+     * @param organization The organization where the token resides.
+     * @param serial       The serial number of the token.
+     * @return true if the token was revoked, false otherwise.
+     */
+    private boolean revokeSerial(String organization, String serial) {
+        TokenSchema token = this.tokenService.readTokenBySerialNumber(serial, organization);
+        if (token == null) {
+            throw new IllegalStateException("The token could not be read");
+        }
+        return this.tokenService.revokeToken(token.getUserId(), serial, organization);
+    }
+
+    /**
+     * Runs a revocation, trying it again once the Retry-After has elapsed
+     * while it is rejected by the rate limit of its organization, unless the
+     * deadline of the item would expire first.
+     *
+     * @param revocation The revocation.
+     * @return The result of the revocation.
+     */
+    private <T> T withRateLimitRetries(Supplier<T> revocation) {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return revocation.get();
+            } catch (BsidcaRateLimitException e) {
+                long retryAfterMs = TimeUnit.SECONDS.toMillis(Math.max(1, e.getRetryAfterSeconds()));
+                if (attempt >= this.rateLimitRetries || BsidcaDeadline.remainingMs(Long.MAX_VALUE) <= retryAfterMs) {
+                    throw e;
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(retryAfterMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the outcome of an item skipped because the client has gone.
+     *
+     * @param index The index of the item.
+     * @return The outcome of the item.
+     */
+    private static BulkRevocationOutcome abandonedOutcome(int index) {
+        BulkRevocationOutcome outcome = new BulkRevocationOutcome(index);
+        outcome.setError("The bulk revocation was abandoned");
+        return outcome;
+    }
+
+    /**
+     * Creates the outcome of an item given up because it did not complete in
+     * time. The item may still have revoked tokens.
+     *
+     * @param index The index of the item.
+     * @return The outcome of the item.
+     */
+    private static BulkRevocationOutcome timedOutOutcome(int index) {
+        BulkRevocationOutcome outcome = new BulkRevocationOutcome(index);
+        outcome.setError("The item did not complete in time, its outcome is unknown");
+        return outcome;
+    }
+
+    /**
+     * Writes the outcome of an item as a line of the response.
+     *
+     * @param out     The body of the response.
+     * @param outcome The outcome of the item.
+     * @throws IOException if the client has gone.
+     */
+    private void write(OutputStream out, BulkRevocationOutcome outcome) throws IOException {
+        out.write(this.objectMapper.writeValueAsBytes(outcome));
+        out.write('\n');
+    }
+
+    /**
+     * Stops the threads revoking the items when the application context is
+     * closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
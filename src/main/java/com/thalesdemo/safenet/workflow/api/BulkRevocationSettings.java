@@ -0,0 +1,156 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The BulkRevocationSettings class represents the optional "bulk_revocation"
+ * section of the settings.json file. It controls the bulk revocation of
+ * tokens: how many items a bulk request revokes at once, how many threads
+ * all the bulk requests share and how many items may wait for them, how long
+ * an item may take, and how many times an item rejected by the rate limit of
+ * its organization is tried again.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BulkRevocationSettings {
+
+    /**
+     * The number of items a bulk request revokes at once.
+     */
+    @JsonProperty("parallelism")
+    private int parallelism = 8;
+
+    /**
+     * The number of threads revoking the items of all the bulk requests.
+     */
+    @JsonProperty("threads")
+    private int threads = 16;
+
+    /**
+     * The number of items of all the bulk requests that may wait for a thread.
+     */
+    @JsonProperty("queue_size")
+    private int queueSize = 256;
+
+    /**
+     * The time an item is given to complete, in milliseconds.
+     */
+    @JsonProperty("item_timeout_ms")
+    private long itemTimeoutMs = 60000;
+
+    /**
+     * The number of times an item rejected by the rate limit of its
+     * organization is tried again.
+     */
+    @JsonProperty("rate_limit_retries")
+    private int rateLimitRetries = 10;
+
+    /**
+     * Gets the number of items a bulk request revokes at once.
+     *
+     * @return The number of items, at least 1.
+     */
+    public int getParallelism() {
+        return Math.max(1, parallelism);
+    }
+
+    /**
+     * Sets the number of items a bulk request revokes at once.
+     *
+     * @param parallelism The number of items.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the number of threads revoking the items of all the bulk requests.
+     *
+     * @return The number of threads, at least 1.
+     */
+    public int getThreads() {
+        return Math.max(1, threads);
+    }
+
+    /**
+     * Sets the number of threads revoking the items of all the bulk requests.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the number of items of all the bulk requests that may wait for a
+     * thread.
+     *
+     * @return The size of the queue, at least 1.
+     */
+    public int getQueueSize() {
+        return Math.max(1, queueSize);
+    }
+
+    /**
+     * Sets the number of items of all the bulk requests that may wait for a
+     * thread.
+     *
+     * @param queueSize The size of the queue.
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Gets the time an item is given to complete.
+     *
+     * @return The timeout of an item in milliseconds, at least 1000.
+     */
+    public long getItemTimeoutMs() {
+        return Math.max(1000, itemTimeoutMs);
+    }
+
+    /**
+     * Sets the time an item is given to complete.
+     *
+     * @param itemTimeoutMs The timeout of an item in milliseconds.
+     */
+    public void setItemTimeoutMs(long itemTimeoutMs) {
+        this.itemTimeoutMs = itemTimeoutMs;
+    }
+
+    /**
+     * Gets the number of times an item rejected by the rate limit of its
+     * organization is tried again.
+     *
+     * @return The number of retries, at least 0.
+     */
+    public int getRateLimitRetries() {
+        return Math.max(0, rateLimitRetries);
+    }
+
+    /**
+     * Sets the number of times an item rejected by the rate limit of its
+     * organization is tried again.
+     *
+     * @param rateLimitRetries The number of retries.
+     */
+    public void setRateLimitRetries(int rateLimitRetries) {
+        this.rateLimitRetries = rateLimitRetries;
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The ConnectionPoolStats class is a snapshot of the pool of HTTP connections
+ * to the BSIDCA service, as returned by the /connections endpoint. It holds
+ * the number of leased, pending and available connections of the whole pool
+ * and of every route, along with the time spent waiting for a connection.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public class ConnectionPoolStats {
+
+    /**
+     * The number of connections currently leased.
+     */
+    @JsonProperty("leased")
+    private final int leased;
+
+    /**
+     * The number of requests waiting for a connection.
+     */
+    @JsonProperty("pending")
+    private final int pending;
+
+    /**
+     * The number of idle connections kept open.
+     */
+    @JsonProperty("available")
+    private final int available;
+
+    /**
+     * The current size of the pool.
+     */
+    @JsonProperty("size")
+    private final int size;
+
+    /**
+     * The number of connections the pool never shrinks below.
+     */
+    @JsonProperty("min_connections")
+    private final int minConnections;
+
+    /**
+     * The number of connections the pool never grows beyond.
+     */
+    @JsonProperty("max_connections")
+    private final int maxConnections;
+
+    /**
+     * The figures of every route of the pool.
+     */
+    @JsonProperty("routes")
+    private final List<RouteStats> routes;
+
+    /**
+     * Constructor for the ConnectionPoolStats class.
+     *
+     * @param leased         The number of connections currently leased.
+     * @param pending        The number of requests waiting for a connection.
+     * @param available      The number of idle connections kept open.
+     * @param size           The current size of the pool.
+     * @param minConnections The number of connections the pool never shrinks
+     *                       below.
+     * @param maxConnections The number of connections the pool never grows
+     *                       beyond.
+     * @param routes         The figures of every route of the pool.
+     */
+    public ConnectionPoolStats(int leased, int pending, int available, int size, int minConnections,
+            int maxConnections, List<RouteStats> routes) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.size = size;
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.routes = routes;
+    }
+
+    /**
+     * Gets the number of connections currently leased.
+     *
+     * @return The number of leased connections.
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * Gets the number of requests waiting for a connection.
+     *
+     * @return The number of pending requests.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Gets the number of idle connections kept open.
+     *
+     * @return The number of available connections.
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * Gets the current size of the pool.
+     *
+     * @return The size of the pool.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of connections the pool never shrinks below.
+     *
+     * @return The minimum number of connections.
+     */
+    public int getMinConnections() {
+        return minConnections;
+    }
+
+    /**
+     * Gets the number of connections the pool never grows beyond.
+     *
+     * @return The maximum number of connections.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Gets the figures of every route of the pool.
+     *
+     * @return The figures of every route.
+     */
+    public List<RouteStats> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * The figures of the connections of one route.
+     */
+    public static class RouteStats {
+
+        /**
+         * The target host of the route.
+         */
+        @JsonProperty("route")
+        private final String route;
+
+        /**
+         * The number of connections of the route currently leased.
+         */
+        @JsonProperty("leased")
+        private final int leased;
+
+        /**
+         * The number of requests waiting for a connection of the route.
+         */
+        @JsonProperty("pending")
+        private final int pending;
+
+        /**
+         * The number of idle connections of the route kept open.
+         */
+        @JsonProperty("available")
+        private final int available;
+
+        /**
+         * The maximum number of connections of the route.
+         */
+        @JsonProperty("max")
+        private final int max;
+
+        /**
+         * The number of connection requests made on the route.
+         */
+        @JsonProperty("requests")
+        private final long requests;
+
+        /**
+         * The average time spent waiting for a connection, in milliseconds.
+         */
+        @JsonProperty("average_wait_ms")
+        private final double averageWaitMs;
+
+        /**
+         * The longest time spent waiting for a connection, in milliseconds.
+         */
+        @JsonProperty("max_wait_ms")
+        private final double maxWaitMs;
+
+        /**
+         * Constructor for the RouteStats class.
+         *
+         * @param route         The target host of the route.
+         * @param leased        The number of connections currently leased.
+         * @param pending       The number of requests waiting for a connection.
+         * @param available     The number of idle connections kept open.
+         * @param max           The maximum number of connections of the route.
+         * @param requests      The number of connection requests made.
+         * @param averageWaitMs The average time spent waiting, in milliseconds.
+         * @param maxWaitMs     The longest time spent waiting, in milliseconds.
+         */
+        public RouteStats(String route, int leased, int pending, int available, int max, long requests,
+                double averageWaitMs, double maxWaitMs) {
+            this.route = route;
+            this.leased = leased;
+            this.pending = pending;
+            this.available = available;
+            this.max = max;
+            this.requests = requests;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        /**
+         * Gets the target host of the route.
+         *
+         * @return The target host.
+         */
+        public String getRoute() {
+            return route;
+        }
+
+        /**
+         * Gets the number of connections of the route currently leased.
+         *
+         * @return The number of leased connections.
+         */
+        public int getLeased() {
+            return leased;
+        }
+
+        /**
+         * Gets the number of requests waiting for a connection of the route.
+         *
+         * @return The number of pending requests.
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * Gets the number of idle connections of the route kept open.
+         *
+         * @return The number of available connections.
+         */
+        public int getAvailable() {
+            return available;
+        }
+
+        /**
+         * Gets the maximum number of connections of the route.
+         *
+         * @return The maximum number of connections.
+         */
+        public int getMax() {
+            return max;
+        }
+
+        /**
+         * Gets the number of connection requests made on the route.
+         *
+         * @return The number of connection requests.
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Gets the average time spent waiting for a connection.
+         *
+         * @return The average wait in milliseconds.
+         */
+        public double getAverageWaitMs() {
+            return averageWaitMs;
+        }
+
+        /**
+         * Gets the longest time spent waiting for a connection.
+         *
+         * @return The longest wait in milliseconds.
+         */
+        public double getMaxWaitMs() {
+            return maxWaitMs;
+        }
+    }
+}
@@ -59,6 +59,20 @@ public class EnrollmentService {
     @Autowired
     WorkflowService workflowService;
 
+    /**
+     * The cache of the tokens, whose entries of a user are dropped once the
+     * user has been enrolled.
+     */
+    @Autowired
+    TokenCache tokenCache;
+
+    /**
+     * The index of the serials owned by every user, whose entry of a user is
+     * dropped once the user has been enrolled.
+     */
+    @Autowired
+    TokenOwnerIndex ownerIndex;
+
     /**
      * The logger instance for the {@code EnrollmentService} class.
      */
@@ -224,7 +238,9 @@ public class EnrollmentService {
         GetEnrollmentURLResponseDocument getEnrollmentUrlResponseDocument;
         try {
             // Invoke the web service to obtain the enrollment URL for the provisioned token
-            getEnrollmentUrlResponseDocument = this.workflowService.getBsidca().getEnrollmentURL(enrollmentUrlDocument);
+            getEnrollmentUrlResponseDocument = this.workflowService.invoke(BsidcaOperation.GET_ENROLLMENT_URL,
+                    enrollmentRequest.getOrganization(),
+                    session -> session.getStub().getEnrollmentURL(enrollmentUrlDocument));
             GetEnrollmentURLResponseDocument.GetEnrollmentURLResponse getEnrollmentUrlResponse = getEnrollmentUrlResponseDocument
                     .getGetEnrollmentURLResponse();
             String enrollmentUrlResult = getEnrollmentUrlResponse.getGetEnrollmentURLResult();
@@ -270,8 +286,10 @@ public class EnrollmentService {
         try {
             // Call the getMobilePASSProvisioningActivationCode method on the BSIDCA Web
             // Service
-            GetMobilePASSProvisioningActivationCodeResponseDocument responseDocument = this.workflowService.getBsidca()
-                    .getMobilePASSProvisioningActivationCode(getMobilePassActivationCodeDocument);
+            GetMobilePASSProvisioningActivationCodeResponseDocument responseDocument = this.workflowService
+                    .invoke(BsidcaOperation.GET_MOBILEPASS_PROVISIONING_ACTIVATION_CODE, organization,
+                            session -> session.getStub()
+                                    .getMobilePASSProvisioningActivationCode(getMobilePassActivationCodeDocument));
             // Return the base64 mobilepass activation code from the response document
             return responseDocument.getGetMobilePASSProvisioningActivationCodeResponse()
                     .getGetMobilePASSProvisioningActivationCodeResult();
@@ -333,8 +351,9 @@ public class EnrollmentService {
                 enrollmentData.setCode(enrollmentCode);
 
                 // Call processEnrollment method to initiate enrollment process
-                ProcessEnrollmentResponseDocument enrollmentResponseDocument = this.workflowService.getBsidca()
-                        .processEnrollment(enrollmentDocument);
+                ProcessEnrollmentResponseDocument enrollmentResponseDocument = this.workflowService
+                        .invoke(BsidcaOperation.PROCESS_ENROLLMENT, enrollmentRequest.getOrganization(),
+                                session -> session.getStub().processEnrollment(enrollmentDocument));
 
                 // Retrieve enrollment information from response
                 ProcessEnrollmentResponseDocument.ProcessEnrollmentResponse enrollmentResponseData = enrollmentResponseDocument
@@ -366,8 +385,9 @@ public class EnrollmentService {
                 finishEnrollmentData.setOTP(userResponseToChallenge);
 
                 // Call processEnrollment method to complete enrollment process
-                ProcessEnrollmentResponseDocument finishEnrollmentResponseDocument = this.workflowService.getBsidca()
-                        .processEnrollment(finishEnrollmentDocument);
+                ProcessEnrollmentResponseDocument finishEnrollmentResponseDocument = this.workflowService
+                        .invoke(BsidcaOperation.PROCESS_ENROLLMENT, enrollmentRequest.getOrganization(),
+                                session -> session.getStub().processEnrollment(finishEnrollmentDocument));
 
                 // Get the ProcessEnrollmentResponse from the response document.
                 ProcessEnrollmentResponseDocument.ProcessEnrollmentResponse finishEnrollmentResponse = finishEnrollmentResponseDocument
@@ -390,8 +410,15 @@ public class EnrollmentService {
             }
         } catch (RemoteException e) {
             Log.log(Level.SEVERE, "BSIDCA remote server exception while enrolling token via API:", e);
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             Log.log(Level.SEVERE, "BSIDCA general exception while enrolling token via API:", e);
+        } finally {
+            // The enrollment changes the tokens of the user
+            this.tokenCache.invalidateOwner(enrollmentRequest.getOrganization(), enrollmentRequest.getUsername());
+            this.ownerIndex.invalidate(enrollmentRequest.getOrganization(), enrollmentRequest.getUsername());
         }
         return tokenData;
     }
@@ -420,6 +447,9 @@ public class EnrollmentService {
                 provTaskId = provisionStandardToken(username, organization, tokenType);
                 break;
         }
+        // The provisioning changes the tokens of the user
+        this.tokenCache.invalidateOwner(organization, username);
+        this.ownerIndex.invalidate(organization, username);
         // Returns the ID of the provisioning task for either type of token.
         return provTaskId;
     }
@@ -449,8 +479,10 @@ public class EnrollmentService {
         provisioningRequestData.setDescription(description);
         ArrayOfProvisioningResult provisioningResults;
         try {
-            provisioningResults = this.workflowService.getBsidca()
-                    .provisionUsersGrIDsureTokens(provisioningRequest).getProvisionUsersGrIDsureTokensResponse()
+            provisioningResults = this.workflowService
+                    .invoke(BsidcaOperation.PROVISION_USERS_GRIDSURE_TOKENS, organization,
+                            session -> session.getStub().provisionUsersGrIDsureTokens(provisioningRequest))
+                    .getProvisionUsersGrIDsureTokensResponse()
                     .getProvisionUsersGrIDsureTokensResult();
         } catch (RemoteException e) {
             Log.log(Level.SEVERE, "BSIDCA remote server exception while provisioning GRID token:", e);
@@ -471,6 +503,9 @@ public class EnrollmentService {
             Log.log(Level.FINE, "Provisioning task ID found: {0}", taskId);
         } catch (NumberFormatException e) {
             Log.log(Level.SEVERE, "Exception caught: Could not locate provisioning task ID in BSIDCA response.", e);
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             Log.log(Level.SEVERE, "General exception while retrieving provisioning task ID from BSIDCA:", e);
         }
@@ -504,8 +539,9 @@ public class EnrollmentService {
         provisionUsersData.setTokenClass(convertedTokenType);
         Log.log(Level.FINE, "Token type requested: {0}", convertedTokenType);
         try {
-            ProvisionUsersResponseDocument provisionUsersResponseDocument = this.workflowService.getBsidca()
-                    .provisionUsers(provisionUsersDocument);
+            ProvisionUsersResponseDocument provisionUsersResponseDocument = this.workflowService
+                    .invoke(BsidcaOperation.PROVISION_USERS, organization,
+                            session -> session.getStub().provisionUsers(provisionUsersDocument));
             boolean result = ProvisioningResult.EMAIL_SENT == provisionUsersResponseDocument.getProvisionUsersResponse()
                     .getProvisionUsersResult().getProvisioningResultArray(0);
             Log.log(Level.FINE, "Provisioning result? {0}", result);
@@ -523,6 +559,9 @@ public class EnrollmentService {
             Log.log(Level.FINE, "Provisioning task ID found: {0}", taskId);
         } catch (NumberFormatException e) {
             Log.log(Level.SEVERE, "Caught exception: could not locate provisioning task ID in BSIDCA response.", e);
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             Log.log(Level.SEVERE, "General exception while retrieving provisioning task ID from BSIDCA:", e);
         }
@@ -556,8 +595,8 @@ public class EnrollmentService {
         try {
             // get the response from the BSIDCA service for the provisioning tasks
             GetProvisioningTasksForUserResponseDocument provisioningTasksResponseDocument = this.workflowService
-                    .getBsidca()
-                    .getProvisioningTasksForUser(getProvisioningTasksDocument);
+                    .invoke(BsidcaOperation.GET_PROVISIONING_TASKS_FOR_USER, organization,
+                            session -> session.getStub().getProvisioningTasksForUser(getProvisioningTasksDocument));
             GetProvisioningTasksForUserResponseDocument.GetProvisioningTasksForUserResponse provisioningTasksResponse = provisioningTasksResponseDocument
                     .getGetProvisioningTasksForUserResponse();
 
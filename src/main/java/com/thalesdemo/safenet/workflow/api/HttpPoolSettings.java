@@ -0,0 +1,233 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The HttpPoolSettings class represents the optional "http_pool" section of
+ * the settings.json file. It controls the bounds between which the pool of
+ * HTTP connections to the BSIDCA service is resized, how often it is resized,
+ * and the timeouts of the connections.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class HttpPoolSettings {
+
+    /**
+     * The default minimum number of connections of the pool.
+     */
+    private static final int DEFAULT_MIN_CONNECTIONS = 20;
+
+    /**
+     * The default maximum number of connections of the pool.
+     */
+    private static final int DEFAULT_MAX_CONNECTIONS = 60;
+
+    /**
+     * The default number of connections added or removed by one resize.
+     */
+    private static final int DEFAULT_RESIZE_STEP = 5;
+
+    /**
+     * The default interval between two resizes, in milliseconds.
+     */
+    private static final long DEFAULT_RESIZE_INTERVAL_MS = 5000;
+
+    /**
+     * The default socket and connect timeout, in milliseconds.
+     */
+    private static final int DEFAULT_TIMEOUT_MS = 20000;
+
+    /**
+     * The default time after which an idle connection is validated before being
+     * reused, in milliseconds.
+     */
+    private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MS = 20000;
+
+    /**
+     * The number of connections the pool starts with and never shrinks below.
+     */
+    @JsonProperty("min_connections")
+    private int minConnections = DEFAULT_MIN_CONNECTIONS;
+
+    /**
+     * The number of connections the pool never grows beyond.
+     */
+    @JsonProperty("max_connections")
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    /**
+     * The number of connections added or removed by one resize.
+     */
+    @JsonProperty("resize_step")
+    private int resizeStep = DEFAULT_RESIZE_STEP;
+
+    /**
+     * The interval between two resizes, in milliseconds. 0 disables resizing.
+     */
+    @JsonProperty("resize_interval_ms")
+    private long resizeIntervalMs = DEFAULT_RESIZE_INTERVAL_MS;
+
+    /**
+     * The socket (read) timeout of the connections, in milliseconds.
+     */
+    @JsonProperty("socket_timeout_ms")
+    private int socketTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+    /**
+     * The connect timeout of the connections, in milliseconds.
+     */
+    @JsonProperty("connect_timeout_ms")
+    private int connectTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+    /**
+     * The time after which an idle connection is validated before being reused,
+     * in milliseconds.
+     */
+    @JsonProperty("validate_after_inactivity_ms")
+    private int validateAfterInactivityMs = DEFAULT_VALIDATE_AFTER_INACTIVITY_MS;
+
+    /**
+     * Gets the number of connections the pool starts with and never shrinks
+     * below.
+     *
+     * @return The minimum number of connections, at least 1.
+     */
+    public int getMinConnections() {
+        return Math.max(1, minConnections);
+    }
+
+    /**
+     * Sets the number of connections the pool starts with and never shrinks
+     * below.
+     *
+     * @param minConnections The minimum number of connections.
+     */
+    public void setMinConnections(int minConnections) {
+        this.minConnections = minConnections;
+    }
+
+    /**
+     * Gets the number of connections the pool never grows beyond.
+     *
+     * @return The maximum number of connections, at least the minimum.
+     */
+    public int getMaxConnections() {
+        return Math.max(getMinConnections(), maxConnections);
+    }
+
+    /**
+     * Sets the number of connections the pool never grows beyond.
+     *
+     * @param maxConnections The maximum number of connections.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Gets the number of connections added or removed by one resize.
+     *
+     * @return The resize step, at least 1.
+     */
+    public int getResizeStep() {
+        return Math.max(1, resizeStep);
+    }
+
+    /**
+     * Sets the number of connections added or removed by one resize.
+     *
+     * @param resizeStep The resize step.
+     */
+    public void setResizeStep(int resizeStep) {
+        this.resizeStep = resizeStep;
+    }
+
+    /**
+     * Gets the interval between two resizes, in milliseconds.
+     *
+     * @return The resize interval in milliseconds, or 0 if resizing is disabled.
+     */
+    public long getResizeIntervalMs() {
+        return Math.max(0, resizeIntervalMs);
+    }
+
+    /**
+     * Sets the interval between two resizes, in milliseconds.
+     *
+     * @param resizeIntervalMs The resize interval in milliseconds.
+     */
+    public void setResizeIntervalMs(long resizeIntervalMs) {
+        this.resizeIntervalMs = resizeIntervalMs;
+    }
+
+    /**
+     * Gets the socket (read) timeout of the connections, in milliseconds.
+     *
+     * @return The socket timeout in milliseconds.
+     */
+    public int getSocketTimeoutMs() {
+        return socketTimeoutMs;
+    }
+
+    /**
+     * Sets the socket (read) timeout of the connections, in milliseconds.
+     *
+     * @param socketTimeoutMs The socket timeout in milliseconds.
+     */
+    public void setSocketTimeoutMs(int socketTimeoutMs) {
+        this.socketTimeoutMs = socketTimeoutMs;
+    }
+
+    /**
+     * Gets the connect timeout of the connections, in milliseconds.
+     *
+     * @return The connect timeout in milliseconds.
+     */
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    /**
+     * Sets the connect timeout of the connections, in milliseconds.
+     *
+     * @param connectTimeoutMs The connect timeout in milliseconds.
+     */
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    /**
+     * Gets the time after which an idle connection is validated before being
+     * reused, in milliseconds.
+     *
+     * @return The validation delay in milliseconds.
+     */
+    public int getValidateAfterInactivityMs() {
+        return validateAfterInactivityMs;
+    }
+
+    /**
+     * Sets the time after which an idle connection is validated before being
+     * reused, in milliseconds.
+     *
+     * @param validateAfterInactivityMs The validation delay in milliseconds.
+     */
+    public void setValidateAfterInactivityMs(int validateAfterInactivityMs) {
+        this.validateAfterInactivityMs = validateAfterInactivityMs;
+    }
+}
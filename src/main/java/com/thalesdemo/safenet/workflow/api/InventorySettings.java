@@ -0,0 +1,110 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The InventorySettings class represents the optional "inventory" section of
+ * the settings.json file. It controls the export of all the tokens of an
+ * organization: how many tokens every GetTokens call reads, how many pages are
+ * read ahead of the one being written out, and how long an export, or any
+ * other streamed response such as a bulk revocation, may last.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class InventorySettings {
+
+    /**
+     * The largest page size accepted, so that a page stays a bounded amount of
+     * memory.
+     */
+    private static final int MAX_PAGE_SIZE = 10000;
+
+    /**
+     * The number of tokens read by every GetTokens call.
+     */
+    @JsonProperty("page_size")
+    private int pageSize = 500;
+
+    /**
+     * The number of pages read ahead of the one being written out.
+     */
+    @JsonProperty("prefetch_pages")
+    private int prefetchPages = 1;
+
+    /**
+     * The time an export, or any other streamed response, may last, in
+     * milliseconds.
+     */
+    @JsonProperty("stream_timeout_ms")
+    private long streamTimeoutMs = 3600000;
+
+    /**
+     * Gets the number of tokens read by every GetTokens call.
+     *
+     * @return The page size, between 1 and 10000.
+     */
+    public int getPageSize() {
+        return Math.min(MAX_PAGE_SIZE, Math.max(1, pageSize));
+    }
+
+    /**
+     * Sets the number of tokens read by every GetTokens call.
+     *
+     * @param pageSize The page size.
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Gets the number of pages read ahead of the one being written out.
+     *
+     * @return The number of pages, 0 to read every page only once the previous
+     *         one has been written out.
+     */
+    public int getPrefetchPages() {
+        return Math.max(0, prefetchPages);
+    }
+
+    /**
+     * Sets the number of pages read ahead of the one being written out.
+     *
+     * @param prefetchPages The number of pages.
+     */
+    public void setPrefetchPages(int prefetchPages) {
+        this.prefetchPages = prefetchPages;
+    }
+
+    /**
+     * Gets the time an export may last.
+     *
+     * @return The time in milliseconds, at least 1 second.
+     */
+    public long getStreamTimeoutMs() {
+        return Math.max(1000, streamTimeoutMs);
+    }
+
+    /**
+     * Sets the time an export may last.
+     *
+     * @param streamTimeoutMs The time in milliseconds.
+     */
+    public void setStreamTimeoutMs(long streamTimeoutMs) {
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
+}
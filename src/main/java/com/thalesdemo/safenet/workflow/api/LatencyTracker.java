@@ -0,0 +1,97 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The LatencyTracker class keeps the durations of the most recent calls of
+ * one operation in a fixed-size ring buffer, and computes percentiles over
+ * them. It is used to decide how long to wait before hedging a call.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.Arrays;
+
+public class LatencyTracker {
+
+    /**
+     * The durations of the most recent calls, in milliseconds.
+     */
+    private final long[] samples;
+
+    /**
+     * The number of durations recorded, up to the size of the buffer.
+     */
+    private int count;
+
+    /**
+     * The position of the next duration in the buffer.
+     */
+    private int nextIndex;
+
+    /**
+     * Constructor for the LatencyTracker class.
+     *
+     * @param capacity The number of most recent durations kept.
+     */
+    public LatencyTracker(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Records the duration of a call, replacing the oldest one once the buffer
+     * is full.
+     *
+     * @param durationMs The duration of the call, in milliseconds.
+     */
+    public synchronized void record(long durationMs) {
+        samples[nextIndex] = durationMs;
+        nextIndex = (nextIndex + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Computes a percentile of the recorded durations.
+     *
+     * @param percentile The percentile to compute, between 0 and 100.
+     * @param minSamples The number of durations required for the result to be
+     *                   meaningful.
+     * @return The percentile in milliseconds, or -1 if fewer than minSamples
+     *         durations were recorded.
+     */
+    public long getPercentile(double percentile, int minSamples) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0 || count < minSamples) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.min(sorted.length - 1, Math.max(0, index))];
+    }
+
+    /**
+     * Gets the number of durations recorded, up to the size of the buffer.
+     *
+     * @return The number of durations.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+}
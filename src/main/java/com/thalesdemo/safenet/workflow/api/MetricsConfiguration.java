@@ -0,0 +1,104 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * This configuration class defines the beans shaping the metrics published
+ * to the Prometheus scrape endpoint. The {@code OrganizationTagFilter} keeps
+ * the organization tags of the organizations named in the settings only, and
+ * the
+ * {@code WebMvcTagsContributor} tags the latency of every REST request with
+ * the organization it acts on.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * Creates the filter keeping the organization tags of the organizations
+     * named in the settings only.
+     *
+     * @param settings The {@code Settings} object naming the organizations of
+     *                 the metrics and of the rate limits.
+     * @return The {@code MeterFilter} applied to every meter.
+     */
+    @Bean
+    public MeterFilter organizationTagFilter(Settings settings) {
+        Set<String> organizations = new HashSet<>(settings.getMetrics().getOrganizations());
+        organizations.addAll(settings.getRateLimit().getOrganizations().keySet());
+        return new OrganizationTagFilter(organizations);
+    }
+
+    /**
+     * Creates the contributor adding the organization tag to the
+     * http.server.requests metrics. The organization is read from the
+     * "organization" request parameter or path variable.
+     *
+     * @return The {@code WebMvcTagsContributor} tagging the REST requests.
+     */
+    @Bean
+    public WebMvcTagsContributor organizationTagsContributor() {
+        return new WebMvcTagsContributor() {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                    Throwable exception) {
+                return Tags.of(OrganizationTagFilter.ORGANIZATION_TAG,
+                        BsidcaCallMetrics.organizationTag(getOrganization(request)));
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+                return Tags.empty();
+            }
+        };
+    }
+
+    /**
+     * Reads the organization a REST request acts on.
+     *
+     * @param request The HTTP request.
+     * @return The organization, or null if the request names none.
+     */
+    private static String getOrganization(HttpServletRequest request) {
+        String organization = request.getParameter(OrganizationTagFilter.ORGANIZATION_TAG);
+        if (organization != null) {
+            return organization;
+        }
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables instanceof Map) {
+            Object variable = ((Map<?, ?>) variables).get(OrganizationTagFilter.ORGANIZATION_TAG);
+            return variable == null ? null : variable.toString();
+        }
+        return null;
+    }
+}
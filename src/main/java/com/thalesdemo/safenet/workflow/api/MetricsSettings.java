@@ -0,0 +1,57 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The MetricsSettings class represents the optional "metrics" section of the
+ * settings.json file. It names the organizations the metrics are tagged
+ * with.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MetricsSettings {
+
+    /**
+     * The organizations with a tag of their own, besides those with a rate
+     * limit of their own.
+     */
+    @JsonProperty("organizations")
+    private List<String> organizations = new ArrayList<>();
+
+    /**
+     * Gets the organizations with a tag of their own, besides those with a
+     * rate limit of their own.
+     *
+     * @return The organizations, never null.
+     */
+    public List<String> getOrganizations() {
+        return organizations == null ? new ArrayList<>() : organizations;
+    }
+
+    /**
+     * Sets the organizations with a tag of their own, besides those with a
+     * rate limit of their own.
+     *
+     * @param organizations The organizations.
+     */
+    public void setOrganizations(List<String> organizations) {
+        this.organizations = organizations;
+    }
+}
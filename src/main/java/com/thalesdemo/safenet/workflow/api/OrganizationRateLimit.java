@@ -0,0 +1,95 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The OrganizationRateLimit class holds the token bucket limit of the calls
+ * an organization makes to the BSIDCA service, as found in the "rate_limit"
+ * section of the settings.json file: the number of calls per second the
+ * bucket refills at, and the number of calls it holds for bursts.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrganizationRateLimit {
+
+    /**
+     * The number of calls per second the bucket refills at.
+     */
+    @JsonProperty("rate_per_second")
+    private double ratePerSecond = 20;
+
+    /**
+     * The number of calls the bucket holds for bursts.
+     */
+    @JsonProperty("burst")
+    private int burst = 40;
+
+    /**
+     * Constructor for the OrganizationRateLimit class, with the default limit.
+     */
+    public OrganizationRateLimit() {
+    }
+
+    /**
+     * Constructor for the OrganizationRateLimit class.
+     *
+     * @param ratePerSecond The number of calls per second the bucket refills
+     *                      at.
+     * @param burst         The number of calls the bucket holds for bursts.
+     */
+    public OrganizationRateLimit(double ratePerSecond, int burst) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Gets the number of calls per second the bucket refills at.
+     *
+     * @return The rate, at least 0.01 call per second.
+     */
+    public double getRatePerSecond() {
+        return Math.max(0.01, ratePerSecond);
+    }
+
+    /**
+     * Sets the number of calls per second the bucket refills at.
+     *
+     * @param ratePerSecond The rate.
+     */
+    public void setRatePerSecond(double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    /**
+     * Gets the number of calls the bucket holds for bursts.
+     *
+     * @return The burst, at least 1.
+     */
+    public int getBurst() {
+        return Math.max(1, burst);
+    }
+
+    /**
+     * Sets the number of calls the bucket holds for bursts.
+     *
+     * @param burst The burst.
+     */
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The OrganizationTagFilter class guards the metrics against an unbounded
+ * number of organization tags. Only the organizations named in the settings,
+ * in the "metrics" section or with a rate limit of their own, keep their own
+ * tag; the meters of any other organization a client names are tagged
+ * "other", so that a flood of organization names cannot blow up the number
+ * of time series scraped by Prometheus.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public class OrganizationTagFilter implements MeterFilter {
+
+    /**
+     * The name of the tag holding the organization.
+     */
+    static final String ORGANIZATION_TAG = "organization";
+
+    /**
+     * The value of the organization tag of the organizations not named in the
+     * settings.
+     */
+    static final String OVERFLOW = "other";
+
+    /**
+     * The organizations with a tag of their own.
+     */
+    private final Set<String> organizations;
+
+    /**
+     * Constructor for the OrganizationTagFilter class.
+     *
+     * @param organizations The organizations with a tag of their own.
+     */
+    public OrganizationTagFilter(Collection<String> organizations) {
+        this.organizations = new HashSet<>(organizations);
+    }
+
+    /**
+     * Replaces the organization tag of a meter with "other" if its
+     * organization is not named in the settings.
+     *
+     * @param id The identifier of the meter.
+     * @return The identifier, with the organization tag replaced if needed.
+     */
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        String organization = id.getTag(ORGANIZATION_TAG);
+        if (organization == null || admit(organization)) {
+            return id;
+        }
+        return id.replaceTags(Tags.of(id.getTagsAsIterable()).and(ORGANIZATION_TAG, OVERFLOW));
+    }
+
+    /**
+     * Tells whether an organization has a tag of its own.
+     *
+     * @param organization The organization.
+     * @return true if the organization keeps its tag.
+     */
+    private boolean admit(String organization) {
+        return organizations.contains(organization) || BsidcaCallMetrics.NO_ORGANIZATION.equals(organization)
+                || OVERFLOW.equals(organization);
+    }
+}
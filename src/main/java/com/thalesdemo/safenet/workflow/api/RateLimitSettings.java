@@ -0,0 +1,153 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The RateLimitSettings class represents the optional "rate_limit" section
+ * of the settings.json file. It controls the token buckets limiting the
+ * rate at which every organization may call the BSIDCA service, so that one
+ * tenant cannot take up the whole connection pool: the default rate and
+ * burst of every organization, the limits of specific organizations, and
+ * the bounded queue in which the calls over the rate wait for a token.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RateLimitSettings {
+
+    /**
+     * Whether the calls of every organization are rate limited.
+     */
+    @JsonProperty("enabled")
+    private boolean enabled = true;
+
+    /**
+     * The default limit of every organization.
+     */
+    @JsonProperty("default")
+    private OrganizationRateLimit defaultLimit = new OrganizationRateLimit();
+
+    /**
+     * The limits of specific organizations, by organization name.
+     */
+    @JsonProperty("organizations")
+    private Map<String, OrganizationRateLimit> organizations = new HashMap<>();
+
+    /**
+     * The maximum number of calls of an organization waiting for a token.
+     */
+    @JsonProperty("max_queue")
+    private int maxQueue = 32;
+
+    /**
+     * The maximum time a call waits for a token, in milliseconds.
+     */
+    @JsonProperty("max_wait_ms")
+    private long maxWaitMs = 2000;
+
+    /**
+     * Tells whether the calls of every organization are rate limited.
+     *
+     * @return true if the calls are rate limited.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the calls of every organization are rate limited.
+     *
+     * @param enabled true to rate limit the calls.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the default limit of every organization.
+     *
+     * @return The default limit.
+     */
+    public OrganizationRateLimit getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    /**
+     * Sets the default limit of every organization.
+     *
+     * @param defaultLimit The default limit.
+     */
+    public void setDefaultLimit(OrganizationRateLimit defaultLimit) {
+        this.defaultLimit = defaultLimit == null ? new OrganizationRateLimit() : defaultLimit;
+    }
+
+    /**
+     * Gets the limits of specific organizations.
+     *
+     * @return The limits by organization name.
+     */
+    public Map<String, OrganizationRateLimit> getOrganizations() {
+        return organizations;
+    }
+
+    /**
+     * Sets the limits of specific organizations.
+     *
+     * @param organizations The limits by organization name.
+     */
+    public void setOrganizations(Map<String, OrganizationRateLimit> organizations) {
+        this.organizations = organizations == null ? new HashMap<>() : organizations;
+    }
+
+    /**
+     * Gets the maximum number of calls of an organization waiting for a token.
+     *
+     * @return The queue capacity, at least 0.
+     */
+    public int getMaxQueue() {
+        return Math.max(0, maxQueue);
+    }
+
+    /**
+     * Sets the maximum number of calls of an organization waiting for a token.
+     *
+     * @param maxQueue The queue capacity.
+     */
+    public void setMaxQueue(int maxQueue) {
+        this.maxQueue = maxQueue;
+    }
+
+    /**
+     * Gets the maximum time a call waits for a token, in milliseconds.
+     *
+     * @return The maximum wait in milliseconds, at least 0.
+     */
+    public long getMaxWaitMs() {
+        return Math.max(0, maxWaitMs);
+    }
+
+    /**
+     * Sets the maximum time a call waits for a token, in milliseconds.
+     *
+     * @param maxWaitMs The maximum wait in milliseconds.
+     */
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+}
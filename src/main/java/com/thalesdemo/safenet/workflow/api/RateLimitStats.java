@@ -0,0 +1,122 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The RateLimitStats class is a snapshot of the token bucket of one
+ * organization, as returned by the /rate-limits endpoint: its limit, the
+ * tokens it holds and the number of calls waiting for a token.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RateLimitStats {
+
+    /**
+     * The organization the bucket belongs to.
+     */
+    @JsonProperty("organization")
+    private final String organization;
+
+    /**
+     * The number of calls per second the bucket refills at.
+     */
+    @JsonProperty("rate_per_second")
+    private final double ratePerSecond;
+
+    /**
+     * The number of calls the bucket holds for bursts.
+     */
+    @JsonProperty("burst")
+    private final int burst;
+
+    /**
+     * The number of tokens in the bucket, negative when calls are waiting.
+     */
+    @JsonProperty("available_tokens")
+    private final double availableTokens;
+
+    /**
+     * The number of calls waiting for a token.
+     */
+    @JsonProperty("queued")
+    private final int queued;
+
+    /**
+     * Constructor for the RateLimitStats class.
+     *
+     * @param organization    The organization the bucket belongs to.
+     * @param ratePerSecond   The number of calls per second the bucket refills
+     *                        at.
+     * @param burst           The number of calls the bucket holds for bursts.
+     * @param availableTokens The number of tokens in the bucket.
+     * @param queued          The number of calls waiting for a token.
+     */
+    public RateLimitStats(String organization, double ratePerSecond, int burst, double availableTokens,
+            int queued) {
+        this.organization = organization;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.availableTokens = availableTokens;
+        this.queued = queued;
+    }
+
+    /**
+     * Gets the organization the bucket belongs to.
+     *
+     * @return The organization.
+     */
+    public String getOrganization() {
+        return organization;
+    }
+
+    /**
+     * Gets the number of calls per second the bucket refills at.
+     *
+     * @return The rate.
+     */
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Gets the number of calls the bucket holds for bursts.
+     *
+     * @return The burst.
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Gets the number of tokens in the bucket.
+     *
+     * @return The available tokens, negative when calls are waiting.
+     */
+    public double getAvailableTokens() {
+        return availableTokens;
+    }
+
+    /**
+     * Gets the number of calls waiting for a token.
+     *
+     * @return The number of queued calls.
+     */
+    public int getQueued() {
+        return queued;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The RecordingSettings class represents the optional "recording" section
+ * of the settings.json file. It controls the capture of the SOAP exchanges
+ * with the SafeNet server to an exchange log, and their replay from that
+ * log instead of the server, to benchmark the API on production-shaped
+ * payloads.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RecordingSettings {
+
+    /**
+     * The recording mode: "off", "capture" or "replay".
+     */
+    @JsonProperty("mode")
+    private String mode = BsidcaRecordingMode.OFF.getValue();
+
+    /**
+     * The path of the exchange log.
+     */
+    @JsonProperty("file")
+    private String file = "bsidca-exchanges.log.gz";
+
+    /**
+     * The speed of the replay relative to the recorded timing, or 0 to replay
+     * without waiting.
+     */
+    @JsonProperty("speed")
+    private double speed = 1.0;
+
+    /**
+     * Whether the personal data of the captured exchanges is replaced by
+     * pseudonyms.
+     */
+    @JsonProperty("anonymize")
+    private boolean anonymize = true;
+
+    /**
+     * The largest request or response body captured, in bytes.
+     */
+    @JsonProperty("max_body_bytes")
+    private int maxBodyBytes = 8 * 1024 * 1024;
+
+    /**
+     * The number of captured exchanges waiting to be written.
+     */
+    @JsonProperty("queue_capacity")
+    private int queueCapacity = 1024;
+
+    /**
+     * Gets the recording mode.
+     *
+     * @return The recording mode, OFF if the setting is unknown.
+     */
+    public BsidcaRecordingMode getMode() {
+        return BsidcaRecordingMode.fromValue(mode);
+    }
+
+    /**
+     * Sets the recording mode.
+     *
+     * @param mode The name of the mode, "off", "capture" or "replay".
+     */
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Gets the path of the exchange log.
+     *
+     * @return The path of the exchange log.
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Sets the path of the exchange log.
+     *
+     * @param file The path of the exchange log.
+     */
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the speed of the replay relative to the recorded timing.
+     *
+     * @return The speed, at least 0; 0 replays without waiting.
+     */
+    public double getSpeed() {
+        return Math.max(0, speed);
+    }
+
+    /**
+     * Sets the speed of the replay relative to the recorded timing.
+     *
+     * @param speed The speed, such as 2 to replay twice as fast.
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Tells whether the personal data of the captured exchanges is replaced
+     * by pseudonyms.
+     *
+     * @return true if the captured exchanges are anonymized.
+     */
+    public boolean isAnonymize() {
+        return anonymize;
+    }
+
+    /**
+     * Sets whether the personal data of the captured exchanges is replaced by
+     * pseudonyms.
+     *
+     * @param anonymize true to anonymize the captured exchanges.
+     */
+    public void setAnonymize(boolean anonymize) {
+        this.anonymize = anonymize;
+    }
+
+    /**
+     * Gets the largest request or response body captured.
+     *
+     * @return The maximum size in bytes, at least 1024.
+     */
+    public int getMaxBodyBytes() {
+        return Math.max(1024, maxBodyBytes);
+    }
+
+    /**
+     * Sets the largest request or response body captured.
+     *
+     * @param maxBodyBytes The maximum size in bytes.
+     */
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Gets the number of captured exchanges waiting to be written.
+     *
+     * @return The queue capacity, at least 1.
+     */
+    public int getQueueCapacity() {
+        return Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Sets the number of captured exchanges waiting to be written.
+     *
+     * @param queueCapacity The queue capacity.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
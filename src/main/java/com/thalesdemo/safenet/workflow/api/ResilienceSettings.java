@@ -0,0 +1,544 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The ResilienceSettings class represents the optional "resilience" section
+ * of the settings.json file. It controls the circuit breakers kept for every
+ * BSIDCA operation, the bulkhead limiting the number of concurrent calls
+ * to the BSIDCA service, and the retries, hedging and coalescing of the
+ * idempotent operations.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ResilienceSettings {
+
+    /**
+     * The percentage of failed calls above which a circuit opens.
+     */
+    @JsonProperty("failure_rate_threshold")
+    private int failureRateThreshold = 50;
+
+    /**
+     * The duration above which a call is considered slow, in milliseconds.
+     */
+    @JsonProperty("slow_call_duration_ms")
+    private long slowCallDurationMs = 10000;
+
+    /**
+     * The percentage of slow calls above which a circuit opens.
+     */
+    @JsonProperty("slow_call_rate_threshold")
+    private int slowCallRateThreshold = 80;
+
+    /**
+     * The number of most recent calls the failure and slow call rates are
+     * computed over.
+     */
+    @JsonProperty("sliding_window_size")
+    private int slidingWindowSize = 20;
+
+    /**
+     * The number of calls to record before the rates are evaluated.
+     */
+    @JsonProperty("minimum_calls")
+    private int minimumCalls = 10;
+
+    /**
+     * The time an open circuit rejects calls before letting probes through, in
+     * milliseconds.
+     */
+    @JsonProperty("open_duration_ms")
+    private long openDurationMs = 30000;
+
+    /**
+     * The number of probe calls let through by a half-open circuit.
+     */
+    @JsonProperty("half_open_calls")
+    private int halfOpenCalls = 3;
+
+    /**
+     * The maximum number of concurrent calls to the BSIDCA service.
+     */
+    @JsonProperty("max_concurrent_calls")
+    private int maxConcurrentCalls = 16;
+
+    /**
+     * The maximum time a call waits for a free slot of the bulkhead, in
+     * milliseconds.
+     */
+    @JsonProperty("bulkhead_wait_ms")
+    private long bulkheadWaitMs = 500;
+
+    /**
+     * The maximum number of attempts of an idempotent call, including the first
+     * one.
+     */
+    @JsonProperty("retry_max_attempts")
+    private int retryMaxAttempts = 3;
+
+    /**
+     * The upper bound of the delay before the first retry, in milliseconds.
+     */
+    @JsonProperty("retry_initial_backoff_ms")
+    private long retryInitialBackoffMs = 100;
+
+    /**
+     * The upper bound of the delay before any retry, in milliseconds.
+     */
+    @JsonProperty("retry_max_backoff_ms")
+    private long retryMaxBackoffMs = 2000;
+
+    /**
+     * The number of retries allowed per 100 first attempts.
+     */
+    @JsonProperty("retry_budget_percent")
+    private int retryBudgetPercent = 10;
+
+    /**
+     * The number of retries allowed every second regardless of the traffic.
+     */
+    @JsonProperty("retry_budget_min_per_second")
+    private int retryBudgetMinPerSecond = 1;
+
+    /**
+     * Whether slow idempotent calls are hedged.
+     */
+    @JsonProperty("hedge_enabled")
+    private boolean hedgeEnabled = false;
+
+    /**
+     * The percentile of the recent latency after which a call is hedged.
+     */
+    @JsonProperty("hedge_percentile")
+    private double hedgePercentile = 95;
+
+    /**
+     * The minimum time to wait before hedging a call, in milliseconds.
+     */
+    @JsonProperty("hedge_min_delay_ms")
+    private long hedgeMinDelayMs = 50;
+
+    /**
+     * The number of recent durations required before calls are hedged.
+     */
+    @JsonProperty("hedge_min_samples")
+    private int hedgeMinSamples = 20;
+
+    /**
+     * The maximum number of hedges per 100 hedgeable calls.
+     */
+    @JsonProperty("hedge_max_rate_percent")
+    private int hedgeMaxRatePercent = 10;
+
+    /**
+     * The number of threads running the hedges of slow calls.
+     */
+    @JsonProperty("hedge_threads")
+    private int hedgeThreads = 16;
+
+    /**
+     * Whether identical concurrent reads share a single BSIDCA call.
+     */
+    @JsonProperty("coalesce_reads")
+    private boolean coalesceReads = true;
+
+    /**
+     * Gets the percentage of failed calls above which a circuit opens.
+     *
+     * @return The failure rate threshold, between 1 and 100.
+     */
+    public int getFailureRateThreshold() {
+        return Math.min(100, Math.max(1, failureRateThreshold));
+    }
+
+    /**
+     * Sets the percentage of failed calls above which a circuit opens.
+     *
+     * @param failureRateThreshold The failure rate threshold.
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Gets the duration above which a call is considered slow, in milliseconds.
+     *
+     * @return The slow call duration in milliseconds.
+     */
+    public long getSlowCallDurationMs() {
+        return slowCallDurationMs;
+    }
+
+    /**
+     * Sets the duration above which a call is considered slow, in milliseconds.
+     *
+     * @param slowCallDurationMs The slow call duration in milliseconds.
+     */
+    public void setSlowCallDurationMs(long slowCallDurationMs) {
+        this.slowCallDurationMs = slowCallDurationMs;
+    }
+
+    /**
+     * Gets the percentage of slow calls above which a circuit opens.
+     *
+     * @return The slow call rate threshold, between 1 and 100.
+     */
+    public int getSlowCallRateThreshold() {
+        return Math.min(100, Math.max(1, slowCallRateThreshold));
+    }
+
+    /**
+     * Sets the percentage of slow calls above which a circuit opens.
+     *
+     * @param slowCallRateThreshold The slow call rate threshold.
+     */
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    /**
+     * Gets the number of most recent calls the rates are computed over.
+     *
+     * @return The sliding window size, at least 1.
+     */
+    public int getSlidingWindowSize() {
+        return Math.max(1, slidingWindowSize);
+    }
+
+    /**
+     * Sets the number of most recent calls the rates are computed over.
+     *
+     * @param slidingWindowSize The sliding window size.
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    /**
+     * Gets the number of calls to record before the rates are evaluated.
+     *
+     * @return The minimum number of calls, between 1 and the window size.
+     */
+    public int getMinimumCalls() {
+        return Math.min(getSlidingWindowSize(), Math.max(1, minimumCalls));
+    }
+
+    /**
+     * Sets the number of calls to record before the rates are evaluated.
+     *
+     * @param minimumCalls The minimum number of calls.
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    /**
+     * Gets the time an open circuit rejects calls, in milliseconds.
+     *
+     * @return The open duration in milliseconds.
+     */
+    public long getOpenDurationMs() {
+        return openDurationMs;
+    }
+
+    /**
+     * Sets the time an open circuit rejects calls, in milliseconds.
+     *
+     * @param openDurationMs The open duration in milliseconds.
+     */
+    public void setOpenDurationMs(long openDurationMs) {
+        this.openDurationMs = openDurationMs;
+    }
+
+    /**
+     * Gets the number of probe calls let through by a half-open circuit.
+     *
+     * @return The number of probe calls, at least 1.
+     */
+    public int getHalfOpenCalls() {
+        return Math.max(1, halfOpenCalls);
+    }
+
+    /**
+     * Sets the number of probe calls let through by a half-open circuit.
+     *
+     * @param halfOpenCalls The number of probe calls.
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Gets the maximum number of concurrent calls to the BSIDCA service.
+     *
+     * @return The maximum number of concurrent calls, at least 1.
+     */
+    public int getMaxConcurrentCalls() {
+        return Math.max(1, maxConcurrentCalls);
+    }
+
+    /**
+     * Sets the maximum number of concurrent calls to the BSIDCA service.
+     *
+     * @param maxConcurrentCalls The maximum number of concurrent calls.
+     */
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    /**
+     * Gets the maximum time a call waits for a free slot of the bulkhead, in
+     * milliseconds.
+     *
+     * @return The bulkhead wait in milliseconds.
+     */
+    public long getBulkheadWaitMs() {
+        return Math.max(0, bulkheadWaitMs);
+    }
+
+    /**
+     * Sets the maximum time a call waits for a free slot of the bulkhead, in
+     * milliseconds.
+     *
+     * @param bulkheadWaitMs The bulkhead wait in milliseconds.
+     */
+    public void setBulkheadWaitMs(long bulkheadWaitMs) {
+        this.bulkheadWaitMs = bulkheadWaitMs;
+    }
+
+    /**
+     * Gets the maximum number of attempts of an idempotent call, including the
+     * first one.
+     *
+     * @return The maximum number of attempts, at least 1.
+     */
+    public int getRetryMaxAttempts() {
+        return Math.max(1, retryMaxAttempts);
+    }
+
+    /**
+     * Sets the maximum number of attempts of an idempotent call, including the
+     * first one.
+     *
+     * @param retryMaxAttempts The maximum number of attempts.
+     */
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    /**
+     * Gets the upper bound of the delay before the first retry, in milliseconds.
+     *
+     * @return The initial backoff in milliseconds.
+     */
+    public long getRetryInitialBackoffMs() {
+        return Math.max(0, retryInitialBackoffMs);
+    }
+
+    /**
+     * Sets the upper bound of the delay before the first retry, in milliseconds.
+     *
+     * @param retryInitialBackoffMs The initial backoff in milliseconds.
+     */
+    public void setRetryInitialBackoffMs(long retryInitialBackoffMs) {
+        this.retryInitialBackoffMs = retryInitialBackoffMs;
+    }
+
+    /**
+     * Gets the upper bound of the delay before any retry, in milliseconds.
+     *
+     * @return The maximum backoff in milliseconds.
+     */
+    public long getRetryMaxBackoffMs() {
+        return Math.max(0, retryMaxBackoffMs);
+    }
+
+    /**
+     * Sets the upper bound of the delay before any retry, in milliseconds.
+     *
+     * @param retryMaxBackoffMs The maximum backoff in milliseconds.
+     */
+    public void setRetryMaxBackoffMs(long retryMaxBackoffMs) {
+        this.retryMaxBackoffMs = retryMaxBackoffMs;
+    }
+
+    /**
+     * Gets the number of retries allowed per 100 first attempts.
+     *
+     * @return The retry budget percentage, between 0 and 100.
+     */
+    public int getRetryBudgetPercent() {
+        return Math.min(100, Math.max(0, retryBudgetPercent));
+    }
+
+    /**
+     * Sets the number of retries allowed per 100 first attempts.
+     *
+     * @param retryBudgetPercent The retry budget percentage.
+     */
+    public void setRetryBudgetPercent(int retryBudgetPercent) {
+        this.retryBudgetPercent = retryBudgetPercent;
+    }
+
+    /**
+     * Gets the number of retries allowed every second regardless of the
+     * traffic.
+     *
+     * @return The minimum number of retries per second.
+     */
+    public int getRetryBudgetMinPerSecond() {
+        return Math.max(0, retryBudgetMinPerSecond);
+    }
+
+    /**
+     * Sets the number of retries allowed every second regardless of the
+     * traffic.
+     *
+     * @param retryBudgetMinPerSecond The minimum number of retries per second.
+     */
+    public void setRetryBudgetMinPerSecond(int retryBudgetMinPerSecond) {
+        this.retryBudgetMinPerSecond = retryBudgetMinPerSecond;
+    }
+
+    /**
+     * Returns whether slow idempotent calls are hedged.
+     *
+     * @return true if hedging is enabled, false otherwise.
+     */
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    /**
+     * Sets whether slow idempotent calls are hedged.
+     *
+     * @param hedgeEnabled Whether hedging is enabled.
+     */
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    /**
+     * Gets the percentile of the recent latency after which a call is hedged.
+     *
+     * @return The hedge percentile, between 1 and 100.
+     */
+    public double getHedgePercentile() {
+        return Math.min(100, Math.max(1, hedgePercentile));
+    }
+
+    /**
+     * Sets the percentile of the recent latency after which a call is hedged.
+     *
+     * @param hedgePercentile The hedge percentile.
+     */
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * Gets the minimum time to wait before hedging a call, in milliseconds.
+     *
+     * @return The minimum hedge delay in milliseconds.
+     */
+    public long getHedgeMinDelayMs() {
+        return Math.max(0, hedgeMinDelayMs);
+    }
+
+    /**
+     * Sets the minimum time to wait before hedging a call, in milliseconds.
+     *
+     * @param hedgeMinDelayMs The minimum hedge delay in milliseconds.
+     */
+    public void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+    }
+
+    /**
+     * Gets the number of recent durations required before calls are hedged.
+     *
+     * @return The minimum number of samples, at least 1.
+     */
+    public int getHedgeMinSamples() {
+        return Math.max(1, hedgeMinSamples);
+    }
+
+    /**
+     * Sets the number of recent durations required before calls are hedged.
+     *
+     * @param hedgeMinSamples The minimum number of samples.
+     */
+    public void setHedgeMinSamples(int hedgeMinSamples) {
+        this.hedgeMinSamples = hedgeMinSamples;
+    }
+
+    /**
+     * Gets the maximum number of hedges per 100 hedgeable calls.
+     *
+     * @return The hedge rate cap, between 0 and 100.
+     */
+    public int getHedgeMaxRatePercent() {
+        return Math.min(100, Math.max(0, hedgeMaxRatePercent));
+    }
+
+    /**
+     * Sets the maximum number of hedges per 100 hedgeable calls.
+     *
+     * @param hedgeMaxRatePercent The hedge rate cap.
+     */
+    public void setHedgeMaxRatePercent(int hedgeMaxRatePercent) {
+        this.hedgeMaxRatePercent = hedgeMaxRatePercent;
+    }
+
+    /**
+     * Gets the number of threads running the hedges of slow calls.
+     *
+     * @return The number of hedging threads, at least 2.
+     */
+    public int getHedgeThreads() {
+        return Math.max(2, hedgeThreads);
+    }
+
+    /**
+     * Sets the number of threads running the hedges of slow calls.
+     *
+     * @param hedgeThreads The number of hedging threads.
+     */
+    public void setHedgeThreads(int hedgeThreads) {
+        this.hedgeThreads = hedgeThreads;
+    }
+
+    /**
+     * Tells whether identical concurrent reads share a single BSIDCA call.
+     *
+     * @return true if the reads are coalesced.
+     */
+    public boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    /**
+     * Sets whether identical concurrent reads share a single BSIDCA call.
+     *
+     * @param coalesceReads true to coalesce the reads.
+     */
+    public void setCoalesceReads(boolean coalesceReads) {
+        this.coalesceReads = coalesceReads;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The RoutingSettings class represents the optional "routing" section of the
+ * settings.json file. It controls how the BSIDCA calls are balanced across
+ * the endpoints listed in the settings, when an endpoint failing its calls is
+ * ejected from the routing, and how it is probed before being admitted again.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class RoutingSettings {
+
+    /**
+     * The number of consecutive transport failures after which an endpoint is
+     * ejected.
+     */
+    @JsonProperty("eject_after_failures")
+    private int ejectAfterFailures = 5;
+
+    /**
+     * The time an ejected endpoint receives no calls before being probed, in
+     * milliseconds.
+     */
+    @JsonProperty("ejection_ms")
+    private long ejectionMs = 30000;
+
+    /**
+     * The interval between two checks of the ejected endpoints, in
+     * milliseconds.
+     */
+    @JsonProperty("probe_interval_ms")
+    private long probeIntervalMs = 5000;
+
+    /**
+     * The time after which the weight of a latency sample in the moving average
+     * of an endpoint has decayed to 1/e, in milliseconds.
+     */
+    @JsonProperty("ewma_decay_ms")
+    private long ewmaDecayMs = 10000;
+
+    /**
+     * Gets the number of consecutive transport failures after which an endpoint
+     * is ejected.
+     *
+     * @return The number of failures, at least 1.
+     */
+    public int getEjectAfterFailures() {
+        return Math.max(1, ejectAfterFailures);
+    }
+
+    /**
+     * Sets the number of consecutive transport failures after which an endpoint
+     * is ejected.
+     *
+     * @param ejectAfterFailures The number of failures.
+     */
+    public void setEjectAfterFailures(int ejectAfterFailures) {
+        this.ejectAfterFailures = ejectAfterFailures;
+    }
+
+    /**
+     * Gets the time an ejected endpoint receives no calls before being probed,
+     * in milliseconds.
+     *
+     * @return The ejection time in milliseconds.
+     */
+    public long getEjectionMs() {
+        return Math.max(1, ejectionMs);
+    }
+
+    /**
+     * Sets the time an ejected endpoint receives no calls before being probed,
+     * in milliseconds.
+     *
+     * @param ejectionMs The ejection time in milliseconds.
+     */
+    public void setEjectionMs(long ejectionMs) {
+        this.ejectionMs = ejectionMs;
+    }
+
+    /**
+     * Gets the interval between two checks of the ejected endpoints, in
+     * milliseconds.
+     *
+     * @return The probe interval in milliseconds.
+     */
+    public long getProbeIntervalMs() {
+        return Math.max(1, probeIntervalMs);
+    }
+
+    /**
+     * Sets the interval between two checks of the ejected endpoints, in
+     * milliseconds.
+     *
+     * @param probeIntervalMs The probe interval in milliseconds.
+     */
+    public void setProbeIntervalMs(long probeIntervalMs) {
+        this.probeIntervalMs = probeIntervalMs;
+    }
+
+    /**
+     * Gets the decay time of the moving average of the latency of an endpoint,
+     * in milliseconds.
+     *
+     * @return The decay time in milliseconds.
+     */
+    public long getEwmaDecayMs() {
+        return Math.max(1, ewmaDecayMs);
+    }
+
+    /**
+     * Sets the decay time of the moving average of the latency of an endpoint,
+     * in milliseconds.
+     *
+     * @param ewmaDecayMs The decay time in milliseconds.
+     */
+    public void setEwmaDecayMs(long ewmaDecayMs) {
+        this.ewmaDecayMs = ewmaDecayMs;
+    }
+}
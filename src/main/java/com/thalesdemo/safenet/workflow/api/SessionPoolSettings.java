@@ -0,0 +1,241 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The SessionPoolSettings class represents the optional "session_pool"
+ * section of the settings.json file. It controls how many independently
+ * authenticated BSIDCA sessions are kept open, how long a caller waits
+ * to lease one of them, how often their health is checked, and how they are
+ * kept alive and rotated ahead of the expiry of their operator session, and
+ * how far the pool may grow when every session is in use.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class SessionPoolSettings {
+
+    /**
+     * The default number of BSIDCA sessions kept in the pool.
+     */
+    private static final int DEFAULT_SIZE = 4;
+
+    /**
+     * The default maximum time to wait for a free session, in milliseconds.
+     */
+    private static final long DEFAULT_LEASE_TIMEOUT_MS = 10000;
+
+    /**
+     * The default interval between two health checks of the sessions, in
+     * milliseconds.
+     */
+    private static final long DEFAULT_HEALTH_CHECK_INTERVAL_MS = 5000;
+
+    /**
+     * The default time after which an idle session is refreshed, in
+     * milliseconds.
+     */
+    private static final long DEFAULT_KEEP_ALIVE_IDLE_MS = 300000;
+
+    /**
+     * The default number of pre-authenticated spare sessions.
+     */
+    private static final int DEFAULT_SPARE_SESSIONS = 1;
+
+    /**
+     * The number of BSIDCA sessions kept in the pool.
+     */
+    @JsonProperty("size")
+    private int size = DEFAULT_SIZE;
+
+    /**
+     * The maximum time to wait for a free session, in milliseconds.
+     */
+    @JsonProperty("lease_timeout_ms")
+    private long leaseTimeoutMs = DEFAULT_LEASE_TIMEOUT_MS;
+
+    /**
+     * The interval between two health checks of the sessions, in milliseconds.
+     */
+    @JsonProperty("health_check_interval_ms")
+    private long healthCheckIntervalMs = DEFAULT_HEALTH_CHECK_INTERVAL_MS;
+
+    /**
+     * The time after which an idle session is refreshed with a PingConnection
+     * call, in milliseconds, or 0 to never refresh the sessions.
+     */
+    @JsonProperty("keep_alive_idle_ms")
+    private long keepAliveIdleMs = DEFAULT_KEEP_ALIVE_IDLE_MS;
+
+    /**
+     * The age after which a session is authenticated again, in milliseconds,
+     * or 0 to keep the sessions until they expire.
+     */
+    @JsonProperty("max_age_ms")
+    private long maxAgeMs;
+
+    /**
+     * The number of pre-authenticated sessions kept aside, on top of the pool
+     * size, to replace the sessions that expire.
+     */
+    @JsonProperty("spare_sessions")
+    private int spareSessions = DEFAULT_SPARE_SESSIONS;
+
+    /**
+     * The number of sessions the pool may grow to when every session is in
+     * use, or 0 to keep the pool at its size.
+     */
+    @JsonProperty("max_size")
+    private int maxSize;
+
+    /**
+     * Gets the number of BSIDCA sessions kept in the pool.
+     *
+     * @return The number of sessions, at least 1.
+     */
+    public int getSize() {
+        return Math.max(1, size);
+    }
+
+    /**
+     * Sets the number of BSIDCA sessions kept in the pool.
+     *
+     * @param size The number of sessions.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the maximum time to wait for a free session, in milliseconds.
+     *
+     * @return The lease timeout in milliseconds.
+     */
+    public long getLeaseTimeoutMs() {
+        return leaseTimeoutMs;
+    }
+
+    /**
+     * Sets the maximum time to wait for a free session, in milliseconds.
+     *
+     * @param leaseTimeoutMs The lease timeout in milliseconds.
+     */
+    public void setLeaseTimeoutMs(long leaseTimeoutMs) {
+        this.leaseTimeoutMs = leaseTimeoutMs;
+    }
+
+    /**
+     * Gets the interval between two health checks of the sessions, in
+     * milliseconds.
+     *
+     * @return The health check interval in milliseconds, at least 100.
+     */
+    public long getHealthCheckIntervalMs() {
+        return Math.max(100, healthCheckIntervalMs);
+    }
+
+    /**
+     * Sets the interval between two health checks of the sessions, in
+     * milliseconds.
+     *
+     * @param healthCheckIntervalMs The health check interval in milliseconds.
+     */
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+
+    /**
+     * Gets the time after which an idle session is refreshed, in milliseconds.
+     *
+     * @return The idle time in milliseconds, or 0 if the sessions are never
+     *         refreshed.
+     */
+    public long getKeepAliveIdleMs() {
+        return Math.max(0, keepAliveIdleMs);
+    }
+
+    /**
+     * Sets the time after which an idle session is refreshed, in milliseconds.
+     *
+     * @param keepAliveIdleMs The idle time in milliseconds, or 0 to never
+     *                        refresh the sessions.
+     */
+    public void setKeepAliveIdleMs(long keepAliveIdleMs) {
+        this.keepAliveIdleMs = keepAliveIdleMs;
+    }
+
+    /**
+     * Gets the age after which a session is authenticated again, in
+     * milliseconds.
+     *
+     * @return The maximum age in milliseconds, or 0 if the sessions are kept
+     *         until they expire.
+     */
+    public long getMaxAgeMs() {
+        return Math.max(0, maxAgeMs);
+    }
+
+    /**
+     * Sets the age after which a session is authenticated again, in
+     * milliseconds.
+     *
+     * @param maxAgeMs The maximum age in milliseconds, or 0 to keep the sessions
+     *                 until they expire.
+     */
+    public void setMaxAgeMs(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Gets the number of pre-authenticated spare sessions.
+     *
+     * @return The number of spare sessions, at least 0.
+     */
+    public int getSpareSessions() {
+        return Math.max(0, spareSessions);
+    }
+
+    /**
+     * Sets the number of pre-authenticated spare sessions.
+     *
+     * @param spareSessions The number of spare sessions.
+     */
+    public void setSpareSessions(int spareSessions) {
+        this.spareSessions = spareSessions;
+    }
+
+    /**
+     * Gets the number of sessions the pool may grow to when every session is
+     * in use.
+     *
+     * @return The maximum number of sessions, at least the pool size.
+     */
+    public int getMaxSize() {
+        return Math.max(getSize(), maxSize);
+    }
+
+    /**
+     * Sets the number of sessions the pool may grow to when every session is
+     * in use.
+     *
+     * @param maxSize The maximum number of sessions, or 0 to keep the pool at
+     *                its size.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
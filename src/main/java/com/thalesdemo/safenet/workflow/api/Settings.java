@@ -23,13 +23,21 @@
 package com.thalesdemo.safenet.workflow.api;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class Settings {
 
     /**
      * The base URI for the SafeNet BSIDCA API.
      */
-    private static final String BASE_URI = "/BSIDCA/BSIDCA.asmx?WSDL";
+    private static final String BASE_URI = "/BSIDCA/BSIDCA.asmx";
+
+    /**
+     * The query string appended to the BSIDCA URI to address its WSDL.
+     */
+    private static final String WSDL_QUERY = "?WSDL";
 
     /**
      * The base URL for the SafeNet BSIDCA API.
@@ -37,6 +45,13 @@ public class Settings {
     @JsonProperty("base_url")
     private String baseUrl;
 
+    /**
+     * The base URLs of several equivalent SafeNet BSIDCA front ends the calls
+     * are balanced across (optional, replaces base_url when set).
+     */
+    @JsonProperty("endpoints")
+    private List<String> endpoints = new ArrayList<>();
+
     /**
      * The username used for authentication with the SafeNet BSIDCA API.
      */
@@ -55,6 +70,91 @@ public class Settings {
     @JsonProperty("key_hash")
     private String apiKeyHash;
 
+    /**
+     * The settings of the pool of BSIDCA sessions (optional).
+     */
+    @JsonProperty("session_pool")
+    private SessionPoolSettings sessionPool = new SessionPoolSettings();
+
+    /**
+     * The settings of the pool of HTTP connections to the BSIDCA API (optional).
+     */
+    @JsonProperty("http_pool")
+    private HttpPoolSettings httpPool = new HttpPoolSettings();
+
+    /**
+     * The settings of the circuit breakers and the bulkhead protecting the calls
+     * to the BSIDCA API (optional).
+     */
+    @JsonProperty("resilience")
+    private ResilienceSettings resilience = new ResilienceSettings();
+
+    /**
+     * The settings of the executor running the asynchronous BSIDCA calls
+     * (optional).
+     */
+    @JsonProperty("async_client")
+    private AsyncClientSettings asyncClient = new AsyncClientSettings();
+
+    /**
+     * The settings of the balancing of the calls across the BSIDCA endpoints
+     * (optional).
+     */
+    @JsonProperty("routing")
+    private RoutingSettings routing = new RoutingSettings();
+
+    /**
+     * The settings of the rate limits of the calls every organization makes to
+     * the BSIDCA API (optional).
+     */
+    @JsonProperty("rate_limit")
+    private RateLimitSettings rateLimit = new RateLimitSettings();
+
+    /**
+     * The settings of the deadlines of the requests and the timeouts of the
+     * BSIDCA calls (optional).
+     */
+    @JsonProperty("timeouts")
+    private TimeoutSettings timeouts = new TimeoutSettings();
+
+    /**
+     * The settings of the metrics published by the application (optional).
+     */
+    @JsonProperty("metrics")
+    private MetricsSettings metrics = new MetricsSettings();
+
+    /**
+     * The settings of the capture and replay of the BSIDCA exchanges
+     * (optional).
+     */
+    @JsonProperty("recording")
+    private RecordingSettings recording = new RecordingSettings();
+
+    /**
+     * The settings of the cache of the tokens read by serial number and of the
+     * index of the serials owned by every user (optional).
+     */
+    @JsonProperty("token_cache")
+    private TokenCacheSettings tokenCache = new TokenCacheSettings();
+
+    /**
+     * The settings of the export of the tokens of an organization (optional).
+     */
+    @JsonProperty("inventory")
+    private InventorySettings inventory = new InventorySettings();
+
+    /**
+     * The settings of the bulk revocation of tokens (optional).
+     */
+    @JsonProperty("bulk_revocation")
+    private BulkRevocationSettings bulkRevocation = new BulkRevocationSettings();
+
+    /**
+     * The codec of the hot BSIDCA operations, "stax" or "xmlbeans" (optional).
+     */
+    @JsonProperty("soap_codec")
+    private String soapCodec = BsidcaCodec.STAX.getValue();
+
     /**
      * Gets the base URL for the SafeNet BSIDCA API.
      * 
@@ -122,14 +222,81 @@ public class Settings {
     }
 
     /**
-     * Gets the URL for the SafeNet BSIDCA API.
+     * Gets the URL of the WSDL of the SafeNet BSIDCA API. The stubs do not
+     * fetch it: their service description is generated from the WSDL at build
+     * time, and they post to getBsidcaEndpointUrl().
      * 
-     * @return The URL for the SafeNet BSIDCA API.
+     * @return The URL of the WSDL of the SafeNet BSIDCA API.
      */
     public String getBsidcaUrl() {
+        return getBsidcaUrl(baseUrl);
+    }
+
+    /**
+     * Gets the URL of the WSDL of the SafeNet BSIDCA API of the given
+     * endpoint.
+     * 
+     * @param baseUrl The base URL of the endpoint.
+     * @return The URL of the WSDL of the SafeNet BSIDCA API of the endpoint.
+     */
+    public String getBsidcaUrl(String baseUrl) {
+        return baseUrl + BASE_URI + WSDL_QUERY;
+    }
+
+    /**
+     * Gets the address of the SafeNet BSIDCA web service endpoint, without the
+     * WSDL query string.
+     * 
+     * @return The address the SOAP requests are posted to.
+     */
+    public String getBsidcaEndpointUrl() {
+        return getBsidcaEndpointUrl(baseUrl);
+    }
+
+    /**
+     * Gets the address of the SafeNet BSIDCA web service of the given
+     * endpoint, without the WSDL query string.
+     * 
+     * @param baseUrl The base URL of the endpoint.
+     * @return The address the SOAP requests are posted to.
+     */
+    public String getBsidcaEndpointUrl(String baseUrl) {
         return baseUrl + BASE_URI;
     }
 
+    /**
+     * Gets the base URLs of the SafeNet BSIDCA front ends the calls are
+     * balanced across.
+     * 
+     * @return The listed endpoints, or the base URL alone if no endpoint is
+     *         listed.
+     */
+    public List<String> getBaseUrls() {
+        if (endpoints.isEmpty()) {
+            return Collections.singletonList(baseUrl);
+        }
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * Gets the base URLs listed in the "endpoints" setting.
+     * 
+     * @return The listed endpoints, possibly empty.
+     */
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Sets the base URLs of several equivalent SafeNet BSIDCA front ends the
+     * calls are balanced across.
+     * 
+     * @param endpoints The base URLs of the endpoints.
+     */
+    public void setEndpoints(List<String> endpoints) {
+        this.endpoints = endpoints == null ? new ArrayList<>() : endpoints;
+    }
+
     /**
      * Gets the API key hash used for authentication with the SafeNet BSIDCA API.
      * 
@@ -139,4 +306,248 @@ public class Settings {
         return apiKeyHash;
     }
 
-}
\ No newline at end of file
+    /**
+     * Gets the settings of the pool of BSIDCA sessions.
+     * 
+     * @return The settings of the pool of BSIDCA sessions.
+     */
+    public SessionPoolSettings getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * Sets the settings of the pool of BSIDCA sessions.
+     * 
+     * @param sessionPool The settings of the pool of BSIDCA sessions.
+     */
+    public void setSessionPool(SessionPoolSettings sessionPool) {
+        this.sessionPool = sessionPool == null ? new SessionPoolSettings() : sessionPool;
+    }
+
+    /**
+     * Gets the settings of the pool of HTTP connections to the BSIDCA API.
+     * 
+     * @return The settings of the pool of HTTP connections.
+     */
+    public HttpPoolSettings getHttpPool() {
+        return httpPool;
+    }
+
+    /**
+     * Sets the settings of the pool of HTTP connections to the BSIDCA API.
+     * 
+     * @param httpPool The settings of the pool of HTTP connections.
+     */
+    public void setHttpPool(HttpPoolSettings httpPool) {
+        this.httpPool = httpPool == null ? new HttpPoolSettings() : httpPool;
+    }
+
+    /**
+     * Gets the settings of the circuit breakers and the bulkhead protecting the
+     * calls to the BSIDCA API.
+     * 
+     * @return The resilience settings.
+     */
+    public ResilienceSettings getResilience() {
+        return resilience;
+    }
+
+    /**
+     * Sets the settings of the circuit breakers and the bulkhead protecting the
+     * calls to the BSIDCA API.
+     * 
+     * @param resilience The resilience settings.
+     */
+    public void setResilience(ResilienceSettings resilience) {
+        this.resilience = resilience == null ? new ResilienceSettings() : resilience;
+    }
+
+    /**
+     * Gets the settings of the executor running the asynchronous BSIDCA calls.
+     * 
+     * @return The settings of the asynchronous BSIDCA client.
+     */
+    public AsyncClientSettings getAsyncClient() {
+        return asyncClient;
+    }
+
+    /**
+     * Sets the settings of the executor running the asynchronous BSIDCA calls.
+     * 
+     * @param asyncClient The settings of the asynchronous BSIDCA client.
+     */
+    public void setAsyncClient(AsyncClientSettings asyncClient) {
+        this.asyncClient = asyncClient == null ? new AsyncClientSettings() : asyncClient;
+    }
+
+    /**
+     * Gets the settings of the balancing of the calls across the BSIDCA
+     * endpoints.
+     * 
+     * @return The routing settings.
+     */
+    public RoutingSettings getRouting() {
+        return routing;
+    }
+
+    /**
+     * Sets the settings of the balancing of the calls across the BSIDCA
+     * endpoints.
+     * 
+     * @param routing The routing settings.
+     */
+    public void setRouting(RoutingSettings routing) {
+        this.routing = routing == null ? new RoutingSettings() : routing;
+    }
+
+    /**
+     * Gets the settings of the rate limits of the calls every organization
+     * makes to the BSIDCA API.
+     * 
+     * @return The rate limit settings.
+     */
+    public RateLimitSettings getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Sets the settings of the rate limits of the calls every organization
+     * makes to the BSIDCA API.
+     * 
+     * @param rateLimit The rate limit settings.
+     */
+    public void setRateLimit(RateLimitSettings rateLimit) {
+        this.rateLimit = rateLimit == null ? new RateLimitSettings() : rateLimit;
+    }
+
+    /**
+     * Gets the settings of the deadlines of the requests and the timeouts of
+     * the BSIDCA calls.
+     * 
+     * @return The timeout settings.
+     */
+    public TimeoutSettings getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Sets the settings of the deadlines of the requests and the timeouts of
+     * the BSIDCA calls.
+     * 
+     * @param timeouts The timeout settings.
+     */
+    public void setTimeouts(TimeoutSettings timeouts) {
+        this.timeouts = timeouts == null ? new TimeoutSettings() : timeouts;
+    }
+
+    /**
+     * Gets the settings of the metrics published by the application.
+     * 
+     * @return The metrics settings.
+     */
+    public MetricsSettings getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the settings of the metrics published by the application.
+     * 
+     * @param metrics The metrics settings.
+     */
+    public void setMetrics(MetricsSettings metrics) {
+        this.metrics = metrics == null ? new MetricsSettings() : metrics;
+    }
+
+    /**
+     * Gets the settings of the capture and replay of the BSIDCA exchanges.
+     * 
+     * @return The recording settings.
+     */
+    public RecordingSettings getRecording() {
+        return recording;
+    }
+
+    /**
+     * Sets the settings of the capture and replay of the BSIDCA exchanges.
+     * 
+     * @param recording The recording settings.
+     */
+    public void setRecording(RecordingSettings recording) {
+        this.recording = recording == null ? new RecordingSettings() : recording;
+    }
+
+    /**
+     * Gets the settings of the cache of the tokens read by serial number.
+     * 
+     * @return The token cache settings.
+     */
+    public TokenCacheSettings getTokenCache() {
+        return tokenCache;
+    }
+
+    /**
+     * Sets the settings of the cache of the tokens read by serial number.
+     * 
+     * @param tokenCache The token cache settings.
+     */
+    public void setTokenCache(TokenCacheSettings tokenCache) {
+        this.tokenCache = tokenCache == null ? new TokenCacheSettings() : tokenCache;
+    }
+
+    /**
+     * Gets the settings of the export of the tokens of an organization.
+     * 
+     * @return The inventory settings.
+     */
+    public InventorySettings getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Sets the settings of the export of the tokens of an organization.
+     * 
+     * @param inventory The inventory settings.
+     */
+    public void setInventory(InventorySettings inventory) {
+        this.inventory = inventory == null ? new InventorySettings() : inventory;
+    }
+
+    /**
+     * Gets the settings of the bulk revocation of tokens.
+     * 
+     * @return The bulk revocation settings.
+     */
+    public BulkRevocationSettings getBulkRevocation() {
+        return bulkRevocation;
+    }
+
+    /**
+     * Sets the settings of the bulk revocation of tokens.
+     * 
+     * @param bulkRevocation The bulk revocation settings.
+     */
+    public void setBulkRevocation(BulkRevocationSettings bulkRevocation) {
+        this.bulkRevocation = bulkRevocation == null ? new BulkRevocationSettings() : bulkRevocation;
+    }
+
+    /**
+     * Gets the codec used to encode and decode the SOAP messages of the hot
+     * BSIDCA operations.
+     * 
+     * @return The codec of the hot BSIDCA operations.
+     */
+    public BsidcaCodec getSoapCodec() {
+        return BsidcaCodec.fromValue(soapCodec);
+    }
+
+    /**
+     * Sets the codec used to encode and decode the SOAP messages of the hot
+     * BSIDCA operations.
+     * 
+     * @param soapCodec The name of the codec, "stax" or "xmlbeans".
+     */
+    public void setSoapCodec(String soapCodec) {
+        this.soapCodec = soapCodec;
+    }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The TimeoutSettings class represents the optional "timeouts" section of the
+ * settings.json file. It controls the deadline given to every API request
+ * that does not set its own with the X-Request-Timeout header, the defaults
+ * of specific endpoints, and the timeout of every BSIDCA call by profile:
+ * reads, mutations and enrollment steps. A call is given the timeout of its
+ * profile, or the time left before the deadline of its request if that is
+ * shorter.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TimeoutSettings {
+
+    /**
+     * The default deadline of a request, in milliseconds.
+     */
+    @JsonProperty("request_ms")
+    private long requestMs = 30000;
+
+    /**
+     * The longest deadline a client may ask for, in milliseconds.
+     */
+    @JsonProperty("max_request_ms")
+    private long maxRequestMs = 300000;
+
+    /**
+     * The default deadlines of specific endpoints, in milliseconds, keyed by an
+     * Ant path pattern optionally preceded by an HTTP method, such as
+     * "POST /**&#47;token/enroll/**".
+     */
+    @JsonProperty("endpoints")
+    private Map<String, Long> endpoints = defaultEndpoints();
+
+    /**
+     * The timeout of a BSIDCA read, in milliseconds.
+     */
+    @JsonProperty("read_ms")
+    private long readMs = 10000;
+
+    /**
+     * The timeout of a BSIDCA call changing users or tokens, in milliseconds.
+     */
+    @JsonProperty("mutation_ms")
+    private long mutationMs = 20000;
+
+    /**
+     * The timeout of a BSIDCA call provisioning or enrolling a token, in
+     * milliseconds.
+     */
+    @JsonProperty("enrollment_ms")
+    private long enrollmentMs = 30000;
+
+    /**
+     * Creates the default deadlines of specific endpoints: enrolling a token
+     * takes several calls, so it gets more time than the other requests.
+     *
+     * @return The default deadlines by endpoint.
+     */
+    private static Map<String, Long> defaultEndpoints() {
+        Map<String, Long> defaults = new LinkedHashMap<>();
+        defaults.put("POST /**/token/enroll/**", 60000L);
+        return defaults;
+    }
+
+    /**
+     * Gets the timeout of a BSIDCA call of the given profile.
+     *
+     * @param profile The timeout profile of the call.
+     * @return The timeout in milliseconds, at least 1.
+     */
+    public long getTimeoutMs(BsidcaTimeoutProfile profile) {
+        switch (profile) {
+            case MUTATION:
+                return getMutationMs();
+            case ENROLLMENT:
+                return getEnrollmentMs();
+            default:
+                return getReadMs();
+        }
+    }
+
+    /**
+     * Gets the default deadline of a request, in milliseconds.
+     *
+     * @return The default deadline in milliseconds, at least 1.
+     */
+    public long getRequestMs() {
+        return Math.max(1, requestMs);
+    }
+
+    /**
+     * Sets the default deadline of a request, in milliseconds.
+     *
+     * @param requestMs The default deadline in milliseconds.
+     */
+    public void setRequestMs(long requestMs) {
+        this.requestMs = requestMs;
+    }
+
+    /**
+     * Gets the longest deadline a client may ask for, in milliseconds.
+     *
+     * @return The longest deadline in milliseconds, at least 1.
+     */
+    public long getMaxRequestMs() {
+        return Math.max(1, maxRequestMs);
+    }
+
+    /**
+     * Sets the longest deadline a client may ask for, in milliseconds.
+     *
+     * @param maxRequestMs The longest deadline in milliseconds.
+     */
+    public void setMaxRequestMs(long maxRequestMs) {
+        this.maxRequestMs = maxRequestMs;
+    }
+
+    /**
+     * Gets the default deadlines of specific endpoints.
+     *
+     * @return The default deadlines in milliseconds, by endpoint pattern.
+     */
+    public Map<String, Long> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Sets the default deadlines of specific endpoints.
+     *
+     * @param endpoints The default deadlines in milliseconds, by endpoint
+     *                  pattern.
+     */
+    public void setEndpoints(Map<String, Long> endpoints) {
+        this.endpoints = endpoints == null ? new LinkedHashMap<>() : endpoints;
+    }
+
+    /**
+     * Gets the timeout of a BSIDCA read, in milliseconds.
+     *
+     * @return The timeout in milliseconds, at least 1.
+     */
+    public long getReadMs() {
+        return Math.max(1, readMs);
+    }
+
+    /**
+     * Sets the timeout of a BSIDCA read, in milliseconds.
+     *
+     * @param readMs The timeout in milliseconds.
+     */
+    public void setReadMs(long readMs) {
+        this.readMs = readMs;
+    }
+
+    /**
+     * Gets the timeout of a BSIDCA call changing users or tokens, in
+     * milliseconds.
+     *
+     * @return The timeout in milliseconds, at least 1.
+     */
+    public long getMutationMs() {
+        return Math.max(1, mutationMs);
+    }
+
+    /**
+     * Sets the timeout of a BSIDCA call changing users or tokens, in
+     * milliseconds.
+     *
+     * @param mutationMs The timeout in milliseconds.
+     */
+    public void setMutationMs(long mutationMs) {
+        this.mutationMs = mutationMs;
+    }
+
+    /**
+     * Gets the timeout of a BSIDCA call provisioning or enrolling a token, in
+     * milliseconds.
+     *
+     * @return The timeout in milliseconds, at least 1.
+     */
+    public long getEnrollmentMs() {
+        return Math.max(1, enrollmentMs);
+    }
+
+    /**
+     * Sets the timeout of a BSIDCA call provisioning or enrolling a token, in
+     * milliseconds.
+     *
+     * @param enrollmentMs The timeout in milliseconds.
+     */
+    public void setEnrollmentMs(long enrollmentMs) {
+        this.enrollmentMs = enrollmentMs;
+    }
+}
@@ -0,0 +1,562 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The TokenCache class keeps the tokens read by serial number, keyed by
+ * organization and serial, so that the same token records are not fetched
+ * from the SafeNet (BSIDCA) web service again and again. The cache is
+ * bounded both by a number of tokens and by their estimated size in bytes,
+ * and every token expires a fixed time after it was read. When the cache is
+ * full, the least recently used token is evicted, unless the token being
+ * added has been asked for less often than it, in which case the new token
+ * is not admitted: the frequencies are estimated by a small count-min
+ * sketch which is halved periodically, as in TinyLFU, so that a burst of
+ * one-off reads cannot flush the tokens read all the time.
+ *
+ * The tokens are invalidated when the API changes them: a revoked token by
+ * its serial, and the tokens of a user by owner when the user is removed or
+ * enrolled. A read that started before an invalidation in the same
+ * organization does not put its result in the cache; the invalidations of
+ * the other organizations do not hold it back. Every caller is given its own
+ * copy of a cached token, and the cache keeps its own copy of the tokens
+ * put in it, so that a caller modifying a token cannot change what the
+ * others read. The hits, misses, puts and evictions are published
+ * with the meter names used for the other caches of Micrometer, tagged
+ * cache="bsidca.tokens".
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.stereotype.Component;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class TokenCache {
+
+    /**
+     * The tags of the meters of the cache.
+     */
+    private static final Tags TAGS = Tags.of("cache", "bsidca.tokens");
+
+    /**
+     * The estimated size of a cached token without its strings, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    /**
+     * Whether the tokens are cached at all.
+     */
+    private final boolean enabled;
+
+    /**
+     * The maximum number of tokens in the cache.
+     */
+    private final int maxEntries;
+
+    /**
+     * The maximum estimated size of the tokens in the cache, in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * The time a token is served from the cache, in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * The cached tokens, least recently used first. Guarded by this.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The estimated frequencies of the keys asked for. Guarded by this.
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * The estimated size of the cached tokens, in bytes. Guarded by this.
+     */
+    private long weight;
+
+    /**
+     * The number of invalidations so far, by organization. Guarded by this.
+     */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /**
+     * The number of reads served from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of reads not served from the cache.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The number of tokens added to the cache.
+     */
+    private final LongAdder puts = new LongAdder();
+
+    /**
+     * The number of tokens evicted to make room, expired or not admitted.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for the TokenCache class.
+     *
+     * @param settings      The application settings holding the token cache
+     *                      settings.
+     * @param meterRegistry The registry the cache statistics are published to.
+     */
+    public TokenCache(Settings settings, MeterRegistry meterRegistry) {
+        TokenCacheSettings tokenCache = settings.getTokenCache();
+        this.enabled = tokenCache.isEnabled();
+        this.maxEntries = tokenCache.getMaxEntries();
+        this.maxBytes = tokenCache.getMaxBytes();
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(tokenCache.getTtlMs());
+        this.sketch = new FrequencySketch(this.maxEntries);
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .description("Number of tokens read from the cache")
+                .tags(TAGS).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .description("Number of tokens read from the BSIDCA service because they were not cached")
+                .tags(TAGS).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.puts", puts, LongAdder::sum)
+                .description("Number of tokens added to the cache")
+                .tags(TAGS)
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .description("Number of tokens evicted, expired or not admitted")
+                .tags(TAGS)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, TokenCache::getSize)
+                .description("Number of tokens in the cache")
+                .tags(TAGS)
+                .register(meterRegistry);
+        Gauge.builder("cache.weight", this, TokenCache::getWeight)
+                .description("Estimated size of the tokens in the cache")
+                .baseUnit("bytes")
+                .tags(TAGS)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets a token from the cache.
+     *
+     * @param organization The organization of the token.
+     * @param serial       The serial number of the token.
+     * @return The cached token, or null if it is not cached or has expired.
+     */
+    public TokenSchema get(String organization, String serial) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = new Key(organization, serial);
+        synchronized (this) {
+            sketch.increment(key.hashCode());
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return TokenSchema.copyOf(entry.token);
+        }
+    }
+
+    /**
+     * Gets the number of invalidations so far in an organization, to be passed
+     * to put() by a read that missed the cache.
+     *
+     * @param organization The organization of the token being read.
+     * @return The invalidation generation of the organization.
+     */
+    public synchronized long getGeneration(String organization) {
+        return generations.getOrDefault(organization, 0L);
+    }
+
+    /**
+     * Counts an invalidation in an organization, so that the reads of the
+     * organization in progress do not put their results in the cache.
+     *
+     * @param organization The organization whose tokens were changed.
+     */
+    private void advanceGeneration(String organization) {
+        generations.merge(organization, 1L, Long::sum);
+    }
+
+    /**
+     * Adds a token read from the BSIDCA service to the cache, unless an
+     * invalidation happened since the read started, the token is larger than
+     * the whole cache, or the cache is full of tokens asked for more often.
+     *
+     * @param organization The organization of the token.
+     * @param serial       The serial number of the token.
+     * @param token        The token, possibly null.
+     * @param generation   The invalidation generation of the organization
+     *                     when the read started.
+     */
+    public void put(String organization, String serial, TokenSchema token, long generation) {
+        if (!enabled || token == null || token.getError() != null) {
+            return;
+        }
+        Key key = new Key(organization, serial);
+        int tokenWeight = weigh(key, token);
+        if (tokenWeight > maxBytes) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (generation != getGeneration(organization)) {
+                return;
+            }
+            boolean replacing = remove(key) != null;
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (eldest.hasNext() && (entries.size() >= maxEntries || weight + tokenWeight > maxBytes)) {
+                Map.Entry<Key, Entry> victim = eldest.next();
+                if (!replacing && !victim.getValue().isExpired(now)
+                        && sketch.frequency(key.hashCode()) <= sketch.frequency(victim.getKey().hashCode())) {
+                    // The new token is asked for less often than the one it would evict
+                    evictions.increment();
+                    return;
+                }
+                weight -= victim.getValue().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+            entries.put(key, new Entry(TokenSchema.copyOf(token), tokenWeight, now + ttlNanos));
+            weight += tokenWeight;
+            puts.increment();
+        }
+    }
+
+    /**
+     * Removes a token from the cache, after the API has changed it.
+     *
+     * @param organization The organization of the token.
+     * @param serial       The serial number of the token.
+     */
+    public void invalidate(String organization, String serial) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            advanceGeneration(organization);
+            remove(new Key(organization, serial));
+        }
+    }
+
+    /**
+     * Removes every token of a user from the cache, after the API has changed
+     * the tokens of the user without knowing their serials.
+     *
+     * @param organization The organization of the user.
+     * @param username     The user owning the tokens.
+     */
+    public void invalidateOwner(String organization, String username) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            advanceGeneration(organization);
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (Objects.equals(entry.getKey().organization, organization)
+                        && username != null && username.equalsIgnoreCase(entry.getValue().token.getUserId())) {
+                    weight -= entry.getValue().weight;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a token from the cache and its size from the weight.
+     *
+     * @param key The key of the token.
+     * @return The removed entry, or null if the token was not cached.
+     */
+    private Entry remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+        return entry;
+    }
+
+    /**
+     * Estimates the size of a cached token in memory.
+     *
+     * @param key   The key of the token.
+     * @param token The token.
+     * @return The estimated size in bytes.
+     */
+    private static int weigh(Key key, TokenSchema token) {
+        int chars = length(key.organization) + length(key.serial) + length(token.getSerialNumber())
+                + length(token.getType()) + length(token.getState()) + length(token.getStateSetDate())
+                + length(token.getUserId()) + length(token.getOrgName()) + length(token.getContainer())
+                + length(token.getIce()) + length(token.getRented());
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    /**
+     * Gets the length of a string.
+     *
+     * @param value The string, possibly null.
+     * @return The length of the string, 0 if it is null.
+     */
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * Gets the number of tokens in the cache, expired ones included until
+     * they are evicted.
+     *
+     * @return The number of cached tokens.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the estimated size of the tokens in the cache.
+     *
+     * @return The size in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * The key of a cached token.
+     */
+    private static final class Key {
+
+        /**
+         * The organization of the token.
+         */
+        private final String organization;
+
+        /**
+         * The serial number of the token.
+         */
+        private final String serial;
+
+        /**
+         * Constructor for the Key class.
+         *
+         * @param organization The organization of the token.
+         * @param serial       The serial number of the token.
+         */
+        Key(String organization, String serial) {
+            this.organization = organization;
+            this.serial = serial;
+        }
+
+        /**
+         * Compares this key with another object.
+         *
+         * @param other The object to compare with.
+         * @return true if the other object is the key of the same token.
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return Objects.equals(organization, that.organization) && Objects.equals(serial, that.serial);
+        }
+
+        /**
+         * Computes the hash code of this key.
+         *
+         * @return The hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(organization, serial);
+        }
+    }
+
+    /**
+     * A cached token.
+     */
+    private static final class Entry {
+
+        /**
+         * The token.
+         */
+        private final TokenSchema token;
+
+        /**
+         * The estimated size of the token, in bytes.
+         */
+        private final int weight;
+
+        /**
+         * The System.nanoTime() after which the token has expired.
+         */
+        private final long expiresAt;
+
+        /**
+         * Constructor for the Entry class.
+         *
+         * @param token     The token.
+         * @param weight    The estimated size of the token, in bytes.
+         * @param expiresAt The System.nanoTime() after which the token has
+         *                  expired.
+         */
+        Entry(TokenSchema token, int weight, long expiresAt) {
+            this.token = token;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Tells whether the token has expired.
+         *
+         * @param now The current System.nanoTime().
+         * @return true if the token has expired.
+         */
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters estimating how often the keys were
+     * asked for. The counters are halved once the number of increments
+     * reaches ten times the size of the cache, so that the estimates follow
+     * the recent reads.
+     */
+    private static final class FrequencySketch {
+
+        /**
+         * The largest value of a counter.
+         */
+        private static final int MAX_COUNT = 15;
+
+        /**
+         * The seeds of the four hash functions.
+         */
+        private static final int[] SEEDS = { 0x97cb3127, 0xb3a3c2e5, 0x2c1b3c6d, 0x7ed55d16 };
+
+        /**
+         * The counters of the four rows, side by side.
+         */
+        private final byte[] counters;
+
+        /**
+         * The number of counters per row, minus one.
+         */
+        private final int mask;
+
+        /**
+         * The number of increments after which the counters are halved.
+         */
+        private final int sampleSize;
+
+        /**
+         * The number of increments since the counters were last halved.
+         */
+        private int increments;
+
+        /**
+         * Constructor for the FrequencySketch class.
+         *
+         * @param maxEntries The maximum number of entries of the cache.
+         */
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(1 << 24, maxEntries)) - 1) << 1;
+            this.counters = new byte[4 * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maxEntries);
+        }
+
+        /**
+         * Counts a request for a key.
+         *
+         * @param hash The hash code of the key.
+         */
+        void increment(int hash) {
+            for (int row = 0; row < 4; row++) {
+                int index = indexOf(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                }
+            }
+            if (++increments >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                increments /= 2;
+            }
+        }
+
+        /**
+         * Estimates how often a key was asked for.
+         *
+         * @param hash The hash code of the key.
+         * @return The estimated frequency.
+         */
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < 4; row++) {
+                frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        /**
+         * Computes the index of the counter of a key in a row.
+         *
+         * @param hash The hash code of the key.
+         * @param row  The row.
+         * @return The index of the counter.
+         */
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The TokenCacheSettings class represents the optional "token_cache" section
+ * of the settings.json file. It controls the in-process cache of the tokens
+ * read by serial number: whether it is used, how many tokens and how many
+ * bytes it holds, and how long a token is served from it. It also controls
+ * the index of the serials owned by every user.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class TokenCacheSettings {
+
+    /**
+     * Whether the tokens read by serial number are cached.
+     */
+    @JsonProperty("enabled")
+    private boolean enabled = true;
+
+    /**
+     * The maximum number of tokens in the cache.
+     */
+    @JsonProperty("max_entries")
+    private int maxEntries = 10000;
+
+    /**
+     * The maximum estimated size of the tokens in the cache, in bytes.
+     */
+    @JsonProperty("max_bytes")
+    private long maxBytes = 16L * 1024 * 1024;
+
+    /**
+     * The time a token is served from the cache after it was read, in
+     * milliseconds.
+     */
+    @JsonProperty("ttl_ms")
+    private long ttlMs = 30000;
+
+    /**
+     * The maximum number of users in the index of the serials they own.
+     */
+    @JsonProperty("owner_max_entries")
+    private int ownerMaxEntries = 10000;
+
+    /**
+     * The time the serials of a user are served from the index after they
+     * were read, in milliseconds.
+     */
+    @JsonProperty("owner_ttl_ms")
+    private long ownerTtlMs = 10000;
+
+    /**
+     * Tells whether the tokens read by serial number are cached.
+     *
+     * @return true if the cache is used.
+     */
+    public boolean isEnabled() {
+        return enabled && ttlMs > 0;
+    }
+
+    /**
+     * Sets whether the tokens read by serial number are cached.
+     *
+     * @param enabled true to use the cache.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the maximum number of tokens in the cache.
+     *
+     * @return The maximum number of tokens, at least 1.
+     */
+    public int getMaxEntries() {
+        return Math.max(1, maxEntries);
+    }
+
+    /**
+     * Sets the maximum number of tokens in the cache.
+     *
+     * @param maxEntries The maximum number of tokens.
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Gets the maximum estimated size of the tokens in the cache.
+     *
+     * @return The maximum size in bytes, at least 1024.
+     */
+    public long getMaxBytes() {
+        return Math.max(1024, maxBytes);
+    }
+
+    /**
+     * Sets the maximum estimated size of the tokens in the cache.
+     *
+     * @param maxBytes The maximum size in bytes.
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the time a token is served from the cache after it was read.
+     *
+     * @return The time to live in milliseconds.
+     */
+    public long getTtlMs() {
+        return Math.max(0, ttlMs);
+    }
+
+    /**
+     * Sets the time a token is served from the cache after it was read.
+     *
+     * @param ttlMs The time to live in milliseconds, or 0 to disable the
+     *              cache.
+     */
+    public void setTtlMs(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Tells whether the serials owned by the users are indexed.
+     *
+     * @return true if the index is used.
+     */
+    public boolean isOwnerIndexEnabled() {
+        return enabled && ownerTtlMs > 0;
+    }
+
+    /**
+     * Gets the maximum number of users in the index of the serials they own.
+     *
+     * @return The maximum number of users, at least 1.
+     */
+    public int getOwnerMaxEntries() {
+        return Math.max(1, ownerMaxEntries);
+    }
+
+    /**
+     * Sets the maximum number of users in the index of the serials they own.
+     *
+     * @param ownerMaxEntries The maximum number of users.
+     */
+    public void setOwnerMaxEntries(int ownerMaxEntries) {
+        this.ownerMaxEntries = ownerMaxEntries;
+    }
+
+    /**
+     * Gets the time the serials of a user are served from the index after
+     * they were read.
+     *
+     * @return The time to live in milliseconds.
+     */
+    public long getOwnerTtlMs() {
+        return Math.max(0, ownerTtlMs);
+    }
+
+    /**
+     * Sets the time the serials of a user are served from the index after
+     * they were read.
+     *
+     * @param ownerTtlMs The time to live in milliseconds, or 0 to disable the
+     *                   index.
+     */
+    public void setOwnerTtlMs(long ownerTtlMs) {
+        this.ownerTtlMs = ownerTtlMs;
+    }
+}
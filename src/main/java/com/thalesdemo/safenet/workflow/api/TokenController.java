@@ -28,25 +28,36 @@
  */
 package com.thalesdemo.safenet.workflow.api;
 
+import java.io.IOException;
+import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Parameter;
 
+import javax.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("${api.basePath}")
 @Tag(name = "Token")
@@ -58,6 +69,18 @@ public class TokenController {
     @Autowired
     TokenService tokenService;
 
+    /**
+     * The TokenInventoryService exporting all the tokens of an organization.
+     */
+    @Autowired
+    TokenInventoryService tokenInventoryService;
+
+    /**
+     * The BulkRevocationService revoking the tokens named by a bulk request.
+     */
+    @Autowired
+    BulkRevocationService bulkRevocationService;
+
     /**
      * The value of api.user.delimiter is injected using the @Value annotation.
      */
@@ -99,12 +122,45 @@ public class TokenController {
 
             // Retrieve the requested token information
             return this.tokenService.getTokensByUsername(uniqueUsername, organization, tokenType, tokenState);
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             // If there is an exception, return an empty list
             return new ArrayList<>();
         }
     }
 
+    /**
+     * Exports all the tokens of an organization as newline-delimited JSON, one
+     * token per line, without holding them all in memory.
+     *
+     * @param organization The name of the organization.
+     *                     This is a required query parameter.
+     * @param cursor       The index of the first token to export.
+     *                     This is an optional query parameter.
+     * @return The tokens, streamed as they are read.
+     */
+    @Operation(summary = "Export all the tokens of an organization", description = "Stream every token of the organization as newline-delimited JSON. To resume an interrupted export, pass the cursor it started from plus the number of lines received; an export that fails midway ends with a line holding the error and the cursor to resume from.")
+    @ApiResponse(responseCode = "200", description = "Tokens streamed")
+    @ApiResponse(responseCode = "502", description = "The tokens could not be read")
+    @GetMapping(value = "/tokens", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTokens(
+            @Parameter(description = "The name of the organization.") @RequestParam(value = "organization") String organization,
+            @Parameter(description = "The index of the first token to export.") @RequestParam(value = "cursor", defaultValue = "0") int cursor) {
+
+        if (cursor < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The cursor cannot be negative");
+        }
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(this.tokenInventoryService.export(organization, cursor));
+        } catch (RemoteException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, e.getMessage());
+        }
+    }
+
     /**
      * Retrieves information about a token based on its serial number.
      * 
@@ -125,6 +181,9 @@ public class TokenController {
         // If there is an exception, return null
         try {
             return this.tokenService.getTokenBySerialNumber(serialnumber, organization);
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             return null;
         }
@@ -185,4 +244,66 @@ public class TokenController {
         return this.tokenService.revokeTokenByUsername(uniqueUsername, organization, tokenType, tokenState);
     }
 
+    /**
+     * Revokes token(s) associated with a user's account, and streams the
+     * result of every token back as soon as its revocation completes.
+     * 
+     * @param realmId      The realm ID of the user for which to revoke token(s).
+     *                     This is a required path variable.
+     * @param username     The username for which to revoke token(s).
+     *                     This is a required path variable.
+     * @param organization The name of the organization.
+     *                     This is a required query parameter.
+     * @param tokenType    The type of token(s) for which to revoke.
+     *                     This is an optional query parameter.
+     * @param tokenState   The state of token(s) for which to revoke.
+     *                     This is an optional query parameter.
+     * @return The results of the tokens, streamed as they complete.
+     */
+    @Operation(summary = "Revoke token(s) from a user, streaming the results", description = "Revoke token(s) associated with a user's account. Every token is revoked as soon as its details are read, and its result is streamed back as a line of its own, {\"serial_number\": ..., \"revoked\": ...}. A last line holds all the results, or the error the revocation failed with.")
+    @ApiResponse(responseCode = "200", description = "Results streamed")
+    @DeleteMapping(value = "/tokens/{realm_id}/{username}/revocations", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> revokeTokensByUsernameStreamed(
+            @Parameter(description = "The realm ID of the user for which to revoke token(s).") @PathVariable("realm_id") String realmId,
+            @Parameter(description = "The username for which to revoke token(s).") @PathVariable("username") String username,
+            @Parameter(description = "The name of the organization.") @RequestParam(value = "organization") String organization,
+            @Parameter(description = "The type of token(s) for which to revoke.", schema = @Schema(type = "string", allowableValues = {
+                    "GrIDsure", "RADIUS", "OATH", "SMS", "Email", "Password", "KT", "RB", "GOLD", "eToken",
+                    "MobilePASS", "GoogleAuthenticator"
+            })) @RequestParam(value = "token_type", required = false) TokenType tokenType,
+            @Parameter(description = "The state of token(s) for which to revoke.", schema = @Schema(type = "string", allowableValues = {
+                    "Active", "Suspended", "Locked"
+            })) @RequestParam(value = "token_state", required = false) TokenState tokenState) {
+
+        // Combine the realm ID and username to get the unique username
+        String uniqueUsername = UserUtils.getUniqueUsername(realmId, delimiter, username);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(this.bulkRevocationService.revokeUser(organization, uniqueUsername, tokenType, tokenState));
+    }
+
+    /**
+     * Revokes the tokens named by a bulk request, several at a time, and
+     * streams the outcome of every item back as soon as it completes.
+     *
+     * @param organization The name of the organization.
+     *                     This is a required query parameter.
+     * @param request      The request, whose body holds one item per line.
+     * @return The outcomes of the items, streamed as they complete.
+     * @throws IOException if the body of the request cannot be read.
+     */
+    @Operation(summary = "Revoke tokens in bulk", description = "Revoke the tokens named by newline-delimited JSON items, either {\"serial_number\": ...} or {\"realm_id\": ..., \"username\": ..., \"token_type\": ..., \"token_state\": ...}, several at a time. The outcome of every item is streamed back as a line of its own, with the index of the item, as soon as it completes.")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The items to revoke, one JSON object per line.", required = true, content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE))
+    @ApiResponse(responseCode = "200", description = "Outcomes streamed")
+    @PostMapping(value = "/tokens/revocations", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> revokeTokensInBulk(
+            @Parameter(description = "The name of the organization.") @RequestParam(value = "organization") String organization,
+            HttpServletRequest request) throws IOException {
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(this.bulkRevocationService.revoke(organization, request.getInputStream()));
+    }
+
 }
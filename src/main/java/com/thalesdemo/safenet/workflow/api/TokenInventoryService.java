@@ -0,0 +1,263 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The TokenInventoryService class exports all the tokens of an organization
+ * as newline-delimited JSON, one token per line, by paging through GetTokens.
+ * The first page is read on the request thread, so that a failure to reach
+ * the BSIDCA service is answered with an error status. The following pages
+ * are read ahead on the executor of the AsyncBsidcaClient while the current
+ * one is written out, a bounded number of pages at a time: since writing
+ * blocks while the client is not reading, a slow client holds back the reads
+ * and the export never holds more than a few pages in memory. Every page is
+ * read with the timeout of an asynchronous call, not the deadline of the
+ * request, which an export of a large organization would outlast.
+ *
+ * Tokens are exported in the order of the BSIDCA service, starting from an
+ * offset cursor: a client that lost its connection resumes from the cursor it
+ * started from plus the number of lines it received. When a page cannot be
+ * read, even once more on the streaming thread, the export ends with a line
+ * holding the error and the cursor to resume from.
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Service
+public class TokenInventoryService {
+
+    /**
+     * The TokenService reading the pages of tokens.
+     */
+    @Autowired
+    TokenService tokenService;
+
+    /**
+     * The client reading the pages ahead on its executor.
+     */
+    @Autowired
+    AsyncBsidcaClient asyncClient;
+
+    /**
+     * The ObjectMapper writing the tokens, as for the other endpoints.
+     */
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * The application settings holding the inventory settings.
+     */
+    @Autowired
+    Settings settings;
+
+    /**
+     * This is the logger instance for the TokenInventoryService class. The
+     * logger is initialized with the name of the class for which it is used.
+     */
+    private static final Logger Log = Logger.getLogger(TokenInventoryService.class.getName());
+
+    /**
+     * Starts the export of the tokens of an organization by reading its first
+     * page.
+     *
+     * @param organization The organization whose tokens are exported.
+     * @param cursor       The index of the first token to export, 0 to export
+     *                     them all.
+     * @return The body writing the tokens out, page after page.
+     * @throws RemoteException if the first page could not be read.
+     */
+    public StreamingResponseBody export(String organization, int cursor) throws RemoteException {
+        int pageSize = this.settings.getInventory().getPageSize();
+        List<TokenSchema> first = this.tokenService.getTokenPage(organization, cursor, pageSize);
+        return out -> write(organization, new Page(cursor, first), out);
+    }
+
+    /**
+     * Writes the tokens out, page after page, reading the next pages ahead.
+     *
+     * @param organization The organization whose tokens are exported.
+     * @param first        The first page, already read.
+     * @param out          The body of the response.
+     * @throws IOException if the client has gone.
+     */
+    private void write(String organization, Page first, OutputStream out) throws IOException {
+        InventorySettings inventory = this.settings.getInventory();
+        int pageSize = inventory.getPageSize();
+        int prefetchPages = inventory.getPrefetchPages();
+        Deque<Page> ahead = new ArrayDeque<>();
+        int nextStart = first.start + pageSize;
+        long exported = 0;
+
+        try {
+            Page page = first;
+            while (true) {
+                List<TokenSchema> tokens = page.tokens;
+                boolean last = tokens.size() < pageSize;
+
+                // Read the next pages while this one is written out
+                while (!last && ahead.size() < prefetchPages) {
+                    ahead.add(readAhead(organization, nextStart, pageSize));
+                    nextStart += pageSize;
+                }
+
+                for (TokenSchema token : tokens) {
+                    out.write(this.objectMapper.writeValueAsBytes(token));
+                    out.write('\n');
+                }
+                out.flush();
+                exported += tokens.size();
+                if (last) {
+                    break;
+                }
+
+                int start = page.start + tokens.size();
+                try {
+                    page = next(organization, ahead.poll(), start, pageSize);
+                } catch (RemoteException | RuntimeException e) {
+                    Log.log(Level.WARNING, "Could not read the tokens of {0} from {1}, ending the export",
+                            new Object[] { organization, start });
+                    Log.log(Level.FINE, "Reason: ", e);
+                    writeError(out, e, start);
+                    break;
+                }
+            }
+            Log.log(Level.INFO, "Exported {0} tokens of {1} from {2}",
+                    new Object[] { exported, organization, first.start });
+        } finally {
+            for (Page page : ahead) {
+                page.future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Starts reading a page on the executor of the asynchronous client.
+     *
+     * @param organization The organization whose tokens are exported.
+     * @param start        The index of the first token of the page.
+     * @param pageSize     The maximum number of tokens of the page.
+     * @return The page being read.
+     */
+    private Page readAhead(String organization, int start, int pageSize) {
+        return new Page(start, this.asyncClient.supply(BsidcaOperation.GET_TOKENS,
+                () -> this.tokenService.getTokenPage(organization, start, pageSize),
+                this.asyncClient.getDefaultTimeoutMs()));
+    }
+
+    /**
+     * Gets the next page, from the pages read ahead or else on this thread. A
+     * page read ahead that failed, for instance because the executor was busy,
+     * is read once more on this thread.
+     *
+     * @param organization The organization whose tokens are exported.
+     * @param ahead        The page read ahead, or null if none was.
+     * @param start        The index of the first token of the page.
+     * @param pageSize     The maximum number of tokens of the page.
+     * @return The page.
+     * @throws RemoteException if the page could not be read.
+     */
+    private Page next(String organization, Page ahead, int start, int pageSize) throws RemoteException {
+        if (ahead != null) {
+            try {
+                return new Page(start, ahead.future.join());
+            } catch (CompletionException | CancellationException e) {
+                Log.log(Level.FINE, "Reading the page of {0} from {1} again", new Object[] { organization, start });
+            }
+        }
+        return new Page(start, this.tokenService.getTokenPage(organization, start, pageSize));
+    }
+
+    /**
+     * Writes the line ending an export that could not be completed.
+     *
+     * @param out    The body of the response.
+     * @param e      The reason why the export could not be completed.
+     * @param cursor The cursor to resume the export from.
+     * @throws IOException if the client has gone.
+     */
+    private void writeError(OutputStream out, Exception e, int cursor) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        line.put("cursor", cursor);
+        out.write(this.objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * A page of tokens, read or being read.
+     */
+    private static final class Page {
+
+        /**
+         * The index of the first token of the page.
+         */
+        private final int start;
+
+        /**
+         * The tokens of the page, or null while it is being read.
+         */
+        private final List<TokenSchema> tokens;
+
+        /**
+         * The read of the page, or null once it has been read.
+         */
+        private final CompletableFuture<List<TokenSchema>> future;
+
+        /**
+         * Constructor of a page that has been read.
+         *
+         * @param start  The index of the first token of the page.
+         * @param tokens The tokens of the page.
+         */
+        Page(int start, List<TokenSchema> tokens) {
+            this.start = start;
+            this.tokens = tokens;
+            this.future = null;
+        }
+
+        /**
+         * Constructor of a page being read.
+         *
+         * @param start  The index of the first token of the page.
+         * @param future The read of the page.
+         */
+        Page(int start, CompletableFuture<List<TokenSchema>> future) {
+            this.start = start;
+            this.tokens = null;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * Copyright 2023 safenet-workflow-api
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * The TokenOwnerIndex class keeps the serial numbers of the tokens owned by
+ * every user, keyed by organization and unique username, so that listing or
+ * revoking the tokens of a user does not start with a GetTokensByOwner call
+ * every time. Token ownership only changes through a few operations, and the
+ * API drops the serials of a user from the index whenever it provisions or
+ * enrolls a token for the user, revokes one of the tokens of the user or
+ * removes the user; a short time to live covers the changes made outside
+ * the API. A read that started before an invalidation does not put its
+ * result in the index. The least recently used users are evicted when the
+ * index is full. The cached lists are unmodifiable. The hits, misses, puts
+ * and evictions are published with the meter names used for the other
+ * caches of Micrometer, tagged cache="bsidca.owners".
+ *
+ * @author Cina Shaykhian
+ * @contact hello@onewelco.me
+ */
+package com.thalesdemo.safenet.workflow.api;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.stereotype.Component;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class TokenOwnerIndex {
+
+    /**
+     * The tags of the meters of the index.
+     */
+    private static final Tags TAGS = Tags.of("cache", "bsidca.owners");
+
+    /**
+     * Whether the serials are indexed at all.
+     */
+    private final boolean enabled;
+
+    /**
+     * The time the serials of a user are served from the index, in
+     * nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * The serials of every user, least recently used first. Guarded by this.
+     */
+    private final Map<Key, Entry> entries;
+
+    /**
+     * The number of invalidations so far. Guarded by this.
+     */
+    private long generation;
+
+    /**
+     * The number of reads served from the index.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of reads not served from the index.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The number of users added to the index.
+     */
+    private final LongAdder puts = new LongAdder();
+
+    /**
+     * The number of users evicted to make room or expired.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for the TokenOwnerIndex class.
+     *
+     * @param settings      The application settings holding the token cache
+     *                      settings.
+     * @param meterRegistry The registry the index statistics are published to.
+     */
+    public TokenOwnerIndex(Settings settings, MeterRegistry meterRegistry) {
+        TokenCacheSettings tokenCache = settings.getTokenCache();
+        this.enabled = tokenCache.isOwnerIndexEnabled();
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(tokenCache.getOwnerTtlMs());
+        int maxEntries = tokenCache.getOwnerMaxEntries();
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .description("Number of token owners whose serials were read from the index")
+                .tags(TAGS).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .description("Number of token owners whose serials were read from the BSIDCA service")
+                .tags(TAGS).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.puts", puts, LongAdder::sum)
+                .description("Number of token owners added to the index")
+                .tags(TAGS)
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .description("Number of token owners evicted or expired")
+                .tags(TAGS)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, TokenOwnerIndex::getSize)
+                .description("Number of token owners in the index")
+                .tags(TAGS)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets the serials owned by a user from the index.
+     *
+     * @param organization The organization of the user.
+     * @param username     The unique username of the user.
+     * @return The serials, or null if the user is not indexed or has expired.
+     */
+    public List<String> get(String organization, String username) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = new Key(organization, username);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expiresAt > 0) {
+                entries.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.serials;
+        }
+    }
+
+    /**
+     * Gets the number of invalidations so far, to be passed to put() by a
+     * read that missed the index.
+     *
+     * @return The invalidation generation.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Adds the serials owned by a user, read from the BSIDCA service, to the
+     * index, unless an invalidation happened since the read started.
+     *
+     * @param organization The organization of the user.
+     * @param username     The unique username of the user.
+     * @param serials      The serials owned by the user.
+     * @param generation   The invalidation generation when the read started.
+     */
+    public void put(String organization, String username, List<String> serials, long generation) {
+        if (!enabled || serials == null) {
+            return;
+        }
+        Entry entry = new Entry(Collections.unmodifiableList(serials), System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            if (generation == this.generation) {
+                entries.put(new Key(organization, username), entry);
+                puts.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes the serials of a user from the index, after the API has changed
+     * the tokens of the user.
+     *
+     * @param organization The organization of the user.
+     * @param username     The unique username of the user.
+     */
+    public void invalidate(String organization, String username) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            entries.remove(new Key(organization, username));
+        }
+    }
+
+    /**
+     * Gets the number of users in the index, expired ones included until they
+     * are evicted.
+     *
+     * @return The number of indexed users.
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * The key of the serials of a user. Usernames are compared ignoring case,
+     * as the BSIDCA service does.
+     */
+    private static final class Key {
+
+        /**
+         * The organization of the user.
+         */
+        private final String organization;
+
+        /**
+         * The unique username of the user, in lower case.
+         */
+        private final String username;
+
+        /**
+         * Constructor for the Key class.
+         *
+         * @param organization The organization of the user.
+         * @param username     The unique username of the user.
+         */
+        Key(String organization, String username) {
+            this.organization = organization;
+            this.username = username == null ? null : username.toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Compares this key with another object.
+         *
+         * @param other The object to compare with.
+         * @return true if the other object is the key of the same user.
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return Objects.equals(organization, that.organization) && Objects.equals(username, that.username);
+        }
+
+        /**
+         * Computes the hash code of this key.
+         *
+         * @return The hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(organization, username);
+        }
+    }
+
+    /**
+     * The serials of a user.
+     */
+    private static final class Entry {
+
+        /**
+         * The serials, unmodifiable.
+         */
+        private final List<String> serials;
+
+        /**
+         * The System.nanoTime() after which the serials have expired.
+         */
+        private final long expiresAt;
+
+        /**
+         * Constructor for the Entry class.
+         *
+         * @param serials   The serials, unmodifiable.
+         * @param expiresAt The System.nanoTime() after which the serials have
+         *                  expired.
+         */
+        Entry(List<String> serials, long expiresAt) {
+            this.serials = serials;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
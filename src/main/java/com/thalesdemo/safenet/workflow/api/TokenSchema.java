@@ -25,6 +25,7 @@
 package com.thalesdemo.safenet.workflow.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import io.swagger.v3.oas.annotations.Hidden;
@@ -111,6 +112,54 @@ public class TokenSchema {
     @JsonIgnore
     private String rented;
 
+    /**
+     * The reason the token could not be read, when it is listed with its
+     * serial number only.
+     */
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
+    /**
+     * Creates the entry of a token that could not be read.
+     *
+     * @param serialNumber The serial number of the token.
+     * @param error        The reason the token could not be read.
+     * @return The entry holding the serial number and the error.
+     */
+    public static TokenSchema failed(String serialNumber, String error) {
+        TokenSchema token = new TokenSchema();
+        token.setSerialNumber(serialNumber);
+        token.setError(error);
+        return token;
+    }
+
+    /**
+     * Creates a copy of a token, so that a token shared between requests is
+     * never modified by one of them.
+     *
+     * @param token The token to copy.
+     * @return The copy of the token.
+     */
+    public static TokenSchema copyOf(TokenSchema token) {
+        TokenSchema copy = new TokenSchema();
+        copy.setSerialNumber(token.getSerialNumber());
+        copy.setType(token.getType());
+        copy.setState(token.getState());
+        copy.setStateInt(token.getStateInt());
+        copy.setTokenAllowed(token.getTokenAllowed());
+        copy.setStateSetDate(token.getStateSetDate());
+        copy.setUserId(token.getUserId());
+        copy.setOrgName(token.getOrgName());
+        copy.setContainer(token.getContainer());
+        copy.setHardwareInit(token.getHardwareInit());
+        copy.setAssignable(token.getAssignable());
+        copy.setIce(token.getIce());
+        copy.setRented(token.getRented());
+        copy.setError(token.getError());
+        return copy;
+    }
+
     /**
      * Returns the serial number of the token.
      * 
@@ -345,4 +394,22 @@ public class TokenSchema {
         this.tokenAllowed = tokenAllowed;
     }
 
+    /**
+     * Returns the reason the token could not be read.
+     *
+     * @return the reason, or null if the token was read.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Sets the reason the token could not be read.
+     *
+     * @param error the reason the token could not be read.
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+
 }
@@ -24,10 +24,12 @@
  * The extracted data is used to create a new {@code TokenSchema} object, 
  * which is then returned to the calling method.
  * 
- * This class provides the following public method: 
+ * This class provides the following public methods: 
  * {@code parse(String xml)}: Parses the specified XML string and returns
  * a new {@code TokenSchema} object that contains the relevant data fields
  * extracted from the XML.
+ * {@code parseAll(String xml)}: Parses every token of the specified XML
+ * string, such as a page of a GetTokens response.
  * 
  * This class should not be instantiated, as it is a utility class that 
  * only provides static methods. Therefore, its constructor has been marked 
@@ -49,6 +51,8 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TokenSchemaParser {
 
@@ -74,29 +78,8 @@ public class TokenSchemaParser {
             Document document = builder.parse(new InputSource(new StringReader(xml)));
             // get a list of elements with the tag "Named_Tokens_Table" from the document
             NodeList nodeList = document.getElementsByTagName("Named_Tokens_Table");
-            // create a new TokenSchema object
-            TokenSchema token = new TokenSchema();
-            // get the first element in the NodeList
-            Element element = (Element) nodeList.item(0);
-
-            // set the values of the TokenSchema object's properties based on the values of
-            // the corresponding elements in the XML document
-            token.setSerialNumber(getValue("serialnumber", element));
-            token.setState(getValue("state", element));
-            token.setStateSetDate(getDateValue("stateSetDate", element));
-            token.setUserId(getValue("userid", element));
-            token.setOrgName(getValue("orgName", element));
-            token.setType(getValue("type", element));
-            token.setContainer(getValue("container", element));
-            token.setRented(getValue("rented", element));
-            token.setHardwareInit(getBooleanValue("hardwareInit", element));
-            token.setAssignable(getBooleanValue("assignable", element));
-            token.setIce(getValue("ice", element));
-            token.setStateInt(getIntValue("stateInt", element));
-            token.setTokenAllowed(getIntValue("tokenAllowed", element));
-
-            // return the TokenSchema object
-            return token;
+            // convert the first element in the NodeList
+            return toToken((Element) nodeList.item(0));
         } catch (Exception e) {
             // if an exception is thrown, print the stack trace and return null
             e.printStackTrace();
@@ -104,16 +87,70 @@ public class TokenSchemaParser {
         }
     }
 
+    /**
+     * Parses every token of an XML representation of a list of token schemas,
+     * such as a page of a GetTokens response.
+     *
+     * @param xml the XML representation of the token schemas
+     * @return the TokenSchema objects parsed from the XML, possibly empty
+     * @throws Exception if the XML cannot be parsed
+     */
+    public static List<TokenSchema> parseAll(String xml) throws Exception {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document document = builder.parse(new InputSource(new StringReader(xml)));
+        NodeList nodeList = document.getElementsByTagName("Named_Tokens_Table");
+        List<TokenSchema> tokens = new ArrayList<>(nodeList.getLength());
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            tokens.add(toToken((Element) nodeList.item(i)));
+        }
+        return tokens;
+    }
+
+    /**
+     * Converts a Named_Tokens_Table element to a TokenSchema object.
+     *
+     * @param element the Named_Tokens_Table element
+     * @return the TokenSchema object
+     * @throws ParseException if a date of the token cannot be parsed
+     */
+    private static TokenSchema toToken(Element element) throws ParseException {
+        // create a new TokenSchema object
+        TokenSchema token = new TokenSchema();
+
+        // set the values of the TokenSchema object's properties based on the values of
+        // the corresponding elements in the XML document
+        token.setSerialNumber(getValue("serialnumber", element));
+        token.setState(getValue("state", element));
+        token.setStateSetDate(getDateValue("stateSetDate", element));
+        token.setUserId(getValue("userid", element));
+        token.setOrgName(getValue("orgName", element));
+        token.setType(getValue("type", element));
+        token.setContainer(getValue("container", element));
+        token.setRented(getValue("rented", element));
+        token.setHardwareInit(getBooleanValue("hardwareInit", element));
+        token.setAssignable(getBooleanValue("assignable", element));
+        token.setIce(getValue("ice", element));
+        token.setStateInt(getIntValue("stateInt", element));
+        token.setTokenAllowed(getIntValue("tokenAllowed", element));
+
+        // return the TokenSchema object
+        return token;
+    }
+
     /**
      * Retrieves the value of a tag in an XML element.
      *
      * @param tag     the name of the tag to retrieve
      * @param element the XML element containing the tag
-     * @return the value of the tag in the element
+     * @return the value of the tag in the element, or an empty string if the
+     *         element has no such tag
      */
     private static String getValue(String tag, Element element) {
-        NodeList nodeList = element.getElementsByTagName(tag).item(0).getChildNodes();
-        Node node = nodeList.item(0);
+        Node tagNode = element.getElementsByTagName(tag).item(0);
+        if (tagNode == null) {
+            return "";
+        }
+        Node node = tagNode.getChildNodes().item(0);
         return node == null ? "" : node.getNodeValue();
     }
 
@@ -133,10 +170,12 @@ public class TokenSchemaParser {
      *
      * @param tag     the name of the tag to retrieve
      * @param element the XML element containing the tag
-     * @return the integer value of the tag in the element
+     * @return the integer value of the tag in the element, or null if it is
+     *         empty or missing, as with the lean codec
      */
-    private static int getIntValue(String tag, Element element) {
-        return Integer.parseInt(getValue(tag, element));
+    private static Integer getIntValue(String tag, Element element) {
+        String value = getValue(tag, element);
+        return value.isEmpty() ? null : Integer.valueOf(value.trim());
     }
 
     /**
@@ -144,11 +183,23 @@ public class TokenSchemaParser {
      *
      * @param tag     the name of the tag to retrieve
      * @param element the XML element containing the tag
-     * @return the date value of the tag in the element
+     * @return the date value of the tag in the element, or null if it is empty
+     *         or missing, as with the lean codec
      * @throws ParseException if the date value cannot be parsed
      */
     private static String getDateValue(String tag, Element element) throws ParseException {
-        String dateString = getValue(tag, element);
+        String value = getValue(tag, element);
+        return value.isEmpty() ? null : toDateString(value);
+    }
+
+    /**
+     * Converts a date of the BSIDCA service to the format returned by the API.
+     *
+     * @param dateString the date as sent by the BSIDCA service
+     * @return the date in the format returned by the API
+     * @throws ParseException if the date cannot be parsed
+     */
+    static String toDateString(String dateString) throws ParseException {
         SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
         return format.parse(dateString).toString();
     }
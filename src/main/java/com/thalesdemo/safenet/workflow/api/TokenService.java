@@ -28,9 +28,14 @@ package com.thalesdemo.safenet.workflow.api;
 
 import java.rmi.RemoteException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,6 +61,30 @@ public class TokenService {
     @Autowired
     WorkflowService workflowService;
 
+    /**
+     * The layer letting identical concurrent reads share a single BSIDCA call.
+     */
+    @Autowired
+    BsidcaRequestCoalescer requestCoalescer;
+
+    /**
+     * The runner of the per-serial lookups made several at a time.
+     */
+    @Autowired
+    BsidcaFanOut fanOut;
+
+    /**
+     * The cache of the tokens read by serial number.
+     */
+    @Autowired
+    TokenCache tokenCache;
+
+    /**
+     * The index of the serials owned by every user.
+     */
+    @Autowired
+    TokenOwnerIndex ownerIndex;
+
     /**
      * This is the logger instance for the WorkflowService class. The logger is
      * initialized with the name of the class
@@ -65,7 +94,7 @@ public class TokenService {
 
     /**
      * This method returns a token schema based on the provided serial number and
-     * organization.
+     * organization, from the token cache if it was read recently.
      * 
      * @param serial       the serial number of the token to retrieve
      * @param organization the organization where the token resides
@@ -73,31 +102,87 @@ public class TokenService {
      *         token could not be retrieved
      */
     public TokenSchema getTokenBySerialNumber(String serial, String organization) {
+        // Serve the token from the cache if it was read recently
+        TokenSchema cached = this.tokenCache.get(organization, serial);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Identical concurrent reads share a single BSIDCA call
+        long generation = this.tokenCache.getGeneration(organization);
+        TokenSchema token = this.requestCoalescer.execute(BsidcaOperation.GET_TOKENS, organization,
+                () -> fetchTokenBySerialNumber(serial, organization), serial);
+        this.tokenCache.put(organization, serial, token, generation);
+        return token;
+    }
+
+    /**
+     * This method reads a token from the BSIDCA service based on the provided
+     * serial number and organization, bypassing the token cache, so that a
+     * revocation acts on the current owner and state of the token. The token
+     * read refreshes the cache.
+     * 
+     * @param serial       the serial number of the token to read
+     * @param organization the organization where the token resides
+     * @return a TokenSchema object representing the token, or null if the token
+     *         could not be read
+     */
+    public TokenSchema readTokenBySerialNumber(String serial, String organization) {
+        long generation = this.tokenCache.getGeneration(organization);
+        TokenSchema token = fetchTokenBySerialNumber(serial, organization);
+        this.tokenCache.put(organization, serial, token, generation);
+        return token;
+    }
+
+    /**
+     * This method retrieves a token from the BSIDCA service based on the provided
+     * serial number and organization.
+     * 
+     * @param serial       the serial number of the token to retrieve
+     * @param organization the organization where the token resides
+     * @return a TokenSchema object representing the retrieved token, or null if the
+     *         token could not be retrieved
+     */
+    private TokenSchema fetchTokenBySerialNumber(String serial, String organization) {
 
         // Logging a fine level message to indicate that a token is being checked
         Log.log(Level.FINE, "Checking token: {0}", serial);
 
-        // Creating a new instance of GetTokensDocument and setting the necessary
-        // properties
-        GetTokensDocument getTokenDocument = GetTokensDocument.Factory.newInstance();
-        GetTokensDocument.GetTokens getTokenData = getTokenDocument.addNewGetTokens();
-        getTokenData.setSerial(serial);
-        getTokenData.setOrganization(organization);
-        getTokenData.setStartRecord(0);
-        getTokenData.setPageSize(1);
-
         try {
-            // Sending the GetTokensDocument to the BSIDCA to retrieve a token response
-            // document
-            GetTokensResponseDocument getTokenResponseDocument = this.workflowService.getBsidca()
-                    .getTokens(getTokenDocument);
-            // Extracting the token response from the document
-            GetTokensResponseDocument.GetTokensResponse getTokenResponse = getTokenResponseDocument
-                    .getGetTokensResponse();
-            // Logging the XML server response at the fine level
-            Log.log(Level.FINE, "getTokenBySerialNumber() XML server response: {0}", getTokenResponse);
-            // Parsing the token response and returning the token schema
-            return TokenSchemaParser.parse(getTokenResponse.toString());
+            // Reading the token straight from the response with the lean codec, if used.
+            // Its request is built from a pre-encoded template, without any XMLBeans
+            // document.
+            if (this.workflowService.isSoapCodecEnabled()) {
+                try {
+                    return this.workflowService.invoke(BsidcaOperation.GET_TOKENS, organization, BsidcaCodec.STAX,
+                            session -> session.getSoapCodec().getToken(serial, organization));
+                } catch (BsidcaCodecException e) {
+                    Log.log(Level.WARNING, "Could not decode the GetTokens response, falling back to XMLBeans", e);
+                }
+            }
+
+            // Building the GetTokensDocument, sending it to the BSIDCA to retrieve a
+            // token response document, and parsing it within the call so that the cost
+            // of the whole XMLBeans path is measured against the lean codec
+            return this.workflowService.invoke(BsidcaOperation.GET_TOKENS, organization, BsidcaCodec.XMLBEANS,
+                    session -> {
+                        // Creating a new instance of GetTokensDocument and setting the necessary
+                        // properties
+                        GetTokensDocument getTokenDocument = GetTokensDocument.Factory.newInstance();
+                        GetTokensDocument.GetTokens getTokenData = getTokenDocument.addNewGetTokens();
+                        getTokenData.setSerial(serial);
+                        getTokenData.setOrganization(organization);
+                        getTokenData.setStartRecord(0);
+                        getTokenData.setPageSize(1);
+
+                        // Extracting the token response from the document
+                        GetTokensResponseDocument.GetTokensResponse getTokenResponse = session.getStub()
+                                .getTokens(getTokenDocument).getGetTokensResponse();
+                        // Logging the XML server response at the fine level
+                        Log.log(Level.FINE, "getTokenBySerialNumber() XML server response: {0}", getTokenResponse);
+                        // Parsing the token response and returning the token schema
+                        return TokenSchemaParser.parse(getTokenResponse.toString());
+                    });
         } catch (RemoteException e) {
             // Logging a severe level message and the exception stack trace if a remote
             // exception occurs
@@ -107,29 +192,112 @@ public class TokenService {
         return null;
     }
 
+    /**
+     * This method reads a page of the tokens of an organization from the BSIDCA
+     * service, bypassing the token cache.
+     *
+     * @param organization the organization where the tokens reside
+     * @param startRecord  the index of the first token of the page
+     * @param pageSize     the maximum number of tokens of the page
+     * @return the tokens of the page, fewer than pageSize on the last page
+     * @throws RemoteException if the page could not be read
+     */
+    public List<TokenSchema> getTokenPage(String organization, int startRecord, int pageSize)
+            throws RemoteException {
+        // Reading the page straight from the response with the lean codec, if used
+        if (this.workflowService.isSoapCodecEnabled()) {
+            try {
+                return this.workflowService.invoke(BsidcaOperation.GET_TOKENS, organization, BsidcaCodec.STAX,
+                        session -> session.getSoapCodec().getTokens(organization, startRecord, pageSize));
+            } catch (BsidcaCodecException e) {
+                Log.log(Level.WARNING, "Could not decode the GetTokens page, falling back to XMLBeans", e);
+            }
+        }
+
+        return this.workflowService.invoke(BsidcaOperation.GET_TOKENS, organization, BsidcaCodec.XMLBEANS,
+                session -> {
+                    // An empty serial number selects every token of the organization
+                    GetTokensDocument getTokensDocument = GetTokensDocument.Factory.newInstance();
+                    GetTokensDocument.GetTokens getTokensData = getTokensDocument.addNewGetTokens();
+                    getTokensData.setSerial("");
+                    getTokensData.setOrganization(organization);
+                    getTokensData.setStartRecord(startRecord);
+                    getTokensData.setPageSize(pageSize);
+
+                    GetTokensResponseDocument.GetTokensResponse getTokensResponse = session.getStub()
+                            .getTokens(getTokensDocument).getGetTokensResponse();
+                    try {
+                        return TokenSchemaParser.parseAll(getTokensResponse.toString());
+                    } catch (Exception e) {
+                        throw new BsidcaCodecException("Could not parse the GetTokens page", e);
+                    }
+                });
+    }
+
     /**
      * This method returns a list of token serial numbers for a given username and
-     * organization.
+     * organization, from the owner index if they were read recently.
      * 
      * @param username     the username to retrieve token serial numbers for
      * @param organization the organization where the tokens reside
-     * @return a list of token serial numbers owned by the specified username
+     * @return a list of token serial numbers owned by the specified username,
+     *         unmodifiable if served from the index
      */
     public List<String> getSerialsByUsername(String username, String organization) {
-        // create a new instance of the GetTokensByOwnerDocument
-        GetTokensByOwnerDocument getTokensDocument = GetTokensByOwnerDocument.Factory.newInstance();
+        // Serve the serials from the index if they were read recently
+        List<String> cached = this.ownerIndex.get(organization, username);
+        if (cached != null) {
+            return cached;
+        }
 
-        // create a new instance of the GetTokensByOwner object and set the required
-        // fields
-        GetTokensByOwnerDocument.GetTokensByOwner getTokensData = getTokensDocument.addNewGetTokensByOwner();
-        getTokensData.setUserName(username);
-        getTokensData.setOrganization(organization);
+        // Identical concurrent reads share a single BSIDCA call
+        long generation = this.ownerIndex.getGeneration();
+        List<String> serials = this.requestCoalescer.execute(BsidcaOperation.GET_TOKENS_BY_OWNER, organization,
+                () -> fetchSerialsByUsername(username, organization), username);
+        if (serials == null) {
+            // The read failed, which is not indexed as a user owning no token
+            return new ArrayList<>();
+        }
+        this.ownerIndex.put(organization, username, serials, generation);
+        return serials;
+    }
 
+    /**
+     * This method retrieves the token serial numbers of a given username and
+     * organization from the BSIDCA service.
+     * 
+     * @param username     the username to retrieve token serial numbers for
+     * @param organization the organization where the tokens reside
+     * @return a list of token serial numbers owned by the specified username, or
+     *         null if they could not be retrieved
+     */
+    private List<String> fetchSerialsByUsername(String username, String organization) {
         try {
+            // read the serials straight from the response with the lean codec, if used
+            if (this.workflowService.isSoapCodecEnabled()) {
+                try {
+                    return this.workflowService.invoke(BsidcaOperation.GET_TOKENS_BY_OWNER, organization,
+                            BsidcaCodec.STAX, session -> session.getSoapCodec().getTokensByOwner(username, organization));
+                } catch (BsidcaCodecException e) {
+                    Log.log(Level.WARNING, "Could not decode the GetTokensByOwner response, falling back to XMLBeans",
+                            e);
+                }
+            }
+
+            // create a new instance of the GetTokensByOwnerDocument
+            GetTokensByOwnerDocument getTokensDocument = GetTokensByOwnerDocument.Factory.newInstance();
+
+            // create a new instance of the GetTokensByOwner object and set the required
+            // fields
+            GetTokensByOwnerDocument.GetTokensByOwner getTokensData = getTokensDocument.addNewGetTokensByOwner();
+            getTokensData.setUserName(username);
+            getTokensData.setOrganization(organization);
+
             // get the response from the server by calling the getTokensByOwner method on
             // the workflow service
-            GetTokensByOwnerResponseDocument getTokensResponseDocument = this.workflowService.getBsidca()
-                    .getTokensByOwner(getTokensDocument);
+            GetTokensByOwnerResponseDocument getTokensResponseDocument = this.workflowService
+                    .invoke(BsidcaOperation.GET_TOKENS_BY_OWNER, organization, BsidcaCodec.XMLBEANS,
+                            session -> session.getStub().getTokensByOwner(getTokensDocument));
 
             // convert the response to a string and log it
             String getTokensResponse = getTokensResponseDocument.getGetTokensByOwnerResponse().toString();
@@ -138,18 +306,26 @@ public class TokenService {
             // extract the token serials from the response XML using the XmlUtils helper
             // class
             return XmlUtils.extractTokenSerials(getTokensResponse);
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             // if an exception occurs while getting the tokens by owner, log the error and
-            // return an empty list
+            // return null
             Log.log(Level.SEVERE, "BSIDCA exception encountered while retrieivng token serials by username:", e);
-            return new ArrayList<>();
+            return null;
         }
 
     }
 
     /**
      * This method returns a list of tokens owned by the specified username and
-     * matching the provided token type and state filters.
+     * matching the provided token type and state filters. The tokens are read
+     * several at a time and listed in the order of their serials. A token that
+     * cannot be read is listed with its serial number and an error instead,
+     * whatever the filters; if the deadline of the request expires, the tokens
+     * not read in time are listed that way and the request is marked as
+     * incomplete.
      * 
      * @param username     the username to retrieve tokens for
      * @param organization the organization where the tokens reside
@@ -165,45 +341,66 @@ public class TokenService {
         // organization
         List<String> tokenSerials = this.getSerialsByUsername(username, organization);
 
-        // Create a new list to hold the TokenSchema objects
-        List<TokenSchema> tokenList = new ArrayList<>();
-
         // Log the list of token serial numbers that will be checked
         Log.log(Level.FINE, "Checking each of the serials to see the type: {0}", tokenSerials);
 
-        try {
-            // Check each serial to see if it is a grid token and matches the filter
-            // criteria
-            for (String serial : tokenSerials) {
-                // Get the token schema object for the current serial number
-                TokenSchema tokenResponse = this.getTokenBySerialNumber(serial, organization);
-
-                // Determine if the token schema object matches the filter criteria
-                boolean isFilterMatchType = tokenType == null
-                        || tokenResponse.getType().equalsIgnoreCase(tokenType.getValue());
-                boolean isFilterMatchState = tokenState == null
-                        || tokenResponse.getState().equalsIgnoreCase(tokenState.toString());
-
-                // Log if the TokenState is null
-                if (tokenState == null) {
-                    Log.fine("TokenState is null in getTokensbyUsername");
-                } else {
-                    Log.log(Level.FINE, "TokenState is not null in getTokensbyUsername: {0}", tokenState);
-                }
+        // Read the token of every serial, several at a time, keeping the order of the
+        // serials and turning a failed read into an entry of its own
+        List<TokenSchema> tokens = this.fanOut.map(BsidcaOperation.GET_TOKENS, tokenSerials, serial -> {
+            TokenSchema token = this.getTokenBySerialNumber(serial, organization);
+            return token != null ? token : TokenSchema.failed(serial, "The token could not be read");
+        }, (serial, e) -> failedToken(username, serial, e));
 
-                // If the token schema object matches the filter criteria, add it to the list
-                if (isFilterMatchType && isFilterMatchState) {
-                    tokenList.add(tokenResponse);
-                }
+        // Create a new list to hold the TokenSchema objects matching the filters
+        List<TokenSchema> tokenList = new ArrayList<>();
+        for (TokenSchema token : tokens) {
+            // Keep the tokens that could not be read, since they cannot be filtered
+            if (token.getError() != null) {
+                tokenList.add(token);
+                continue;
             }
-            // Return the list of TokenSchema objects that match the filter criteria
-            return tokenList;
 
-        } catch (Exception e) {
-            // Log and return an empty list if there is an exception retrieving the tokens
-            Log.log(Level.SEVERE, "BSIDCA exception while retrieving tokens by username:", e);
-            return new ArrayList<>();
+            // If the token schema object matches the filter criteria, add it to the list
+            if (matches(token, tokenType, tokenState)) {
+                tokenList.add(token);
+            }
         }
+        // Return the list of TokenSchema objects that match the filter criteria
+        return tokenList;
+    }
+
+    /**
+     * Tells whether a token matches the token type and state filters.
+     * 
+     * @param token      the token to filter
+     * @param tokenType  the type of token to filter on (null for all token types)
+     * @param tokenState the state of token to filter on (null for all states)
+     * @return true if the token matches both filters
+     */
+    private static boolean matches(TokenSchema token, TokenType tokenType, TokenState tokenState) {
+        boolean isFilterMatchType = tokenType == null
+                || tokenType.getValue().equalsIgnoreCase(token.getType());
+        boolean isFilterMatchState = tokenState == null
+                || tokenState.toString().equalsIgnoreCase(token.getState());
+        return isFilterMatchType && isFilterMatchState;
+    }
+
+    /**
+     * Builds the entry of a token whose read failed, marking the request as
+     * incomplete if the read ran out of time.
+     * 
+     * @param username the username the token was read for
+     * @param serial   the serial number of the token
+     * @param e        the exception the read failed with
+     * @return the entry holding the serial number and the error
+     */
+    private TokenSchema failedToken(String username, String serial, Throwable e) {
+        if (e instanceof BsidcaDeadlineExceededException || e instanceof TimeoutException) {
+            BsidcaDeadline.markCurrentIncomplete();
+            return TokenSchema.failed(serial, "The deadline of the request expired before the token was read");
+        }
+        Log.log(Level.WARNING, "Could not read token " + serial + " of " + username, e);
+        return TokenSchema.failed(serial, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
     }
 
     /**
@@ -215,8 +412,8 @@ public class TokenService {
      * @return true if the token was successfully revoked, false otherwise
      */
     public boolean revokeTokenBySerial(String serial, String organization) {
-        // Get the token object associated with the provided serial and organization
-        TokenSchema token = this.getTokenBySerialNumber(serial, organization);
+        // Read the token object associated with the provided serial and organization
+        TokenSchema token = this.readTokenBySerialNumber(serial, organization);
 
         // Revoke the token for the user associated with the token and return the result
         return this.revokeToken(token.getUserId(), serial, organization);
@@ -224,7 +421,10 @@ public class TokenService {
 
     /**
      * This method revokes all tokens owned by the specified username and matching
-     * the provided token type and state filters.
+     * the provided token type and state filters. If the deadline of the request
+     * expires, the tokens whose revocation did not complete are given a null
+     * result, their outcome being unknown, and the request is marked as
+     * incomplete.
      * 
      * @param username     the username to revoke tokens for
      * @param organization the organization where the tokens reside
@@ -237,26 +437,154 @@ public class TokenService {
      */
     public Map<String, Boolean> revokeTokenByUsername(String username, String organization, TokenType tokenType,
             TokenState tokenState) {
+        return revokeTokenByUsername(username, organization, tokenType, tokenState, null);
+    }
 
-        // Retrieve a list of tokens using the given username, organization, token type,
-        // and token state
-        List<TokenSchema> tokenSerials = this.getTokensByUsername(username, organization, tokenType, tokenState);
-
-        // Create a HashMap to store the results of the token revocation operation
-        Map<String, Boolean> tokenResults = new HashMap<>();
+    /**
+     * This method revokes all tokens owned by the specified username and matching
+     * the provided token type and state filters. Every serial goes through its own
+     * chain, reading the token, filtering it and revoking it, and several chains
+     * run at once, so that a token is revoked as soon as it has been read and the
+     * whole revocation takes about as long as its slowest chain. A token that
+     * cannot be read is not revoked. If the deadline of the request expires, the
+     * tokens whose chain did not complete are given a null result, as the
+     * revocation may still go through, and the request is marked as incomplete;
+     * a chain completing after that is not reported. If the BSIDCA service is
+     * unavailable or over its rate limit, the tokens it rejected are left out of
+     * the results and the request is marked as incomplete, so that the caller
+     * still learns which tokens were revoked; the exception is only thrown if
+     * no token was handled at all.
+     * 
+     * @param username     the username to revoke tokens for
+     * @param organization the organization where the tokens reside
+     * @param tokenType    the type of token to filter on (null to revoke all token
+     *                     types)
+     * @param tokenState   the state of token to filter on (null to revoke tokens in
+     *                     all states)
+     * @param onRevoked    the listener told about every token once, as soon as its
+     *                     chain ends or is given up, with a null result if its
+     *                     outcome is unknown, possibly from several threads at
+     *                     once, or null
+     * @return a map of token serial numbers and their corresponding revoke success
+     *         status, null if unknown, in the order of the serials
+     */
+    public Map<String, Boolean> revokeTokenByUsername(String username, String organization, TokenType tokenType,
+            TokenState tokenState, BiConsumer<String, Boolean> onRevoked) {
 
-        // Iterate through the list of tokens and revoke each one, storing the result in
-        // the tokenResults HashMap
-        for (TokenSchema token : tokenSerials) {
-            boolean response = this.revokeToken(username, token.getSerialNumber(), organization);
-            tokenResults.put(token.getSerialNumber(), response);
+        // Get the serials of the tokens of the user, then run the chain of every serial
+        List<String> tokenSerials = this.getSerialsByUsername(username, organization);
+        AtomicReference<BsidcaUnavailableException> unavailable = new AtomicReference<>();
+        // The serials reported so far, and the results of the chains that ended
+        Set<String> settled = ConcurrentHashMap.newKeySet();
+        Map<String, Boolean> chainResults = new ConcurrentHashMap<>();
+        Set<String> unknown = ConcurrentHashMap.newKeySet();
+        List<Boolean> responses = this.fanOut.map(BsidcaOperation.REVOKE_TOKEN, tokenSerials, serial -> {
+            Boolean response = revokeIfMatching(username, serial, organization, tokenType, tokenState);
+            if (response != null) {
+                chainResults.put(serial, response);
+            }
+            if (settled.add(serial) && response != null && onRevoked != null) {
+                onRevoked.accept(serial, response);
+            }
+            return response;
+        }, (serial, e) -> {
+            if (!settled.add(serial)) {
+                // The chain ended after its result was given up on: report what it did
+                return chainResults.get(serial);
+            }
+            Boolean response = failedRevocation(username, serial, e, unavailable);
+            if (response == null && isOutcomeUnknown(e)) {
+                unknown.add(serial);
+            }
+            if ((response != null || unknown.contains(serial)) && onRevoked != null) {
+                onRevoked.accept(serial, response);
+            }
+            return response;
+        });
+
+        // Keep the results of the tokens that were handled, in the order of the serials
+        Map<String, Boolean> tokenResults = new LinkedHashMap<>();
+        for (int i = 0; i < tokenSerials.size(); i++) {
+            String serial = tokenSerials.get(i);
+            if (responses.get(i) != null || unknown.contains(serial)) {
+                tokenResults.put(serial, responses.get(i));
+            }
         }
 
-        // Return the tokenResults HashMap containing the results of the token
-        // revocation operation
+        // Let the BsidcaExceptionHandler answer with a 503 or a 429 if nothing was done
+        if (unavailable.get() != null) {
+            if (tokenResults.isEmpty()) {
+                throw unavailable.get();
+            }
+            BsidcaDeadline.markCurrentIncomplete();
+        }
         return tokenResults;
     }
 
+    /**
+     * Runs the chain of a serial: reads the token, and revokes it if it matches
+     * the filters.
+     * 
+     * @param username     the username to revoke the token for
+     * @param serial       the serial number of the token
+     * @param organization the organization where the token resides
+     * @param tokenType    the type of token to filter on (null for all token types)
+     * @param tokenState   the state of token to filter on (null for all states)
+     * @return true if the token was revoked, false if it could not be read or
+     *         revoked, or null if it does not match the filters
+     */
+    private Boolean revokeIfMatching(String username, String serial, String organization, TokenType tokenType,
+            TokenState tokenState) {
+        TokenSchema token = this.readTokenBySerialNumber(serial, organization);
+        if (token == null) {
+            // A token that could not be read is not revoked
+            return false;
+        }
+        if (!matches(token, tokenType, tokenState)) {
+            return null;
+        }
+        return this.revokeToken(username, serial, organization);
+    }
+
+    /**
+     * Gives the result of a chain that failed, marking the request as incomplete
+     * if the chain ran out of time.
+     * 
+     * @param username    the username the token was revoked for
+     * @param serial      the serial number of the token
+     * @param e           the exception the chain failed with
+     * @param unavailable the first exception telling that the BSIDCA service is
+     *                    unavailable, to be thrown if no token was handled
+     * @return false, or null if the chain ran out of time and the outcome is
+     *         unknown, or if the service is unavailable and the token is left
+     *         out of the results
+     */
+    private Boolean failedRevocation(String username, String serial, Throwable e,
+            AtomicReference<BsidcaUnavailableException> unavailable) {
+        if (e instanceof BsidcaDeadlineExceededException || e instanceof TimeoutException) {
+            BsidcaDeadline.markCurrentIncomplete();
+            return null;
+        }
+        if (e instanceof BsidcaUnavailableException) {
+            unavailable.compareAndSet(null, (BsidcaUnavailableException) e);
+            return null;
+        }
+        Log.log(Level.WARNING, "Could not revoke token " + serial + " of " + username, e);
+        return false;
+    }
+
+    /**
+     * Tells whether a chain failed in a way that leaves the outcome of its
+     * revocation unknown: it ran out of time, possibly while the RevokeToken
+     * call was in flight, and the call may still go through.
+     *
+     * @param e the exception the chain failed with
+     * @return true if the token may or may not have been revoked
+     */
+    private static boolean isOutcomeUnknown(Throwable e) {
+        return e instanceof BsidcaDeadlineExceededException || e instanceof TimeoutException;
+    }
+
     /**
      * This method revokes the token owned by the specified username and matching
      * the provided serial number and organization.
@@ -267,26 +595,56 @@ public class TokenService {
      * @return true if the token was successfully revoked, false otherwise
      */
     public boolean revokeToken(String username, String serial, String organization) {
+        try {
+            return revokeTokenUncached(username, serial, organization);
+        } finally {
+            // The token may have changed even if the revocation reported a failure
+            this.tokenCache.invalidate(organization, serial);
+            this.ownerIndex.invalidate(organization, username);
+        }
+    }
+
+    /**
+     * This method revokes the token with the BSIDCA service, leaving the token
+     * cache as it is.
+     * 
+     * @param username     the username to revoke the token for
+     * @param serial       the serial number of the token to revoke
+     * @param organization the organization where the token resides
+     * @return true if the token was successfully revoked, false otherwise
+     */
+    private boolean revokeTokenUncached(String username, String serial, String organization) {
         // Build a message to log
         String infoMessage = "Revoking token# " + serial + " from user " + username + " in organization "
                 + organization;
         // Log the message
         Log.info(infoMessage);
-        // Create a new RevokeTokenDocument instance
-        RevokeTokenDocument revokeTokenDocument = RevokeTokenDocument.Factory.newInstance();
-        // Get the RevokeToken instance from the RevokeTokenDocument
-        RevokeTokenDocument.RevokeToken revokeTokenData = revokeTokenDocument.addNewRevokeToken();
-        // Set the values for the RevokeToken fields
-        revokeTokenData.setUserName(username);
-        revokeTokenData.setSerial(serial);
-        revokeTokenData.setOrganization(organization);
-        revokeTokenData.setRevokeMode(RevokeSelection.RETURNTO_INVENTORY_INITIALIZED);
-        revokeTokenData.setRevokeStaticPassword(false);
 
         RevokeTokenResponseDocument revokeTokenResponseDocument;
         try {
+            // Revoke with the lean codec, if used. A response that cannot be decoded
+            // is not sent again with XMLBeans, as the token may already be revoked.
+            if (this.workflowService.isSoapCodecEnabled()) {
+                String revokeResult = this.workflowService.invoke(BsidcaOperation.REVOKE_TOKEN, organization,
+                        BsidcaCodec.STAX, session -> session.getSoapCodec().revokeToken(username, serial, organization,
+                                RevokeSelection.RETURNTO_INVENTORY_INITIALIZED.toString()));
+                return RevokeResult.SUCCESS.toString().equals(revokeResult);
+            }
+
+            // Create a new RevokeTokenDocument instance
+            RevokeTokenDocument revokeTokenDocument = RevokeTokenDocument.Factory.newInstance();
+            // Get the RevokeToken instance from the RevokeTokenDocument
+            RevokeTokenDocument.RevokeToken revokeTokenData = revokeTokenDocument.addNewRevokeToken();
+            // Set the values for the RevokeToken fields
+            revokeTokenData.setUserName(username);
+            revokeTokenData.setSerial(serial);
+            revokeTokenData.setOrganization(organization);
+            revokeTokenData.setRevokeMode(RevokeSelection.RETURNTO_INVENTORY_INITIALIZED);
+            revokeTokenData.setRevokeStaticPassword(false);
+
             // Call the remote revokeToken method and get the response
-            revokeTokenResponseDocument = this.workflowService.getBsidca().revokeToken(revokeTokenDocument);
+            revokeTokenResponseDocument = this.workflowService.invoke(BsidcaOperation.REVOKE_TOKEN, organization,
+                    BsidcaCodec.XMLBEANS, session -> session.getStub().revokeToken(revokeTokenDocument));
             // Return true if the revokeTokenResult equals SUCCESS
             return revokeTokenResponseDocument.getRevokeTokenResponse().getRevokeTokenResult()
                     .equals(RevokeResult.SUCCESS);
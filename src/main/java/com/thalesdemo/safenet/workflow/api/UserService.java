@@ -59,6 +59,30 @@ public class UserService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    /**
+     * 
+     * Autowires the layer letting identical concurrent reads share a single
+     * BSIDCA call.
+     */
+    @Autowired
+    BsidcaRequestCoalescer requestCoalescer;
+
+    /**
+     * 
+     * Autowires the cache of the tokens, whose entries of a user are dropped
+     * once the user has been removed.
+     */
+    @Autowired
+    TokenCache tokenCache;
+
+    /**
+     * 
+     * Autowires the index of the serials owned by every user, whose entry of
+     * a user is dropped once the user has been removed.
+     */
+    @Autowired
+    TokenOwnerIndex ownerIndex;
+
     /**
      * This is the logger instance for the UserService class. The logger is
      * initialized with the name of the class for which it is used.
@@ -74,6 +98,37 @@ public class UserService {
      * @return A UserSchema object representing the user account.
      */
     public UserSchema getUser(String username, String organization) {
+        // Identical concurrent reads share a single BSIDCA call
+        return requestCoalescer.execute(BsidcaOperation.GET_USER, organization,
+                () -> fetchUser(username, organization), username);
+    }
+
+    /**
+     * Retrieves a user account from the BSIDCA server, without sharing the call
+     * with identical concurrent reads.
+     * 
+     * @param username     The username of the user account to retrieve.
+     * @param organization The name of the organization that the user belongs to.
+     * @return A UserSchema object representing the user account.
+     */
+    private UserSchema fetchUser(String username, String organization) {
+
+        // Read the user straight from the response with the lean codec, if used. Its
+        // request is built from a pre-encoded template, without any XMLBeans document.
+        if (workflowService.isSoapCodecEnabled()) {
+            try {
+                UserSchema user = workflowService.invoke(BsidcaOperation.GET_USER, organization, BsidcaCodec.STAX,
+                        session -> session.getSoapCodec().getUser(username, organization));
+                return user == null ? new UserSchema() : user;
+            } catch (BsidcaCodecException e) {
+                Log.log(Level.WARNING, "Could not decode the GetUser response, falling back to XMLBeans", e);
+            } catch (RemoteException e) {
+                String errorMsg = "Could not retrieve user information due to a server remote exception with user: "
+                        + username;
+                Log.log(Level.SEVERE, errorMsg, e);
+                return new UserSchema();
+            }
+        }
 
         // Create a GetUserDocument and GetUser object to retrieve the user
         GetUserDocument getUser = GetUserDocument.Factory.newInstance();
@@ -84,7 +139,8 @@ public class UserService {
         // Make a call to retrieve the user
         GetUserResponseDocument getUserResponse = null;
         try {
-            getUserResponse = workflowService.getBsidca().getUser(getUser);
+            getUserResponse = workflowService.invoke(BsidcaOperation.GET_USER, organization, BsidcaCodec.XMLBEANS,
+                    session -> session.getStub().getUser(getUser));
         } catch (RemoteException e) {
             String errorMsg = "Could not retrieve user information due to a server remote exception with user: "
                     + username;
@@ -147,8 +203,9 @@ public class UserService {
 
         try {
             // Call the BSIDCA removeUser method with the RemoveUserDocument
-            RemoveUserResponseDocument removeUserResponseDocument = this.workflowService.getBsidca()
-                    .removeUser(removeUserDocument);
+            RemoveUserResponseDocument removeUserResponseDocument = this.workflowService
+                    .invoke(BsidcaOperation.REMOVE_USER, organization,
+                            session -> session.getStub().removeUser(removeUserDocument));
 
             // Get the RemoveUserResponse from the RemoveUserResponseDocument
             RemoveUserResponse removeUserResponse = removeUserResponseDocument.getRemoveUserResponse();
@@ -163,6 +220,10 @@ public class UserService {
             // Log a SEVERE error if an exception occurred while calling BSIDCA removeUser
             // method
             Log.log(Level.SEVERE, "Could not delete user due to a remote BSIDCA exception. ", e);
+        } finally {
+            // The tokens of the user go back to the inventory
+            this.tokenCache.invalidateOwner(organization, username);
+            this.ownerIndex.invalidate(organization, username);
         }
 
         // Return false if the user was not deleted
@@ -206,8 +267,12 @@ public class UserService {
             Log.fine(debugMessage);
 
             // Call the BSIDCA addUser method with the AddUserDocument and return the result
-            AddUserResponseDocument addUserResponseDocument = this.workflowService.getBsidca().addUser(userDocument);
+            AddUserResponseDocument addUserResponseDocument = this.workflowService
+                    .invoke(BsidcaOperation.ADD_USER, organization, session -> session.getStub().addUser(userDocument));
             return addUserResponseDocument.getAddUserResponse().getAddUserResult();
+        } catch (BsidcaUnavailableException e) {
+            // Let the BsidcaExceptionHandler answer with a 503
+            throw e;
         } catch (Exception e) {
             // Log an error message if an exception is encountered
             Log.log(Level.SEVERE, "An exception was encountered while creating the user.", e);
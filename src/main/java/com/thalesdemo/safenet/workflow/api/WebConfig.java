@@ -27,18 +27,38 @@
  * shown in spring-openapi-ui into the corresponding objects used in the
  * application.
  * 
+ * It also registers the BsidcaDeadlineInterceptor, which gives every request
+ * the deadline its SafeNet (BSIDCA) calls must complete by, and gives the
+ * streamed responses, such as the export of the tokens of an organization,
+ * the time they may take.
+ * 
  * @author Cina Shaykhian
  * @contact hello@onewelco.me
  */
 package com.thalesdemo.safenet.workflow.api;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    /**
+     * The interceptor binding the deadline of every request to its thread.
+     */
+    @Autowired
+    BsidcaDeadlineInterceptor deadlineInterceptor;
+
+    /**
+     * The application settings holding the time an export may last.
+     */
+    @Autowired
+    Settings settings;
+
     /**
      * Overrides the default implementation of adding formatters to the
      * FormatterRegistry by adding custom converters to it.
@@ -53,4 +73,25 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addConverter(new TokenState.TokenStateConverter());
         registry.addConverter(new EnrollmentMethod.EnrollmentMethodConverter());
     }
+
+    /**
+     * Registers the interceptor giving every request its deadline.
+     * 
+     * @param registry the InterceptorRegistry to add the interceptor to
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(deadlineInterceptor);
+    }
+
+    /**
+     * Gives the streamed responses the time an export may last, rather than
+     * the short default of the servlet container.
+     * 
+     * @param configurer the AsyncSupportConfigurer to set the timeout on
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(settings.getInventory().getStreamTimeoutMs());
+    }
 }
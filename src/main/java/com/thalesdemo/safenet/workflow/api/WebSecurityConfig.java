@@ -20,7 +20,8 @@
  * authorization rules.
  * 
  * It disables CSRF protection for API requests and sets up API 
- * authentication using an API key.
+ * authentication using an API key. The actuator endpoints require the API key
+ * too, except the liveness and readiness probes.
  * 
  * It also disables all other forms of authentication such as basic
  * authentication, form-based authentication, and logout.
@@ -80,6 +81,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         // Configure API authentication
         http.authorizeRequests()
                 .antMatchers("/api/**").authenticated()
+                .antMatchers(ApiKeyAuthenticationFilter.PROBE_PATHS).permitAll()
+                .antMatchers("/actuator/**").authenticated()
                 .anyRequest().permitAll()
                 .and()
                 .addFilterBefore(new ApiKeyAuthenticationFilter(apiKeyAuthService),
@@ -15,7 +15,9 @@
  *
  * The WorkflowController class is a Spring REST controller that handles 
  * HTTP requests related to the WorkflowService. It exposes an endpoint to
- * verify the connection status of the remote SafeNet authentication server.
+ * verify the connection status of the remote SafeNet authentication server,
+ * endpoints to inspect and resize the pool of HTTP connections to it, and
+ * endpoints to inspect and change the rate limit of every organization.
  *
  * @author Cina Shaykhian
  * @contact hello@onewelco.me
@@ -23,12 +25,20 @@
 package com.thalesdemo.safenet.workflow.api;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.RequestMapping;
 
 @RestController
@@ -53,4 +63,79 @@ public class WorkflowController {
 
         return workflow.pingConnection();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the leased, pending and available connections of the pool of HTTP
+     * connections to the SafeNet server, along with the time spent waiting for
+     * a connection on every route.
+     * 
+     * @return The snapshot of the HTTP connection pool.
+     */
+    @Operation(summary = "Get the HTTP connection pool statistics", description = "Retrieve the leased, pending and available connections to the SafeNet server, and the time spent waiting for a connection.")
+    @GetMapping("/connections")
+    public ConnectionPoolStats getConnectionPoolStats() {
+
+        return workflow.getConnectionPoolStats();
+    }
+
+    /**
+     * Changes the bounds between which the pool of HTTP connections to the
+     * SafeNet server is resized.
+     * 
+     * @param minConnections The number of connections the pool never shrinks
+     *                       below.
+     * @param maxConnections The number of connections the pool never grows
+     *                       beyond.
+     * @return The snapshot of the HTTP connection pool after the change.
+     */
+    @Operation(summary = "Resize the HTTP connection pool", description = "Change the bounds between which the pool of connections to the SafeNet server is resized.")
+    @PutMapping("/connections")
+    public ConnectionPoolStats setConnectionPoolBounds(
+            @Parameter(description = "The number of connections the pool never shrinks below.") @RequestParam(value = "min_connections") int minConnections,
+            @Parameter(description = "The number of connections the pool never grows beyond.") @RequestParam(value = "max_connections") int maxConnections) {
+
+        try {
+            return workflow.setConnectionPoolBounds(minConnections, maxConnections);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the rate limit of every organization that called the SafeNet
+     * server or has a limit of its own, along with the calls waiting for a
+     * token.
+     * 
+     * @return The snapshots of the token buckets of the organizations.
+     */
+    @Operation(summary = "Get the rate limits of the organizations", description = "Retrieve the rate, burst, available tokens and queued calls of the token bucket of every organization.")
+    @GetMapping("/rate-limits")
+    public List<RateLimitStats> getRateLimits() {
+
+        return workflow.getRateLimits();
+    }
+
+    /**
+     * Changes the rate limit of the calls an organization makes to the SafeNet
+     * server.
+     * 
+     * @param organization  The organization.
+     * @param ratePerSecond The number of calls per second its bucket refills at.
+     * @param burst         The number of calls its bucket holds for bursts.
+     * @return The snapshot of the token bucket of the organization after the
+     *         change.
+     */
+    @Operation(summary = "Change the rate limit of an organization", description = "Change the rate and burst of the token bucket limiting the calls an organization makes to the SafeNet server.")
+    @PutMapping("/rate-limits/{organization}")
+    public RateLimitStats setRateLimit(
+            @Parameter(description = "The organization.") @PathVariable("organization") String organization,
+            @Parameter(description = "The number of calls per second the bucket refills at.") @RequestParam(value = "rate_per_second") double ratePerSecond,
+            @Parameter(description = "The number of calls the bucket holds for bursts.") @RequestParam(value = "burst") int burst) {
+
+        try {
+            return workflow.setRateLimit(organization, ratePerSecond, burst);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
@@ -15,41 +15,62 @@
  *
  * The WorkflowService class provides methods to connect to the SafeNet (BSIDCA)
  * service using Apache Axis2 and perform authentication and other operations 
- * necessary for the application. The class manages the connection to the web 
- * service and handles connection errors and retries.
+ * necessary for the application. The class manages a pool of independently
+ * authenticated sessions for every BSIDCA endpoint listed in the settings,
+ * routes every call made through invoke() to an endpoint picked by the
+ * BsidcaRouter, leases a session of that endpoint for the call, and handles
+ * connection errors and retries.
+ * 
+ * The sessions are checked in the background by a BsidcaHealthMonitor per
+ * endpoint, and a session found to be expired during a call is replaced by
+ * another authenticated session while the monitor reconnects it, so that no
+ * call waits on a Connect call. The stubs are created and the sessions
+ * authenticated in the background, so that the application context starts
+ * without waiting on the BSIDCA service; calls made before the router is up
+ * are rejected as unavailable, and the BsidcaHealthIndicator keeps the
+ * application out of the readiness group until a session is authenticated.
+ * 
+ * Every call must first be admitted by the BsidcaRateLimiter of its
+ * organization. It then goes through the circuit breaker of its operation
+ * and through a bulkhead bounding the number of concurrent calls, so that a
+ * slow or unreachable BSIDCA service makes the calls fail fast instead of
+ * holding every request thread. Idempotent reads failing with a transient
+ * fault are retried by a BsidcaRetryPolicy, and slow ones are hedged by a
+ * BsidcaHedgePolicy. Every call is given the timeout of its
+ * BsidcaTimeoutProfile, cut down to the time left before the BsidcaDeadline
+ * of its request, and every wait on the way is bounded by that deadline.
+ * 
+ * The hot operations may be made with the lean BsidcaSoapCodec of the session
+ * instead of the XMLBeans documents of the stub, and the cost of the calls
+ * made with each codec is measured by BsidcaCodecMetrics.
  * 
  * @author Cina Shaykhian
  * @contact hello@onewelco.me
  */
 package com.thalesdemo.safenet.workflow.api;
 
-import com.cryptocard.www.blackshield.ConnectDocument;
-import com.cryptocard.www.blackshield.ConnectResponseDocument;
-import com.cryptocard.www.blackshield.PingConnectionDocument;
-import com.thalesdemo.soap.bsidca.BSIDCAStub;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
 import org.springframework.stereotype.Service;
 import org.apache.axis2.AxisFault;
-import org.apache.axis2.context.MessageContext;
-import org.apache.axis2.client.Stub;
-import org.apache.axis2.kernel.http.HTTPConstants;
-import org.apache.axis2.transport.http.CommonsTransportHeaders;
-import org.apache.axis2.wsdl.WSDLConstants;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.RequestConfig;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
+import javax.annotation.PreDestroy;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.StringReader;
 import java.rmi.RemoteException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Service
 public class WorkflowService {
@@ -63,9 +84,37 @@ public class WorkflowService {
     private static final Logger Log = Logger.getLogger(WorkflowService.class.getName());
 
     /**
-     * An instance of the SafeNet BSIDCA web service stub.
+     * The configuration context and HTTP client shared by the sessions of every
+     * endpoint.
+     */
+    private volatile BsidcaTransport transport;
+
+    /**
+     * The router balancing the calls across the BSIDCA endpoints, or null until
+     * the startup has created it.
+     */
+    private volatile BsidcaRouter router;
+
+    /**
+     * The threads creating the stubs and authenticating the sessions at
+     * startup.
+     */
+    private final ExecutorService startupExecutor;
+
+    /**
+     * The background startup of the session pools and the router.
+     */
+    private final CompletableFuture<Void> startup;
+
+    /**
+     * The exception that made the startup fail, or null.
+     */
+    private volatile Throwable startupFailure;
+
+    /**
+     * Whether the service has been shut down.
      */
-    private BSIDCAStub bsidca;
+    private boolean closed;
 
     /**
      * An instance of the Settings class, which stores the configuration
@@ -74,132 +123,607 @@ public class WorkflowService {
     private Settings settings;
 
     /**
-     * The maximum number of reconnect attempts allowed per getBsidca() call.
+     * The circuit breaker of every BSIDCA operation.
      */
-    private static final int MAX_RETRIES_BSIDCA = 3;
+    private final Map<BsidcaOperation, BsidcaCircuitBreaker> circuitBreakers = new EnumMap<>(
+            BsidcaOperation.class);
 
     /**
-     * The interval between reconnect attempts in milliseconds (1000ms = 1 second).
+     * The bulkhead bounding the number of concurrent calls to the BSIDCA service.
      */
-    private static final int RECONNECT_INTERVAL = 1000;
+    private final Semaphore bulkhead;
 
     /**
-     * A ScheduledExecutorService used for scheduling reconnect attempts at
-     * a fixed rate defined by RECONNECT_INTERVAL.
+     * The maximum time a call waits for a free slot of the bulkhead, in
+     * milliseconds.
      */
-    private ScheduledExecutorService reconnectExecutor;
+    private final long bulkheadWaitMs;
 
     /**
-     * A counter for the number of reconnect attempts made during a getBsidca()
-     * call.
+     * The policy retrying the idempotent calls that failed with a transient
+     * fault.
      */
-    private int reconnectAttempts;
+    private final BsidcaRetryPolicy retryPolicy;
 
     /**
-     * Attempts to reconnect to the third-party web service at a fixed rate
-     * defined by RECONNECT_INTERVAL. The reconnect attempts will stop when a
-     * connection is successfully established or when the maximum number of
-     * retries (MAX_RETRIES_BSIDCA) is reached.
+     * The policy hedging the slow idempotent calls.
      */
-    private void reconnect() {
-        reconnectAttempts++;
-        if (reconnectAttempts <= MAX_RETRIES_BSIDCA) {
-            String infoMessage = String.format("Trying to re-connect (attempt# %d/%d)", reconnectAttempts,
-                    MAX_RETRIES_BSIDCA);
-            Log.info(infoMessage);
-            this.newConnectSession();
+    private final BsidcaHedgePolicy hedgePolicy;
+
+    /**
+     * The metrics comparing the cost of the calls made with each codec.
+     */
+    private final BsidcaCodecMetrics codecMetrics;
+
+    /**
+     * The metrics of the latency, faults and payload sizes of the calls.
+     */
+    private final BsidcaCallMetrics callMetrics;
+
+    /**
+     * The token buckets limiting the rate of the calls of every organization.
+     */
+    private final BsidcaRateLimiter rateLimiter;
+
+    /**
+     * The timeouts of the calls by profile.
+     */
+    private final TimeoutSettings timeouts;
+
+    /**
+     * Constructor for the WorkflowService class. Initializes the settings and
+     * the call policies, and starts creating a pool of BSIDCA sessions for
+     * every endpoint in the background. The constructor returns without
+     * waiting for the BSIDCA service, so that the rest of the application
+     * context initializes in parallel.
+     *
+     * @param settings      The application settings used to connect to the
+     *                      BSIDCA web service.
+     * @param meterRegistry The registry the BSIDCA call metrics are published
+     *                      to.
+     */
+    public WorkflowService(Settings settings, MeterRegistry meterRegistry) {
+
+        this.settings = settings;
+
+        ResilienceSettings resilience = settings.getResilience();
+        for (BsidcaOperation operation : BsidcaOperation.values()) {
+            this.circuitBreakers.put(operation, new BsidcaCircuitBreaker(operation, resilience));
+        }
+        this.bulkhead = new Semaphore(resilience.getMaxConcurrentCalls());
+        this.bulkheadWaitMs = resilience.getBulkheadWaitMs();
+        this.retryPolicy = new BsidcaRetryPolicy(resilience, meterRegistry);
+        this.hedgePolicy = new BsidcaHedgePolicy(resilience, meterRegistry);
+        this.codecMetrics = new BsidcaCodecMetrics(meterRegistry);
+        this.callMetrics = new BsidcaCallMetrics(meterRegistry);
+        this.rateLimiter = new BsidcaRateLimiter(settings.getRateLimit(), meterRegistry);
+        this.timeouts = settings.getTimeouts();
+
+        this.startupExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "bsidca-startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.startup = CompletableFuture.runAsync(() -> start(meterRegistry), this.startupExecutor);
+        this.startup.whenComplete((result, e) -> this.startupExecutor.shutdown());
+    }
+
+    /**
+     * Creates the shared transport and a pool of BSIDCA sessions for every
+     * endpoint, starts the router with the health monitors of the endpoints,
+     * and authenticates the sessions of all the endpoints in parallel. Sessions
+     * that fail to authenticate stay parked until their health monitor
+     * reconnects them. Runs on the startup threads.
+     *
+     * @param meterRegistry The registry the routing metrics are published to.
+     */
+    private void start(MeterRegistry meterRegistry) {
+        long begin = System.nanoTime();
+        BsidcaTransport createdTransport = null;
+        List<BsidcaEndpoint> endpoints = new ArrayList<>();
+        try {
+            createdTransport = new BsidcaTransport(this.settings.getHttpPool(), this.settings.getRecording(),
+                    this.callMetrics);
+            new PoolingHttpClientConnectionManagerMetricsBinder(createdTransport.getConnectionManager(), "bsidca")
+                    .bindTo(meterRegistry);
+            for (String baseUrl : this.settings.getBaseUrls()) {
+                endpoints.add(new BsidcaEndpoint(new BsidcaSessionPool(this.settings, baseUrl, createdTransport),
+                        this.settings.getRouting(), meterRegistry));
+            }
+            Log.info("WorkflowService startup set the BSIDCA session pools and their context properties");
+        } catch (AxisFault | RuntimeException e) {
+            Log.log(Level.SEVERE, "Exception during BSIDCA session pool creation at startup: ", e);
+            for (BsidcaEndpoint endpoint : endpoints) {
+                endpoint.getSessionPool().shutdown();
+            }
+            if (createdTransport != null) {
+                createdTransport.shutdown();
+            }
+            this.startupFailure = e;
+            return;
+        }
 
-            if (pingConnection()) {
-                // Stop scheduling reconnect attempts if the connection is successful
-                reconnectExecutor.shutdown();
+        BsidcaRouter createdRouter = new BsidcaRouter(endpoints, this.settings.getRouting(), meterRegistry);
+        synchronized (this) {
+            if (this.closed) {
+                createdRouter.shutdown();
+                createdTransport.shutdown();
+                return;
             }
+            this.transport = createdTransport;
+            this.router = createdRouter;
+            createdRouter.start();
+        }
+
+        // Establish the initial connection of every session to its BSIDCA endpoint
+        CompletableFuture<?>[] logins = endpoints.stream()
+                .map(endpoint -> CompletableFuture.runAsync(() -> endpoint.getSessionPool().connectAll(),
+                        this.startupExecutor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(logins).join();
+
+        int authenticated = endpoints.stream().mapToInt(endpoint -> endpoint.getSessionPool().getAuthenticated())
+                .sum();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        if (authenticated == 0) {
+            Log.log(Level.SEVERE, "No BSIDCA session could be authenticated at startup ({0} ms), the application "
+                    + "stays out of readiness until the health monitor reconnects one", elapsedMs);
         } else {
-            // Stop scheduling reconnect attempts after reaching the maximum retries
-            reconnectExecutor.shutdown();
+            Log.log(Level.INFO, "BSIDCA startup completed in {0} ms with {1} authenticated session(s)",
+                    new Object[] { elapsedMs, authenticated });
         }
     }
 
     /**
-     * Constructor for the WorkflowService class. Initializes the settings and
-     * BSIDCAStub objects, and calls newConnectSession to establish a connection
-     * to the SafeNet (BSIDCA) web service. It also initializes the
-     * reconnectExecutor and sets the initial reconnectAttempts to 0.
+     * Invokes a SafeNet (BSIDCA) web service operation. The call is first
+     * admitted by the rate limiter of its organization, waiting for a token if
+     * needed. Idempotent operations failing with a transient fault are retried
+     * with a jittered exponential backoff, within the limits of the retry
+     * budget. An attempt of an idempotent operation that is slower than usual
+     * may be hedged by a duplicate made on another session. Every attempt and
+     * every duplicate goes through the bulkhead and the circuit breaker of the
+     * operation. None of them is made once the deadline of the request bound
+     * to the current thread has expired. The latency and outcome of the call
+     * are recorded by the call metrics.
      *
-     * @param settings The application settings used to connect to the BSIDCA
-     *                 web service.
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param call         The web service call to make with a leased session.
+     * @return The response of the web service call.
+     * @throws RemoteException             if no session could be leased or the
+     *                                     BSIDCA web service call fails.
+     * @throws BsidcaUnavailableException if the call was rejected.
+     * @throws BsidcaRateLimitException   if the organization is over its rate
+     *                                    limit.
+     * @throws BsidcaDeadlineExceededException if the deadline of the request
+     *                                         expires first.
      */
-    public WorkflowService(Settings settings) {
+    public <T> T invoke(BsidcaOperation operation, String organization, BsidcaCall<T> call)
+            throws RemoteException {
 
-        this.settings = settings;
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            BsidcaDeadline.check(operation);
+            this.rateLimiter.acquire(organization);
+            return this.retryPolicy.execute(operation,
+                    () -> this.hedgePolicy.execute(operation, () -> invokeGuarded(operation, organization, call)));
+        } catch (RemoteException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            this.callMetrics.recordCall(operation, organization, System.nanoTime() - start, failure);
+        }
+    }
+
+    /**
+     * Invokes a SafeNet (BSIDCA) web service operation as invoke() does, and
+     * records the CPU time and memory spent by every attempt under the codec
+     * it uses.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param codec        The codec used by the call.
+     * @param call         The web service call to make with a leased session.
+     * @return The response of the web service call.
+     * @throws RemoteException             if no session could be leased or the
+     *                                     BSIDCA web service call fails.
+     * @throws BsidcaUnavailableException if the call was rejected.
+     */
+    public <T> T invoke(BsidcaOperation operation, String organization, BsidcaCodec codec, BsidcaCall<T> call)
+            throws RemoteException {
+
+        return invoke(operation, organization, this.codecMetrics.measure(codec, operation, call));
+    }
+
+    /**
+     * Makes one attempt of a SafeNet (BSIDCA) web service call through the
+     * bulkhead and the circuit breaker of the operation. The call is rejected
+     * with a BsidcaUnavailableException, without being made, if no slot of the
+     * bulkhead frees up in time or if the circuit is open. Otherwise its outcome
+     * and duration are recorded by the circuit breaker, unless the call ended
+     * because the deadline of its request expired: a short deadline chosen by
+     * a client says nothing about the health of the BSIDCA service.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param call         The web service call to make with a leased session.
+     * @return The response of the web service call.
+     * @throws RemoteException             if no session could be leased or the
+     *                                     BSIDCA web service call fails.
+     * @throws BsidcaUnavailableException if the call was rejected.
+     */
+    private <T> T invokeGuarded(BsidcaOperation operation, String organization, BsidcaCall<T> call)
+            throws RemoteException {
+
+        BsidcaDeadline.check(operation);
+        acquireBulkhead(operation);
+        try {
+            BsidcaCircuitBreaker circuitBreaker = this.circuitBreakers.get(operation);
+            if (!circuitBreaker.tryAcquire()) {
+                long retryAfterSeconds = Math.max(1,
+                        TimeUnit.MILLISECONDS.toSeconds(circuitBreaker.getRemainingOpenMs()));
+                throw new BsidcaUnavailableException(String.format(
+                        "The BSIDCA %s circuit is open, the SafeNet server is failing or too slow", operation),
+                        retryAfterSeconds);
+            }
+
+            long start = System.nanoTime();
+            boolean failed = false;
+            boolean ranOutOfTime = false;
+            try {
+                return invokeOnSession(operation, organization, call);
+            } catch (RemoteException e) {
+                failed = BsidcaFaults.isTransportFailure(e);
+                throw e;
+            } catch (BsidcaDeadlineExceededException e) {
+                ranOutOfTime = true;
+                throw e;
+            } finally {
+                if (ranOutOfTime || BsidcaHedgePolicy.isCurrentAbandoned()) {
+                    // The call was cut short by its request, or aborted because its hedge answered first
+                    circuitBreaker.onIgnored();
+                } else {
+                    circuitBreaker.onResult(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed);
+                }
+            }
+        } finally {
+            this.bulkhead.release();
+        }
+    }
+
+    /**
+     * Takes a slot of the bulkhead, waiting up to the configured bulkhead wait,
+     * or until the deadline of the request, for one to free up.
+     *
+     * @param operation The BSIDCA operation being invoked.
+     * @throws BsidcaUnavailableException if no slot frees up in time.
+     */
+    private void acquireBulkhead(BsidcaOperation operation) {
+        boolean acquired;
+        try {
+            acquired = this.bulkhead.tryAcquire(Math.max(0, BsidcaDeadline.remainingMs(this.bulkheadWaitMs)),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new BsidcaUnavailableException(
+                    String.format("Too many BSIDCA calls in progress, %s call rejected", operation), 1);
+        }
+    }
+
+    /**
+     * Makes a SafeNet (BSIDCA) web service call on the endpoint selected by the
+     * router. The time spent waiting for a session and making the call is
+     * reported to the router, together with whether the call failed at the
+     * transport level, so that slow endpoints receive fewer calls and failing
+     * ones are ejected.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param call         The web service call to make with a leased session.
+     * @return The response of the web service call.
+     * @throws RemoteException             if no session could be leased or the
+     *                                     BSIDCA web service call fails.
+     * @throws BsidcaUnavailableException if the startup is still in progress.
+     */
+    private <T> T invokeOnSession(BsidcaOperation operation, String organization, BsidcaCall<T> call)
+            throws RemoteException {
 
-        // Initialize the reconnectExecutor with a single thread
-        reconnectExecutor = Executors.newSingleThreadScheduledExecutor();
-        // Reset reconnectAttempts counter
-        reconnectAttempts = 0;
+        BsidcaRouter currentRouter = this.router;
+        if (currentRouter == null) {
+            if (this.startupFailure != null) {
+                throw new AxisFault("The BSIDCA session pools are not available");
+            }
+            throw new BsidcaUnavailableException("The connection to the BSIDCA service is still being established",
+                    1);
+        }
 
+        BsidcaEndpoint endpoint = currentRouter.select();
+        endpoint.onCallStarted();
+        long start = System.nanoTime();
+        boolean failed = false;
         try {
-            this.bsidca = new BSIDCAStub(settings.getBsidcaUrl());
-            setContextProperties(this.bsidca);
-            Log.info("WorkflowService() constructor set BSIDCA and its context properties");
+            return invokeOnPool(operation, organization, endpoint, call);
+        } catch (RemoteException e) {
+            failed = !BsidcaHedgePolicy.isCurrentAbandoned() && BsidcaFaults.isTransportFailure(e);
+            throw e;
+        } finally {
+            currentRouter.onResult(endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed);
+        }
+    }
+
+    /**
+     * Makes a SafeNet (BSIDCA) web service call on a session of the pool of an
+     * endpoint. A session is leased from the pool for the duration of the call
+     * and returned afterwards. The session is not pinged beforehand: if the
+     * call fails because the operator session has expired, a spare session of
+     * the pool is swapped in for it and the call is made once more, without
+     * waiting for a Connect call. When no spare is available, the call is made
+     * once more on another authenticated session leased from the pool. Expired
+     * sessions are parked until the health monitor has authenticated them
+     * again. A call that fails because the deadline of its request expired, or
+     * that was aborted because its hedge answered first, is not held against
+     * the session, the endpoint or the circuit breaker.
+     *
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param endpoint     The endpoint the call is made on.
+     * @param call         The web service call to make with the leased session.
+     * @return The response of the web service call.
+     * @throws RemoteException if no session could be leased or the BSIDCA web
+     *                         service call fails.
+     * @throws BsidcaDeadlineExceededException if the deadline of the request
+     *                                         expires first.
+     */
+    private <T> T invokeOnPool(BsidcaOperation operation, String organization, BsidcaEndpoint endpoint,
+            BsidcaCall<T> call) throws RemoteException {
+
+        BsidcaSessionPool sessionPool = endpoint.getSessionPool();
+        BsidcaSession session = leaseSession(operation, sessionPool);
+        try {
+            T result = session.execute(operation, organization, call, getCallTimeoutMs(operation));
+            session.recordResult(true);
+            return result;
+        } catch (RemoteException e) {
+            if (BsidcaHedgePolicy.isCurrentAbandoned()) {
+                // The call was aborted because its hedge answered first
+                throw e;
+            }
+            if (BsidcaDeadline.isCurrentExpired()) {
+                Log.log(Level.FINE, String.format("BSIDCA %s call for organization %s ran out of time on session #%d",
+                        operation, organization, session.getId()), e);
+                throw new BsidcaDeadlineExceededException(operation);
+            }
+            if (!BsidcaFaults.isSessionExpired(e)) {
+                session.recordResult(false);
+                Log.log(Level.FINE, String.format("BSIDCA %s call for organization %s failed on session #%d",
+                        operation, organization, session.getId()), e);
+                throw e;
+            }
+
+            BsidcaSession spare = sessionPool.swap(session);
+            if (spare != null) {
+                String infoMessage = String.format("BSIDCA session #%d expired during a %s call, swapped in spare #%d",
+                        session.getId(), operation, spare.getId());
+                Log.info(infoMessage);
+                endpoint.getSessionMetrics().recordSwap();
+                session = spare;
+                return retryOnSession(operation, organization, session, call);
+            }
+            String infoMessage = String.format("BSIDCA session #%d expired during a %s call, leasing another one",
+                    session.getId(), operation);
+            Log.info(infoMessage);
+            session.invalidate();
+        } finally {
+            sessionPool.release(session);
+        }
+
+        // The expired session is parked for the health monitor, lease an authenticated one
+        BsidcaSession other = leaseSession(operation, sessionPool);
+        try {
+            return retryOnSession(operation, organization, other, call);
+        } finally {
+            sessionPool.release(other);
+        }
+    }
+
+    /**
+     * Leases a session of a pool, waiting up to the lease timeout of the
+     * settings or until the deadline of the request.
+     *
+     * @param operation   The BSIDCA operation being invoked.
+     * @param sessionPool The pool to lease the session from.
+     * @return The leased session.
+     * @throws AxisFault if no session becomes available before the lease
+     *                   timeout.
+     * @throws BsidcaDeadlineExceededException if the deadline of the request
+     *                                         expires first.
+     */
+    private BsidcaSession leaseSession(BsidcaOperation operation, BsidcaSessionPool sessionPool)
+            throws AxisFault {
+
+        try {
+            return sessionPool.lease(
+                    Math.max(0, BsidcaDeadline.remainingMs(this.settings.getSessionPool().getLeaseTimeoutMs())));
         } catch (AxisFault e) {
-            Log.log(Level.SEVERE, "Exception during BSIDCA connect call in constructor: ", e);
-            e.printStackTrace();
+            if (BsidcaDeadline.isCurrentExpired()) {
+                throw new BsidcaDeadlineExceededException(operation);
+            }
+            throw e;
         }
+    }
 
-        // Establish the initial connection to the BSIDCA web service
-        this.newConnectSession();
+    /**
+     * Computes the socket timeout of a call: the timeout of the profile of its
+     * operation, or the time left before the deadline of the request if that
+     * is shorter.
+     *
+     * @param operation The BSIDCA operation being invoked.
+     * @return The socket timeout of the call, in milliseconds.
+     * @throws BsidcaDeadlineExceededException if the deadline of the request has
+     *                                         expired.
+     */
+    private int getCallTimeoutMs(BsidcaOperation operation) {
+        long timeoutMs = BsidcaDeadline.remainingMs(this.timeouts.getTimeoutMs(operation.getTimeoutProfile()));
+        if (timeoutMs <= 0) {
+            throw new BsidcaDeadlineExceededException(operation);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, timeoutMs);
     }
 
     /**
-     * Returns the BSIDCAStub object used to connect to the SafeNet (BSIDCA)
-     * web service.
-     * If the connection is lost or not yet established, this method will
-     * attempt to reconnect up to MAX_RETRIES_BSIDCA times, with a delay of
-     * RECONNECT_INTERVAL between each attempt.
+     * Makes a failed call once more with another authenticated session.
      *
-     * @return A BSIDCAStub object used to connect to the SafeNet (BSIDCA) web
-     *         service.
+     * @param operation    The BSIDCA operation being invoked.
+     * @param organization The organization the call acts on.
+     * @param session      The leased session to make the call with.
+     * @param call         The web service call to make again.
+     * @return The response of the web service call.
+     * @throws RemoteException if the second attempt fails.
      */
-    public BSIDCAStub getBsidca() {
+    private <T> T retryOnSession(BsidcaOperation operation, String organization, BsidcaSession session,
+            BsidcaCall<T> call) throws RemoteException {
 
-        if (!pingConnection()) {
-            reconnectExecutor.scheduleAtFixedRate(this::reconnect, 0, RECONNECT_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            T result = session.execute(operation, organization, call, getCallTimeoutMs(operation));
+            session.recordResult(true);
+            return result;
+        } catch (RemoteException e) {
+            if (BsidcaHedgePolicy.isCurrentAbandoned()) {
+                throw e;
+            }
+            if (BsidcaDeadline.isCurrentExpired()) {
+                throw new BsidcaDeadlineExceededException(operation);
+            }
+            if (BsidcaFaults.isSessionExpired(e)) {
+                session.invalidate();
+            } else {
+                session.recordResult(false);
+            }
+            Log.log(Level.FINE, String.format("BSIDCA %s call for organization %s failed again on session #%d",
+                    operation, organization, session.getId()), e);
+            throw e;
         }
-        return bsidca;
     }
 
     /**
-     * Sets the context properties for the provided Apache Axis2 stub object. The
-     * context properties include a connection pool, connection timeout, and other
-     * HTTP parameters used for establishing a connection to the SafeNet (BSIDCA)
-     * web service.
-     * 
-     * @param stub The Apache Axis2 stub object to configure the context properties
-     *             for.
-     */
-    public static void setContextProperties(Stub stub) {
-
-        // Set the max connections to 20 and the timeout to 20 seconds
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(20);
-        connectionManager.setDefaultMaxPerRoute(20);
-        connectionManager.setValidateAfterInactivity(20000);
-
-        HttpClient httpClient = HttpClientBuilder.create()
-                .setConnectionManager(connectionManager)
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setSocketTimeout(20000)
-                        .setConnectTimeout(20000)
-                        .build())
-                .build();
-
-        // stub._getServiceClient().getOptions().setProperty(HTTPConstants.REUSE_HTTP_CLIENT,
-        // Constants.VALUE_TRUE);
-        stub._getServiceClient().getServiceContext().getConfigurationContext()
-                .setProperty(HTTPConstants.CACHED_HTTP_CLIENT, httpClient);
-
-        // Disable validation of DOCTYPE declaration
-        stub._getServiceClient().getOptions().setProperty("disableDTD", true);
+     * Stops the startup, the router, the health monitors and the hedging
+     * threads, and releases the sessions of every endpoint and the shared HTTP
+     * client when the application context is closed.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        this.closed = true;
+        this.startupExecutor.shutdownNow();
+        this.hedgePolicy.shutdown();
+        if (this.router != null) {
+            this.router.shutdown();
+        }
+        if (this.transport != null) {
+            this.transport.shutdown();
+        }
+    }
+
+    /**
+     * Gets the router balancing the calls across the BSIDCA endpoints.
+     *
+     * @return The router, or null if the startup is still in progress or the
+     *         session pools could not be created.
+     */
+    public BsidcaRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * Gets the exception that made the startup of the session pools fail.
+     *
+     * @return The exception, or null if the startup succeeded or is still in
+     *         progress.
+     */
+    public Throwable getStartupFailure() {
+        return startupFailure;
+    }
+
+    /**
+     * Tells whether the hot BSIDCA operations can be made with the lean codec,
+     * that is whether the session pool of every endpoint holds one.
+     *
+     * @return true if the StAX codec is used, false if the XMLBeans codec is
+     *         used for every call or the session pools could not be created.
+     */
+    public boolean isSoapCodecEnabled() {
+        BsidcaRouter currentRouter = this.router;
+        if (currentRouter == null) {
+            return false;
+        }
+        for (BsidcaEndpoint endpoint : currentRouter.getEndpoints()) {
+            if (endpoint.getSessionPool().getSoapCodec() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets a snapshot of the pool of HTTP connections to the BSIDCA endpoints.
+     *
+     * @return The snapshot of the HTTP connection pool, or null if the session
+     *         pools are not created yet or could not be created.
+     */
+    public ConnectionPoolStats getConnectionPoolStats() {
+        BsidcaTransport currentTransport = this.transport;
+        if (currentTransport == null) {
+            return null;
+        }
+        return currentTransport.getConnectionManager().getSnapshot();
+    }
+
+    /**
+     * Changes the bounds between which the pool of HTTP connections to the
+     * BSIDCA service is resized.
+     *
+     * @param minConnections The number of connections the pool never shrinks
+     *                       below.
+     * @param maxConnections The number of connections the pool never grows
+     *                       beyond.
+     * @return The snapshot of the HTTP connection pool after the change, or null
+     *         if the session pools are not created yet or could not be created.
+     * @throws IllegalArgumentException if the bounds are invalid.
+     */
+    public ConnectionPoolStats setConnectionPoolBounds(int minConnections, int maxConnections) {
+        BsidcaTransport currentTransport = this.transport;
+        if (currentTransport == null) {
+            return null;
+        }
+        currentTransport.getConnectionManager().setBounds(minConnections, maxConnections);
+        return currentTransport.getConnectionManager().getSnapshot();
+    }
+
+    /**
+     * Gets a snapshot of the rate limit of every organization that made a call
+     * or has a limit of its own.
+     *
+     * @return The snapshots of the token buckets, sorted by organization.
+     */
+    public List<RateLimitStats> getRateLimits() {
+        return this.rateLimiter.getSnapshot();
+    }
+
+    /**
+     * Changes the rate limit of the calls an organization makes to the BSIDCA
+     * service.
+     *
+     * @param organization  The organization.
+     * @param ratePerSecond The number of calls per second its bucket refills at.
+     * @param burst         The number of calls its bucket holds for bursts.
+     * @return The snapshot of the bucket of the organization after the change.
+     * @throws IllegalArgumentException if the limit is invalid.
+     */
+    public RateLimitStats setRateLimit(String organization, double ratePerSecond, int burst) {
+        return this.rateLimiter.setLimit(organization, ratePerSecond, burst);
     }
 
     /**
@@ -234,63 +758,26 @@ public class WorkflowService {
     }
 
     /**
-     * This method creates a new session with the BSIDCA service. It uses the
-     * operator email, OTP, and validation code from the settings to connect to the
-     * service. If the connection is successful, it resets the reconnectAttempts
-     * counter.
-     * In case of connection failure, the method logs an error message with the
-     * cause of the failure.
-     */
-    public void newConnectSession() {
-        // connect
-        ConnectDocument connectDocument = ConnectDocument.Factory.newInstance();
-
-        // Use the ConnectDocument instance to set the properties
-        ConnectDocument.Connect data = connectDocument.addNewConnect();
-        data.setOperatorEmail(this.settings.getUsername());
-        data.setOTP(this.settings.getPassword());
-        data.setValidationCode(null);
-
-        try {
-            // call the web service
-            ConnectResponseDocument crd = this.bsidca.connect(connectDocument);
-
-            MessageContext msgCtx = this.bsidca._getServiceClient().getLastOperationContext()
-                    .getMessageContext(WSDLConstants.MESSAGE_LABEL_IN_VALUE);
-            CommonsTransportHeaders cth = (CommonsTransportHeaders) msgCtx
-                    .getProperty(MessageContext.TRANSPORT_HEADERS);
-            // String cookie = (String) cth.get(HTTPConstants.HEADER_SET_COOKIE);
-
-            // Print the headers - DEBUG PURPOSES ONLY
-            for (Map.Entry<String, String> entry : cth.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
-                String tmpDebugMsg = key + ": " + value;
-                Log.finest(tmpDebugMsg);
-            }
-
-            Log.info("Authentication result: " + crd.getConnectResponse().getConnectResult());
-            reconnectAttempts = 0; // Reset reconnect attempts on successful authentication
-
-        } catch (Exception e) {
-            Log.log(Level.SEVERE, "Failed to connect! ", e);
-        }
-    }
-
-    /**
-     * Pings the connection to the BSIDCA service to check if it's still active.
+     * Pings a session of the endpoint selected by the router to check if the
+     * connection to the BSIDCA service is still active.
      * 
      * @return A boolean value indicating if the connection is still active or not.
      */
     public boolean pingConnection() {
+        BsidcaRouter currentRouter = this.router;
+        if (currentRouter == null) {
+            return false;
+        }
         try {
-            PingConnectionDocument pingDocument = PingConnectionDocument.Factory.newInstance();
-            boolean pingResult = this.bsidca.pingConnection(pingDocument).getPingConnectionResponse()
-                    .getPingConnectionResult();
-            String debugMessage = "BSIDCA connection status: " + pingResult;
-            Log.fine(debugMessage);
-            return pingResult;
-        } catch (RemoteException e) {
+            BsidcaSessionPool sessionPool = currentRouter.select().getSessionPool();
+            BsidcaSession session = sessionPool.lease();
+            try {
+                return session.ping();
+            } finally {
+                sessionPool.release(session);
+            }
+        } catch (AxisFault e) {
+            Log.log(Level.FINE, "Could not lease a BSIDCA session to ping the connection", e);
             return false;
         }
     }